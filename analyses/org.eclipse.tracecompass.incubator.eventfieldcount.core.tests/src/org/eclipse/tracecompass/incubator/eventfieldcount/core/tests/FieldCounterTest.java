@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2024 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.eventfieldcount.core.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.eclipse.tracecompass.incubator.internal.fieldcount.core.CountMinSketch;
+import org.eclipse.tracecompass.incubator.internal.fieldcount.core.FieldCounter;
+import org.junit.Test;
+
+/**
+ * Test the {@link FieldCounter} and {@link CountMinSketch}
+ */
+public class FieldCounterTest {
+
+    /**
+     * Test exact counting and merging of counters
+     */
+    @Test
+    public void testExact() {
+        FieldCounter first = new FieldCounter(10, 5);
+        FieldCounter second = new FieldCounter(10, 5);
+        first.add("a");
+        first.add("b");
+        second.add("b");
+        second.add("c");
+        first.merge(second);
+        assertTrue(first.isExact());
+        assertEquals(0, first.getErrorBound());
+        List<Entry<String, Long>> counts = first.getCounts();
+        assertEquals(3, counts.size());
+        assertEquals("b", counts.get(0).getKey());
+        assertEquals(2L, (long) counts.get(0).getValue());
+        assertEquals("a", counts.get(1).getKey());
+        assertEquals("c", counts.get(2).getKey());
+    }
+
+    /**
+     * Test that a high-cardinality counter keeps the heavy hitters
+     */
+    @Test
+    public void testHeavyHitters() {
+        FieldCounter first = new FieldCounter(100, 3);
+        FieldCounter second = new FieldCounter(100, 3);
+        for (int i = 0; i < 10000; i++) {
+            FieldCounter counter = (i % 2 == 0) ? first : second;
+            counter.add("unique" + i);
+            if (i % 10 == 0) {
+                counter.add("hot");
+            }
+            if (i % 20 == 0) {
+                counter.add("warm");
+            }
+        }
+        first.merge(second);
+        assertFalse(first.isExact());
+        List<Entry<String, Long>> counts = first.getCounts();
+        assertEquals(3, counts.size());
+        long error = first.getErrorBound();
+        assertEquals("hot", counts.get(0).getKey());
+        long hot = counts.get(0).getValue();
+        assertTrue(hot >= 1000 && hot <= 1000 + error);
+        assertEquals("warm", counts.get(1).getKey());
+        long warm = counts.get(1).getValue();
+        assertTrue(warm >= 500 && warm <= 500 + error);
+    }
+
+    /**
+     * Test the count-min sketch estimates and merge
+     */
+    @Test
+    public void testSketch() {
+        CountMinSketch first = new CountMinSketch(4, 10);
+        CountMinSketch second = new CountMinSketch(4, 10);
+        first.add("a", 5);
+        second.add("a", 3);
+        second.add("b", 1);
+        first.merge(second);
+        assertEquals(9, first.getTotal());
+        assertTrue(first.estimate("a") >= 8);
+        assertTrue(first.estimate("b") >= 1);
+        assertTrue(first.estimate("a") <= 8 + first.getErrorBound());
+    }
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2024 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.fieldcount.core;
+
+/**
+ * Count-min sketch, a fixed-size table estimating the number of occurrences of
+ * strings. Estimates are never below the real count, and exceed it by at most
+ * {@link #getErrorBound()} with a probability of 1 - e<sup>-depth</sup>.
+ *
+ * Sketches with the same dimensions can be merged, so they can be filled by
+ * different threads and combined at the end.
+ */
+public class CountMinSketch {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int fDepth;
+    private final int fWidth;
+    private final long[] fCounts;
+    private long fTotal = 0;
+
+    /**
+     * Constructor
+     *
+     * @param depth
+     *            the number of rows, each row lowers the probability of
+     *            exceeding the error bound
+     * @param log2Width
+     *            the base 2 logarithm of the number of columns, more columns
+     *            lower the error bound
+     */
+    public CountMinSketch(int depth, int log2Width) {
+        if (depth <= 0 || log2Width <= 0 || log2Width > 24) {
+            throw new IllegalArgumentException("Invalid sketch dimensions: " + depth + 'x' + log2Width); //$NON-NLS-1$
+        }
+        fDepth = depth;
+        fWidth = 1 << log2Width;
+        fCounts = new long[depth * fWidth];
+    }
+
+    /**
+     * Add occurrences of a key
+     *
+     * @param key
+     *            the key
+     * @param count
+     *            the number of occurrences to add
+     * @return the new estimate of the key's count
+     */
+    public long add(String key, long count) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < fDepth; row++) {
+            int index = row * fWidth + ((h1 + row * h2) & (fWidth - 1));
+            fCounts[index] += count;
+            estimate = Math.min(estimate, fCounts[index]);
+        }
+        fTotal += count;
+        return estimate;
+    }
+
+    /**
+     * Get the estimated count of a key
+     *
+     * @param key
+     *            the key
+     * @return the estimate, never lower than the real count
+     */
+    public long estimate(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < fDepth; row++) {
+            estimate = Math.min(estimate, fCounts[row * fWidth + ((h1 + row * h2) & (fWidth - 1))]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Add the counts of another sketch to this one
+     *
+     * @param other
+     *            a sketch of the same dimensions
+     */
+    public void merge(CountMinSketch other) {
+        if (other.fDepth != fDepth || other.fWidth != fWidth) {
+            throw new IllegalArgumentException("Cannot merge sketches of different dimensions"); //$NON-NLS-1$
+        }
+        for (int i = 0; i < fCounts.length; i++) {
+            fCounts[i] += other.fCounts[i];
+        }
+        fTotal += other.fTotal;
+    }
+
+    /**
+     * Get the total number of occurrences added to this sketch
+     *
+     * @return the total count
+     */
+    public long getTotal() {
+        return fTotal;
+    }
+
+    /**
+     * Get the maximal over-estimation of the counts, e / width * total
+     *
+     * @return the error bound
+     */
+    public long getErrorBound() {
+        return (long) Math.ceil(Math.E / fWidth * fTotal);
+    }
+
+    private static long hash(String key) {
+        // 64-bit FNV-1a, split in two 32-bit hashes for the rows
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -16,11 +16,17 @@ import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -28,6 +34,8 @@ import java.util.stream.Collectors;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
@@ -53,9 +61,8 @@ import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
 import org.eclipse.tracecompass.tmf.core.trace.experiment.TmfExperiment;
 
-import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Multiset;
 
 /**
  * Event count analysis, an on-demand analysis that generates Lami Tables while
@@ -69,10 +76,17 @@ public class FieldCountAnalysis extends LamiAnalysis {
 
     private static final long MASK = (1 << 10) - 1L;
     /**
-     * This is a simple way to remove unique elements. There should be a smarter
-     * way to do this.
+     * Maximum number of distinct values of an aspect counted exactly, aspects
+     * with more values only report their most frequent values, estimated with
+     * a count-min sketch.
      */
     private static final int MEMORY_SANITY_LIMIT = 40000;
+    /** Number of most frequent values reported for high-cardinality aspects */
+    private static final int TOP_K = 1000;
+    /** Number of events sent at once to a counting thread */
+    private static final int BATCH_SIZE = 1024;
+    private static final int QUEUE_SIZE = 16;
+    private static final int MAX_WORKERS = 8;
 
     /**
      * Constructor
@@ -115,23 +129,41 @@ public class FieldCountAnalysis extends LamiAnalysis {
         Predicate<ITmfEvent> filterPred = (event -> filter == null || filter.matches(event));
         SubMonitor mon = SubMonitor.convert(monitor, "Event Count Analysis", workRemaining(trace)); //$NON-NLS-1$
         AtomicLong done = new AtomicLong();
-        Map<String, Multiset<String>> eventAspectCounts = new HashMap<>();
+
+        /*
+         * Resolving the aspects is the expensive part, so the events are sent
+         * in batches to counting threads, each with its own counters, which
+         * are merged at the end. The aspects are resolved once here and the
+         * counters of a thread are indexed like them, so the threads do not
+         * look them up by name for each event.
+         */
+        List<ITmfEventAspect<?>> countedAspects = ImmutableList.copyOf(aspects);
+        int nbWorkers = Math.max(1, Math.min(MAX_WORKERS, Runtime.getRuntime().availableProcessors() - 1));
+        List<BlockingQueue<List<ITmfEvent>>> queues = new ArrayList<>(nbWorkers);
+        List<@Nullable FieldCounter[]> workerCounters = new ArrayList<>(nbWorkers);
+        List<Future<?>> workers = new ArrayList<>(nbWorkers);
+        ExecutorService executor = Executors.newFixedThreadPool(nbWorkers);
+        for (int i = 0; i < nbWorkers; i++) {
+            BlockingQueue<List<ITmfEvent>> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+            @Nullable FieldCounter[] counters = new FieldCounter[countedAspects.size()];
+            queues.add(queue);
+            workerCounters.add(counters);
+            workers.add(executor.submit(() -> countEvents(queue, countedAspects, counters)));
+        }
 
         TmfEventRequest req = new TmfEventRequest(ITmfEvent.class, tr, 0, Integer.MAX_VALUE, ExecutionType.BACKGROUND) {
+            private List<ITmfEvent> fBatch = new ArrayList<>(BATCH_SIZE);
+            private int fNextQueue = 0;
+
             @Override
             public void handleData(ITmfEvent event) {
                 if (monitor.isCanceled()) {
                     cancel();
                 }
                 if (filterPred.test(event)) {
-                    for (ITmfEventAspect<?> aspect : aspects) {
-                        Object resolved = aspect.resolve(event);
-                        if (resolved != null) {
-                            Multiset<String> dataSet = eventAspectCounts.computeIfAbsent(aspect.getName(), unused -> HashMultiset.create());
-                            if (dataSet.size() < MEMORY_SANITY_LIMIT || dataSet.contains(resolved)) {
-                                dataSet.add(String.valueOf(resolved));
-                            }
-                        }
+                    fBatch.add(event);
+                    if (fBatch.size() >= BATCH_SIZE) {
+                        flush();
                     }
                 }
                 if ((done.incrementAndGet() & MASK) == 0) {
@@ -142,29 +174,113 @@ public class FieldCountAnalysis extends LamiAnalysis {
                 }
             }
 
+            @Override
+            public void handleCompleted() {
+                flush();
+                super.handleCompleted();
+            }
+
+            private void flush() {
+                if (fBatch.isEmpty()) {
+                    return;
+                }
+                try {
+                    queues.get(fNextQueue).put(fBatch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    cancel();
+                }
+                fNextQueue = (fNextQueue + 1) % queues.size();
+                fBatch = new ArrayList<>(BATCH_SIZE);
+            }
+
         };
         trace.sendRequest(req);
         try {
             req.waitForCompletion();
-            for (Entry<String, Multiset<String>> entry : eventAspectCounts.entrySet()) {
-                Multiset<String> dataSet = entry.getValue();
+            for (BlockingQueue<List<ITmfEvent>> queue : queues) {
+                queue.put(Collections.emptyList());
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+            // Aspects of different traces of an experiment may share a name
+            Map<String, FieldCounter> eventAspectCounts = new LinkedHashMap<>();
+            for (@Nullable FieldCounter[] counters : workerCounters) {
+                for (int i = 0; i < counters.length; i++) {
+                    FieldCounter workerCounter = counters[i];
+                    if (workerCounter == null) {
+                        continue;
+                    }
+                    FieldCounter counter = eventAspectCounts.putIfAbsent(countedAspects.get(i).getName(), workerCounter);
+                    if (counter != null) {
+                        counter.merge(workerCounter);
+                    }
+                }
+            }
+            for (Entry<String, FieldCounter> entry : eventAspectCounts.entrySet()) {
+                FieldCounter counter = entry.getValue();
+                boolean exact = counter.isExact();
+                long error = counter.getErrorBound();
                 List<LamiTableEntry> entries = new ArrayList<>();
-                for (String element : dataSet.elementSet()) {
+                for (Entry<String, Long> count : counter.getCounts()) {
                     /* A row is an array of cells */
-                    List<LamiData> data = Arrays.asList(new LamiString(element), new LamiLongNumber((long) dataSet.count(element)));
+                    List<LamiData> data = exact ? Arrays.asList(new LamiString(count.getKey()), new LamiLongNumber(count.getValue())) :
+                            Arrays.asList(new LamiString(count.getKey()), new LamiLongNumber(count.getValue()), new LamiLongNumber(error));
                     entries.add(new LamiTableEntry(data));
                 }
-                List<LamiTableEntryAspect> tableAspects = Arrays.asList(new LamiCategoryAspect(entry.getKey(), 0), new LamiCountAspect("count", 1));
+                List<LamiTableEntryAspect> tableAspects = exact ? Arrays.asList(new LamiCategoryAspect(entry.getKey(), 0), new LamiCountAspect("count", 1)) : //$NON-NLS-1$
+                        Arrays.asList(new LamiCategoryAspect(entry.getKey(), 0), new LamiCountAspect("count (estimate)", 1), new LamiCountAspect("max error", 2)); //$NON-NLS-1$ //$NON-NLS-2$
                 LamiTableClass tableClass = new LamiTableClass(entry.getKey(), entry.getKey(), tableAspects, Collections.emptySet());
                 LamiResultTable lrt = new LamiResultTable(createTimeRange(tr), tableClass, entries);
                 results.add(lrt);
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new CoreException(new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Error counting event fields", e)); //$NON-NLS-1$
+        } finally {
+            executor.shutdownNow();
         }
         return results;
     }
 
+    /**
+     * Count the aspect values of the batches of events of a queue, until an
+     * empty batch is received. The counter of an aspect is at the index of
+     * the aspect, and is created with its first value.
+     */
+    private static @Nullable Void countEvents(BlockingQueue<List<ITmfEvent>> queue, List<ITmfEventAspect<?>> aspects, @Nullable FieldCounter[] counters) throws InterruptedException {
+        RuntimeException error = null;
+        for (List<ITmfEvent> batch = queue.take(); !batch.isEmpty(); batch = queue.take()) {
+            if (error != null) {
+                // Keep draining the queue so the request is not blocked
+                continue;
+            }
+            try {
+                for (ITmfEvent event : batch) {
+                    for (int i = 0; i < counters.length; i++) {
+                        Object resolved = aspects.get(i).resolve(event);
+                        if (resolved != null) {
+                            FieldCounter counter = counters[i];
+                            if (counter == null) {
+                                counter = new FieldCounter(MEMORY_SANITY_LIMIT, TOP_K);
+                                counters[i] = counter;
+                            }
+                            counter.add(String.valueOf(resolved));
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+        return null;
+    }
+
     // copied from TmfEventsEditor
     /**
      * Get the event table for the given trace. It will be of the type defined
@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * Copyright (c) 2024 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.fieldcount.core;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Counter of the values of one event aspect. The values are counted exactly
+ * until there are too many distinct values, then the counter switches to a
+ * {@link CountMinSketch}, only keeping the most frequent values (the heavy
+ * hitters) with their estimated count, so that the memory stays bounded.
+ *
+ * A counter is not thread-safe, but counters of the same aspect filled by
+ * different threads can be merged.
+ */
+public class FieldCounter {
+
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_LOG2_WIDTH = 14;
+
+    private final int fExactLimit;
+    private final int fTopK;
+
+    /** Exact counts, null once the counter switched to the sketch */
+    private @Nullable Map<String, long[]> fExact = new HashMap<>();
+    private @Nullable CountMinSketch fSketch = null;
+    /** Heavy hitter candidates, between fTopK and 2 * fTopK values */
+    private final Set<String> fCandidates = new HashSet<>();
+    /** Minimal estimate for a value to become a candidate */
+    private long fThreshold = 0;
+
+    /**
+     * Constructor
+     *
+     * @param exactLimit
+     *            the maximum number of distinct values to count exactly
+     * @param topK
+     *            the number of most frequent values to keep once the limit is
+     *            exceeded
+     */
+    public FieldCounter(int exactLimit, int topK) {
+        fExactLimit = exactLimit;
+        fTopK = topK;
+    }
+
+    /**
+     * Count one occurrence of a value
+     *
+     * @param value
+     *            the value
+     */
+    public void add(String value) {
+        add(value, 1);
+    }
+
+    private void add(String value, long count) {
+        Map<String, long[]> exact = fExact;
+        if (exact != null) {
+            long[] counter = exact.get(value);
+            if (counter != null) {
+                counter[0] += count;
+                return;
+            }
+            if (exact.size() < fExactLimit) {
+                exact.put(value, new long[] { count });
+                return;
+            }
+            switchToSketch(exact);
+        }
+        long estimate = getSketch().add(value, count);
+        if (estimate >= fThreshold && fCandidates.add(value) && fCandidates.size() > 2 * fTopK) {
+            pruneCandidates();
+        }
+    }
+
+    /**
+     * Add the counts of another counter to this one
+     *
+     * @param other
+     *            the counter to merge, which should not be used afterwards
+     */
+    public void merge(FieldCounter other) {
+        Map<String, long[]> otherExact = other.fExact;
+        if (otherExact != null) {
+            for (Entry<String, long[]> entry : otherExact.entrySet()) {
+                add(entry.getKey(), entry.getValue()[0]);
+            }
+            return;
+        }
+        Map<String, long[]> exact = fExact;
+        if (exact != null) {
+            switchToSketch(exact);
+        }
+        CountMinSketch otherSketch = other.fSketch;
+        if (otherSketch != null) {
+            getSketch().merge(otherSketch);
+        }
+        fCandidates.addAll(other.fCandidates);
+        pruneCandidates();
+    }
+
+    /**
+     * Get whether the counts are exact
+     *
+     * @return true if the counts are exact, false if they are estimates of the
+     *         most frequent values only
+     */
+    public boolean isExact() {
+        return fExact != null;
+    }
+
+    /**
+     * Get the maximal over-estimation of the counts returned by
+     * {@link #getCounts()}
+     *
+     * @return the error bound, 0 if the counts are exact
+     */
+    public long getErrorBound() {
+        CountMinSketch sketch = fSketch;
+        return sketch == null ? 0 : sketch.getErrorBound();
+    }
+
+    /**
+     * Get the counts, by decreasing count. If the counts are not exact, only
+     * the most frequent values are returned, with their estimated count.
+     *
+     * @return the values and their counts
+     */
+    public List<Entry<String, Long>> getCounts() {
+        List<Entry<String, Long>> counts = new ArrayList<>();
+        Map<String, long[]> exact = fExact;
+        if (exact != null) {
+            for (Entry<String, long[]> entry : exact.entrySet()) {
+                counts.add(new SimpleImmutableEntry<>(entry.getKey(), entry.getValue()[0]));
+            }
+        } else {
+            CountMinSketch sketch = getSketch();
+            for (String candidate : fCandidates) {
+                counts.add(new SimpleImmutableEntry<>(candidate, sketch.estimate(candidate)));
+            }
+        }
+        counts.sort(Comparator.<Entry<String, Long>, Long> comparing(Entry::getValue).reversed().thenComparing(Entry::getKey));
+        if (exact == null && counts.size() > fTopK) {
+            return new ArrayList<>(counts.subList(0, fTopK));
+        }
+        return counts;
+    }
+
+    private CountMinSketch getSketch() {
+        CountMinSketch sketch = fSketch;
+        if (sketch == null) {
+            sketch = new CountMinSketch(SKETCH_DEPTH, SKETCH_LOG2_WIDTH);
+            fSketch = sketch;
+        }
+        return sketch;
+    }
+
+    private void switchToSketch(Map<String, long[]> exact) {
+        fExact = null;
+        CountMinSketch sketch = getSketch();
+        for (Entry<String, long[]> entry : exact.entrySet()) {
+            sketch.add(entry.getKey(), entry.getValue()[0]);
+        }
+        fCandidates.addAll(exact.keySet());
+        pruneCandidates();
+    }
+
+    /**
+     * Keep only the top K candidates, and raise the threshold to the lowest
+     * estimate kept
+     */
+    private void pruneCandidates() {
+        if (fCandidates.size() <= fTopK) {
+            return;
+        }
+        CountMinSketch sketch = getSketch();
+        List<Entry<String, Long>> estimates = new ArrayList<>(fCandidates.size());
+        for (String candidate : fCandidates) {
+            estimates.add(new SimpleImmutableEntry<>(candidate, sketch.estimate(candidate)));
+        }
+        estimates.sort(Comparator.<Entry<String, Long>, Long> comparing(Entry::getValue).reversed());
+        fCandidates.clear();
+        for (Entry<String, Long> entry : estimates.subList(0, fTopK)) {
+            fCandidates.add(entry.getKey());
+        }
+        fThreshold = estimates.get(fTopK - 1).getValue();
+    }
+}
@@ -12,11 +12,18 @@
 package org.eclipse.tracecompass.incubator.internal.executioncomparison.core;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -69,10 +76,15 @@ public class DifferentialSeqCallGraphAnalysis extends TmfAbstractAnalysisModule
      * The ID
      */
     public static final String ID = "org.eclipse.tracecompass.incubator.executioncomparison.diffcallgraph"; //$NON-NLS-1$
+    /**
+     * The parameter of the minimal absolute relative difference for a node to
+     * appear in the differential call graph
+     */
+    public static final String DIFFERENCE_THRESHOLD_PARAM = "differenceThreshold"; //$NON-NLS-1$
     private static final Logger LOGGER = TraceCompassLog.getLogger(DifferentialSeqCallGraphAnalysis.class);
     private static final String MERGE = "Merge"; //$NON-NLS-1$
     private static Map<String, String> fCallStackAnalysisMap = new HashMap<>();
-    private static Map<String, ICallGraphProvider2> fTraceCallGraphRegistry = new HashMap<>();
+    private final Map<String, ICallGraphProvider2> fTraceCallGraphRegistry = new ConcurrentHashMap<>();
 
     private @Nullable DifferentialCallGraphProvider fDifferentialCallGraphProvider;
     private ITmfTimestamp fStartA = TmfTimestamp.BIG_BANG;
@@ -105,20 +117,24 @@ public class DifferentialSeqCallGraphAnalysis extends TmfAbstractAnalysisModule
         try (ScopeLog sl = new ScopeLog(LOGGER, Level.CONFIG, "DifferentialSequenceCGA::refresh()")) { //$NON-NLS-1$
             Collection<WeightedTree<ICallStackSymbol>> originalTree = new ArrayList<>();
             Collection<WeightedTree<ICallStackSymbol>> diffTree = new ArrayList<>();
-            WeightedTreeSet<ICallStackSymbol, Object> callGraphA = mergeCallGraph(fStartA, fEndA, getTraceListA());
+            // Build both sides of the comparison in parallel
+            List<WeightedTreeSet<ICallStackSymbol, Object>> callGraphs = mergeCallGraphs(Arrays.asList(
+                    new ComparisonSide(fStartA, fEndA, getTraceListA()),
+                    new ComparisonSide(fStartB, fEndB, getTraceListB())));
+            WeightedTreeSet<ICallStackSymbol, Object> callGraphA = callGraphs.get(0);
+            WeightedTreeSet<ICallStackSymbol, Object> callGraphB = callGraphs.get(1);
+
             Collection<@NonNull ?> processes = callGraphA.getTreesForNamed(MERGE);
             for (Object process : processes) {
                 originalTree.add((AggregatedCalledFunction) process);
             }
-
-            WeightedTreeSet<ICallStackSymbol, Object> callGraphB = mergeCallGraph(fStartB, fEndB, getTraceListB());
             processes = callGraphB.getTreesForNamed(MERGE);
             for (Object process : processes) {
                 diffTree.add((AggregatedCalledFunction) process);
             }
 
             Collection<DifferentialWeightedTree<ICallStackSymbol>> trees;
-            trees = WeightedTreeUtils.diffTrees(originalTree, diffTree, fStatistic);
+            trees = WeightedTreeUtils.diffTrees(originalTree, diffTree, fStatistic, getDifferenceThreshold());
 
             IWeightedTreeProvider<ICallStackSymbol, ICallStackElement, AggregatedCallSite> instrumentedCallStackAnalysis = Iterables.get(fTraceCallGraphRegistry.values(), 0);
             fDifferentialCallGraphProvider = new DifferentialCallGraphProvider(instrumentedCallStackAnalysis, trees);
@@ -139,55 +155,161 @@ public class DifferentialSeqCallGraphAnalysis extends TmfAbstractAnalysisModule
      *
      */
     public WeightedTreeSet<ICallStackSymbol, Object> mergeCallGraph(ITmfTimestamp start, ITmfTimestamp end, List<String> traceList) {
-        try (ScopeLog sl = new ScopeLog(LOGGER, Level.FINE, "DifferentialSequenceCGA::MergeCallGraph")) { //$NON-NLS-1$
-            WeightedTreeSet<ICallStackSymbol, Object> newTreeSet = new WeightedTreeSet<>();
-            String mainGroup = MERGE;
+        return mergeCallGraphs(Collections.singletonList(new ComparisonSide(start, end, traceList))).get(0);
+    }
 
-            List<CallGraph> cGList = addToCallGraph(start, end, traceList);
+    /**
+     * Merge the call graphs of many sides of the comparison. The call graphs
+     * of the traces, then the aggregations of their threads, are computed in
+     * parallel by a thread pool of this call, not by the common pool that is
+     * shared with the rest of the application. The tasks do not wait for one
+     * another, the partial trees are merged by the calling thread.
+     */
+    private List<WeightedTreeSet<ICallStackSymbol, Object>> mergeCallGraphs(List<ComparisonSide> sides) {
+        try (ScopeLog sl = new ScopeLog(LOGGER, Level.FINE, "DifferentialSequenceCGA::MergeCallGraph")) { //$NON-NLS-1$
+            List<Map<ICallStackSymbol, AggregatedCallSite>> mergedSides = new ArrayList<>(sides.size());
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+            try {
+                // Compute the call graphs of the traces of all sides
+                List<List<Future<@Nullable CallGraph>>> callGraphs = new ArrayList<>(sides.size());
+                for (ComparisonSide side : sides) {
+                    List<Future<@Nullable CallGraph>> sideCallGraphs = new ArrayList<>();
+                    for (String traceName : side.fTraceList) {
+                        sideCallGraphs.add(executor.submit(() -> getCallGraph(side.fStart, side.fEnd, traceName)));
+                    }
+                    callGraphs.add(sideCallGraphs);
+                }
+                // Aggregate each thread in its own partial tree
+                List<List<Future<Map<ICallStackSymbol, AggregatedCallSite>>>> partials = new ArrayList<>(sides.size());
+                for (List<Future<@Nullable CallGraph>> sideCallGraphs : callGraphs) {
+                    List<Future<Map<ICallStackSymbol, AggregatedCallSite>>> sidePartials = new ArrayList<>();
+                    for (Future<@Nullable CallGraph> future : sideCallGraphs) {
+                        CallGraph callGraph = future.get();
+                        if (callGraph == null) {
+                            continue;
+                        }
+                        for (ICallStackElement element : getLeafElements(callGraph)) {
+                            sidePartials.add(executor.submit(() -> {
+                                Map<ICallStackSymbol, AggregatedCallSite> partial = new LinkedHashMap<>();
+                                recurseAddElementData(element, callGraph, partial);
+                                return partial;
+                            }));
+                        }
+                    }
+                    partials.add(sidePartials);
+                }
+                // Merge the partial trees, in the order of the threads
+                for (List<Future<Map<ICallStackSymbol, AggregatedCallSite>>> sidePartials : partials) {
+                    Map<ICallStackSymbol, AggregatedCallSite> merged = new LinkedHashMap<>();
+                    for (Future<Map<ICallStackSymbol, AggregatedCallSite>> partial : sidePartials) {
+                        mergePartialTrees(merged, partial.get());
+                    }
+                    mergedSides.add(merged);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                mergedSides.clear();
+            } catch (ExecutionException e) {
+                Activator.getInstance().logError("Error merging the call graphs", e); //$NON-NLS-1$
+                mergedSides.clear();
+            } finally {
+                executor.shutdownNow();
+            }
 
-            for (CallGraph callGraph : cGList) {
-                Collection<ICallStackElement> elements = getLeafElements(callGraph);
-                for (ICallStackElement element : elements) {
-                    recurseAddElementData(element, mainGroup, callGraph, newTreeSet);
+            List<WeightedTreeSet<ICallStackSymbol, Object>> treeSets = new ArrayList<>(sides.size());
+            for (int i = 0; i < sides.size(); i++) {
+                WeightedTreeSet<ICallStackSymbol, Object> newTreeSet = new WeightedTreeSet<>();
+                if (i < mergedSides.size()) {
+                    for (AggregatedCallSite tree : mergedSides.get(i).values()) {
+                        newTreeSet.addWeightedTree(MERGE, tree);
+                    }
                 }
+                treeSets.add(newTreeSet);
             }
-            return newTreeSet;
+            return treeSets;
         }
     }
 
     /**
-     * Helper function that adds the call graphs for the specified time range
-     * and trace list to the call graph list.
+     * Merge the trees of a partial aggregation into another. This operation is
+     * associative, so the partial trees can be merged in any grouping.
+     */
+    private static void mergePartialTrees(Map<ICallStackSymbol, AggregatedCallSite> target, Map<ICallStackSymbol, AggregatedCallSite> source) {
+        for (AggregatedCallSite tree : source.values()) {
+            AggregatedCallSite previous = target.putIfAbsent(tree.getObject(), tree);
+            if (previous != null) {
+                previous.merge(tree);
+            }
+        }
+    }
+
+    private @Nullable CallGraph getCallGraph(ITmfTimestamp start, ITmfTimestamp end, String traceName) {
+        ICallGraphProvider2 instrumentedCallStackAnalysis = fTraceCallGraphRegistry.get(traceName);
+        if (instrumentedCallStackAnalysis == null) {
+            return null;
+        }
+        ITmfTrace trace = getTrace(traceName);
+        if (trace == null) {
+            return null;
+        }
+        ITmfTimestamp traceStart = start;
+        ITmfTimestamp traceEnd = end;
+
+        if (traceStart.getValue() < trace.getStartTime().getValue()) {
+            traceStart = trace.getStartTime();
+        }
+        if (traceEnd.getValue() > trace.getEndTime().getValue()) {
+            traceEnd = trace.getEndTime();
+        }
+        return instrumentedCallStackAnalysis.getCallGraph(traceStart, traceEnd);
+    }
+
+    /**
+     * Set the minimal absolute relative difference for a node to appear in the
+     * differential call graph. Nodes below the threshold are only kept if one
+     * of their descendants is above it. This sets the
+     * {@link #DIFFERENCE_THRESHOLD_PARAM} parameter, so the differential call
+     * graph is rebuilt if it was already computed.
      *
-     * @param start
-     *            the start time of the time range
-     * @param end
-     *            the end time of the time range
-     * @param traceList
-     *            the list of trace names
-     * @return the list of call graphs
+     * @param threshold
+     *            The threshold, {@link Double#NEGATIVE_INFINITY} to keep all
+     *            the nodes
      */
-    private static List<CallGraph> addToCallGraph(ITmfTimestamp start, ITmfTimestamp end, List<String> traceList) {
-        List<CallGraph> cGList = new ArrayList<>();
-        for (String traceName : traceList) {
-            ICallGraphProvider2 instrumentedCallStackAnalysis = fTraceCallGraphRegistry.get(traceName);
-            if (instrumentedCallStackAnalysis != null) {
-                ITmfTrace trace = getTrace(traceName);
-                if (trace != null) {
-                    ITmfTimestamp traceStart = start;
-                    ITmfTimestamp traceEnd = end;
-
-                    if (traceStart.getValue() < trace.getStartTime().getValue()) {
-                        traceStart = trace.getStartTime();
-                    }
-                    if (traceEnd.getValue() > trace.getEndTime().getValue()) {
-                        traceEnd = trace.getEndTime();
-                    }
-                    cGList.add(instrumentedCallStackAnalysis.getCallGraph(traceStart, traceEnd));
-                }
+    public void setDifferenceThreshold(double threshold) {
+        setParameter(DIFFERENCE_THRESHOLD_PARAM, threshold);
+    }
+
+    /**
+     * Get the minimal absolute relative difference for a node to appear in the
+     * differential call graph
+     *
+     * @return The threshold, {@link Double#NEGATIVE_INFINITY} if the
+     *         {@link #DIFFERENCE_THRESHOLD_PARAM} parameter is not set
+     */
+    public double getDifferenceThreshold() {
+        Object threshold = getParameter(DIFFERENCE_THRESHOLD_PARAM);
+        if (threshold instanceof Number) {
+            return ((Number) threshold).doubleValue();
+        }
+        if (threshold != null) {
+            try {
+                return Double.parseDouble(String.valueOf(threshold));
+            } catch (NumberFormatException e) {
+                Activator.getInstance().logWarning("Invalid difference threshold: " + threshold, e); //$NON-NLS-1$
             }
         }
-        return cGList;
+        return Double.NEGATIVE_INFINITY;
+    }
+
+    @Override
+    protected void parameterChanged(String name) {
+        if (name.equals(DIFFERENCE_THRESHOLD_PARAM) && !fTraceCallGraphRegistry.isEmpty()) {
+            // Rebuild the differential call graph with the new threshold, in
+            // the job of the analysis rather than in the caller's thread
+            cancel();
+            resetAnalysis();
+            schedule();
+        }
     }
 
     /**
@@ -245,10 +367,14 @@ public class DifferentialSeqCallGraphAnalysis extends TmfAbstractAnalysisModule
         return leafGroups;
     }
 
-    private static void recurseAddElementData(ICallStackElement element, String group, CallGraph callGraph, WeightedTreeSet<ICallStackSymbol, Object> newTreeSet) {
-        // Add the current level of trees to the new tree set
+    private static void recurseAddElementData(ICallStackElement element, CallGraph callGraph, Map<ICallStackSymbol, AggregatedCallSite> partial) {
+        // Add the current level of trees to the partial trees
         for (AggregatedCallSite tree : callGraph.getCallingContextTree(element)) {
-            newTreeSet.addWeightedTree(group, tree.copyOf());
+            AggregatedCallSite copy = tree.copyOf();
+            AggregatedCallSite previous = partial.putIfAbsent(copy.getObject(), copy);
+            if (previous != null) {
+                previous.merge(copy);
+            }
         }
 
         // Recursively add the next level of elements
@@ -256,7 +382,7 @@ public class DifferentialSeqCallGraphAnalysis extends TmfAbstractAnalysisModule
         Collection<ITree> children = treeEl.getChildren();
         for (ITree child : children) {
             if (child instanceof ICallStackElement) {
-                recurseAddElementData((ICallStackElement) child, group, callGraph, newTreeSet);
+                recurseAddElementData((ICallStackElement) child, callGraph, partial);
             }
         }
     }
@@ -424,4 +550,19 @@ public class DifferentialSeqCallGraphAnalysis extends TmfAbstractAnalysisModule
         return new ArrayList<>(fTraceListB);
     }
 
+    /**
+     * The time range and traces of one side of the comparison
+     */
+    private static final class ComparisonSide {
+        private final ITmfTimestamp fStart;
+        private final ITmfTimestamp fEnd;
+        private final List<String> fTraceList;
+
+        private ComparisonSide(ITmfTimestamp start, ITmfTimestamp end, List<String> traceList) {
+            fStart = start;
+            fEnd = end;
+            fTraceList = traceList;
+        }
+    }
+
 }
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.filters.core.tests.perf;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.lsp4j.CompletionParams;
+import org.eclipse.lsp4j.DidChangeTextDocumentParams;
+import org.eclipse.lsp4j.DidOpenTextDocumentParams;
+import org.eclipse.lsp4j.DocumentColorParams;
+import org.eclipse.lsp4j.MessageActionItem;
+import org.eclipse.lsp4j.MessageParams;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.PublishDiagnosticsParams;
+import org.eclipse.lsp4j.ShowMessageRequestParams;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
+import org.eclipse.lsp4j.TextDocumentIdentifier;
+import org.eclipse.lsp4j.TextDocumentItem;
+import org.eclipse.lsp4j.VersionedTextDocumentIdentifier;
+import org.eclipse.lsp4j.services.LanguageClient;
+import org.eclipse.lsp4j.services.TextDocumentService;
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+import org.eclipse.tracecompass.incubator.internal.filters.core.server.LanguageFilterServer;
+import org.junit.Test;
+
+/**
+ * Benchmarks the filter language server while a user types a long filter, one
+ * character at a time. Each keystroke sends the change, then asks for the
+ * completion and the colors, like the filter box does. The average latency of
+ * a keystroke is the measured time divided by the length of the filter. The
+ * server validates each change without delay, so that the measured time is
+ * the work of the server and not the delay that batches fast keystrokes.
+ */
+public class FilterServerBenchmark {
+
+    private static final String TEST_ID = "org.eclipse.tracecompass.incubator#Filters#";
+    private static final int LOOP_COUNT = 5;
+    private static final String URI = "benchmark";
+    private static final String CLAUSE = "(TID == 42 || PID != 12) && Poly matches \"Ericsson\" && present Name";
+    private static final int NB_CLAUSES = 20;
+
+    /**
+     * Benchmark typing a filter of many clauses
+     *
+     * @throws InterruptedException
+     *             if the benchmark is interrupted
+     * @throws ExecutionException
+     *             if a request fails
+     */
+    @Test
+    public void testTyping() throws InterruptedException, ExecutionException {
+        StringBuilder sb = new StringBuilder(CLAUSE);
+        for (int i = 1; i < NB_CLAUSES; i++) {
+            sb.append(" || ").append(CLAUSE);
+        }
+        String filter = sb.toString();
+
+        String testName = "Filter typing (" + filter.length() + " characters)";
+        Performance perf = Performance.getDefault();
+        PerformanceMeter pm = Objects.requireNonNull(perf.createPerformanceMeter(TEST_ID + testName));
+        perf.tagAsSummary(pm, testName, Dimension.CPU_TIME);
+        for (int i = 0; i < LOOP_COUNT; i++) {
+            DiagnosticsClient client = new DiagnosticsClient();
+            LanguageFilterServer server = new LanguageFilterServer(0);
+            server.connect(client);
+            TextDocumentService service = server.getTextDocumentService();
+            TextDocumentItem item = new TextDocumentItem();
+            item.setUri(URI);
+            item.setText("");
+            service.didOpen(new DidOpenTextDocumentParams(item));
+            TextDocumentIdentifier identifier = new TextDocumentIdentifier(URI);
+
+            pm.start();
+            for (int length = 1; length <= filter.length(); length++) {
+                String text = filter.substring(0, length);
+                VersionedTextDocumentIdentifier versioned = new VersionedTextDocumentIdentifier(URI, length);
+                service.didChange(new DidChangeTextDocumentParams(versioned, Collections.singletonList(new TextDocumentContentChangeEvent(text))));
+                assertNotNull(service.completion(new CompletionParams(identifier, new Position(0, length))).get());
+                assertNotNull(service.documentColor(new DocumentColorParams(identifier)).get());
+            }
+            // The diagnostics of the last version are published
+            assertTrue(client.await());
+            pm.stop();
+            server.exit();
+        }
+        pm.commit();
+    }
+
+    /**
+     * A client that only waits for the diagnostics
+     */
+    private static class DiagnosticsClient implements LanguageClient {
+
+        private final CountDownLatch fLatch = new CountDownLatch(1);
+
+        public boolean await() throws InterruptedException {
+            return fLatch.await(10, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void publishDiagnostics(PublishDiagnosticsParams diagnostics) {
+            fLatch.countDown();
+        }
+
+        @Override
+        public void telemetryEvent(Object object) {
+            // Nothing to do
+        }
+
+        @Override
+        public void showMessage(MessageParams messageParams) {
+            // Nothing to do
+        }
+
+        @Override
+        public CompletableFuture<@Nullable MessageActionItem> showMessageRequest(ShowMessageRequestParams requestParams) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void logMessage(MessageParams message) {
+            // Nothing to do
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.filters.core.tests.server;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.antlr.runtime.CommonToken;
+import org.eclipse.tracecompass.incubator.internal.filters.core.server.FilterDocument;
+import org.eclipse.tracecompass.incubator.internal.filters.core.server.FilterTokens;
+import org.junit.Test;
+
+/**
+ * Tests the incremental lexing of the filter strings
+ */
+public class FilterTokensTest {
+
+    private static final String FILTER = "(TID == 42 || PID != 12) && Poly matches \"Ericsson\" && present Name";
+
+    /**
+     * Type a filter one character at a time, the tokens of each version
+     * being lexed from the tokens of the previous one
+     *
+     * @throws IOException
+     *             from the lexer
+     */
+    @Test
+    public void testTyping() throws IOException {
+        FilterDocument document = new FilterDocument("");
+        for (int i = 1; i <= FILTER.length(); i++) {
+            document = document.update(FILTER.substring(0, i));
+            assertSameTokens(FilterTokens.tokenize(document.getText()), document.getTokens());
+        }
+    }
+
+    /**
+     * Insert and delete characters in the middle of a filter
+     *
+     * @throws IOException
+     *             from the lexer
+     */
+    @Test
+    public void testEdits() throws IOException {
+        String[] versions = {
+                FILTER,
+                FILTER.replace("42", "4242"),
+                FILTER.replace("42", "4"),
+                FILTER.replace("==", "="),
+                FILTER.replace(" && ", "&&"),
+                FILTER.replace("matches", "match"),
+                FILTER.replace("\"Ericsson\"", "\"Eric\""),
+                FILTER.substring(0, 20),
+                "",
+                FILTER };
+        List<CommonToken> tokens = FilterTokens.tokenize(versions[0]);
+        for (int i = 1; i < versions.length; i++) {
+            tokens = FilterTokens.retokenize(tokens, versions[i - 1], versions[i]);
+            assertSameTokens(FilterTokens.tokenize(versions[i]), tokens);
+        }
+    }
+
+    /**
+     * Lex a filter on many lines incrementally
+     *
+     * @throws IOException
+     *             from the lexer
+     */
+    @Test
+    public void testLines() throws IOException {
+        String previous = "TID == 42 ||\nPID == 12";
+        String str = "TID == 42 ||\nPID == 12 &&\nName present";
+        assertSameTokens(FilterTokens.tokenize(str), FilterTokens.retokenize(FilterTokens.tokenize(previous), previous, str));
+    }
+
+    private static void assertSameTokens(List<CommonToken> expected, List<CommonToken> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            CommonToken expectedToken = expected.get(i);
+            CommonToken token = actual.get(i);
+            assertEquals(expectedToken.getText(), token.getText());
+            assertEquals(expectedToken.getType(), token.getType());
+            assertEquals(expectedToken.getStartIndex(), token.getStartIndex());
+            assertEquals(expectedToken.getStopIndex(), token.getStopIndex());
+            assertEquals(expectedToken.getLine(), token.getLine());
+            assertEquals(expectedToken.getCharPositionInLine(), token.getCharPositionInLine());
+        }
+    }
+}
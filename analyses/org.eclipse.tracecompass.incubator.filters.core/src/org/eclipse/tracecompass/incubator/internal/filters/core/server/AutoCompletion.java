@@ -14,13 +14,9 @@ package org.eclipse.tracecompass.incubator.internal.filters.core.server;
 import java.util.ArrayList;
 import java.util.List;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 
-import org.antlr.runtime.ANTLRInputStream;
 import org.antlr.runtime.CommonToken;
-import org.antlr.runtime.CommonTokenStream;
-import org.antlr.runtime.RecognitionException;
 import org.eclipse.lsp4j.Position;
 import org.eclipse.tracecompass.tmf.filter.parser.FilterParserLexer;
 
@@ -49,25 +45,35 @@ public class AutoCompletion {
      * @throws IOException
      *             can be thrown by ByteArrayInputStream
      */
+    static public List<String> autoCompletion(String str, Position cursor) throws IOException {
+        return autoCompletion(str, FilterTokens.tokenize(str), cursor);
+    }
+
+    /**
+     * Proposes suggestions based on the cursor position, reusing the tokens of
+     * the content of the filter box instead of lexing it again
+     *
+     * @param str
+     *            is the content of the filter box
+     * @param tokens
+     *            are the tokens of the content of the filter box
+     * @param cursor
+     *            is the current position in the string
+     * @return List of suggestions as string
+     * @throws IOException
+     *             can be thrown by ByteArrayInputStream
+     */
     @SuppressWarnings("restriction") // Suppress restriction on ANTLR
                                      // FilterParser*
-    static public List<String> autoCompletion(String str, Position cursor) throws IOException {
+    static public List<String> autoCompletion(String str, List<CommonToken> tokens, Position cursor) throws IOException {
 
         String subString = str.substring(0, cursor.getCharacter());
         String endString = str.substring(cursor.getCharacter(), str.length());
         List<String> suggestions = new ArrayList<>();
 
-        // Initialize the lexerParser, parse str and return list of CommonToken
-        ByteArrayInputStream input = new ByteArrayInputStream(subString.getBytes());
-        ANTLRInputStream antlrStream = new ANTLRInputStream(input);
-        FilterParserLexer lexer = new FilterParserLexer(antlrStream);
-        ArrayList<RecognitionException> lexerExceptions = new ArrayList<>();
-        lexer.setErrorListener(e -> {
-            lexerExceptions.add((RecognitionException) e);
-        });
-        CommonTokenStream tokenStream = new CommonTokenStream(lexer);
-
-        List<CommonToken> commonTokens = tokenStream.getTokens();
+        // Tokens before the cursor, only the token under the cursor is lexed
+        // again
+        List<CommonToken> commonTokens = FilterTokens.retokenize(tokens, str, subString);
         if (commonTokens.isEmpty()) {
             return suggestions;
         }
@@ -105,22 +111,16 @@ public class AutoCompletion {
             }
         }
 
-        // format output so there is one space between each token
+        // format output so there is one space between each token. The
+        // suggestions start with the string before the cursor, whose tokens
+        // are reused.
         for (int i = 0; i < suggestions.size(); i++) {
-            input = new ByteArrayInputStream(suggestions.get(i).getBytes());
-            antlrStream = new ANTLRInputStream(input);
-            lexer = new FilterParserLexer(antlrStream);
-            tokenStream = new CommonTokenStream(lexer);
-            lexer.setErrorListener(e -> {
-                lexerExceptions.add((RecognitionException) e);
-            });
-
-            commonTokens = tokenStream.getTokens();
+            List<CommonToken> suggestionTokens = FilterTokens.retokenize(commonTokens, subString, suggestions.get(i));
 
             StringBuilder suggestion = new StringBuilder();
 
-            for (int j = 0; j < commonTokens.size(); j++) {
-                suggestion.append(commonTokens.get(j).getText() + " "); //$NON-NLS-1$
+            for (int j = 0; j < suggestionTokens.size(); j++) {
+                suggestion.append(suggestionTokens.get(j).getText() + " "); //$NON-NLS-1$
             }
             suggestions.set(i, suggestion.toString());
         }
@@ -13,10 +13,16 @@ package org.eclipse.tracecompass.incubator.internal.filters.core.server;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.antlr.runtime.RecognitionException;
 import org.eclipse.lsp4j.CodeAction;
@@ -73,18 +79,45 @@ import org.eclipse.tracecompass.incubator.internal.filters.core.Activator;
  */
 public class FilterBoxService implements TextDocumentService {
 
-    private Map<String, String> fFiltersInputs;
+    /**
+     * Default delay before validating a filter string, a change received
+     * during this delay cancels the validation of the previous string
+     */
+    public static final long DEFAULT_VALIDATION_DELAY_MS = 100;
+
+    private final Map<String, FilterDocument> fFiltersInputs;
+    private final Map<String, Future<?>> fPendingValidations;
+    private final ScheduledExecutorService fValidationExecutor;
     private final LanguageFilterServer fLSPServer;
+    private final long fValidationDelayMs;
 
     /**
      * Constructor for the filterBoxService
      *
      * @param server
      *            is a language filter server
+     * @param validationDelayMs
+     *            delay in milliseconds before validating a changed filter
+     *            string
      */
-    protected FilterBoxService(LanguageFilterServer server) {
-        fFiltersInputs = new HashMap<>();
+    protected FilterBoxService(LanguageFilterServer server, long validationDelayMs) {
+        fFiltersInputs = new ConcurrentHashMap<>();
+        fPendingValidations = new ConcurrentHashMap<>();
+        fValidationExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Filter validation"); //$NON-NLS-1$
+            thread.setDaemon(true);
+            return thread;
+        });
         fLSPServer = server;
+        fValidationDelayMs = validationDelayMs;
+    }
+
+    /**
+     * Cancel the pending validations and stop the validation thread
+     */
+    public void dispose() {
+        fValidationExecutor.shutdownNow();
+        fPendingValidations.clear();
     }
 
     /**
@@ -99,12 +132,13 @@ public class FilterBoxService implements TextDocumentService {
         List<CompletionItem> completions = new ArrayList<>();
         try {
             String uri = completionParams.getTextDocument().getUri();
-            String input = fFiltersInputs.get(uri);
-            if (input == null) {
+            FilterDocument document = fFiltersInputs.get(uri);
+            if (document == null) {
                 return CompletableFuture.completedFuture(Either.forLeft(completions));
             }
+            String input = document.getText();
             Position cursor = completionParams.getPosition();
-            List<String> suggestions = AutoCompletion.autoCompletion(input, cursor);
+            List<String> suggestions = AutoCompletion.autoCompletion(input, document.getTokens(), cursor);
             for (int i = 0; i < suggestions.size(); i++) {
                 Position start = new Position(0, 0);
                 Position end = new Position(0, input.length());
@@ -162,8 +196,11 @@ public class FilterBoxService implements TextDocumentService {
     public CompletableFuture<List<ColorInformation>> documentColor(DocumentColorParams params) {
         try {
             String uri = params.getTextDocument().getUri();
-            String input = fFiltersInputs.get(uri);
-            List<ColorInformation> colorInformation = SyntaxHighlighting.getColorInformationList(input);
+            FilterDocument document = fFiltersInputs.get(uri);
+            if (document == null) {
+                return CompletableFuture.completedFuture(Collections.emptyList());
+            }
+            List<ColorInformation> colorInformation = SyntaxHighlighting.getColorInformationList(document.getTokens());
             return CompletableFuture.completedFuture(colorInformation);
         } catch (IOException error) {
             Activator.getInstance().logError(error.getMessage());
@@ -221,11 +258,13 @@ public class FilterBoxService implements TextDocumentService {
 
     @Override
     public void didOpen(DidOpenTextDocumentParams params) {
-        fFiltersInputs.put(params.getTextDocument().getUri(), ""); //$NON-NLS-1$
+        fFiltersInputs.put(params.getTextDocument().getUri(), new FilterDocument("")); //$NON-NLS-1$
     }
 
     /**
-     * Check the string validity and sends a diagnostic to the client
+     * Check the string validity and sends a diagnostic to the client. The
+     * validation is done after a short delay, and only for the last string if
+     * other changes are received in the meantime.
      *
      * @param params
      *            contains the changes to the string input
@@ -238,9 +277,32 @@ public class FilterBoxService implements TextDocumentService {
             throw new NullPointerException("Event change param cannot be null"); //$NON-NLS-1$
         }
         String input = params.getContentChanges().get(0).getText();
-        fFiltersInputs.put(uri, input);
+        FilterDocument previous = fFiltersInputs.get(uri);
+        FilterDocument document = previous != null ? previous.update(input) : new FilterDocument(input);
+        fFiltersInputs.put(uri, document);
+        Future<?> validation;
         try {
-            List<Diagnostic> diagnostics = FilterValidation.validate(input);
+            validation = fValidationExecutor.schedule(() -> validate(uri, document), fValidationDelayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The server is exiting
+            return;
+        }
+        Future<?> pending = fPendingValidations.put(uri, validation);
+        if (pending != null) {
+            pending.cancel(false);
+        }
+    }
+
+    private void validate(String uri, FilterDocument document) {
+        if (fFiltersInputs.get(uri) != document) {
+            // The string changed since this validation was scheduled
+            return;
+        }
+        try {
+            List<Diagnostic> diagnostics = FilterValidation.validate(document.getText());
+            if (fFiltersInputs.get(uri) != document) {
+                return;
+            }
             PublishDiagnosticsParams pd = new PublishDiagnosticsParams(uri, diagnostics);
             pd.setDiagnostics(diagnostics);
             LanguageClient client = fLSPServer.getClient();
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.filters.core.server;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.antlr.runtime.CommonToken;
+
+/**
+ * A version of the content of a filter box. The tokens of the content are
+ * computed once, when the first request needs them, from the tokens of the
+ * previous version, and are then shared by the syntax highlighting and the
+ * completion requests.
+ */
+public class FilterDocument {
+
+    private final String fText;
+    private FilterDocument fPrevious;
+    private List<CommonToken> fTokens = null;
+
+    /**
+     * Constructor
+     *
+     * @param text
+     *            the content of the filter box
+     */
+    public FilterDocument(String text) {
+        this(text, null);
+    }
+
+    private FilterDocument(String text, FilterDocument previous) {
+        fText = text;
+        fPrevious = previous;
+    }
+
+    /**
+     * Create the next version of this document
+     *
+     * @param text
+     *            the new content of the filter box
+     * @return the new version
+     */
+    public synchronized FilterDocument update(String text) {
+        // Skip this version if its tokens were never needed, so that only one
+        // previous version is kept
+        return new FilterDocument(text, fTokens != null ? this : fPrevious);
+    }
+
+    /**
+     * Get the content of the filter box
+     *
+     * @return the text
+     */
+    public String getText() {
+        return fText;
+    }
+
+    /**
+     * Get the tokens of the content, lexed incrementally from the tokens of
+     * the previous version if they were computed
+     *
+     * @return the tokens
+     * @throws IOException
+     *             from the lexer
+     */
+    public synchronized List<CommonToken> getTokens() throws IOException {
+        List<CommonToken> tokens = fTokens;
+        if (tokens == null) {
+            FilterDocument previous = fPrevious;
+            List<CommonToken> previousTokens = previous != null ? previous.getComputedTokens() : null;
+            if (previous != null && previousTokens != null) {
+                tokens = FilterTokens.retokenize(previousTokens, previous.getText(), fText);
+            } else {
+                tokens = FilterTokens.tokenize(fText);
+            }
+            fTokens = tokens;
+            // Do not keep the chain of versions
+            fPrevious = null;
+        }
+        return tokens;
+    }
+
+    private synchronized List<CommonToken> getComputedTokens() {
+        return fTokens;
+    }
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.filters.core.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.antlr.runtime.ANTLRInputStream;
+import org.antlr.runtime.CommonToken;
+import org.antlr.runtime.CommonTokenStream;
+import org.antlr.runtime.Token;
+import org.eclipse.tracecompass.tmf.filter.parser.FilterParserLexer;
+
+/**
+ * Incremental lexing of the filter strings. When the text of a filter changes,
+ * the tokens before the first modified character are kept from the previous
+ * version of the text and only the rest of the text is lexed again. The lexer
+ * errors are ignored, so these tokens are meant for the syntax highlighting
+ * and the completion, the validation still reads the whole text.
+ */
+public final class FilterTokens {
+
+    /**
+     * Number of characters after the end of a token that the lexer may have
+     * read to decide where the token ends. A token is kept only if these
+     * characters are not modified either.
+     */
+    private static final int LOOKAHEAD = 2;
+
+    private FilterTokens() {
+        // Utility class
+    }
+
+    /**
+     * Lex a whole string
+     *
+     * @param str
+     *            the string to lex
+     * @return the tokens of the string
+     * @throws IOException
+     *             from the InputStream
+     */
+    public static List<CommonToken> tokenize(String str) throws IOException {
+        return retokenize(new ArrayList<>(), "", str); //$NON-NLS-1$
+    }
+
+    /**
+     * Lex a string, reusing the tokens of a previous string that are before
+     * the first character that differs between the two strings
+     *
+     * @param previousTokens
+     *            the tokens of the previous string
+     * @param previousStr
+     *            the previous string
+     * @param str
+     *            the string to lex
+     * @return the tokens of the string, the same as {@link #tokenize(String)}
+     * @throws IOException
+     *             from the InputStream
+     */
+    @SuppressWarnings("restriction")
+    public static List<CommonToken> retokenize(List<CommonToken> previousTokens, String previousStr, String str) throws IOException {
+        int common = 0;
+        int maxCommon = Math.min(previousStr.length(), str.length());
+        while (common < maxCommon && previousStr.charAt(common) == str.charAt(common)) {
+            common++;
+        }
+        int kept = 0;
+        while (kept < previousTokens.size() && previousTokens.get(kept).getStopIndex() + LOOKAHEAD < common) {
+            kept++;
+        }
+        List<CommonToken> tokens = new ArrayList<>(previousTokens.subList(0, kept));
+        int resume = kept == 0 ? 0 : previousTokens.get(kept - 1).getStopIndex() + 1;
+        if (resume >= str.length()) {
+            return tokens;
+        }
+
+        // Lex the rest of the string
+        ByteArrayInputStream input = new ByteArrayInputStream(str.substring(resume).getBytes());
+        ANTLRInputStream antlrStream = new ANTLRInputStream(input);
+        FilterParserLexer lexer = new FilterParserLexer(antlrStream);
+        lexer.setErrorListener(e -> {
+            // do nothing
+        });
+        CommonTokenStream tokenStream = new CommonTokenStream(lexer);
+        List<CommonToken> newTokens = tokenStream.getTokens();
+
+        // Move the new tokens after the kept part of the string
+        int lineOffset = 0;
+        int lineStart = 0;
+        for (int i = 0; i < resume; i++) {
+            if (str.charAt(i) == '\n') {
+                lineOffset++;
+                lineStart = i + 1;
+            }
+        }
+        int columnOffset = resume - lineStart;
+        for (CommonToken newToken : newTokens) {
+            if (newToken.getType() == Token.EOF) {
+                continue;
+            }
+            if (resume == 0) {
+                tokens.add(newToken);
+                continue;
+            }
+            CommonToken token = new CommonToken(newToken);
+            // The text must be set before moving the token in the string
+            token.setText(newToken.getText());
+            token.setStartIndex(newToken.getStartIndex() + resume);
+            token.setStopIndex(newToken.getStopIndex() + resume);
+            if (newToken.getLine() == 1) {
+                token.setCharPositionInLine(newToken.getCharPositionInLine() + columnOffset);
+            }
+            token.setLine(newToken.getLine() + lineOffset);
+            token.setTokenIndex(tokens.size());
+            tokens.add(token);
+        }
+        return tokens;
+    }
+}
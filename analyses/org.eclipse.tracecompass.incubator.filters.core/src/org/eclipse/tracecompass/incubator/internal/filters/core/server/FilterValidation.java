@@ -15,7 +15,9 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
 
@@ -48,6 +50,23 @@ import org.eclipse.tracecompass.tmf.filter.parser.FilterParserParser.parse_retur
  */
 public class FilterValidation {
 
+    /** Number of validated strings whose diagnostics are kept */
+    private static final int CACHE_SIZE = 64;
+
+    /**
+     * Diagnostics of the last validated strings, in access order. The same
+     * strings come back often, when a character is typed then erased, or when
+     * a recently used filter is selected again.
+     */
+    private static final Map<String, List<Diagnostic>> DIAGNOSTICS_CACHE = new LinkedHashMap<String, List<Diagnostic>>(CACHE_SIZE, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<Diagnostic>> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
     /**
      * Get the range of the error for the smallest expression possible
      *
@@ -97,8 +116,22 @@ public class FilterValidation {
      * @throws RecognitionException
      *             from the ANTLR parser or lexer
      */
-    @SuppressWarnings("restriction")
     public static List<Diagnostic> validate(String str) throws IOException, RecognitionException {
+        List<Diagnostic> diagnostics;
+        synchronized (DIAGNOSTICS_CACHE) {
+            diagnostics = DIAGNOSTICS_CACHE.get(str);
+        }
+        if (diagnostics == null) {
+            diagnostics = parse(str);
+            synchronized (DIAGNOSTICS_CACHE) {
+                DIAGNOSTICS_CACHE.put(str, diagnostics);
+            }
+        }
+        return new ArrayList<>(diagnostics);
+    }
+
+    @SuppressWarnings("restriction")
+    private static List<Diagnostic> parse(String str) throws IOException, RecognitionException {
         // Initialize the lexerParser, parse str and return list of CommonToken
         ByteArrayInputStream input = new ByteArrayInputStream(str.getBytes());
         ANTLRInputStream antlrStream = new ANTLRInputStream(input);
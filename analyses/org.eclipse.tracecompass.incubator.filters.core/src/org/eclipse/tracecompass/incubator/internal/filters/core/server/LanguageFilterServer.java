@@ -32,7 +32,7 @@ import org.eclipse.lsp4j.services.WorkspaceService;
  */
 public class LanguageFilterServer implements LanguageServer, LanguageClientAware {
 
-    private final TextDocumentService filterBoxService;
+    private final FilterBoxService filterBoxService;
     private final WorkspaceService filterWorkspaceService;
     // The only client a given instance needs to know (1:1 relationship)
     private LanguageClient fClient;
@@ -41,7 +41,18 @@ public class LanguageFilterServer implements LanguageServer, LanguageClientAware
      * Server constructor
      */
     public LanguageFilterServer() {
-        filterBoxService = new FilterBoxService(this);
+        this(FilterBoxService.DEFAULT_VALIDATION_DELAY_MS);
+    }
+
+    /**
+     * Server constructor with a validation delay
+     *
+     * @param validationDelayMs
+     *            delay in milliseconds before validating a changed filter
+     *            string, 0 to validate each change as soon as possible
+     */
+    public LanguageFilterServer(long validationDelayMs) {
+        filterBoxService = new FilterBoxService(this, validationDelayMs);
         filterWorkspaceService = new FilterWorkspaceService();
     }
 
@@ -58,7 +69,7 @@ public class LanguageFilterServer implements LanguageServer, LanguageClientAware
 
     @Override
     public void exit() {
-        // Nothing to do
+        filterBoxService.dispose();
     }
 
     @Override
@@ -11,14 +11,11 @@
 
 package org.eclipse.tracecompass.incubator.internal.filters.core.server;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
 
-import org.antlr.runtime.ANTLRInputStream;
 import org.antlr.runtime.CommonToken;
-import org.antlr.runtime.CommonTokenStream;
 import org.eclipse.lsp4j.Color;
 import org.eclipse.lsp4j.ColorInformation;
 import org.eclipse.lsp4j.Position;
@@ -57,19 +54,19 @@ public class SyntaxHighlighting {
      * @throws IOException
      *             from antlr
      */
-    @SuppressWarnings("restriction")
     static public List<ColorInformation> getColorInformationList(String str) throws IOException {
+        return getColorInformationList(FilterTokens.tokenize(str));
+    }
 
-        // Initialise the lexerParser, parse str and return list of CommonToken
-        ByteArrayInputStream input = new ByteArrayInputStream(str.getBytes());
-        ANTLRInputStream antlrStream = new ANTLRInputStream(input);
-        FilterParserLexer lexer = new FilterParserLexer(antlrStream);
-        lexer.setErrorListener(e -> {
-            // do nothing
-        });
-        CommonTokenStream tokenStream = new CommonTokenStream(lexer);
-        List<CommonToken> commonTokenList = tokenStream.getTokens();
-
+    /**
+     * Assigns a color information for all tokens based on their type
+     *
+     * @param commonTokenList
+     *            tokens of the input of the filter box
+     *
+     * @return colorInformation
+     */
+    static public List<ColorInformation> getColorInformationList(List<CommonToken> commonTokenList) {
         // From commonTokens
         List<ColorInformation> colorInformations = new LinkedList<>();
         commonTokenList.forEach(commonToken -> {
@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.inandout.core.tests.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.incubator.internal.inandout.core.analysis.InAndOutAnalysisStateProvider;
+import org.eclipse.tracecompass.incubator.internal.inandout.core.analysis.SegmentSpecifier;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
+import org.eclipse.tracecompass.tmf.core.event.TmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.TmfEventField;
+import org.eclipse.tracecompass.tmf.core.event.TmfEventType;
+import org.eclipse.tracecompass.tmf.core.event.aspect.ITmfEventAspect;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.tests.stubs.trace.TmfTraceStub;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the {@link InAndOutAnalysisStateProvider}: the specifiers cached by
+ * event name give the same segments as matching the regexes for every event,
+ * and the cache follows the configuration of the provider
+ */
+public class InAndOutAnalysisStateProviderTest {
+
+    private static final String CPU = "CPU"; //$NON-NLS-1$
+    private static final String CPU_FIELD = "cpu"; //$NON-NLS-1$
+    private static final String ID_FIELD = "id"; //$NON-NLS-1$
+    private static final String[] NAMES = { "read_entry", "read_exit", "write_entry", "write_exit", "sched_switch", "open_entry", "irq" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$
+    private static final String NOT_CONSIDERED = "-"; //$NON-NLS-1$
+
+    private static final ITmfEventAspect<Object> CPU_ASPECT = new ITmfEventAspect<Object>() {
+        @Override
+        public String getName() {
+            return CPU;
+        }
+
+        @Override
+        public String getHelpText() {
+            return CPU;
+        }
+
+        @Override
+        public @Nullable Object resolve(ITmfEvent event) {
+            return event.getContent().getFieldValue(Object.class, CPU_FIELD);
+        }
+    };
+
+    private ITmfTrace fTrace;
+
+    /**
+     * Provider exposing the decisions of the call stack state provider for
+     * an event
+     */
+    private static class TestStateProvider extends InAndOutAnalysisStateProvider {
+
+        public TestStateProvider(ITmfTrace trace, List<@NonNull SegmentSpecifier> list, int maxCachedNames) {
+            super(trace, list, maxCachedNames);
+        }
+
+        /**
+         * Handle an event like the call stack state provider, and describe
+         * the segment it starts or ends
+         */
+        public String handle(ITmfEvent event) {
+            if (!considerEvent(event)) {
+                return NOT_CONSIDERED;
+            }
+            return functionEntry(event) + "/" + functionExit(event) + "/" + getProcessId(event) + "/" + getThreadName(event); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        }
+    }
+
+    /**
+     * Create a trace resolving the CPU aspect used as classifier
+     */
+    @Before
+    public void setUp() {
+        fTrace = new TmfTraceStub() {
+            @Override
+            public Iterable<ITmfEventAspect<?>> getEventAspects() {
+                return Collections.singletonList(CPU_ASPECT);
+            }
+        };
+    }
+
+    /**
+     * Dispose the trace
+     */
+    @After
+    public void tearDown() {
+        fTrace.dispose();
+    }
+
+    private ITmfEvent createEvent(long time, String name, long cpu, long id) {
+        ITmfEventField content = TmfEventField.makeRoot(new ITmfEventField[] {
+                new TmfEventField(CPU_FIELD, cpu, null),
+                new TmfEventField(ID_FIELD, id, null) });
+        return new TmfEvent(fTrace, ITmfContext.UNKNOWN_RANK, TmfTimestamp.fromNanos(time), new TmfEventType(name, null), content);
+    }
+
+    private static List<@NonNull SegmentSpecifier> createSpecifiers() {
+        return new ArrayList<>(Arrays.asList(
+                new SegmentSpecifier("{0}", "(\\S*)_entry", "(\\S*)_exit", "id=(\\d+)", "id=(\\d+)", CPU), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+                new SegmentSpecifier("switch", "sched_switch", "sched_switch", "", "", CPU))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+    }
+
+    private static List<String> handleAll(TestStateProvider provider, List<ITmfEvent> events) {
+        List<String> results = new ArrayList<>();
+        for (ITmfEvent event : events) {
+            results.add(provider.handle(event));
+        }
+        return results;
+    }
+
+    /**
+     * Test that caching the specifiers by event name gives the same segments
+     * as matching the regexes for every event, also when there are more event
+     * names than cached names
+     */
+    @Test
+    public void testSameAsUncached() {
+        Random random = new Random(42);
+        List<ITmfEvent> events = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            events.add(createEvent(i, NAMES[random.nextInt(NAMES.length)], random.nextInt(4), random.nextInt(10)));
+        }
+        List<@NonNull SegmentSpecifier> specifiers = createSpecifiers();
+
+        List<String> uncached = handleAll(new TestStateProvider(fTrace, specifiers, 0), events);
+        assertEquals(uncached, handleAll(new TestStateProvider(fTrace, specifiers, Integer.MAX_VALUE), events));
+        assertEquals(uncached, handleAll(new TestStateProvider(fTrace, specifiers, 2), events));
+
+        // The events start and end segments, and some are not considered
+        assertTrue(uncached.stream().anyMatch(result -> result.startsWith("read/null"))); //$NON-NLS-1$
+        assertTrue(uncached.stream().anyMatch(result -> result.startsWith("null/read"))); //$NON-NLS-1$
+        assertTrue(uncached.contains(NOT_CONSIDERED));
+    }
+
+    /**
+     * Test that a provider keeps the configuration it was created with when
+     * the specifiers are edited, and that a provider created after the edit
+     * matches the new regexes
+     */
+    @Test
+    public void testConfigurationChange() {
+        List<@NonNull SegmentSpecifier> specifiers = createSpecifiers();
+        TestStateProvider before = new TestStateProvider(fTrace, specifiers, Integer.MAX_VALUE);
+        ITmfEvent readEntry = createEvent(1, "read_entry", 0, 1); //$NON-NLS-1$
+        ITmfEvent readBegin = createEvent(2, "read_begin", 0, 2); //$NON-NLS-1$
+        assertTrue(before.handle(readEntry).startsWith("read/null")); //$NON-NLS-1$
+
+        assertTrue(specifiers.get(0).setIfNotNull(null, "(\\S*)_begin", null, null, null, null)); //$NON-NLS-1$
+        assertTrue(before.handle(createEvent(3, "write_entry", 0, 3)).startsWith("write/null")); //$NON-NLS-1$ //$NON-NLS-2$
+        assertEquals(NOT_CONSIDERED, before.handle(readBegin));
+
+        TestStateProvider after = new TestStateProvider(fTrace, specifiers, Integer.MAX_VALUE);
+        assertEquals(NOT_CONSIDERED, after.handle(readEntry));
+        assertTrue(after.handle(readBegin).startsWith("read/null")); //$NON-NLS-1$
+    }
+
+    /**
+     * Test that editing a specifier discards its compiled regexes
+     */
+    @Test
+    public void testSpecifierEdit() {
+        SegmentSpecifier specifier = createSpecifiers().get(0);
+        assertTrue(specifier.matchesInName("read_entry")); //$NON-NLS-1$
+        assertTrue(specifier.matchesOutName("read_exit")); //$NON-NLS-1$
+
+        assertFalse(specifier.setIfNotNull(null, null, null, null, null, null));
+        assertTrue(specifier.setIfNotNull(null, "(\\S*)_begin", "(\\S*)_end", null, null, null)); //$NON-NLS-1$ //$NON-NLS-2$
+        assertFalse(specifier.matchesInName("read_entry")); //$NON-NLS-1$
+        assertFalse(specifier.matchesOutName("read_exit")); //$NON-NLS-1$
+        assertTrue(specifier.matchesInName("read_begin")); //$NON-NLS-1$
+        assertTrue(specifier.matchesOutName("read_end")); //$NON-NLS-1$
+    }
+}
@@ -11,6 +11,7 @@
 
 package org.eclipse.tracecompass.incubator.internal.inandout.core.analysis;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,7 +37,16 @@ import com.google.common.collect.Multimap;
  */
 public class InAndOutAnalysisStateProvider extends CallStackStateProvider {
 
-    private List<@NonNull SegmentSpecifier> fList;
+    /**
+     * Maximum number of event names to cache, event names are usually few, but
+     * do not let a trace with generated names fill the memory
+     */
+    private static final int MAX_CACHED_NAMES = 10000;
+
+    private final List<@NonNull SegmentSpecifier> fList;
+    private final int fMaxCachedNames;
+    /** Specifiers that may match an event name, by event name */
+    private final Map<String, List<Candidate>> fCandidates = new HashMap<>();
     private final Map<Object, Multimap<String, SegmentContext>> fTable = new HashMap<>();
     private SegmentContext fLast = null;
     private SegmentContext fFirst = null;
@@ -50,8 +60,33 @@ public class InAndOutAnalysisStateProvider extends CallStackStateProvider {
      *            the list of segment contexts
      */
     public InAndOutAnalysisStateProvider(ITmfTrace trace, List<@NonNull SegmentSpecifier> list) {
+        this(trace, list, MAX_CACHED_NAMES);
+    }
+
+    /**
+     * Constructor with a limit of cached event names
+     *
+     * @param trace
+     *            the trace
+     * @param list
+     *            the list of segment contexts
+     * @param maxCachedNames
+     *            the maximum number of event names whose matching specifiers
+     *            are cached, 0 to match the regexes for every event
+     */
+    public InAndOutAnalysisStateProvider(ITmfTrace trace, List<@NonNull SegmentSpecifier> list, int maxCachedNames) {
         super(Objects.requireNonNull(trace));
-        fList = list;
+        /*
+         * Copy the specifiers, so that the matches cached by event name stay
+         * those of the configuration this provider was created with, even if
+         * the specifiers are edited afterwards.
+         */
+        List<@NonNull SegmentSpecifier> specifiers = new ArrayList<>(list.size());
+        for (SegmentSpecifier specifier : list) {
+            specifiers.add(new SegmentSpecifier(specifier));
+        }
+        fList = specifiers;
+        fMaxCachedNames = maxCachedNames;
     }
 
     @Override
@@ -61,16 +96,17 @@ public class InAndOutAnalysisStateProvider extends CallStackStateProvider {
 
     @Override
     public CallStackStateProvider getNewInstance() {
-        return new InAndOutAnalysisStateProvider(getTrace(), fList);
+        return new InAndOutAnalysisStateProvider(getTrace(), fList, fMaxCachedNames);
     }
 
     @Override
     protected boolean considerEvent(ITmfEvent event) {
         fFirst = null;
         fLast = null;
-        for (SegmentSpecifier spec : fList) {
-            SegmentContext context = spec.getSegmentContext(event);
-            if (context != null) {
+        for (Candidate candidate : getCandidates(event.getName())) {
+            SegmentSpecifier spec = candidate.fSpecifier;
+            if (candidate.fIn) {
+                SegmentContext context = spec.createSegmentContext(event);
                 Object classifier = context.getClassifier();
                 if (classifier != null) {
                     Multimap<String, SegmentContext> map = fTable.computeIfAbsent(classifier, unused -> HashMultimap.create());
@@ -79,7 +115,7 @@ public class InAndOutAnalysisStateProvider extends CallStackStateProvider {
                     return true;
                 }
             }
-            if (spec.matchesOutName(event)) {
+            if (candidate.fOut) {
                 Object classifier = spec.getClassifier(event);
                 if (classifier != null) {
                     Multimap<String, SegmentContext> contexts = fTable.get(classifier);
@@ -97,6 +133,42 @@ public class InAndOutAnalysisStateProvider extends CallStackStateProvider {
         return false;
     }
 
+    /**
+     * Get the specifiers whose input or output regex matches an event name, in
+     * the order of the specifier list, so that the regexes are evaluated once
+     * per event name instead of once per event.
+     */
+    private List<Candidate> getCandidates(String eventName) {
+        List<Candidate> candidates = fCandidates.get(eventName);
+        if (candidates != null) {
+            return candidates;
+        }
+        candidates = new ArrayList<>();
+        for (SegmentSpecifier spec : fList) {
+            boolean in = spec.matchesInName(eventName);
+            boolean out = spec.matchesOutName(eventName);
+            if (in || out) {
+                candidates.add(new Candidate(spec, in, out));
+            }
+        }
+        if (fCandidates.size() < fMaxCachedNames) {
+            fCandidates.put(eventName, candidates);
+        }
+        return candidates;
+    }
+
+    private static final class Candidate {
+        private final SegmentSpecifier fSpecifier;
+        private final boolean fIn;
+        private final boolean fOut;
+
+        public Candidate(SegmentSpecifier specifier, boolean in, boolean out) {
+            fSpecifier = specifier;
+            fIn = in;
+            fOut = out;
+        }
+    }
+
     @Override
     protected @Nullable ITmfStateValue functionEntry(ITmfEvent event) {
         SegmentContext segmentContext = fFirst;
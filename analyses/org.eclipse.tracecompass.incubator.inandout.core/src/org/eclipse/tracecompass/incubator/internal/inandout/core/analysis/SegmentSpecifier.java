@@ -19,6 +19,7 @@ import java.util.regex.Pattern;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
 import org.eclipse.tracecompass.tmf.core.event.aspect.ITmfEventAspect;
 import org.eclipse.tracecompass.tmf.core.event.aspect.TmfBaseAspects;
 import org.eclipse.tracecompass.tmf.core.trace.TmfTraceUtils;
@@ -41,6 +42,12 @@ public class SegmentSpecifier {
 
     private static final ITmfEventAspect<@NonNull Object> CONTENT_ASPECT = TmfBaseAspects.getContentsAspect();
 
+    /**
+     * A context regex starting with a literal field name followed by '=', for
+     * example "id=(\d+)", can be applied to that field only
+     */
+    private static final Pattern FIELD_NAME_PREFIX = Pattern.compile("([A-Za-z_]\\w*)="); //$NON-NLS-1$
+
     /**
      * Segment context.
      *
@@ -121,6 +128,8 @@ public class SegmentSpecifier {
     private transient @Nullable Pattern fOutRegexPattern;
     private transient @Nullable Pattern fContextInPattern;
     private transient @Nullable Pattern fContextOutPattern;
+    private transient @Nullable String fContextInField;
+    private transient @Nullable String fContextOutField;
 
     /**
      * Default constructor for GSON
@@ -277,22 +286,35 @@ public class SegmentSpecifier {
      * @return the context or null
      */
     public @Nullable SegmentContext getSegmentContext(@NonNull ITmfEvent event) {
-        if (getInPattern().matcher(event.getName()).matches()) {
-            SegmentContext segmentContext = new SegmentContext();
-            segmentContext.setLabel(getLabel(event, null));
-            Object resolve = CONTENT_ASPECT.resolve(event);
-            if (resolve != null && !getContextInRegex().trim().isEmpty()) {
-                segmentContext.setContext(findInFields(event, getContextInPattern()));
-            }
-            Object value = getClassifier(event);
-            if (value != null) {
-                segmentContext.setClassifier(value);
-            }
-            return segmentContext;
+        if (matchesInName(event.getName())) {
+            return createSegmentContext(event);
         }
         return null;
     }
 
+    /**
+     * Create the context of an input event. Unlike
+     * {@link #getSegmentContext(ITmfEvent)}, the event name is not matched
+     * again, so the caller should have already checked it with
+     * {@link #matchesInName(String)}.
+     *
+     * @param event
+     *            the input event
+     * @return the context
+     */
+    public SegmentContext createSegmentContext(@NonNull ITmfEvent event) {
+        SegmentContext segmentContext = new SegmentContext();
+        segmentContext.setLabel(getLabel(event, null));
+        if (!getContextInRegex().trim().isEmpty() && CONTENT_ASPECT.resolve(event) != null) {
+            segmentContext.setContext(findInFields(event, getContextInPattern(), fContextInField));
+        }
+        Object value = getClassifier(event);
+        if (value != null) {
+            segmentContext.setClassifier(value);
+        }
+        return segmentContext;
+    }
+
     /**
      * Get the resolved classifier from the event
      *
@@ -318,6 +340,7 @@ public class SegmentSpecifier {
         if (p == null) {
             String input = removeAll(fContextInRegex);
             p = Pattern.compile(input);
+            fContextInField = getFieldName(input);
             fContextInPattern = p;
         }
         return p;
@@ -328,6 +351,7 @@ public class SegmentSpecifier {
         if (p == null) {
             String input = removeAll(fContextOutRegex);
             p = Pattern.compile(input);
+            fContextOutField = getFieldName(input);
             fContextOutPattern = p;
         }
         return p;
@@ -351,7 +375,29 @@ public class SegmentSpecifier {
      * @return true if it matches
      */
     public boolean matchesOutName(ITmfEvent event) {
-        return (getOutPattern().matcher(event.getName()).matches());
+        return matchesOutName(event.getName());
+    }
+
+    /**
+     * Does an event name match the output regex?
+     *
+     * @param eventName
+     *            the event name
+     * @return true if it matches
+     */
+    public boolean matchesOutName(String eventName) {
+        return getOutPattern().matcher(eventName).matches();
+    }
+
+    /**
+     * Does an event name match the input regex?
+     *
+     * @param eventName
+     *            the event name
+     * @return true if it matches
+     */
+    public boolean matchesInName(String eventName) {
+        return getInPattern().matcher(eventName).matches();
     }
 
     private Pattern getOutPattern() {
@@ -382,13 +428,13 @@ public class SegmentSpecifier {
             }
         }
         if (fLabel.equals("{2}")) { //$NON-NLS-1$
-            String ret = findInFields(event, getContextInPattern());
+            String ret = findInFields(event, getContextInPattern(), fContextInField);
             if (ret != null) {
                 return ret;
             }
         }
         if (fLabel.equals("{3}")) { //$NON-NLS-1$
-            String ret = findInFields(event, getContextOutPattern());
+            String ret = findInFields(event, getContextOutPattern(), fContextOutField);
             if (ret != null) {
                 return ret;
             }
@@ -402,7 +448,27 @@ public class SegmentSpecifier {
         return findIn(matcher);
     }
 
-    private static String findInFields(@NonNull ITmfEvent event, Pattern p) {
+    private static @Nullable String getFieldName(String regex) {
+        Matcher matcher = FIELD_NAME_PREFIX.matcher(regex);
+        return matcher.lookingAt() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Find the pattern in the event content. If the pattern starts with a
+     * field name, only that field is formatted and matched, instead of the
+     * whole content. Otherwise, or if that field does not match, the whole
+     * content is matched.
+     */
+    private static String findInFields(@NonNull ITmfEvent event, Pattern p, @Nullable String fieldName) {
+        if (fieldName != null) {
+            ITmfEventField field = event.getContent().getField(fieldName);
+            if (field != null) {
+                String matched = findIn(p.matcher(field.toString()));
+                if (matched != null) {
+                    return matched;
+                }
+            }
+        }
         Object resolve = CONTENT_ASPECT.resolve(event);
         String matched = null;
         if (resolve != null) {
@@ -439,7 +505,8 @@ public class SegmentSpecifier {
      *            context ID (snowflake)
      * @param category
      *            the aspect name to resolve
-     * @return true if it has changed
+     * @return true if it has changed, in which case the compiled regexes are
+     *         discarded
      */
     public boolean setIfNotNull(@Nullable String label, @Nullable String inRegex, @Nullable String outRegex, @Nullable String contextInRegex, @Nullable String contextOutRegex, @Nullable String category) {
         boolean[] updated = new boolean[1];
@@ -467,6 +534,14 @@ public class SegmentSpecifier {
             fClassifier = category;
             updated[0] = true;
         });
+        if (updated[0]) {
+            fInRegexPattern = null;
+            fOutRegexPattern = null;
+            fContextInPattern = null;
+            fContextOutPattern = null;
+            fContextInField = null;
+            fContextOutField = null;
+        }
         return updated[0];
     }
 
@@ -487,6 +562,6 @@ public class SegmentSpecifier {
         if (getOutRegex() == null || getContextOutRegex().trim().isEmpty()) {
             return null;
         }
-        return findInFields(event, getContextOutPattern());
+        return findInFields(event, getContextOutPattern(), fContextOutField);
     }
 }
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.kernel.core.tests.perf;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+import org.eclipse.tracecompass.incubator.internal.kernel.core.io.IoStateProvider;
+import org.eclipse.tracecompass.incubator.internal.kernel.core.io.IoThroughputSweep;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.StateSystemFactory;
+import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Benchmarks the computation of the read/write throughput of the
+ * {@link org.eclipse.tracecompass.incubator.internal.kernel.core.io.IoPerProcessDataProvider}
+ * on a synthetic state system with many threads doing many requests. The
+ * sweep of {@link IoThroughputSweep} is compared with the previous
+ * computation, which looked for the interval of every sample from the start
+ * of the intervals of the attribute.
+ */
+public class IoThroughputBenchmark {
+
+    private static final String TEST_ID = "org.eclipse.tracecompass.incubator#IO#";
+    private static final int LOOP_COUNT = 5;
+    private static final int NB_THREADS = 500;
+    private static final int NB_REQUESTS = 400;
+    private static final long PERIOD = 100000L;
+    private static final int NB_SAMPLES = 2000;
+    private static final double SECONDS_PER_NANOSECOND = 1E-9;
+    private static final long SEED = 42L;
+
+    private static @Nullable ITmfStateSystem fSs;
+    private static List<Integer> fCounterQuarks = new ArrayList<>();
+
+    /**
+     * Build the state system, with a read and a write counter per thread and
+     * their running request
+     */
+    @BeforeClass
+    public static void setUp() {
+        ITmfStateSystemBuilder ssb = StateSystemFactory.newStateSystem(StateHistoryBackendFactory.createInMemoryBackend("io-benchmark", 0L)); //$NON-NLS-1$
+        Random random = new Random(SEED);
+        List<long[]> events = new ArrayList<>();
+        for (int thread = 0; thread < NB_THREADS; thread++) {
+            for (int request = 0; request < NB_REQUESTS; request++) {
+                long start = request * PERIOD + random.nextInt((int) PERIOD / 2);
+                long end = start + 1 + random.nextInt((int) PERIOD / 2);
+                long type = random.nextInt(2);
+                long size = 1 + random.nextInt(1 << 20);
+                events.add(new long[] { start, thread, type, size });
+                events.add(new long[] { end, thread, type, -size });
+            }
+        }
+        events.sort(Comparator.comparingLong(event -> event[0]));
+
+        Map<Integer, Long> totals = new HashMap<>();
+        for (long[] event : events) {
+            String attribute = event[2] == 0 ? IoStateProvider.ATTRIBUTE_READ : IoStateProvider.ATTRIBUTE_WRITE;
+            int counterQuark = ssb.getQuarkAbsoluteAndAdd(IoStateProvider.ATTRIBUTE_TID, String.valueOf(event[1]), attribute);
+            int currentQuark = ssb.getQuarkRelativeAndAdd(counterQuark, IoStateProvider.ATTRIBUTE_CURRENT);
+            if (event[3] > 0) {
+                ssb.modifyAttribute(event[0], event[3], currentQuark);
+            } else {
+                long total = totals.getOrDefault(counterQuark, 0L) - event[3];
+                totals.put(counterQuark, total);
+                ssb.removeAttribute(event[0], currentQuark);
+                ssb.modifyAttribute(event[0], total, counterQuark);
+            }
+        }
+        ssb.closeHistory(NB_REQUESTS * PERIOD);
+        fCounterQuarks = new ArrayList<>(totals.keySet());
+        fSs = ssb;
+    }
+
+    /**
+     * Dispose the state system
+     */
+    @AfterClass
+    public static void tearDown() {
+        ITmfStateSystem ss = fSs;
+        if (ss != null) {
+            ss.dispose();
+        }
+    }
+
+    /**
+     * Benchmark the previous computation
+     *
+     * @throws StateSystemDisposedException
+     *             if the state system is disposed
+     */
+    @Test
+    public void testLinearScan() throws StateSystemDisposedException {
+        ITmfStateSystem ss = Objects.requireNonNull(fSs);
+        List<Long> times = getTimes(ss);
+        Performance perf = Performance.getDefault();
+        String testName = "Throughput (linear scan)";
+        PerformanceMeter pm = Objects.requireNonNull(perf.createPerformanceMeter(TEST_ID + testName));
+        perf.tagAsSummary(pm, testName, Dimension.CPU_TIME);
+        for (int i = 0; i < LOOP_COUNT; i++) {
+            pm.start();
+            List<double[]> values = linearScan(ss, times);
+            pm.stop();
+            assertEquals(fCounterQuarks.size(), values.size());
+        }
+        pm.commit();
+    }
+
+    /**
+     * Benchmark the sweep, and compare its values with the previous
+     * computation
+     *
+     * @throws StateSystemDisposedException
+     *             if the state system is disposed
+     */
+    @Test
+    public void testSweep() throws StateSystemDisposedException {
+        ITmfStateSystem ss = Objects.requireNonNull(fSs);
+        List<Long> times = getTimes(ss);
+        Performance perf = Performance.getDefault();
+        String testName = "Throughput (sweep line)";
+        PerformanceMeter pm = Objects.requireNonNull(perf.createPerformanceMeter(TEST_ID + testName));
+        perf.tagAsSummary(pm, testName, Dimension.CPU_TIME);
+        List<double[]> values = null;
+        for (int i = 0; i < LOOP_COUNT; i++) {
+            IoThroughputSweep sweep = new IoThroughputSweep(ss);
+            fCounterQuarks.forEach(sweep::addSeries);
+            pm.start();
+            values = sweep.compute(times, null);
+            pm.stop();
+        }
+        pm.commit();
+
+        assertNotNull(values);
+        List<double[]> sweepValues = Objects.requireNonNull(values);
+        List<double[]> expected = linearScan(ss, times);
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), sweepValues.get(i), 1e-3);
+        }
+    }
+
+    private static List<Long> getTimes(ITmfStateSystem ss) {
+        List<Long> times = new ArrayList<>(NB_SAMPLES);
+        long step = (ss.getCurrentEndTime() - ss.getStartTime()) / (NB_SAMPLES - 1);
+        for (int i = 0; i < NB_SAMPLES; i++) {
+            times.add(ss.getStartTime() + i * step);
+        }
+        return times;
+    }
+
+    /**
+     * The computation as it was done before the sweep
+     */
+    private static List<double[]> linearScan(ITmfStateSystem ss, List<Long> times) throws StateSystemDisposedException {
+        List<Integer> quarks = new ArrayList<>();
+        for (Integer quark : fCounterQuarks) {
+            quarks.add(quark);
+            quarks.add(ss.optQuarkRelative(quark, IoStateProvider.ATTRIBUTE_CURRENT));
+        }
+        Map<Integer, Set<ITmfStateInterval>> intervals = new HashMap<>();
+        for (ITmfStateInterval interval : ss.query2D(quarks, times)) {
+            intervals.computeIfAbsent(interval.getAttribute(), q -> new TreeSet<>(Comparator.comparing(ITmfStateInterval::getStartTime))).add(interval);
+        }
+        List<double[]> values = new ArrayList<>();
+        for (Integer quark : fCounterQuarks) {
+            double[] seriesValues = new double[times.size()];
+            Set<ITmfStateInterval> counterIntervals = intervals.get(quark);
+            Set<ITmfStateInterval> currentIntervals = intervals.get(ss.optQuarkRelative(quark, IoStateProvider.ATTRIBUTE_CURRENT));
+            double prevCount = 0.0;
+            long prevTime = -1;
+            for (int i = 0; i < times.size(); i++) {
+                long time = times.get(i);
+                double valueAtTime = 0.0;
+                ITmfStateInterval interval = findInterval(counterIntervals, time);
+                if (interval != null && interval.getValue() instanceof Number) {
+                    valueAtTime = ((Number) interval.getValue()).doubleValue();
+                }
+                interval = findInterval(currentIntervals, time);
+                if (interval != null && interval.getValue() instanceof Number) {
+                    long runningTime = interval.getEndTime() - interval.getStartTime() + 1;
+                    valueAtTime += (time - interval.getStartTime()) * ((Number) interval.getValue()).doubleValue() / runningTime;
+                }
+                if (prevTime != -1) {
+                    seriesValues[i] = (valueAtTime - prevCount) / ((time - prevTime) * SECONDS_PER_NANOSECOND);
+                }
+                prevCount = valueAtTime;
+                prevTime = time;
+            }
+            values.add(seriesValues);
+        }
+        return values;
+    }
+
+    private static @Nullable ITmfStateInterval findInterval(@Nullable Set<ITmfStateInterval> intervals, long time) {
+        if (intervals == null) {
+            return null;
+        }
+        for (ITmfStateInterval interval : intervals) {
+            if (interval.getStartTime() > time) {
+                return null;
+            }
+            if (time <= interval.getEndTime()) {
+                return interval;
+            }
+        }
+        return null;
+    }
+}
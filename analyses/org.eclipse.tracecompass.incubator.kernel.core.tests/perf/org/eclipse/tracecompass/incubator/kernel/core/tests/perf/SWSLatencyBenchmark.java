@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.kernel.core.tests.perf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Objects;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+import org.eclipse.tracecompass.analysis.os.linux.core.tests.stubs.trace.TmfXmlKernelTraceStub;
+import org.eclipse.tracecompass.incubator.internal.kernel.core.swslatency.SWSLatencyAnalysis;
+import org.eclipse.tracecompass.segmentstore.core.ISegment;
+import org.eclipse.tracecompass.segmentstore.core.ISegmentStore;
+import org.eclipse.tracecompass.tmf.core.event.TmfEvent;
+import org.eclipse.tracecompass.tmf.core.tests.shared.TmfTestHelper;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Benchmarks the {@link SWSLatencyAnalysis} on a synthetic scheduler-heavy
+ * kernel trace, where every thread is repeatedly woken up then scheduled in,
+ * among other kernel events. The number of events per second is the number of
+ * events of the trace divided by the measured time.
+ */
+@SuppressWarnings("restriction")
+public class SWSLatencyBenchmark {
+
+    private static final String TEST_ID = "org.eclipse.tracecompass.incubator#SWS#";
+    private static final int LOOP_COUNT = 5;
+    private static final int NB_CPUS = 8;
+    private static final int NB_THREADS = 2000;
+    private static final int NB_ROUNDS = 25;
+    /** A wakeup, a switch and an unrelated event per thread and round */
+    private static final int EVENTS_PER_WAKEUP = 3;
+    private static final String TEST_NAME = "SWS latency (" + (long) EVENTS_PER_WAKEUP * NB_THREADS * NB_ROUNDS + " events)";
+
+    private static @Nullable File fTraceFile;
+
+    /**
+     * Generate the trace
+     *
+     * @throws IOException
+     *             if the trace cannot be written
+     */
+    @BeforeClass
+    public static void setUp() throws IOException {
+        File file = Files.createTempFile("sws-benchmark", ".xml").toFile(); //$NON-NLS-1$ //$NON-NLS-2$
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("<trace>\n<set_aspects>\n<field name=\"cpu\" value=\"0\" type=\"int\" />\n</set_aspects>\n"); //$NON-NLS-1$
+            long ts = 0;
+            for (int round = 0; round < NB_ROUNDS; round++) {
+                // Wake up all the threads, then schedule them in
+                for (int tid = 1; tid <= NB_THREADS; tid++) {
+                    writer.write(String.format("<event timestamp=\"%d\" name=\"sched_wakeup\">\n" //$NON-NLS-1$
+                            + "<field name=\"cpu\" value=\"%d\" type=\"int\" />\n" //$NON-NLS-1$
+                            + "<field name=\"comm\" value=\"proc%d\" type=\"string\" />\n" //$NON-NLS-1$
+                            + "<field name=\"tid\" value=\"%d\" type=\"long\" />\n" //$NON-NLS-1$
+                            + "<field name=\"prio\" value=\"20\" type=\"long\" />\n" //$NON-NLS-1$
+                            + "</event>\n", ts++, tid % NB_CPUS, tid, tid)); //$NON-NLS-1$
+                    writer.write(String.format("<event timestamp=\"%d\" name=\"irq_handler_entry\">\n" //$NON-NLS-1$
+                            + "<field name=\"cpu\" value=\"%d\" type=\"int\" />\n" //$NON-NLS-1$
+                            + "<field name=\"irq\" value=\"%d\" type=\"long\" />\n" //$NON-NLS-1$
+                            + "<field name=\"name\" value=\"eth0\" type=\"string\" />\n" //$NON-NLS-1$
+                            + "</event>\n", ts++, tid % NB_CPUS, tid % 32)); //$NON-NLS-1$
+                }
+                for (int tid = 1; tid <= NB_THREADS; tid++) {
+                    writer.write(String.format("<event timestamp=\"%d\" name=\"sched_switch\">\n" //$NON-NLS-1$
+                            + "<field name=\"cpu\" value=\"%d\" type=\"int\" />\n" //$NON-NLS-1$
+                            + "<field name=\"prev_comm\" value=\"swapper\" type=\"string\" />\n" //$NON-NLS-1$
+                            + "<field name=\"prev_tid\" value=\"0\" type=\"long\" />\n" //$NON-NLS-1$
+                            + "<field name=\"prev_prio\" value=\"20\" type=\"long\" />\n" //$NON-NLS-1$
+                            + "<field name=\"prev_state\" value=\"0\" type=\"long\" />\n" //$NON-NLS-1$
+                            + "<field name=\"next_comm\" value=\"proc%d\" type=\"string\" />\n" //$NON-NLS-1$
+                            + "<field name=\"next_tid\" value=\"%d\" type=\"long\" />\n" //$NON-NLS-1$
+                            + "<field name=\"next_prio\" value=\"20\" type=\"long\" />\n" //$NON-NLS-1$
+                            + "</event>\n", ts++, tid % NB_CPUS, tid, tid)); //$NON-NLS-1$
+                }
+            }
+            writer.write("</trace>\n"); //$NON-NLS-1$
+        }
+        fTraceFile = file;
+    }
+
+    /**
+     * Delete the trace
+     */
+    @AfterClass
+    public static void tearDown() {
+        File file = fTraceFile;
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    /**
+     * Benchmark the analysis and verify that a segment is created for every
+     * wakeup
+     *
+     * @throws Exception
+     *             if the trace or analysis cannot be initialized
+     */
+    @Test
+    public void testSchedulerHeavyTrace() throws Exception {
+        Performance perf = Performance.getDefault();
+        PerformanceMeter pm = Objects.requireNonNull(perf.createPerformanceMeter(TEST_ID + TEST_NAME));
+        perf.tagAsSummary(pm, TEST_NAME, Dimension.CPU_TIME);
+        String path = Objects.requireNonNull(fTraceFile).getAbsolutePath();
+        for (int i = 0; i < LOOP_COUNT; i++) {
+            TmfXmlKernelTraceStub trace = new TmfXmlKernelTraceStub();
+            SWSLatencyAnalysis module = new SWSLatencyAnalysis();
+            try {
+                IStatus validate = trace.validate(null, path);
+                assertTrue(validate.getMessage(), validate.isOK());
+                trace.initTrace(null, path, TmfEvent.class);
+                assertTrue(module.setTrace(trace));
+
+                pm.start();
+                assertTrue(TmfTestHelper.executeAnalysis(module));
+                pm.stop();
+                ISegmentStore<ISegment> segmentStore = module.getSegmentStore();
+                assertNotNull(segmentStore);
+                assertEquals((long) NB_THREADS * NB_ROUNDS, segmentStore.size());
+            } finally {
+                module.dispose();
+                deleteSupplementaryFiles(trace);
+                trace.dispose();
+            }
+        }
+        pm.commit();
+    }
+
+    private static void deleteSupplementaryFiles(TmfXmlKernelTraceStub trace) {
+        File suppDir = new File(TmfTraceManager.getSupplementaryFileDir(trace));
+        File[] files = suppDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+}
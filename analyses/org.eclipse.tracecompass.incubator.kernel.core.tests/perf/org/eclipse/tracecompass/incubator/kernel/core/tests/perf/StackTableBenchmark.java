@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.kernel.core.tests.perf;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+import org.eclipse.tracecompass.incubator.internal.kernel.core.callstack.context.StackTable;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Benchmarks the stacks of the samples of the
+ * {@link org.eclipse.tracecompass.incubator.internal.kernel.core.callstack.context.ContextCallStackAnalysis}
+ * on synthetic samples drawn from a few hundred distinct stacks. The interning
+ * of the {@link StackTable} is compared with the previous copy of the
+ * callstack fields for each sample, in time and in allocated bytes per sample.
+ */
+public class StackTableBenchmark {
+
+    private static final String TEST_ID = "org.eclipse.tracecompass.incubator#ContextCallStack#";
+    private static final int LOOP_COUNT = 5;
+    private static final int NB_STACKS = 300;
+    private static final int NB_SAMPLES = 500000;
+    private static final int MAX_DEPTH = 40;
+    private static final long SEED = 42L;
+
+    private static final List<long[]> fUserStacks = new ArrayList<>();
+    private static final List<long[]> fKernelStacks = new ArrayList<>();
+    private static int[] fSamples = new int[0];
+
+    /**
+     * Generate the distinct stacks and the sequence of samples. The stacks of
+     * the samples are copied, like the fields of distinct events would be.
+     */
+    @BeforeClass
+    public static void setUp() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < NB_STACKS; i++) {
+            fUserStacks.add(randomStack(random));
+            fKernelStacks.add(randomStack(random));
+        }
+        fSamples = new int[NB_SAMPLES];
+        for (int i = 0; i < NB_SAMPLES; i++) {
+            fSamples[i] = random.nextInt(NB_STACKS);
+        }
+    }
+
+    private static long[] randomStack(Random random) {
+        long[] stack = new long[1 + random.nextInt(MAX_DEPTH)];
+        for (int i = 0; i < stack.length; i++) {
+            // Few distinct frames near the root, like main and the syscalls
+            stack[i] = 0x400000L + random.nextInt(i < stack.length - 3 ? 1 << 16 : 8);
+        }
+        return stack;
+    }
+
+    /**
+     * Benchmark the previous copy of the callstacks of each sample
+     */
+    @Test
+    public void testCopy() {
+        Performance perf = Performance.getDefault();
+        String testName = "Sample stacks (copy)";
+        PerformanceMeter pm = Objects.requireNonNull(perf.createPerformanceMeter(TEST_ID + testName));
+        perf.tagAsSummary(pm, testName, Dimension.CPU_TIME);
+        for (int i = 0; i < LOOP_COUNT; i++) {
+            pm.start();
+            long sum = 0;
+            for (int sample : fSamples) {
+                sum += copyStack(fUserStacks.get(sample).clone(), fKernelStacks.get(sample).clone()).length;
+            }
+            pm.stop();
+            assertTrue(sum > 0);
+        }
+        pm.commit();
+    }
+
+    /**
+     * Benchmark the interning of the stack of each sample, and verify that the
+     * stacks are the same as the copies
+     */
+    @Test
+    public void testIntern() {
+        Performance perf = Performance.getDefault();
+        String testName = "Sample stacks (interned)";
+        PerformanceMeter pm = Objects.requireNonNull(perf.createPerformanceMeter(TEST_ID + testName));
+        perf.tagAsSummary(pm, testName, Dimension.CPU_TIME);
+        for (int i = 0; i < LOOP_COUNT; i++) {
+            StackTable table = new StackTable();
+            pm.start();
+            long sum = 0;
+            for (int sample : fSamples) {
+                sum += table.getStack(table.intern(fUserStacks.get(sample).clone(), fKernelStacks.get(sample).clone())).length;
+            }
+            pm.stop();
+            assertTrue(sum > 0);
+        }
+        pm.commit();
+
+        StackTable table = new StackTable();
+        for (int i = 0; i < NB_STACKS; i++) {
+            long[] user = fUserStacks.get(i);
+            long[] kernel = fKernelStacks.get(i);
+            assertArrayEquals(copyStack(user, kernel), table.getStack(table.intern(user, kernel)));
+        }
+    }
+
+    /**
+     * Compare the bytes allocated per sample, excluding the copy of the
+     * fields, once all the distinct stacks were interned
+     */
+    @Test
+    public void testAllocationRate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled());
+        long threadId = Thread.currentThread().getId();
+
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        long sum = 0;
+        for (int sample : fSamples) {
+            sum += copyStack(fUserStacks.get(sample), fKernelStacks.get(sample)).length;
+        }
+        long copyBytes = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        StackTable table = new StackTable();
+        for (int i = 0; i < NB_STACKS; i++) {
+            table.intern(fUserStacks.get(i), fKernelStacks.get(i));
+        }
+        before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int sample : fSamples) {
+            sum += table.getStack(table.intern(fUserStacks.get(sample), fKernelStacks.get(sample))).length;
+        }
+        long internBytes = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(sum > 0);
+        assertTrue("Copy: " + copyBytes / NB_SAMPLES + " bytes/sample, interned: " + internBytes / NB_SAMPLES + " bytes/sample", internBytes * 10 < copyBytes);
+    }
+
+    /**
+     * The stack of a sample as it was built before the stack table
+     */
+    private static long[] copyStack(long[] user, long[] kernel) {
+        Map<String, Collection<Object>> callStack = new HashMap<>();
+        callStack.put("kernel", toList(kernel));
+        callStack.put("user", toList(user));
+        Collection<Object> kernelCs = Objects.requireNonNull(callStack.get("kernel"));
+        Collection<Object> userCs = Objects.requireNonNull(callStack.get("user"));
+        if (kernelCs.size() + userCs.size() == 0) {
+            return new long[] { 0L };
+        }
+        long[] stack = new long[userCs.size() + kernelCs.size()];
+        int i = 0;
+        for (Object call : userCs) {
+            stack[i++] = (long) call;
+        }
+        for (Object call : kernelCs) {
+            stack[i++] = (long) call;
+        }
+        return stack;
+    }
+
+    private static Collection<Object> toList(long[] callstack) {
+        List<Object> longList = new ArrayList<>();
+        for (long callsite : callstack) {
+            longList.add(callsite);
+        }
+        Collections.reverse(longList);
+        return longList;
+    }
+}
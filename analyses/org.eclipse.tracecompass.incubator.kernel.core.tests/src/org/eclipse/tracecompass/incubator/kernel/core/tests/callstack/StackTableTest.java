@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.kernel.core.tests.callstack;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.tracecompass.incubator.internal.kernel.core.callstack.context.StackTable;
+import org.junit.Test;
+
+/**
+ * Test the {@link StackTable} of the context callstack analysis
+ */
+public class StackTableTest {
+
+    /**
+     * Test that a stack gets the same ID and frames each time it is interned,
+     * and that the arrays of the callstack fields are not kept
+     */
+    @Test
+    public void testIntern() {
+        StackTable table = new StackTable();
+        long[] user = { 3, 2, 1 };
+        long[] kernel = { 20, 10 };
+        int id = table.intern(user, kernel);
+        // The fields are innermost first, the stack is outermost first
+        long[] stack = table.getStack(id);
+        assertArrayEquals(new long[] { 1, 2, 3, 10, 20 }, stack);
+
+        assertEquals(id, table.intern(user.clone(), kernel.clone()));
+        assertSame(stack, table.getStack(id));
+
+        // Modifying the fields after interning does not change the table
+        user[0] = 4;
+        assertArrayEquals(new long[] { 1, 2, 3, 10, 20 }, table.getStack(id));
+        assertEquals(id, table.intern(new long[] { 3, 2, 1 }, new long[] { 20, 10 }));
+        assertNotEquals(id, table.intern(user, kernel));
+    }
+
+    /**
+     * Test that the stacks sharing a prefix share the frames of the trie, and
+     * that the same frames split differently between the user and kernel
+     * callstacks are the same stack
+     */
+    @Test
+    public void testPrefixSharing() {
+        StackTable table = new StackTable();
+        int id123 = table.intern(new long[] { 3, 2, 1 }, null);
+        assertEquals(3, table.getNbFrames());
+        int id124 = table.intern(new long[] { 4, 2, 1 }, null);
+        assertEquals(4, table.getNbFrames());
+        assertNotEquals(id123, id124);
+
+        // A prefix of an existing stack adds no frame
+        int id12 = table.intern(new long[] { 2, 1 }, null);
+        assertEquals(4, table.getNbFrames());
+        assertTrue(id12 < id123);
+        assertArrayEquals(new long[] { 1, 2 }, table.getStack(id12));
+        assertArrayEquals(new long[] { 1, 2, 4 }, table.getStack(id124));
+
+        assertEquals(id123, table.intern(new long[] { 2, 1 }, new long[] { 3 }));
+        assertEquals(id123, table.intern(null, new long[] { 3, 2, 1 }));
+        assertEquals(4, table.getNbFrames());
+    }
+
+    /**
+     * Test that the samples without callstack frames, whether the fields are
+     * missing or empty, all have the same stack
+     */
+    @Test
+    public void testNullAndEmptyStacks() {
+        StackTable table = new StackTable();
+        int id = table.intern(null, null);
+        assertArrayEquals(new long[] { 0 }, table.getStack(id));
+        assertEquals(id, table.intern(new long[0], new long[0]));
+        assertEquals(id, table.intern(null, new long[0]));
+        assertEquals(id, table.intern(new long[0], null));
+        assertEquals(1, table.getNbFrames());
+
+        // A missing field and an empty one do not change the other's frames
+        int userId = table.intern(new long[] { 1 }, null);
+        assertEquals(userId, table.intern(new long[] { 1 }, new long[0]));
+        assertEquals(userId, table.intern(null, new long[] { 1 }));
+    }
+
+    /**
+     * Test that the IDs are kept when the table of callstack fields grows
+     */
+    @Test
+    public void testResize() {
+        StackTable table = new StackTable();
+        int nbStacks = 5000;
+        int[] ids = new int[nbStacks];
+        for (int i = 0; i < nbStacks; i++) {
+            ids[i] = table.intern(new long[] { i % 100, i / 100 }, new long[] { i });
+        }
+        for (int i = 0; i < nbStacks; i++) {
+            assertEquals(ids[i], table.intern(new long[] { i % 100, i / 100 }, new long[] { i }));
+            assertArrayEquals(new long[] { i / 100, i % 100, i }, table.getStack(ids[i]));
+        }
+    }
+}
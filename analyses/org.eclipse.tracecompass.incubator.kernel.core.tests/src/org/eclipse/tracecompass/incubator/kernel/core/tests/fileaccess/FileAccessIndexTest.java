@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.kernel.core.tests.fileaccess;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.eclipse.tracecompass.incubator.internal.kernel.core.fileaccess.FileAccessIndex;
+import org.eclipse.tracecompass.incubator.internal.kernel.core.io.IoStateProvider;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.StateSystemFactory;
+import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the {@link FileAccessIndex} with the resource attributes of the IO
+ * state system, as the attributes are added between updates
+ */
+public class FileAccessIndexTest {
+
+    private static final String FILE_A = "/tmp/a"; //$NON-NLS-1$
+    private static final String FILE_B = "/tmp/b"; //$NON-NLS-1$
+    private static final String TID_1 = "1"; //$NON-NLS-1$
+    private static final String TID_2 = "2"; //$NON-NLS-1$
+
+    private ITmfStateSystemBuilder fSs;
+
+    /**
+     * Create an empty state system
+     */
+    @Before
+    public void setUp() {
+        fSs = StateSystemFactory.newStateSystem(StateHistoryBackendFactory.createInMemoryBackend("test", 0L)); //$NON-NLS-1$
+    }
+
+    /**
+     * Dispose the state system
+     */
+    @After
+    public void tearDown() {
+        fSs.dispose();
+    }
+
+    private int addOperation(String file, String tid) {
+        return fSs.getQuarkAbsoluteAndAdd(IoStateProvider.ATTRIBUTE_RESOURCES, file, tid, IoStateProvider.ATTRIBUTE_OPERATION);
+    }
+
+    /**
+     * Test the operations of the file and thread entries, updated after each
+     * batch of new attributes, like between the fetches of a data provider
+     * while the analysis is running
+     */
+    @Test
+    public void testIncrementalUpdate() {
+        FileAccessIndex index = new FileAccessIndex();
+        int opA2 = addOperation(FILE_A, TID_2);
+        int threadA2 = fSs.getParentAttributeQuark(opA2);
+        int fileA = fSs.getParentAttributeQuark(threadA2);
+        index.update(fSs);
+
+        assertEquals(Collections.singletonList(opA2), index.getOperations(fileA));
+        assertEquals(Collections.singletonList(opA2), index.getOperations(threadA2));
+
+        // New threads of an existing file and a new file
+        int opB1 = addOperation(FILE_B, TID_1);
+        int opA1 = addOperation(FILE_A, TID_1);
+        int threadA1 = fSs.getParentAttributeQuark(opA1);
+        int fileB = fSs.getParentAttributeQuark(fSs.getParentAttributeQuark(opB1));
+        index.update(fSs);
+
+        // The operations of a file are in the order of its thread attributes
+        assertEquals(Arrays.asList(opA2, opA1), index.getOperations(fileA));
+        assertEquals(Collections.singletonList(opA1), index.getOperations(threadA1));
+        assertEquals(Collections.singletonList(opB1), index.getOperations(fileB));
+
+        // An update without new attributes changes nothing
+        index.update(fSs);
+        assertEquals(Arrays.asList(opA2, opA1), index.getOperations(fileA));
+    }
+
+    /**
+     * Test the entries without operations, and a thread attribute with other
+     * sub-attributes than its operation
+     */
+    @Test
+    public void testOtherAttributes() {
+        FileAccessIndex index = new FileAccessIndex();
+        int resources = fSs.getQuarkAbsoluteAndAdd(IoStateProvider.ATTRIBUTE_RESOURCES);
+        int emptyFile = fSs.getQuarkRelativeAndAdd(resources, FILE_B);
+        int opA1 = addOperation(FILE_A, TID_1);
+        int threadA1 = fSs.getParentAttributeQuark(opA1);
+        index.update(fSs);
+
+        assertTrue(index.getOperations(resources).isEmpty());
+        assertTrue(index.getOperations(emptyFile).isEmpty());
+        assertTrue(index.getOperations(opA1).isEmpty());
+        assertEquals(Collections.singletonList(opA1), index.getOperations(threadA1));
+
+        // A thread attribute with more sub-attributes is read like a file
+        fSs.getQuarkRelativeAndAdd(threadA1, IoStateProvider.ATTRIBUTE_FD);
+        index.update(fSs);
+        assertTrue(index.getOperations(threadA1).isEmpty());
+    }
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.kernel.core.tests.inputoutput;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.tracecompass.incubator.internal.kernel.core.inputoutput.DiskRequestIndex;
+import org.eclipse.tracecompass.internal.analysis.os.linux.core.inputoutput.Attributes;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.StateSystemFactory;
+import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the {@link DiskRequestIndex} against the sub-attributes of the state
+ * system, as the attributes are added between updates
+ */
+@SuppressWarnings("restriction")
+public class DiskRequestIndexTest {
+
+    private static final String DISK_A = "8,0"; //$NON-NLS-1$
+    private static final String DISK_B = "8,16"; //$NON-NLS-1$
+    private static final String OTHER = "Other"; //$NON-NLS-1$
+    private static final String SECTOR = "sector"; //$NON-NLS-1$
+
+    private ITmfStateSystemBuilder fSs;
+
+    /**
+     * Create an empty state system
+     */
+    @Before
+    public void setUp() {
+        fSs = StateSystemFactory.newStateSystem(StateHistoryBackendFactory.createInMemoryBackend("test", 0L)); //$NON-NLS-1$
+    }
+
+    /**
+     * Dispose the state system
+     */
+    @After
+    public void tearDown() {
+        fSs.dispose();
+    }
+
+    /**
+     * Test the index of an empty state system and of a state system without
+     * disks
+     */
+    @Test
+    public void testEmpty() {
+        DiskRequestIndex index = new DiskRequestIndex();
+        index.update(fSs);
+        assertTrue(index.getDisks().isEmpty());
+
+        int otherQuark = fSs.getQuarkAbsoluteAndAdd(OTHER, DISK_A, Attributes.DRIVER_QUEUE, "0"); //$NON-NLS-1$
+        index.update(fSs);
+        assertTrue(index.getDisks().isEmpty());
+        assertTrue(index.getRequests(fSs.getParentAttributeQuark(otherQuark)).isEmpty());
+        assertFalse(index.isRequest(otherQuark));
+    }
+
+    /**
+     * Test the disks, queues and requests of the index, updated after each
+     * batch of new attributes, like between the fetches of a data provider
+     * while the analysis is running
+     */
+    @Test
+    public void testIncrementalUpdate() {
+        DiskRequestIndex index = new DiskRequestIndex();
+        int diskA = fSs.getQuarkAbsoluteAndAdd(Attributes.DISKS, DISK_A);
+        int driverA = fSs.getQuarkRelativeAndAdd(diskA, Attributes.DRIVER_QUEUE);
+        int requestA0 = fSs.getQuarkRelativeAndAdd(driverA, "0"); //$NON-NLS-1$
+        index.update(fSs);
+
+        assertEquals(Collections.singletonList(diskA), index.getDisks());
+        assertEquals(driverA, index.getQueue(diskA, Attributes.DRIVER_QUEUE));
+        assertEquals(ITmfStateSystem.INVALID_ATTRIBUTE, index.getQueue(diskA, Attributes.WAITING_QUEUE));
+        assertEquals(Collections.singletonList(requestA0), index.getRequests(driverA));
+        assertTrue(index.isRequest(requestA0));
+
+        // New attributes, below new and existing parents
+        int diskB = fSs.getQuarkAbsoluteAndAdd(Attributes.DISKS, DISK_B);
+        int waitingA = fSs.getQuarkRelativeAndAdd(diskA, Attributes.WAITING_QUEUE);
+        int requestA1 = fSs.getQuarkRelativeAndAdd(driverA, "1"); //$NON-NLS-1$
+        int waitingB = fSs.getQuarkRelativeAndAdd(diskB, Attributes.WAITING_QUEUE);
+        int requestB0 = fSs.getQuarkRelativeAndAdd(waitingB, "0"); //$NON-NLS-1$
+        int requestA2 = fSs.getQuarkRelativeAndAdd(waitingA, "0"); //$NON-NLS-1$
+        int sector = fSs.getQuarkRelativeAndAdd(requestA0, SECTOR);
+        index.update(fSs);
+
+        assertEquals(Arrays.asList(diskA, diskB), index.getDisks());
+        assertEquals(waitingA, index.getQueue(diskA, Attributes.WAITING_QUEUE));
+        assertEquals(waitingB, index.getQueue(diskB, Attributes.WAITING_QUEUE));
+        assertEquals(ITmfStateSystem.INVALID_ATTRIBUTE, index.getQueue(diskB, Attributes.DRIVER_QUEUE));
+        assertEquals(Arrays.asList(requestA0, requestA1), index.getRequests(driverA));
+        assertEquals(Collections.singletonList(requestA2), index.getRequests(waitingA));
+        assertEquals(Collections.singletonList(requestB0), index.getRequests(waitingB));
+        assertTrue(index.isRequest(requestA1));
+        assertTrue(index.isRequest(requestB0));
+
+        // The other attributes are not requests
+        assertFalse(index.isRequest(sector));
+        assertFalse(index.isRequest(diskA));
+        assertFalse(index.isRequest(driverA));
+        assertTrue(index.getRequests(diskA).isEmpty());
+
+        // An update without new attributes changes nothing
+        index.update(fSs);
+        assertEquals(Arrays.asList(diskA, diskB), index.getDisks());
+        assertEquals(Arrays.asList(requestA0, requestA1), index.getRequests(driverA));
+    }
+
+    /**
+     * Test that the index gives the same quarks as listing the sub-attributes
+     * of the state system, with many disks, queues and requests added in
+     * interleaved order
+     */
+    @Test
+    public void testSameAsSubAttributes() {
+        DiskRequestIndex index = new DiskRequestIndex();
+        String[] queues = { Attributes.DRIVER_QUEUE, Attributes.WAITING_QUEUE };
+        for (int i = 0; i < 50; i++) {
+            String disk = String.valueOf(i % 7);
+            String queue = queues[i % 2];
+            fSs.getQuarkAbsoluteAndAdd(Attributes.DISKS, disk, queue, String.valueOf(i % 5), SECTOR);
+            if (i % 10 == 0) {
+                index.update(fSs);
+            }
+        }
+        index.update(fSs);
+
+        int disksQuark = fSs.optQuarkAbsolute(Attributes.DISKS);
+        List<Integer> disks = fSs.getSubAttributes(disksQuark, false);
+        assertEquals(disks, index.getDisks());
+        for (int diskQuark : disks) {
+            for (String queue : queues) {
+                int queueQuark = fSs.optQuarkRelative(diskQuark, queue);
+                assertEquals(queueQuark, index.getQueue(diskQuark, queue));
+                if (queueQuark != ITmfStateSystem.INVALID_ATTRIBUTE) {
+                    List<Integer> requests = fSs.getSubAttributes(queueQuark, false);
+                    assertEquals(requests, index.getRequests(queueQuark));
+                    for (int request : requests) {
+                        assertTrue(index.isRequest(request));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.kernel.core.tests.inputoutput;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.analysis.timing.core.statistics.IStatistics;
+import org.eclipse.tracecompass.analysis.timing.core.statistics.Statistics;
+import org.eclipse.tracecompass.incubator.internal.kernel.core.inputoutput.SegmentStatisticsTree;
+import org.eclipse.tracecompass.segmentstore.core.BasicSegment;
+import org.eclipse.tracecompass.segmentstore.core.ISegment;
+import org.eclipse.tracecompass.segmentstore.core.ISegmentStore;
+import org.eclipse.tracecompass.segmentstore.core.SegmentStoreFactory;
+import org.junit.Test;
+
+/**
+ * Test the {@link SegmentStatisticsTree} against statistics computed from all
+ * the segments of the ranges
+ */
+public class SegmentStatisticsTreeTest {
+
+    private static final long TRACE_END = 1000000L;
+    private static final int NB_SEGMENTS = 20000;
+    private static final int NB_QUERIES = 200;
+
+    private static @Nullable String getType(ISegment segment) {
+        return segment.getLength() % 2 == 0 ? "even" : "odd"; //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * Test the statistics of random ranges, with short and long segments that
+     * cross the bucket boundaries
+     */
+    @Test
+    public void testRanges() {
+        Random random = new Random(42);
+        ISegmentStore<ISegment> store = SegmentStoreFactory.createSegmentStore();
+        for (int i = 0; i < NB_SEGMENTS; i++) {
+            long start = random.nextInt((int) TRACE_END);
+            long length = random.nextBoolean() ? random.nextInt(100) : random.nextInt(50000);
+            store.add(new BasicSegment(start, start + length));
+        }
+        SegmentStatisticsTree tree = new SegmentStatisticsTree(store, 0, TRACE_END, SegmentStatisticsTreeTest::getType, new NullProgressMonitor());
+
+        assertStats(store, tree, Long.MIN_VALUE, Long.MAX_VALUE);
+        assertStats(store, tree, 0, TRACE_END);
+        for (int i = 0; i < NB_QUERIES; i++) {
+            long time1 = random.nextInt((int) TRACE_END + 100) - 50;
+            long time2 = random.nextInt((int) TRACE_END + 100) - 50;
+            assertStats(store, tree, Math.min(time1, time2), Math.max(time1, time2));
+        }
+    }
+
+    /**
+     * Test the tree of an empty segment store
+     */
+    @Test
+    public void testEmpty() {
+        ISegmentStore<ISegment> store = SegmentStoreFactory.createSegmentStore();
+        SegmentStatisticsTree tree = new SegmentStatisticsTree(store, 0, TRACE_END, SegmentStatisticsTreeTest::getType, new NullProgressMonitor());
+        assertEquals(0, tree.getStats(0, TRACE_END).getNbElements());
+        assertEquals(0, tree.getStatsPerType(0, TRACE_END).size());
+    }
+
+    private static void assertStats(ISegmentStore<ISegment> store, SegmentStatisticsTree tree, long start, long end) {
+        Statistics<ISegment> expected = new Statistics<>(ISegment::getLength);
+        Map<String, Statistics<ISegment>> expectedPerType = new HashMap<>();
+        for (ISegment segment : store.getIntersectingElements(start, end)) {
+            expected.update(segment);
+            expectedPerType.computeIfAbsent(String.valueOf(getType(segment)), type -> new Statistics<>(ISegment::getLength)).update(segment);
+        }
+        assertSameStats(expected, tree.getStats(start, end));
+        Map<String, IStatistics<ISegment>> perType = tree.getStatsPerType(start, end);
+        assertEquals(expectedPerType.keySet(), perType.keySet());
+        expectedPerType.forEach((type, statistics) -> assertSameStats(statistics, perType.get(type)));
+    }
+
+    private static void assertSameStats(IStatistics<ISegment> expected, @Nullable IStatistics<ISegment> actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getNbElements(), actual.getNbElements());
+        assertEquals(expected.getTotal(), actual.getTotal());
+        assertEquals(expected.getMin(), actual.getMin());
+        assertEquals(expected.getMax(), actual.getMax());
+        assertEquals(expected.getStdDev(), actual.getStdDev(), 1e-6 * Math.max(1.0, expected.getStdDev()));
+    }
+}
@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.kernel.core.tests.swslatencytest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.tracecompass.incubator.internal.kernel.core.swslatency.PendingWakeups;
+import org.eclipse.tracecompass.incubator.internal.kernel.core.swslatency.SchedWS.InitialInfo;
+import org.junit.Test;
+
+/**
+ * Test the {@link PendingWakeups} table of the SWS latency analysis
+ */
+public class PendingWakeupsTest {
+
+    /** The capacity of a new table */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static InitialInfo info(int tid) {
+        return new InitialInfo(tid, "thread" + tid, tid); //$NON-NLS-1$
+    }
+
+    /**
+     * Get TIDs that have the same slot in a new table, with the same hash
+     * function as the table
+     */
+    private static List<Integer> getCollidingTids(int slot, int count) {
+        List<Integer> tids = new ArrayList<>();
+        for (int tid = 0; tids.size() < count; tid++) {
+            int hash = tid * 0x9E3779B9;
+            if (((hash ^ (hash >>> 16)) & (INITIAL_CAPACITY - 1)) == slot) {
+                tids.add(tid);
+            }
+        }
+        return tids;
+    }
+
+    /**
+     * Test recording, replacing and removing the wakeups
+     */
+    @Test
+    public void testPutRemove() {
+        PendingWakeups wakeups = new PendingWakeups();
+        InitialInfo first = info(1);
+        InitialInfo second = info(1);
+        InitialInfo other = info(2);
+        assertNull(wakeups.remove(1));
+
+        wakeups.put(1, first);
+        wakeups.put(2, other);
+        wakeups.put(1, second);
+        assertSame(second, wakeups.remove(1));
+        assertNull(wakeups.remove(1));
+        assertSame(other, wakeups.remove(2));
+        assertNull(wakeups.remove(2));
+
+        wakeups.put(3, first);
+        wakeups.clear();
+        assertNull(wakeups.remove(3));
+    }
+
+    /**
+     * Test TIDs that have the same slot: removing one in the middle of the
+     * cluster must not hide the ones after it, and a removed TID must not be
+     * found again
+     */
+    @Test
+    public void testCollisions() {
+        List<Integer> tids = getCollidingTids(7, 5);
+        PendingWakeups wakeups = new PendingWakeups();
+        Map<Integer, InitialInfo> infos = new HashMap<>();
+        for (int tid : tids) {
+            InitialInfo info = info(tid);
+            infos.put(tid, info);
+            wakeups.put(tid, info);
+        }
+
+        // Remove in the middle of the cluster, then look up the others
+        int removed = tids.get(1);
+        assertSame(infos.get(removed), wakeups.remove(removed));
+        assertNull(wakeups.remove(removed));
+        for (int tid : tids) {
+            if (tid != removed) {
+                assertSame(infos.get(tid), wakeups.remove(tid));
+                assertNull(wakeups.remove(tid));
+            }
+        }
+
+        // Reuse the slots freed by the removals
+        for (int tid : tids) {
+            wakeups.put(tid, infos.get(tid));
+        }
+        for (int i = tids.size() - 1; i >= 0; i--) {
+            assertSame(infos.get(tids.get(i)), wakeups.remove(tids.get(i)));
+        }
+    }
+
+    /**
+     * Test a cluster that wraps around the end of the table, with TIDs of the
+     * first slots mixed in
+     */
+    @Test
+    public void testWrapAround() {
+        List<Integer> lastSlot = getCollidingTids(INITIAL_CAPACITY - 1, 3);
+        List<Integer> firstSlot = getCollidingTids(0, 2);
+        PendingWakeups wakeups = new PendingWakeups();
+        Map<Integer, InitialInfo> infos = new HashMap<>();
+        List<Integer> tids = new ArrayList<>();
+        tids.add(lastSlot.get(0));
+        tids.add(firstSlot.get(0));
+        tids.add(lastSlot.get(1));
+        tids.add(lastSlot.get(2));
+        tids.add(firstSlot.get(1));
+        for (int tid : tids) {
+            InitialInfo info = info(tid);
+            infos.put(tid, info);
+            wakeups.put(tid, info);
+        }
+
+        // Removing the first TID of the last slot shifts the others back
+        assertSame(infos.get(lastSlot.get(0)), wakeups.remove(lastSlot.get(0)));
+        for (int i = 1; i < tids.size(); i++) {
+            assertSame(infos.get(tids.get(i)), wakeups.remove(tids.get(i)));
+        }
+        for (int tid : tids) {
+            assertNull(wakeups.remove(tid));
+        }
+    }
+
+    /**
+     * Test that the wakeups are kept when the table grows many times
+     */
+    @Test
+    public void testResize() {
+        int nbTids = INITIAL_CAPACITY * 8;
+        PendingWakeups wakeups = new PendingWakeups();
+        List<InitialInfo> infos = new ArrayList<>();
+        for (int tid = 0; tid < nbTids; tid++) {
+            InitialInfo info = info(tid);
+            infos.add(info);
+            wakeups.put(tid, info);
+        }
+        // Remove the even TIDs, then the odd ones
+        for (int tid = 0; tid < nbTids; tid += 2) {
+            assertSame(infos.get(tid), wakeups.remove(tid));
+        }
+        for (int tid = 0; tid < nbTids; tid++) {
+            if (tid % 2 == 0) {
+                assertNull(wakeups.remove(tid));
+            } else {
+                assertSame(infos.get(tid), wakeups.remove(tid));
+            }
+        }
+    }
+
+    /**
+     * Test random operations against a map
+     */
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(42);
+        PendingWakeups wakeups = new PendingWakeups();
+        Map<Integer, InitialInfo> expected = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            int tid = random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                assertSame(expected.remove(tid), wakeups.remove(tid));
+            } else {
+                InitialInfo info = info(tid);
+                expected.put(tid, info);
+                wakeups.put(tid, info);
+            }
+        }
+        int remaining = 0;
+        for (int tid = 0; tid < 2000; tid++) {
+            InitialInfo info = wakeups.remove(tid);
+            assertSame(expected.get(tid), info);
+            if (info != null) {
+                remaining++;
+            }
+        }
+        assertEquals(expected.size(), remaining);
+    }
+}
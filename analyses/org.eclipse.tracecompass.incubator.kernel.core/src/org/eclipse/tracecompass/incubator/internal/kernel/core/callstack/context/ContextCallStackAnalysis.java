@@ -15,10 +15,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.analysis.os.linux.core.event.aspect.LinuxPidAspect;
@@ -50,17 +50,21 @@ public class ContextCallStackAnalysis extends ProfilingCallGraphAnalysisModule {
      */
     public static final String ID = "org.eclipse.tracecompass.incubator.kernel.core.callstack.core.context"; //$NON-NLS-1$
 
-    private static final long UNDEFINED_SYMBOL = -1L;
-
     private static final String KERNEL_CALLSTACK_FIELD = "context._callstack_kernel"; //$NON-NLS-1$
     private static final String USER_CALLSTACK_FIELD = "context._callstack_user"; //$NON-NLS-1$
     private static final String KERNEL_STACK_NAME = "kernel"; //$NON-NLS-1$
     private static final String USER_STACK_NAME = "user"; //$NON-NLS-1$
+    private static final long[] NO_CALLSITES = new long[0];
 
     private final CallStackGroupDescriptor fEventDescriptor;
     private final CallStackGroupDescriptor fProcessDescriptor;
     private final CallStackGroupDescriptor fThreadDescriptor;
 
+    private final StackTable fStackTable = new StackTable();
+    /* The root elements by name and the child elements by ID of their parent */
+    private final Map<String, ICallStackElement> fEventElements = new HashMap<>();
+    private final Map<ICallStackElement, Map<Integer, ICallStackElement>> fChildElements = new IdentityHashMap<>();
+
     /**
      * Constructor
      */
@@ -73,62 +77,45 @@ public class ContextCallStackAnalysis extends ProfilingCallGraphAnalysisModule {
 
     @Override
     protected @Nullable Pair<ICallStackElement, AggregatedCallSite> getProfiledStackTrace(ITmfEvent event) {
-        Map<String, Collection<Object>> callStack = getCallStack(event);
-        if (callStack.isEmpty()) {
+        ITmfEventField content = event.getContent();
+        ITmfEventField kernelField = content.getField(KERNEL_CALLSTACK_FIELD);
+        ITmfEventField userField = content.getField(USER_CALLSTACK_FIELD);
+        if (kernelField == null && userField == null) {
             return null;
         }
         ICallStackElement element = getElement(event);
 
-        Collection<Object> kernelCs = callStack.get(KERNEL_STACK_NAME);
-        if (kernelCs == null) {
-            kernelCs = Collections.emptyList();
-        }
-        Collection<Object> userCs = callStack.get(USER_STACK_NAME);
-        if (userCs == null) {
-            userCs = Collections.emptyList();
-        }
-        if (kernelCs.size() + userCs.size() == 0) {
-            long[] stack = new long[1];
-            stack[0] = 0;
-            return new Pair<>(element, getCallSite(element, stack, event.getTimestamp().getValue()));
-        }
-        long[] stack = new long[userCs.size() + kernelCs.size()];
-        int i = 0;
-        for (Object call : userCs) {
-            stack[i] = (call instanceof Long) ? (long) call : UNDEFINED_SYMBOL;
-            i++;
-        }
-        for (Object call : kernelCs) {
-            stack[i] = (call instanceof Long) ? (long) call : UNDEFINED_SYMBOL;
-            i++;
-        }
+        int stackId = fStackTable.intern(getCallsites(userField), getCallsites(kernelField));
+        long[] stack = fStackTable.getStack(stackId);
         return new Pair<>(element, getCallSite(element, stack, event.getTimestamp().getValue()));
+    }
 
+    private static long @Nullable [] getCallsites(@Nullable ITmfEventField field) {
+        if (field == null) {
+            return null;
+        }
+        Object value = field.getValue();
+        return (value instanceof long[]) ? (long[]) value : NO_CALLSITES;
     }
 
     private ICallStackElement getElement(ITmfEvent event) {
-        // Find a root elements with the same PID
-        Collection<ICallStackElement> rootElements = getRootElements();
         String name = event.getName();
-        Optional<ICallStackElement> events = rootElements.stream()
-                .filter(e -> e.getName().equals(String.valueOf(name)))
-                .findFirst();
         Integer threadId = TmfTraceUtils.resolveIntEventAspectOfClassForEvent(event.getTrace(), LinuxTidAspect.class, event);
         int tid = (threadId == null) ? -1 : threadId;
         Integer pId = TmfTraceUtils.resolveIntEventAspectOfClassForEvent(event.getTrace(), LinuxPidAspect.class, event);
         int pid = (pId == null) ? -1 : pId.intValue();
-        if (events.isPresent()) {
-            ICallStackElement eventEl = events.get();
-
-            // Process exists, find a thread element under it or create it
-            Optional<ICallStackElement> process = eventEl.getChildrenElements().stream()
-                    .filter(e -> e.getName().equals(String.valueOf(pid)))
-                    .findFirst();
-
-            ICallStackElement processEl;
-            if (process.isPresent()) {
-                processEl = process.get();
-            } else {
+        if (getRootElements().isEmpty()) {
+            // The root elements were reset since the last sample
+            fEventElements.clear();
+            fChildElements.clear();
+        }
+        // Find a root element with the same name
+        ICallStackElement eventEl = fEventElements.get(name);
+        if (eventEl != null) {
+            // Find a process element under it or create it
+            Map<Integer, ICallStackElement> processes = fChildElements.computeIfAbsent(eventEl, e -> new HashMap<>());
+            ICallStackElement processEl = processes.get(pid);
+            if (processEl == null) {
                 processEl = new CallStackElement(String.valueOf(pid), fProcessDescriptor, fThreadDescriptor, eventEl) {
 
                     @Override
@@ -139,25 +126,25 @@ public class ContextCallStackAnalysis extends ProfilingCallGraphAnalysisModule {
                 };
                 processEl.setSymbolKeyElement(processEl);
                 eventEl.addChild(processEl);
+                processes.put(pid, processEl);
             }
 
             // Process exists, find a thread element under it or create it
-            Optional<ICallStackElement> thread = processEl.getChildrenElements().stream()
-                    .filter(e -> e.getName().equals(String.valueOf(tid)))
-                    .findFirst();
-
-            if (thread.isPresent()) {
-                return thread.get();
+            Map<Integer, ICallStackElement> threads = fChildElements.computeIfAbsent(processEl, e -> new HashMap<>());
+            ICallStackElement threadEl = threads.get(tid);
+            if (threadEl == null) {
+                threadEl = new CallStackElement(String.valueOf(tid), fThreadDescriptor, null, processEl);
+                processEl.addChild(threadEl);
+                threads.put(tid, threadEl);
             }
-            ICallStackElement threadEl = new CallStackElement(String.valueOf(tid), fThreadDescriptor, null, processEl);
-            processEl.addChild(threadEl);
             return threadEl;
         }
-        ICallStackElement eventEl = new CallStackElement(name, fEventDescriptor, null, null);
+        eventEl = new CallStackElement(name, fEventDescriptor, null, null);
         ICallStackElement processEl = new CallStackElement(String.valueOf(pid), fProcessDescriptor, null, eventEl);
         processEl.setSymbolKeyElement(processEl);
         ICallStackElement threadEl = new CallStackElement(String.valueOf(tid), fThreadDescriptor, null, processEl);
         addRootElement(eventEl);
+        fEventElements.put(name, eventEl);
         return threadEl;
     }
 
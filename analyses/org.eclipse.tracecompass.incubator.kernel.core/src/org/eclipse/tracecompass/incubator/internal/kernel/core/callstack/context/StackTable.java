@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.kernel.core.callstack.context;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Table of the distinct stacks of the samples of a trace. A stack is the user
+ * callstack followed by the kernel callstack, from the outermost to the
+ * innermost frame, and is identified by an integer ID.
+ * <p>
+ * The frames are stored in a trie, so the stacks sharing a prefix share the
+ * nodes of that prefix and the ID of a stack is the ID of its last node. The
+ * callstack fields of the events, innermost frame first, are also hashed as
+ * they are to their stack ID, so a stack that was already seen costs a hash
+ * probe and does not allocate.
+ */
+public class StackTable {
+
+    /** Stack of the samples without callstacks */
+    private static final long[] EMPTY_STACK = { 0L };
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int ROOT = -1;
+
+    /* The callstack fields, by slot of the open addressing table */
+    private long[] @Nullable [] fUserKeys = new long[INITIAL_CAPACITY][];
+    private long[] @Nullable [] fKernelKeys = new long[INITIAL_CAPACITY][];
+    private int[] fHashes = new int[INITIAL_CAPACITY];
+    private int[] fKeyIds = new int[INITIAL_CAPACITY];
+    private boolean[] fUsed = new boolean[INITIAL_CAPACITY];
+    private int fNbKeys = 0;
+
+    /* The trie of frames */
+    private final Map<Edge, Integer> fChildren = new HashMap<>();
+    private final List<long @Nullable []> fStacks = new ArrayList<>();
+
+    private static final class Edge {
+        private final int fParent;
+        private final long fFrame;
+
+        public Edge(int parent, long frame) {
+            fParent = parent;
+            fFrame = frame;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * fParent + Long.hashCode(fFrame);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (!(obj instanceof Edge)) {
+                return false;
+            }
+            Edge other = (Edge) obj;
+            return fParent == other.fParent && fFrame == other.fFrame;
+        }
+    }
+
+    /**
+     * Get the ID of the stack of a sample, adding it to the table if it was
+     * not seen yet. The arrays are not modified nor kept by the table.
+     *
+     * @param user
+     *            the user callstack of the sample, innermost frame first, or
+     *            <code>null</code> if the sample has none
+     * @param kernel
+     *            the kernel callstack of the sample, innermost frame first, or
+     *            <code>null</code> if the sample has none
+     * @return the stack ID
+     */
+    public synchronized int intern(long @Nullable [] user, long @Nullable [] kernel) {
+        int hash = 31 * Arrays.hashCode(user) + Arrays.hashCode(kernel);
+        int mask = fUsed.length - 1;
+        int index = spread(hash) & mask;
+        while (fUsed[index]) {
+            if (fHashes[index] == hash && Arrays.equals(fUserKeys[index], user) && Arrays.equals(fKernelKeys[index], kernel)) {
+                return fKeyIds[index];
+            }
+            index = (index + 1) & mask;
+        }
+        int id = addStack(user, kernel);
+        fUsed[index] = true;
+        fHashes[index] = hash;
+        fUserKeys[index] = user == null ? null : user.clone();
+        fKernelKeys[index] = kernel == null ? null : kernel.clone();
+        fKeyIds[index] = id;
+        fNbKeys++;
+        if (fNbKeys * 2 > fUsed.length) {
+            resize();
+        }
+        return id;
+    }
+
+    /**
+     * Get the frames of a stack, from the outermost to the innermost one.
+     * <p>
+     * The array is not copied: it is the one kept by the table, returned for
+     * every sample of this stack so that a sample does not allocate. Callers
+     * must not modify it, and must copy it if they need to.
+     *
+     * @param id
+     *            the stack ID, as returned by {@link #intern(long[], long[])}
+     * @return the frames of the stack
+     */
+    public synchronized long[] getStack(int id) {
+        return Objects.requireNonNull(fStacks.get(id));
+    }
+
+    /**
+     * Get the number of frames in the trie, which is the number of distinct
+     * stack prefixes
+     *
+     * @return the number of frames
+     */
+    public synchronized int getNbFrames() {
+        return fStacks.size();
+    }
+
+    private int addStack(long @Nullable [] user, long @Nullable [] kernel) {
+        int userLength = user == null ? 0 : user.length;
+        int kernelLength = kernel == null ? 0 : kernel.length;
+        long[] stack = (userLength + kernelLength == 0) ? EMPTY_STACK : new long[userLength + kernelLength];
+        // The fields have the innermost frame first
+        for (int i = 0; i < userLength; i++) {
+            stack[i] = Objects.requireNonNull(user)[userLength - 1 - i];
+        }
+        for (int i = 0; i < kernelLength; i++) {
+            stack[userLength + i] = Objects.requireNonNull(kernel)[kernelLength - 1 - i];
+        }
+        int node = ROOT;
+        for (long frame : stack) {
+            node = fChildren.computeIfAbsent(new Edge(node, frame), edge -> {
+                fStacks.add(null);
+                return fStacks.size() - 1;
+            });
+        }
+        long[] existing = fStacks.get(node);
+        if (existing != null) {
+            return node;
+        }
+        fStacks.set(node, stack);
+        return node;
+    }
+
+    private void resize() {
+        long[] @Nullable [] userKeys = fUserKeys;
+        long[] @Nullable [] kernelKeys = fKernelKeys;
+        int[] hashes = fHashes;
+        int[] keyIds = fKeyIds;
+        boolean[] used = fUsed;
+        int capacity = used.length * 2;
+        fUserKeys = new long[capacity][];
+        fKernelKeys = new long[capacity][];
+        fHashes = new int[capacity];
+        fKeyIds = new int[capacity];
+        fUsed = new boolean[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < used.length; i++) {
+            if (!used[i]) {
+                continue;
+            }
+            int index = spread(hashes[i]) & mask;
+            while (fUsed[index]) {
+                index = (index + 1) & mask;
+            }
+            fUsed[index] = true;
+            fHashes[index] = hashes[i];
+            fUserKeys[index] = userKeys[i];
+            fKernelKeys[index] = kernelKeys[i];
+            fKeyIds[index] = keyIds[i];
+        }
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -121,6 +121,7 @@ public class FileAccessDataProvider extends AbstractTimeGraphDataProvider<IoAnal
     private static final AtomicInteger STRING_VALUE = new AtomicInteger(OFFSET);
     private Map<String, Integer> fFileIds = new HashMap<>();
     private BiMap<Long, Integer> fIdToEntry = HashBiMap.create();
+    private final FileAccessIndex fIndex = new FileAccessIndex();
 
     /**
      * Constructor
@@ -155,25 +156,17 @@ public class FileAccessDataProvider extends AbstractTimeGraphDataProvider<IoAnal
         Map<Long, Integer> entries = getSelectedEntries(filter);
         Map<Long, List<Integer>> selectedQuarks = new HashMap<>();
         // Get the access quarks from the file and thread entries
+        fIndex.update(ss);
         for (Entry<Long, Integer> entry : entries.entrySet()) {
-            List<Integer> threadQuarks = ss.getSubAttributes(entry.getValue(), false);
-            // It has one operation attribute below
-            if (threadQuarks.size() == 1 && ss.getAttributeName(threadQuarks.get(0)).equals(IoStateProvider.ATTRIBUTE_OPERATION)) {
-                selectedQuarks.put(entry.getKey(), List.of(threadQuarks.get(0)));
-                continue;
-            }
-            // Or it has multiple attributes which have one operation attribute below
-            for (Integer threadQuark : threadQuarks) {
-                for (Integer operationQuark: ss.getSubAttributes(threadQuark, false)) {
-                    if (ss.getAttributeName(operationQuark).equals(IoStateProvider.ATTRIBUTE_OPERATION)) {
-                        selectedQuarks.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).add(operationQuark);
-                    }
-                }
+            List<Integer> operationQuarks = fIndex.getOperations(entry.getValue());
+            if (!operationQuarks.isEmpty()) {
+                selectedQuarks.put(entry.getKey(), operationQuarks);
             }
         }
 
         Collection<Long> times = getTimes(filter, ss.getStartTime(), ss.getCurrentEndTime());
-        // Do the query with all of the access quarks
+        // Do the query with all of the access quarks, sampled at the requested
+        // times
         for (ITmfStateInterval interval : ss.query2D(selectedQuarks.values().stream().flatMap(List::stream).collect(Collectors.toList()), times)) {
             if (monitor != null && monitor.isCanceled()) {
                 return new TimeGraphModel(Collections.emptyList());
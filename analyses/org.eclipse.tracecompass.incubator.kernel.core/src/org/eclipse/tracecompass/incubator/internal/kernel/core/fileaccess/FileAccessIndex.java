@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.kernel.core.fileaccess;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.tracecompass.incubator.internal.kernel.core.io.IoStateProvider;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+
+/**
+ * Index of the operation attributes below the file and thread attributes of
+ * the resources. The attributes are only ever added to a state system, with a
+ * quark larger than the previous ones, so the index reads the attributes added
+ * since its last update instead of listing the sub-attributes of the selected
+ * entries at each fetch.
+ * <p>
+ * Like the {@link org.eclipse.tracecompass.incubator.internal.kernel.core.inputoutput.DiskRequestIndex},
+ * the index is kept in memory and is not saved with the state history: the
+ * attribute tree it is built from is already saved by the analysis, and the
+ * first fetch after opening a trace rebuilds it with one pass over the
+ * attributes.
+ */
+public class FileAccessIndex {
+
+    private int fNbAttributes = 0;
+    private final Map<Integer, Integer> fNbChildren = new HashMap<>();
+    /** Quark to its operation sub-attribute */
+    private final Map<Integer, Integer> fOperations = new HashMap<>();
+    /** Quark to the operation sub-attributes of its children, by child */
+    private final Map<Integer, TreeMap<Integer, Integer>> fChildOperations = new HashMap<>();
+
+    /**
+     * Add the attributes created since the last update
+     *
+     * @param ss
+     *            the state system of the IO analysis
+     */
+    public synchronized void update(ITmfStateSystem ss) {
+        int nbAttributes = ss.getNbAttributes();
+        for (int quark = fNbAttributes; quark < nbAttributes; quark++) {
+            int parent = ss.getParentAttributeQuark(quark);
+            fNbChildren.merge(parent, 1, Integer::sum);
+            if (parent != ITmfStateSystem.ROOT_ATTRIBUTE && ss.getAttributeName(quark).equals(IoStateProvider.ATTRIBUTE_OPERATION)) {
+                fOperations.put(parent, quark);
+                int grandParent = ss.getParentAttributeQuark(parent);
+                fChildOperations.computeIfAbsent(grandParent, q -> new TreeMap<>()).put(parent, quark);
+            }
+        }
+        fNbAttributes = nbAttributes;
+    }
+
+    /**
+     * Get the operation attributes of an entry: its own operation attribute if
+     * it is its only sub-attribute, like for a thread, or else the operation
+     * attributes of its sub-attributes, like for a file.
+     *
+     * @param quark
+     *            the quark of the entry
+     * @return the operation quarks, in the order of the sub-attributes
+     */
+    public synchronized List<Integer> getOperations(int quark) {
+        Integer operation = fOperations.get(quark);
+        if (operation != null && fNbChildren.getOrDefault(quark, 0) == 1) {
+            return Collections.singletonList(operation);
+        }
+        TreeMap<Integer, Integer> childOperations = fChildOperations.get(quark);
+        return childOperations == null ? Collections.emptyList() : new ArrayList<>(childOperations.values());
+    }
+}
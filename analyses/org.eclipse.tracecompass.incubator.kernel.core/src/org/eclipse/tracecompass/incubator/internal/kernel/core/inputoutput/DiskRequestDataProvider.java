@@ -166,28 +166,17 @@ public class DiskRequestDataProvider extends AbstractTimeGraphDataProvider<Input
             return quarks;
         }
 
-        private @Nullable ITmfStateInterval findInterval(@Nullable Set<ITmfStateInterval> intervals, long time) {
-            if (intervals == null) {
-                return null;
-            }
-            for (ITmfStateInterval interval : intervals) {
-                // Intervals are sorted, return if interval has start time later than time, the interval is not there
-                if (interval.getStartTime() > time) {
-                    return null;
-                }
-                if (time >= interval.getStartTime() && time <= interval.getEndTime()) {
-                    return interval;
-                }
-            }
-            return null;
-        }
-
         public ITimeGraphRowModel createStates(Map<Integer, Set<ITmfStateInterval>> intervals, Map<Integer, Predicate<Multimap<String, Object>>> predicates, @Nullable IProgressMonitor monitor) {
             Set<ITmfStateInterval> mainIntervals = intervals.get(fMainQuark);
             if (mainIntervals == null) {
                 return new TimeGraphRowModel(fId, Collections.emptyList());
             }
             List<ITimeGraphState> states = new ArrayList<>();
+            // The main intervals are sorted and do not overlap, so the size
+            // intervals are looked for at increasing times
+            Set<ITmfStateInterval> sizeSet = intervals.get(fSizeQuark);
+            List<ITmfStateInterval> sizeIntervals = sizeSet == null ? Collections.emptyList() : new ArrayList<>(sizeSet);
+            int sizeIndex = 0;
 
             for (ITmfStateInterval mainInterval : mainIntervals) {
                 long startTime = mainInterval.getStartTime();
@@ -205,7 +194,13 @@ public class DiskRequestDataProvider extends AbstractTimeGraphDataProvider<Input
                         long time = startTime;
                         while (time < mainInterval.getEndTime()) {
                             // Add a request for each size
-                            ITmfStateInterval sizeInterval = findInterval(intervals.get(fSizeQuark), time);
+                            while (sizeIndex < sizeIntervals.size() && sizeIntervals.get(sizeIndex).getEndTime() < time) {
+                                sizeIndex++;
+                            }
+                            ITmfStateInterval sizeInterval = null;
+                            if (sizeIndex < sizeIntervals.size() && sizeIntervals.get(sizeIndex).getStartTime() <= time) {
+                                sizeInterval = sizeIntervals.get(sizeIndex);
+                            }
                             ITimeGraphState timeGraphState = new TimeGraphState(startTime, duration, null, getStyleFor(IoOperationType.fromNumber((Integer) value), sizeInterval == null ? null : (Integer) sizeInterval.getValue()));
                             applyFilterAndAddState(states, timeGraphState, fId, predicates, monitor);
 
@@ -221,7 +216,7 @@ public class DiskRequestDataProvider extends AbstractTimeGraphDataProvider<Input
         }
     }
 
-    private final Set<Integer> fRequestQuark = new TreeSet<>();
+    private final DiskRequestIndex fIndex = new DiskRequestIndex();
 
     /**
      * Constructor
@@ -254,7 +249,8 @@ public class DiskRequestDataProvider extends AbstractTimeGraphDataProvider<Input
         long rootId = getId(ITmfStateSystem.ROOT_ATTRIBUTE);
         nodes.add(new TimeGraphEntryModel(rootId, -1, Objects.requireNonNull(getTrace().getName()), start, end));
 
-        for (Integer diskQuark : ss.getQuarks(Attributes.DISKS, "*")) { //$NON-NLS-1$
+        fIndex.update(ss);
+        for (Integer diskQuark : fIndex.getDisks()) {
             String diskName = DiskUtils.getDiskName(ss, diskQuark);
             long diskId = getId(diskQuark);
 
@@ -271,14 +267,14 @@ public class DiskRequestDataProvider extends AbstractTimeGraphDataProvider<Input
 
     private List<TimeGraphEntryModel> getDiskQueue(ITmfStateSystem ss, Integer diskQuark, String queueAttribute, String queueName, long diskId, long start, long end) {
         // Does the queue exist for the disk
-        int queueQuark = ss.optQuarkRelative(diskQuark, queueAttribute);
+        int queueQuark = fIndex.getQueue(diskQuark, queueAttribute);
         if (queueQuark == ITmfStateSystem.INVALID_ATTRIBUTE) {
-            Collections.emptyList();
+            return Collections.emptyList();
         }
 
         // Does the queue have requests
-        List<Integer> subAttributes = ss.getSubAttributes(queueQuark, false);
-        if (subAttributes.isEmpty()) {
+        List<Integer> requests = fIndex.getRequests(queueQuark);
+        if (requests.isEmpty()) {
             return Collections.emptyList();
         }
 
@@ -286,8 +282,7 @@ public class DiskRequestDataProvider extends AbstractTimeGraphDataProvider<Input
         List<TimeGraphEntryModel> entries = new ArrayList<>();
         long queueId = getId(queueQuark);
         entries.add(new TimeGraphEntryModel(queueId, diskId, queueName, start, end));
-        for (Integer requestQuark : subAttributes) {
-            fRequestQuark.add(requestQuark);
+        for (Integer requestQuark : requests) {
             entries.add(new TimeGraphEntryModel(getId(requestQuark), queueId, ss.getAttributeName(requestQuark), start, end));
         }
         return entries;
@@ -314,14 +309,15 @@ public class DiskRequestDataProvider extends AbstractTimeGraphDataProvider<Input
         List<Integer> quarksToQuery = new ArrayList<>();
         List<RequestBuilder> builders = new ArrayList<>();
         for (Entry<Long, Integer> entry : selectedEntries.entrySet()) {
-            if (fRequestQuark.contains(entry.getValue())) {
+            if (fIndex.isRequest(entry.getValue())) {
                 RequestBuilder seriesBuilder = new RequestBuilder(entry.getKey(), entry.getValue(), ss);
                 builders.add(seriesBuilder);
                 quarksToQuery.addAll(seriesBuilder.getQuarks());
             }
         }
 
-        // Put all intervals in a map, there shouldn't be too many, we'll handle them later
+        // Put all intervals in a map, the query is sampled at the requested
+        // times so there are at most a few per pixel for each request
         Map<Integer, Set<ITmfStateInterval>> intervals = new HashMap<>();
         try {
             for (ITmfStateInterval interval : ss.query2D(quarksToQuery, times)) {
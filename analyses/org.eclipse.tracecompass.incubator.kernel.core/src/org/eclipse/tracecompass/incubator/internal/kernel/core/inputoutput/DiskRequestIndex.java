@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.kernel.core.inputoutput;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.tracecompass.internal.analysis.os.linux.core.inputoutput.Attributes;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+
+/**
+ * Index of the disks, queues and request slots of the input/output state
+ * system. The attributes are only ever added to a state system, with a quark
+ * larger than the previous ones, so the index reads the attributes added since
+ * its last update instead of listing the sub-attributes of every disk and
+ * queue at each fetch. The lists are in the order of the sub-attributes.
+ * <p>
+ * The index is kept in memory by its data provider and is not saved with the
+ * state history: it only holds quarks, which are cheap to read back from the
+ * attribute tree of the state system, already saved by the analysis. When a
+ * trace is opened again, the first fetch builds the index with one pass over
+ * the attributes, without querying any interval.
+ */
+@SuppressWarnings("restriction")
+public class DiskRequestIndex {
+
+    private int fNbAttributes = 0;
+    private int fDisksQuark = ITmfStateSystem.INVALID_ATTRIBUTE;
+    private final List<Integer> fDisks = new ArrayList<>();
+    private final Set<Integer> fDiskSet = new HashSet<>();
+    private final Map<Integer, Integer> fDriverQueues = new HashMap<>();
+    private final Map<Integer, Integer> fWaitingQueues = new HashMap<>();
+    private final Map<Integer, List<Integer>> fRequests = new HashMap<>();
+    private final Set<Integer> fRequestSet = new HashSet<>();
+
+    /**
+     * Add the attributes created since the last update
+     *
+     * @param ss
+     *            the state system of the input/output analysis
+     */
+    public synchronized void update(ITmfStateSystem ss) {
+        int nbAttributes = ss.getNbAttributes();
+        for (int quark = fNbAttributes; quark < nbAttributes; quark++) {
+            int parent = ss.getParentAttributeQuark(quark);
+            if (parent == ITmfStateSystem.ROOT_ATTRIBUTE) {
+                if (ss.getAttributeName(quark).equals(Attributes.DISKS)) {
+                    fDisksQuark = quark;
+                }
+            } else if (parent == fDisksQuark) {
+                fDisks.add(quark);
+                fDiskSet.add(quark);
+            } else if (fDiskSet.contains(parent)) {
+                String name = ss.getAttributeName(quark);
+                if (name.equals(Attributes.DRIVER_QUEUE)) {
+                    fDriverQueues.put(parent, quark);
+                    fRequests.put(quark, new ArrayList<>());
+                } else if (name.equals(Attributes.WAITING_QUEUE)) {
+                    fWaitingQueues.put(parent, quark);
+                    fRequests.put(quark, new ArrayList<>());
+                }
+            } else {
+                List<Integer> requests = fRequests.get(parent);
+                if (requests != null) {
+                    requests.add(quark);
+                    fRequestSet.add(quark);
+                }
+            }
+        }
+        fNbAttributes = nbAttributes;
+    }
+
+    /**
+     * Get the disks
+     *
+     * @return the disk quarks
+     */
+    public synchronized List<Integer> getDisks() {
+        return new ArrayList<>(fDisks);
+    }
+
+    /**
+     * Get a queue of a disk
+     *
+     * @param diskQuark
+     *            the disk quark
+     * @param queueAttribute
+     *            {@link Attributes#DRIVER_QUEUE} or
+     *            {@link Attributes#WAITING_QUEUE}
+     * @return the queue quark, or {@link ITmfStateSystem#INVALID_ATTRIBUTE}
+     */
+    public synchronized int getQueue(int diskQuark, String queueAttribute) {
+        Map<Integer, Integer> queues = queueAttribute.equals(Attributes.DRIVER_QUEUE) ? fDriverQueues : fWaitingQueues;
+        return queues.getOrDefault(diskQuark, ITmfStateSystem.INVALID_ATTRIBUTE);
+    }
+
+    /**
+     * Get the request slots of a queue
+     *
+     * @param queueQuark
+     *            the queue quark
+     * @return the request quarks
+     */
+    public synchronized List<Integer> getRequests(int queueQuark) {
+        List<Integer> requests = fRequests.get(queueQuark);
+        return requests == null ? Collections.emptyList() : new ArrayList<>(requests);
+    }
+
+    /**
+     * Whether a quark is a request slot of a queue
+     *
+     * @param quark
+     *            the quark
+     * @return <code>true</code> if the quark is a request
+     */
+    public synchronized boolean isRequest(int quark) {
+        return fRequestSet.contains(quark);
+    }
+}
@@ -11,19 +11,27 @@
 
 package org.eclipse.tracecompass.incubator.internal.kernel.core.inputoutput;
 
+import java.util.Collections;
+import java.util.Map;
+
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.analysis.timing.core.segmentstore.ISegmentStoreProvider;
 import org.eclipse.tracecompass.analysis.timing.core.segmentstore.statistics.AbstractSegmentStatisticsAnalysis;
+import org.eclipse.tracecompass.analysis.timing.core.statistics.IStatistics;
 import org.eclipse.tracecompass.segmentstore.core.ISegment;
+import org.eclipse.tracecompass.segmentstore.core.ISegmentStore;
 import org.eclipse.tracecompass.segmentstore.core.segment.interfaces.INamedSegment;
 import org.eclipse.tracecompass.tmf.core.analysis.IAnalysisModule;
 import org.eclipse.tracecompass.tmf.core.exceptions.TmfAnalysisException;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
 
 /**
- * Statistics analysis for the Input/Output queue segment stores.
+ * Statistics analysis for the Input/Output queue segment stores. The
+ * statistics are kept in a {@link SegmentStatisticsTree}, so the statistics of
+ * a selection do not read all the segments of the queue.
  *
  * @author Geneviève Bastien
  */
@@ -32,6 +40,7 @@ public class IOQueueStatisticsAnalysis extends AbstractSegmentStatisticsAnalysis
     /** The analysis module ID */
     private final ISegmentStoreProvider fSegmentStoreProvider;
     private final IAnalysisModule fAnalysis;
+    private @Nullable SegmentStatisticsTree fTree = null;
 
     /**
      * Constructor
@@ -48,7 +57,44 @@ public class IOQueueStatisticsAnalysis extends AbstractSegmentStatisticsAnalysis
     protected boolean executeAnalysis(@NonNull IProgressMonitor monitor) throws TmfAnalysisException {
         fAnalysis.schedule();
         fAnalysis.waitForCompletion();
-        return super.executeAnalysis(monitor);
+        ITmfTrace trace = getTrace();
+        ISegmentStore<@NonNull ISegment> segmentStore = fSegmentStoreProvider.getSegmentStore();
+        if (trace == null || segmentStore == null) {
+            return false;
+        }
+        SegmentStatisticsTree tree = new SegmentStatisticsTree(segmentStore, trace.getStartTime().toNanos(), trace.getEndTime().toNanos(), this::getSegmentType, monitor);
+        if (monitor.isCanceled()) {
+            return false;
+        }
+        fTree = tree;
+        return true;
+    }
+
+    @Override
+    public @Nullable IStatistics<@NonNull ISegment> getStatsTotal() {
+        return getStatsForRange(Long.MIN_VALUE, Long.MAX_VALUE, new NullProgressMonitor());
+    }
+
+    @Override
+    public @NonNull Map<@NonNull String, IStatistics<@NonNull ISegment>> getStatsPerType() {
+        return getStatsPerTypeForRange(Long.MIN_VALUE, Long.MAX_VALUE, new NullProgressMonitor());
+    }
+
+    @Override
+    public @Nullable IStatistics<@NonNull ISegment> getStatsForRange(long start, long end, @NonNull IProgressMonitor monitor) {
+        SegmentStatisticsTree tree = getTree(monitor);
+        return tree != null ? tree.getStats(start, end) : null;
+    }
+
+    @Override
+    public @NonNull Map<@NonNull String, IStatistics<@NonNull ISegment>> getStatsPerTypeForRange(long start, long end, @NonNull IProgressMonitor monitor) {
+        SegmentStatisticsTree tree = getTree(monitor);
+        return tree != null ? tree.getStatsPerType(start, end) : Collections.emptyMap();
+    }
+
+    private @Nullable SegmentStatisticsTree getTree(IProgressMonitor monitor) {
+        waitForCompletion(monitor);
+        return fTree;
     }
 
     @Override
@@ -64,6 +110,4 @@ public class IOQueueStatisticsAnalysis extends AbstractSegmentStatisticsAnalysis
         }
         return null;
     }
-
-
 }
@@ -0,0 +1,281 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.kernel.core.inputoutput;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.analysis.timing.core.statistics.IStatistics;
+import org.eclipse.tracecompass.analysis.timing.core.statistics.Statistics;
+import org.eclipse.tracecompass.segmentstore.core.ISegment;
+import org.eclipse.tracecompass.segmentstore.core.ISegmentStore;
+
+/**
+ * Statistics of the durations of the segments of a segment store, in time
+ * buckets by segment start time, for all the segments and for each segment
+ * type. The buckets are the leaves of a binary tree whose nodes merge the
+ * statistics of their children, so the statistics of the segments starting in
+ * a time range merge the nodes that cover its whole buckets, O(log n) of them,
+ * and the segments of the two partial buckets at its edges.
+ * <p>
+ * The leaves are filled in parallel, each task reading the segments that start
+ * in a partition of the buckets.
+ */
+public class SegmentStatisticsTree {
+
+    /** Target number of segments per bucket */
+    private static final int SEGMENTS_PER_BUCKET = 64;
+    private static final int MAX_BUCKETS = 1 << 12;
+    /** Number of partitions read in parallel, per available processor */
+    private static final int PARTITIONS_PER_PROCESSOR = 4;
+
+    private final ISegmentStore<ISegment> fStore;
+    private final Function<ISegment, @Nullable String> fTypeFunction;
+    private final long fStart;
+    private final long fBucketWidth;
+    private final int fNbBuckets;
+    private final @Nullable Statistics<ISegment>[] fTotal;
+    private final Map<String, @Nullable Statistics<ISegment>[]> fPerType = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor, builds the tree
+     *
+     * @param store
+     *            the segment store
+     * @param start
+     *            the start of the time range of the buckets, the segments
+     *            starting before are in the first bucket
+     * @param end
+     *            the end of the time range of the buckets, the segments
+     *            starting after are in the last bucket
+     * @param typeFunction
+     *            the function returning the type of a segment, or
+     *            <code>null</code> if it has none
+     * @param monitor
+     *            the progress monitor
+     */
+    public SegmentStatisticsTree(ISegmentStore<ISegment> store, long start, long end, Function<ISegment, @Nullable String> typeFunction, IProgressMonitor monitor) {
+        fStore = store;
+        fTypeFunction = typeFunction;
+        fStart = start;
+        int nbBuckets = 1;
+        long duration = Math.max(1L, end - start + 1);
+        while (nbBuckets < MAX_BUCKETS && nbBuckets < duration && (long) nbBuckets * SEGMENTS_PER_BUCKET < store.size()) {
+            nbBuckets <<= 1;
+        }
+        fNbBuckets = nbBuckets;
+        fBucketWidth = (duration + nbBuckets - 1) / nbBuckets;
+        fTotal = newTree();
+
+        // Fill the leaves, each partition writes only its own buckets
+        int nbPartitions = Math.min(fNbBuckets, Runtime.getRuntime().availableProcessors() * PARTITIONS_PER_PROCESSOR);
+        IntStream.range(0, nbPartitions).parallel().forEach(partition -> {
+            if (!monitor.isCanceled()) {
+                fillLeaves(partition * fNbBuckets / nbPartitions, (partition + 1) * fNbBuckets / nbPartitions - 1);
+            }
+        });
+
+        // Merge the nodes, from the leaves up
+        mergeNodes(fTotal);
+        fPerType.values().parallelStream().forEach(SegmentStatisticsTree::mergeNodes);
+    }
+
+    @SuppressWarnings("unchecked")
+    private @Nullable Statistics<ISegment>[] newTree() {
+        // Node 1 is the root, nodes i * 2 and i * 2 + 1 are the children of
+        // node i and the leaves are the nodes from fNbBuckets
+        return new Statistics[fNbBuckets * 2];
+    }
+
+    private void fillLeaves(int firstBucket, int lastBucket) {
+        for (ISegment segment : fStore.getIntersectingElements(getBucketStart(firstBucket), getBucketEnd(lastBucket))) {
+            int bucket = getBucket(segment.getStart());
+            if (bucket < firstBucket || bucket > lastBucket) {
+                // Started in another partition
+                continue;
+            }
+            getLeaf(fTotal, bucket).update(segment);
+            String type = fTypeFunction.apply(segment);
+            if (type != null) {
+                getLeaf(fPerType.computeIfAbsent(type, t -> newTree()), bucket).update(segment);
+            }
+        }
+    }
+
+    private Statistics<ISegment> getLeaf(@Nullable Statistics<ISegment>[] tree, int bucket) {
+        int node = fNbBuckets + bucket;
+        Statistics<ISegment> leaf = tree[node];
+        if (leaf == null) {
+            leaf = new Statistics<>(ISegment::getLength);
+            tree[node] = leaf;
+        }
+        return leaf;
+    }
+
+    private static void mergeNodes(@Nullable Statistics<ISegment>[] tree) {
+        for (int node = tree.length / 2 - 1; node > 0; node--) {
+            Statistics<ISegment> left = tree[node * 2];
+            Statistics<ISegment> right = tree[node * 2 + 1];
+            if (left != null || right != null) {
+                Statistics<ISegment> merged = new Statistics<>(ISegment::getLength);
+                merge(merged, left);
+                merge(merged, right);
+                tree[node] = merged;
+            }
+        }
+    }
+
+    private static void merge(Statistics<ISegment> statistics, @Nullable Statistics<ISegment> other) {
+        if (other != null) {
+            statistics.merge(other);
+        }
+    }
+
+    /**
+     * Get the statistics of all the segments intersecting a time range
+     *
+     * @param start
+     *            the start of the range
+     * @param end
+     *            the end of the range
+     * @return the statistics
+     */
+    public IStatistics<ISegment> getStats(long start, long end) {
+        Statistics<ISegment> statistics = new Statistics<>(ISegment::getLength);
+        mergeBuckets(fTotal, statistics, start, end);
+        for (ISegment segment : getEdgeSegments(start, end)) {
+            statistics.update(segment);
+        }
+        return statistics;
+    }
+
+    /**
+     * Get the statistics of the segments intersecting a time range, per
+     * segment type
+     *
+     * @param start
+     *            the start of the range
+     * @param end
+     *            the end of the range
+     * @return the statistics of each type that has segments in the range
+     */
+    public Map<String, IStatistics<ISegment>> getStatsPerType(long start, long end) {
+        Map<String, Statistics<ISegment>> perType = new HashMap<>();
+        for (Entry<String, @Nullable Statistics<ISegment>[]> entry : fPerType.entrySet()) {
+            Statistics<ISegment> statistics = new Statistics<>(ISegment::getLength);
+            mergeBuckets(entry.getValue(), statistics, start, end);
+            perType.put(entry.getKey(), statistics);
+        }
+        for (ISegment segment : getEdgeSegments(start, end)) {
+            String type = fTypeFunction.apply(segment);
+            if (type != null) {
+                perType.computeIfAbsent(type, t -> new Statistics<>(ISegment::getLength)).update(segment);
+            }
+        }
+        Map<String, IStatistics<ISegment>> nonEmpty = new HashMap<>();
+        perType.forEach((type, statistics) -> {
+            if (statistics.getNbElements() > 0) {
+                nonEmpty.put(type, statistics);
+            }
+        });
+        return nonEmpty;
+    }
+
+    /**
+     * Merge the statistics of the buckets fully inside a time range
+     */
+    private void mergeBuckets(@Nullable Statistics<ISegment>[] tree, Statistics<ISegment> statistics, long start, long end) {
+        int first = getBucket(start);
+        int last = getBucket(end);
+        if (start > getBucketStart(first)) {
+            first++;
+        }
+        if (end < getBucketEnd(last)) {
+            last--;
+        }
+        // Merge the nodes covering the buckets from the leaves up
+        int left = first + fNbBuckets;
+        int right = last + fNbBuckets + 1;
+        while (left < right) {
+            if ((left & 1) == 1) {
+                merge(statistics, tree[left++]);
+            }
+            if ((right & 1) == 1) {
+                merge(statistics, tree[--right]);
+            }
+            left >>= 1;
+            right >>= 1;
+        }
+    }
+
+    /**
+     * Get the segments intersecting a time range that are not in the buckets
+     * fully inside it: those starting before it and those in the partial
+     * buckets at its edges
+     */
+    private List<ISegment> getEdgeSegments(long start, long end) {
+        List<ISegment> segments = new ArrayList<>();
+        for (ISegment segment : fStore.getIntersectingElements(start)) {
+            if (segment.getStart() < start) {
+                segments.add(segment);
+            }
+        }
+        int first = getBucket(start);
+        int last = getBucket(end);
+        if (start > getBucketStart(first) || end < getBucketEnd(first)) {
+            addStartingSegments(segments, start, Math.min(end, getBucketEnd(first)));
+        }
+        if (last != first && end < getBucketEnd(last)) {
+            addStartingSegments(segments, getBucketStart(last), end);
+        }
+        return segments;
+    }
+
+    private void addStartingSegments(List<ISegment> segments, long start, long end) {
+        for (ISegment segment : fStore.getIntersectingElements(start, end)) {
+            if (segment.getStart() >= start) {
+                segments.add(segment);
+            }
+        }
+    }
+
+    private int getBucket(long time) {
+        if (time <= fStart) {
+            return 0;
+        }
+        return (int) Math.min(fNbBuckets - 1, (time - fStart) / fBucketWidth);
+    }
+
+    /**
+     * Get the first start time of the segments of a bucket, the first bucket
+     * has those before the start of the range
+     */
+    private long getBucketStart(int bucket) {
+        return bucket == 0 ? Long.MIN_VALUE : fStart + bucket * fBucketWidth;
+    }
+
+    /**
+     * Get the last start time of the segments of a bucket, the last bucket has
+     * those after the end of the range
+     */
+    private long getBucketEnd(int bucket) {
+        return bucket == fNbBuckets - 1 ? Long.MAX_VALUE : fStart + (bucket + 1) * fBucketWidth - 1;
+    }
+}
@@ -14,7 +14,6 @@ package org.eclipse.tracecompass.incubator.internal.kernel.core.io;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -22,7 +21,6 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -84,7 +82,6 @@ public class IoPerProcessDataProvider extends AbstractTreeDataProvider<IoAnalysi
     public static final String ID = "org.eclipse.tracecompass.incubator.kernel.core.io.per.process"; //$NON-NLS-1$
     private static final String READ_TITLE = "Read"; //$NON-NLS-1$
     private static final String WRITE_TITLE = "Write"; //$NON-NLS-1$
-    private static final double SECONDS_PER_NANOSECOND = 1E-9;
 
     private static final String BASE_STYLE = "base"; //$NON-NLS-1$
     private static final Map<String, OutputElementStyle> STATE_MAP;
@@ -105,8 +102,6 @@ public class IoPerProcessDataProvider extends AbstractTreeDataProvider<IoAnalysi
         STATE_MAP = builder.build();
     }
 
-    private static final Comparator<ITmfStateInterval> INTERVAL_COMPARATOR = Comparator.comparing(ITmfStateInterval::getStartTime);
-
     private final Map<Integer, String> fQuarkToString = new HashMap<>();
 
     // Data model class that has metadata
@@ -145,136 +140,6 @@ public class IoPerProcessDataProvider extends AbstractTreeDataProvider<IoAnalysi
 
     }
 
-    /**
-     * Inline class to encapsulate all the values required to build a series.
-     * Allows for reuse of full query results to be faster than {@link Disk}.
-     */
-    private static final class SeriesBuilder {
-
-        private final long fId;
-        /** This series' sector quark. public because final */
-        private final int fMainQuark;
-        private final double[] fValues;
-        private double fPrevCount;
-        private List<Integer> fRunning;
-
-        /**
-         * Constructor
-         *
-         * @param name
-         *            the series name
-         * @param sectorQuark
-         *            sector quark
-         * @param list
-         * @param length
-         *            desired length of the series
-         */
-        private SeriesBuilder(long id, int sectorQuark, Integer currentOpQuark, int length) {
-            fId = id;
-            fMainQuark = sectorQuark;
-            if (currentOpQuark == ITmfStateSystem.INVALID_ATTRIBUTE) {
-                fRunning = Collections.emptyList();
-            } else {
-                fRunning = Collections.singletonList(currentOpQuark);
-            }
-            fValues = new double[length];
-            fPrevCount = -1;
-        }
-
-        private List<Integer> getQuarks() {
-            List<Integer> quarks = new ArrayList<>(fRunning);
-            quarks.add(fMainQuark);
-            return quarks;
-        }
-
-        /**
-         * Update the value for the counter at the desired index. Use in
-         * increasing order of position
-         *
-         * @param intervals
-         *            index to update
-         * @param currentIndex
-         * @param newCount
-         *            new number of read / written sectors
-         * @param deltaT
-         *            time difference to the previous value for interpolation
-         */
-        private void updateValue(Map<Integer, Set<ITmfStateInterval>> intervals, long time, long prevTime, int currentIndex) {
-            long deltaT = time - prevTime;
-            // Same value asked twice, it should be the same as previous count
-            if (deltaT == 0) {
-                if (currentIndex > 0) {
-                    fValues[currentIndex] = fValues[currentIndex - 1];
-                }
-                return;
-            }
-
-            // Get the value at time
-            double valueAtTime = getValueAtTime(intervals.get(fMainQuark), time);
-
-            // Interpolate the values of the running requests
-            for (Integer quark : fRunning) {
-                valueAtTime += interpolateAtTime(intervals.get(quark), time);
-            }
-
-            if (prevTime == -1) {
-                fPrevCount = valueAtTime;
-                return;
-            }
-
-            // Compute the new value
-            fValues[currentIndex] = (valueAtTime - fPrevCount) / (deltaT * SECONDS_PER_NANOSECOND);
-            fPrevCount = valueAtTime;
-        }
-
-        private static double interpolateAtTime(@Nullable Set<ITmfStateInterval> intervals, long time) {
-            if (intervals == null) {
-                return 0.0;
-            }
-            ITmfStateInterval interval = findInterval(intervals, time);
-            if (interval == null) {
-                return 0.0;
-            }
-            Object value = interval.getValue();
-            return (value instanceof Number) ? interpolate(time, interval, ((Number) value)) : 0.0;
-        }
-
-        private static double interpolate(long time, ITmfStateInterval interval, Number size) {
-            long runningTime = interval.getEndTime() - interval.getStartTime() + 1;
-            return (time - interval.getStartTime()) * size.doubleValue() / runningTime;
-        }
-
-        private static double getValueAtTime(@Nullable Set<ITmfStateInterval> intervals, long time) {
-            if (intervals == null) {
-                return 0.0;
-            }
-            ITmfStateInterval interval = findInterval(intervals, time);
-            if (interval == null) {
-                return 0.0;
-            }
-            Object value = interval.getValue();
-            return (value instanceof Number) ? ((Number) value).doubleValue() : 0.0;
-        }
-
-        private static @Nullable ITmfStateInterval findInterval(Set<ITmfStateInterval> intervals, long time) {
-            for (ITmfStateInterval interval : intervals) {
-                // Intervals are sorted, return if interval has start time later
-                // than time, the interval is not there
-                if (interval.getStartTime() > time) {
-                    return null;
-                }
-                if (time >= interval.getStartTime() && time <= interval.getEndTime()) {
-                    return interval;
-                }
-            }
-            return null;
-        }
-
-        private IYModel build() {
-            return new YModel(fId, String.valueOf(fId), fValues, Y_AXIS_DESCRIPTION);
-        }
-    }
-
     /**
      * Constructor
      *
@@ -421,22 +286,21 @@ public class IoPerProcessDataProvider extends AbstractTreeDataProvider<IoAnalysi
             return new TmfModelResponse<>(null, ITmfResponse.Status.FAILED, CommonStatusMessage.ANALYSIS_INITIALIZATION_FAILED);
         }
 
-        List<SeriesBuilder> builders = new ArrayList<>();
         // Prepare the quarks to display
         Collection<Long> selectedItems = DataProviderParameterUtils.extractSelectedItems(fetchParameters);
         Map<Long, Integer> selectedEntries = getSelectedEntries(selectedItems);
         List<Long> times = getTimes(ss, DataProviderParameterUtils.extractTimeRequested(fetchParameters));
-        List<Integer> quarksToQuery = new ArrayList<>();
         long currentEnd = ss.getCurrentEndTime();
         boolean complete = ss.waitUntilBuilt(0) || (!times.isEmpty() && times.get(times.size() - 1) <= currentEnd);
 
+        IoThroughputSweep sweep = new IoThroughputSweep(ss);
+        List<Long> ids = new ArrayList<>();
         for (Entry<Long, Integer> entry : selectedEntries.entrySet()) {
             // Add only quarks that can be displayed, ie, those in the
             // fQuarkToString map
             if (fQuarkToString.containsKey(entry.getValue())) {
-                SeriesBuilder seriesBuilder = new SeriesBuilder(entry.getKey(), entry.getValue(), ss.optQuarkRelative(entry.getValue(), IoStateProvider.ATTRIBUTE_CURRENT), times.size());
-                builders.add(seriesBuilder);
-                quarksToQuery.addAll(seriesBuilder.getQuarks());
+                sweep.addSeries(entry.getValue());
+                ids.add(entry.getKey());
             }
         }
         long[] nativeTimes = new long[times.size()];
@@ -444,42 +308,21 @@ public class IoPerProcessDataProvider extends AbstractTreeDataProvider<IoAnalysi
             nativeTimes[i] = times.get(i);
         }
 
-        // Put all intervals in a map, there shouldn't be too many, we'll handle
-        // them later
-        Map<Integer, Set<ITmfStateInterval>> intervals = new HashMap<>();
+        // Get the values for each time, the times are sorted and within the
+        // state system range
+        List<double[]> values;
         try {
-            for (ITmfStateInterval interval : ss.query2D(quarksToQuery, times)) {
-                if (monitor != null && monitor.isCanceled()) {
-                    return new TmfModelResponse<>(null, Status.CANCELLED, CommonStatusMessage.TASK_CANCELLED);
-                }
-                intervals.computeIfAbsent(interval.getAttribute(), q -> new TreeSet<>(INTERVAL_COMPARATOR)).add(interval);
-            }
+            values = sweep.compute(times, monitor);
         } catch (IndexOutOfBoundsException | TimeRangeException | StateSystemDisposedException e) {
             return new TmfModelResponse<>(null, Status.FAILED, CommonStatusMessage.STATE_SYSTEM_FAILED);
         }
-
-        // Get the values for each time
-        long prevTime = -1;
-        for (int i = 0; i < times.size(); i++) {
-            if (monitor != null && monitor.isCanceled()) {
-                return new TmfModelResponse<>(null, Status.CANCELLED, CommonStatusMessage.TASK_CANCELLED);
-            }
-            long time = nativeTimes[i];
-
-            if (time > currentEnd) {
-                break;
-            } else if (time >= ss.getStartTime()) {
-
-                for (SeriesBuilder builder : builders) {
-                    builder.updateValue(intervals, time, prevTime, i);
-                }
-            }
-            prevTime = time;
-
+        if (values == null) {
+            return new TmfModelResponse<>(null, Status.CANCELLED, CommonStatusMessage.TASK_CANCELLED);
         }
         List<IYModel> models = new ArrayList<>();
-        for (SeriesBuilder builder : builders) {
-            models.add(builder.build());
+        for (int i = 0; i < ids.size(); i++) {
+            long id = ids.get(i);
+            models.add(new YModel(id, String.valueOf(id), values.get(i), Y_AXIS_DESCRIPTION));
         }
 
         return TmfXyResponseFactory.create("Example XY data provider", nativeTimes, models, complete); //$NON-NLS-1$
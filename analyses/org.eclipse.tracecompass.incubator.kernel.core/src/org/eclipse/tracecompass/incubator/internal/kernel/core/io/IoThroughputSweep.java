@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.kernel.core.io;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+
+/**
+ * Computes the throughput of I/O counters at sorted sample times. The counter
+ * attributes contain the number of bytes of the completed requests and their
+ * {@link IoStateProvider#ATTRIBUTE_CURRENT} child the size of the running
+ * request, which is interpolated over its duration.
+ * <p>
+ * The intervals of all the attributes are read with a single query and the
+ * samples are computed in one sweep: since the times are sorted, a cursor on
+ * the sorted intervals of each attribute only moves forward. A cursor is
+ * shared by all the series that read the same attribute.
+ */
+public class IoThroughputSweep {
+
+    private static final double SECONDS_PER_NANOSECOND = 1E-9;
+    private static final Comparator<ITmfStateInterval> INTERVAL_COMPARATOR = Comparator.comparing(ITmfStateInterval::getStartTime);
+
+    private final ITmfStateSystem fSs;
+    private final List<Integer> fCounterQuarks = new ArrayList<>();
+    private final List<Integer> fCurrentQuarks = new ArrayList<>();
+
+    /**
+     * Constructor
+     *
+     * @param ss
+     *            the state system of the {@link IoAnalysis}
+     */
+    public IoThroughputSweep(ITmfStateSystem ss) {
+        fSs = ss;
+    }
+
+    /**
+     * Add a series for a read or write counter attribute
+     *
+     * @param counterQuark
+     *            the quark of the counter
+     * @return the index of the series in the results of
+     *         {@link #compute(List, IProgressMonitor)}
+     */
+    public int addSeries(int counterQuark) {
+        fCounterQuarks.add(counterQuark);
+        fCurrentQuarks.add(fSs.optQuarkRelative(counterQuark, IoStateProvider.ATTRIBUTE_CURRENT));
+        return fCounterQuarks.size() - 1;
+    }
+
+    /**
+     * Compute the throughput of the series, in bytes per second, at each time.
+     * The value at a time is the throughput since the previous time, the first
+     * value is 0.
+     *
+     * @param times
+     *            the sorted times, within the range of the state system
+     * @param monitor
+     *            the progress monitor
+     * @return the values of each series, or <code>null</code> if the monitor
+     *         was cancelled
+     * @throws StateSystemDisposedException
+     *             if the state system was disposed
+     */
+    public @Nullable List<double[]> compute(List<Long> times, @Nullable IProgressMonitor monitor) throws StateSystemDisposedException {
+        int nbSeries = fCounterQuarks.size();
+        List<double[]> values = new ArrayList<>(nbSeries);
+        for (int i = 0; i < nbSeries; i++) {
+            values.add(new double[times.size()]);
+        }
+        if (nbSeries == 0 || times.isEmpty()) {
+            return values;
+        }
+
+        // Query the intervals of all the attributes at once
+        Set<Integer> quarks = new LinkedHashSet<>(fCounterQuarks);
+        for (Integer quark : fCurrentQuarks) {
+            if (quark != ITmfStateSystem.INVALID_ATTRIBUTE) {
+                quarks.add(quark);
+            }
+        }
+        Map<Integer, List<ITmfStateInterval>> intervals = new HashMap<>();
+        for (ITmfStateInterval interval : fSs.query2D(quarks, times)) {
+            if (monitor != null && monitor.isCanceled()) {
+                return null;
+            }
+            intervals.computeIfAbsent(interval.getAttribute(), q -> new ArrayList<>()).add(interval);
+        }
+        Map<Integer, IntervalCursor> cursors = new HashMap<>();
+        for (Map.Entry<Integer, List<ITmfStateInterval>> entry : intervals.entrySet()) {
+            cursors.put(entry.getKey(), new IntervalCursor(entry.getValue()));
+        }
+        IntervalCursor[] counterCursors = new IntervalCursor[nbSeries];
+        @Nullable IntervalCursor[] currentCursors = new IntervalCursor[nbSeries];
+        for (int i = 0; i < nbSeries; i++) {
+            counterCursors[i] = cursors.getOrDefault(fCounterQuarks.get(i), IntervalCursor.EMPTY);
+            currentCursors[i] = cursors.get(fCurrentQuarks.get(i));
+        }
+
+        // Sweep the times
+        double[] prevCounts = new double[nbSeries];
+        long prevTime = -1;
+        for (int i = 0; i < times.size(); i++) {
+            if (monitor != null && monitor.isCanceled()) {
+                return null;
+            }
+            long time = times.get(i);
+            long deltaT = time - prevTime;
+            for (int series = 0; series < nbSeries; series++) {
+                double[] seriesValues = values.get(series);
+                // Same value asked twice, it should be the same as previous count
+                if (deltaT == 0) {
+                    if (i > 0) {
+                        seriesValues[i] = seriesValues[i - 1];
+                    }
+                    continue;
+                }
+                double valueAtTime = counterCursors[series].getValue(time);
+                IntervalCursor current = currentCursors[series];
+                if (current != null) {
+                    valueAtTime += current.interpolate(time);
+                }
+                if (prevTime != -1) {
+                    seriesValues[i] = (valueAtTime - prevCounts[series]) / (deltaT * SECONDS_PER_NANOSECOND);
+                }
+                prevCounts[series] = valueAtTime;
+            }
+            prevTime = time;
+        }
+        return values;
+    }
+
+    /**
+     * A forward only cursor on the intervals of an attribute
+     */
+    private static final class IntervalCursor {
+
+        private static final IntervalCursor EMPTY = new IntervalCursor(new ArrayList<>());
+
+        private final List<ITmfStateInterval> fIntervals;
+        private int fIndex = 0;
+
+        public IntervalCursor(List<ITmfStateInterval> intervals) {
+            intervals.sort(INTERVAL_COMPARATOR);
+            fIntervals = intervals;
+        }
+
+        /**
+         * Get the interval at a time, the times must be increasing from one
+         * call to the other
+         */
+        private @Nullable ITmfStateInterval seek(long time) {
+            while (fIndex < fIntervals.size() && fIntervals.get(fIndex).getEndTime() < time) {
+                fIndex++;
+            }
+            if (fIndex < fIntervals.size()) {
+                ITmfStateInterval interval = fIntervals.get(fIndex);
+                if (interval.getStartTime() <= time) {
+                    return interval;
+                }
+            }
+            return null;
+        }
+
+        public double getValue(long time) {
+            ITmfStateInterval interval = seek(time);
+            if (interval == null) {
+                return 0.0;
+            }
+            Object value = interval.getValue();
+            return (value instanceof Number) ? ((Number) value).doubleValue() : 0.0;
+        }
+
+        public double interpolate(long time) {
+            ITmfStateInterval interval = seek(time);
+            if (interval == null) {
+                return 0.0;
+            }
+            Object value = interval.getValue();
+            if (!(value instanceof Number)) {
+                return 0.0;
+            }
+            long runningTime = interval.getEndTime() - interval.getStartTime() + 1;
+            return (time - interval.getStartTime()) * ((Number) value).doubleValue() / runningTime;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.kernel.core.swslatency;
+
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The wakeups waiting for their sched_switch, by TID. The TIDs are kept as
+ * primitive keys of an open addressing table with linear probing, so that
+ * recording and removing a wakeup does not box the TID nor allocate an entry.
+ */
+public class PendingWakeups {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int[] fTids = new int[INITIAL_CAPACITY];
+    private SchedWS.@Nullable InitialInfo[] fInfos = new SchedWS.InitialInfo[INITIAL_CAPACITY];
+    private int fSize = 0;
+
+    /**
+     * Record the wakeup of a thread, replacing the previous one
+     *
+     * @param tid
+     *            the TID of the thread
+     * @param info
+     *            the information of the wakeup
+     */
+    public void put(int tid, SchedWS.InitialInfo info) {
+        int index = indexOf(tid);
+        if (fInfos[index] == null) {
+            fTids[index] = tid;
+            fSize++;
+        }
+        fInfos[index] = info;
+        if (fSize * 2 > fTids.length) {
+            resize();
+        }
+    }
+
+    /**
+     * Remove the wakeup of a thread
+     *
+     * @param tid
+     *            the TID of the thread
+     * @return the information of the wakeup, or <code>null</code> if there was
+     *         no wakeup for this thread
+     */
+    public SchedWS.@Nullable InitialInfo remove(int tid) {
+        int index = indexOf(tid);
+        SchedWS.InitialInfo info = fInfos[index];
+        if (info == null) {
+            return null;
+        }
+        fInfos[index] = null;
+        fSize--;
+        // Shift back the following entries of the cluster
+        int mask = fTids.length - 1;
+        int hole = index;
+        int next = (index + 1) & mask;
+        while (fInfos[next] != null) {
+            int ideal = hash(fTids[next]) & mask;
+            if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                fTids[hole] = fTids[next];
+                fInfos[hole] = fInfos[next];
+                fInfos[next] = null;
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        return info;
+    }
+
+    /**
+     * Remove all the wakeups
+     */
+    public void clear() {
+        Arrays.fill(fInfos, null);
+        fSize = 0;
+    }
+
+    private int indexOf(int tid) {
+        int mask = fTids.length - 1;
+        int index = hash(tid) & mask;
+        while (fInfos[index] != null && fTids[index] != tid) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void resize() {
+        int[] tids = fTids;
+        SchedWS.@Nullable InitialInfo[] infos = fInfos;
+        fTids = new int[tids.length * 2];
+        fInfos = new SchedWS.InitialInfo[tids.length * 2];
+        fSize = 0;
+        for (int i = 0; i < tids.length; i++) {
+            SchedWS.InitialInfo info = infos[i];
+            if (info != null) {
+                put(tids[i], info);
+            }
+        }
+    }
+
+    private static int hash(int tid) {
+        int hash = tid * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -11,10 +11,14 @@
 
 package org.eclipse.tracecompass.incubator.internal.kernel.core.swslatency;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
@@ -28,6 +32,7 @@ import org.eclipse.tracecompass.segmentstore.core.ISegmentStore;
 import org.eclipse.tracecompass.segmentstore.core.SegmentComparators;
 import org.eclipse.tracecompass.segmentstore.core.SegmentStoreFactory.SegmentStoreType;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
 import com.google.common.collect.ImmutableList;
 import org.eclipse.tracecompass.tmf.core.segment.ISegmentAspect;
 
@@ -85,8 +90,12 @@ public class SWSLatencyAnalysis extends AbstractSegmentStoreAnalysisEventBasedMo
     }
 
     private class SWSLatencyAnalysisRequest extends AbstractSegmentStoreAnalysisRequest {
-        private final Map<Integer, SchedWS.InitialInfo> fOngoingSWS = new HashMap<>();
-        private @Nullable IKernelAnalysisEventLayout fLayout;
+        /** Number of segments buffered before they are added to the store */
+        private static final int BUFFER_SIZE = 1024;
+
+        private final PendingWakeups fOngoingSWS = new PendingWakeups();
+        private final List<ISegment> fBuffer = new ArrayList<>(BUFFER_SIZE);
+        private @Nullable Map<String, Consumer<ITmfEvent>> fHandlers;
         private final IProgressMonitor fMonitor;
 
         public SWSLatencyAnalysisRequest(ISegmentStore<@NonNull ISegment> swsSegment, IProgressMonitor monitor) {
@@ -97,66 +106,104 @@ public class SWSLatencyAnalysis extends AbstractSegmentStoreAnalysisEventBasedMo
         @Override
         public void handleData(final ITmfEvent event) {
             super.handleData(event);
-            IKernelAnalysisEventLayout layout = fLayout;
-            if (layout == null) {
+            Map<String, Consumer<ITmfEvent>> handlers = fHandlers;
+            if (handlers == null) {
                 IKernelTrace trace = (IKernelTrace) event.getTrace();
-                layout = trace.getKernelEventLayout();
-                fLayout = layout;
+                handlers = createHandlers(trace.getKernelEventLayout());
+                fHandlers = handlers;
+            }
+            Consumer<ITmfEvent> handler = handlers.get(event.getName());
+            if (handler != null) {
+                handler.accept(event);
             }
-            final String eventName = event.getName();
+        }
 
-            if (eventName.equals(layout.eventSchedProcessWakeup()) ||
-                    eventName.equals(layout.eventSchedProcessWakeupNew()) ||
-                    eventName.equals(layout.eventSchedProcessWaking())) {
-                /* This is a sched_wakeup event */
-                Integer tid = event.getContent().getFieldValue(Integer.class, layout.fieldTid());
+        /**
+         * Create the handlers of the events of a layout, by event name. The
+         * names of the events and fields are read from the layout once, instead
+         * of at every event.
+         */
+        private Map<String, Consumer<ITmfEvent>> createHandlers(IKernelAnalysisEventLayout layout) {
+            Map<String, Consumer<ITmfEvent>> handlers = new HashMap<>();
+            String fieldTid = layout.fieldTid();
+            String fieldComm = layout.fieldComm();
+            Consumer<ITmfEvent> wakeupHandler = event -> handleWakeup(event, fieldTid, fieldComm);
+            handlers.put(layout.eventSchedProcessWakeup(), wakeupHandler);
+            handlers.put(layout.eventSchedProcessWakeupNew(), wakeupHandler);
+            handlers.put(layout.eventSchedProcessWaking(), wakeupHandler);
+            String fieldNextTid = layout.fieldNextTid();
+            String fieldNextPrio = layout.fieldNextPrio();
+            handlers.put(layout.eventSchedSwitch(), event -> handleSwitch(event, fieldNextTid, fieldNextPrio));
+            return handlers;
+        }
 
-                if (tid == null) {
-                    // no information on this event/trace ?
-                    return;
-                }
+        private void handleWakeup(ITmfEvent event, String fieldTid, String fieldComm) {
+            /* This is a sched_wakeup event */
+            ITmfEventField content = event.getContent();
+            Integer tid = content.getFieldValue(Integer.class, fieldTid);
+
+            if (tid == null) {
+                // no information on this event/trace ?
+                return;
+            }
 
-                /* Record the event's data into the intial system call info */
-                long startTime = event.getTimestamp().toNanos();
-                String threadName = event.getContent().getFieldValue(String.class, layout.fieldComm());
+            /* Record the event's data into the intial system call info */
+            long startTime = event.getTimestamp().toNanos();
+            String threadName = content.getFieldValue(String.class, fieldComm);
 
-                if (threadName == null) {
-                    threadName = ""; //$NON-NLS-1$
-                }
+            if (threadName == null) {
+                threadName = ""; //$NON-NLS-1$
+            }
 
-                SchedWS.InitialInfo newSchedWS = new SchedWS.InitialInfo(startTime, threadName.intern(), tid);
-                fOngoingSWS.put(tid, newSchedWS);
+            SchedWS.InitialInfo newSchedWS = new SchedWS.InitialInfo(startTime, threadName.intern(), tid);
+            fOngoingSWS.put(tid, newSchedWS);
+        }
 
-            } else if (eventName.equals(layout.eventSchedSwitch())) {
-                /* This is a sched_switch event */
-                Integer tid = event.getContent().getFieldValue(Integer.class, layout.fieldNextTid());
+        private void handleSwitch(ITmfEvent event, String fieldNextTid, String fieldNextPrio) {
+            /* This is a sched_switch event */
+            ITmfEventField content = event.getContent();
+            Integer tid = content.getFieldValue(Integer.class, fieldNextTid);
 
-                if (tid == null) {
-                    return;
-                }
-                SchedWS.InitialInfo info = fOngoingSWS.remove(tid);
-                if (info == null) {
-                    /*
-                     * We have not seen the sched_wakeup event corresponding to
-                     * this thread (lost event, or before start of trace).
-                     */
-                    return;
-                }
-                long endTime = event.getTimestamp().toNanos();
-                Integer priority = event.getContent().getFieldValue(Integer.class, layout.fieldNextPrio());
-                SchedWS swscall = new SchedWS(info, endTime, priority == null ? -1 : priority);
-                getSegmentStore().add(swscall);
+            if (tid == null) {
+                return;
+            }
+            SchedWS.InitialInfo info = fOngoingSWS.remove(tid);
+            if (info == null) {
+                /*
+                 * We have not seen the sched_wakeup event corresponding to
+                 * this thread (lost event, or before start of trace).
+                 */
+                return;
+            }
+            long endTime = event.getTimestamp().toNanos();
+            Integer priority = content.getFieldValue(Integer.class, fieldNextPrio);
+            SchedWS swscall = new SchedWS(info, endTime, priority == null ? -1 : priority);
+            fBuffer.add(swscall);
+            if (fBuffer.size() >= BUFFER_SIZE) {
+                flush();
+            }
+        }
+
+        /**
+         * Add the buffered segments to the segment store in one bulk insertion
+         */
+        private void flush() {
+            if (!fBuffer.isEmpty()) {
+                getSegmentStore().addAll(fBuffer);
+                fBuffer.clear();
             }
         }
 
         @Override
         public void handleCompleted() {
+            flush();
             fOngoingSWS.clear();
             super.handleCompleted();
         }
 
         @Override
         public void handleCancel() {
+            fBuffer.clear();
             fMonitor.setCanceled(true);
             super.handleCancel();
         }
@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.lttng2.ust.extras.core.tests.pthread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.tracecompass.common.core.format.SubSecondTimeWithUnitFormat;
+import org.eclipse.tracecompass.incubator.internal.lttng2.ust.extras.core.pthread.PThreadLockContention;
+import org.eclipse.tracecompass.incubator.internal.lttng2.ust.extras.core.pthread.PThreadLockContention.MutexContention;
+import org.eclipse.tracecompass.incubator.internal.lttng2.ust.extras.core.pthread.PThreadLockContention.WaitStatistics;
+import org.eclipse.tracecompass.incubator.internal.lttng2.ust.extras.core.pthread.PThreadLockContentionAnalysis;
+import org.eclipse.tracecompass.incubator.internal.lttng2.ust.extras.core.pthread.PThreadLockContentionDataProvider;
+import org.eclipse.tracecompass.incubator.internal.lttng2.ust.extras.core.pthread.PThreadLockContentionDataProviderFactory;
+import org.eclipse.tracecompass.incubator.lttng2.ust.extras.core.tests.ActivatorTest;
+import org.eclipse.tracecompass.tmf.core.dataprovider.IDataProviderDescriptor;
+import org.eclipse.tracecompass.tmf.core.event.TmfEvent;
+import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.tracecompass.tmf.core.model.tree.ITmfTreeDataModel;
+import org.eclipse.tracecompass.tmf.core.model.tree.ITmfTreeDataProvider;
+import org.eclipse.tracecompass.tmf.core.model.tree.TmfTreeDataModel;
+import org.eclipse.tracecompass.tmf.core.model.tree.TmfTreeModel;
+import org.eclipse.tracecompass.tmf.core.response.ITmfResponse;
+import org.eclipse.tracecompass.tmf.core.response.TmfModelResponse;
+import org.eclipse.tracecompass.tmf.core.signal.TmfTraceOpenedSignal;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceUtils;
+import org.eclipse.tracecompass.tmf.tests.stubs.trace.xml.TmfXmlTraceStub;
+import org.eclipse.tracecompass.tmf.tests.stubs.trace.xml.TmfXmlTraceStubNs;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the {@link PThreadLockContentionAnalysis}, its data provider and the
+ * factory of the data provider with a trace of lock events
+ */
+public class PThreadLockContentionAnalysisTest {
+
+    private static final String TRACE_FILE = "testfiles/pthread_locks.xml"; //$NON-NLS-1$
+
+    private ITmfTrace fTrace;
+
+    /**
+     * Open the test trace
+     */
+    @Before
+    public void setUp() {
+        fTrace = openTrace(new PThreadTraceStub());
+    }
+
+    /**
+     * Dispose the test trace
+     */
+    @After
+    public void tearDown() {
+        fTrace.dispose();
+    }
+
+    private ITmfTrace openTrace(TmfXmlTraceStub trace) {
+        IPath filePath = ActivatorTest.getAbsoluteFilePath(TRACE_FILE);
+        IStatus status = trace.validate(null, filePath.toOSString());
+        if (!status.isOK()) {
+            fail(status.getException().getMessage());
+        }
+        try {
+            trace.initTrace(null, filePath.toOSString(), TmfEvent.class);
+        } catch (TmfTraceException e) {
+            fail(e.getMessage());
+        }
+        trace.traceOpened(new TmfTraceOpenedSignal(this, trace, null));
+        return trace;
+    }
+
+    private PThreadLockContentionAnalysis getModule() {
+        PThreadLockContentionAnalysis module = TmfTraceUtils.getAnalysisModuleOfClass(fTrace, PThreadLockContentionAnalysis.class, PThreadLockContentionAnalysis.ID);
+        assertNotNull(module);
+        return module;
+    }
+
+    /**
+     * Test the contention computed by the analysis. An acquisition without a
+     * request is ignored, even if the thread requested the lock before.
+     */
+    @Test
+    public void testAnalysis() {
+        PThreadLockContentionAnalysis module = getModule();
+        module.schedule();
+        assertTrue(module.waitForCompletion());
+        PThreadLockContention contention = module.getContention();
+        assertNotNull(contention);
+
+        List<MutexContention> mutexes = contention.getMutexes();
+        assertEquals(2, mutexes.size());
+
+        MutexContention first = mutexes.get(0);
+        assertEquals(0x1000L, first.getId());
+        assertEquals(3, first.getCount());
+        assertEquals(1, first.getContended());
+        assertEquals(14L, first.getTotalWait());
+        assertEquals(11L, first.getMaxWait());
+        assertEquals(3, first.getHistogramCount(0));
+        List<WaitStatistics> contenders = first.getTopContenders(5);
+        assertEquals(2, contenders.size());
+        assertEquals(2, contenders.get(0).getId());
+        assertEquals(1, contenders.get(0).getCount());
+        assertEquals(1, contenders.get(0).getContended());
+        assertEquals(11L, contenders.get(0).getTotalWait());
+        assertEquals(1, contenders.get(1).getId());
+        assertEquals(2, contenders.get(1).getCount());
+        assertEquals(0, contenders.get(1).getContended());
+        assertEquals(3L, contenders.get(1).getTotalWait());
+
+        MutexContention second = mutexes.get(1);
+        assertEquals(0x2000L, second.getId());
+        assertEquals(1, second.getCount());
+        assertEquals(0, second.getContended());
+        assertEquals(10L, second.getTotalWait());
+    }
+
+    /**
+     * Test the rows of the table of the data provider
+     */
+    @Test
+    public void testDataProvider() {
+        PThreadLockContentionDataProvider provider = new PThreadLockContentionDataProvider(fTrace, getModule());
+        assertEquals(PThreadLockContentionDataProvider.ID, provider.getId());
+        TmfModelResponse<TmfTreeModel<TmfTreeDataModel>> response = provider.fetchTree(Collections.emptyMap(), null);
+        assertEquals(ITmfResponse.Status.COMPLETED, response.getStatus());
+        TmfTreeModel<TmfTreeDataModel> model = response.getModel();
+        assertNotNull(model);
+
+        List<TmfTreeDataModel> entries = model.getEntries();
+        assertEquals(6, entries.size());
+        TmfTreeDataModel root = entries.get(0);
+        assertEquals(-1, root.getParentId());
+        assertEquals(Collections.singletonList(fTrace.getName()), root.getLabels());
+
+        TmfTreeDataModel mutex = entries.get(1);
+        assertEquals(root.getId(), mutex.getParentId());
+        assertEquals(Arrays.asList("0x1000", "3", "1", format(14), format(4), format(11), "3", "0", "0", "0", "0", "0"), mutex.getLabels()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$
+        assertEquals(mutex.getId(), entries.get(2).getParentId());
+        assertEquals("2", entries.get(2).getLabels().get(0)); //$NON-NLS-1$
+        assertEquals(mutex.getId(), entries.get(3).getParentId());
+        assertEquals("1", entries.get(3).getLabels().get(0)); //$NON-NLS-1$
+
+        TmfTreeDataModel otherMutex = entries.get(4);
+        assertEquals(root.getId(), otherMutex.getParentId());
+        assertEquals("0x2000", otherMutex.getLabels().get(0)); //$NON-NLS-1$
+        assertEquals(otherMutex.getId(), entries.get(5).getParentId());
+        assertEquals("3", entries.get(5).getLabels().get(0)); //$NON-NLS-1$
+    }
+
+    /**
+     * Test that the factory offers the data provider for the traces with the
+     * contention analysis only
+     */
+    @Test
+    public void testFactory() {
+        PThreadLockContentionDataProviderFactory factory = new PThreadLockContentionDataProviderFactory();
+        Collection<IDataProviderDescriptor> descriptors = factory.getDescriptors(fTrace);
+        assertEquals(1, descriptors.size());
+        assertEquals(PThreadLockContentionDataProvider.ID, descriptors.iterator().next().getId());
+        ITmfTreeDataProvider<? extends ITmfTreeDataModel> provider = factory.createProvider(fTrace);
+        assertNotNull(provider);
+        assertEquals(PThreadLockContentionDataProvider.ID, provider.getId());
+
+        // The analysis does not apply to other traces
+        ITmfTrace otherTrace = openTrace(new TmfXmlTraceStubNs());
+        try {
+            assertTrue(factory.getDescriptors(otherTrace).isEmpty());
+            assertNull(factory.createProvider(otherTrace));
+        } finally {
+            otherTrace.dispose();
+        }
+    }
+
+    private static String format(long duration) {
+        return String.valueOf(SubSecondTimeWithUnitFormat.getInstance().format(duration));
+    }
+}
@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.lttng2.ust.extras.core.tests.pthread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.eclipse.tracecompass.incubator.internal.lttng2.ust.extras.core.pthread.LongMap;
+import org.eclipse.tracecompass.incubator.internal.lttng2.ust.extras.core.pthread.PThreadLockContention;
+import org.eclipse.tracecompass.incubator.internal.lttng2.ust.extras.core.pthread.PThreadLockContention.MutexContention;
+import org.eclipse.tracecompass.incubator.internal.lttng2.ust.extras.core.pthread.PThreadLockContention.WaitStatistics;
+import org.eclipse.tracecompass.incubator.internal.lttng2.ust.extras.core.pthread.PThreadLockTracker;
+import org.junit.Test;
+
+/**
+ * Test the {@link LongMap} of the mutex states, the {@link PThreadLockTracker}
+ * matching the lock events and the {@link PThreadLockContention} computed from
+ * the lock acquisitions
+ */
+public class PThreadLockContentionTest {
+
+    /**
+     * Test the map with aligned keys, like mutex addresses, over a few resizes
+     */
+    @Test
+    public void testLongMap() {
+        LongMap<String> map = new LongMap<>();
+        int nbKeys = 1000;
+        for (int i = 0; i < nbKeys; i++) {
+            map.put(0x7f0000000000L + i * 64L, String.valueOf(i));
+        }
+        assertEquals(nbKeys, map.size());
+        for (int i = 0; i < nbKeys; i++) {
+            assertEquals(String.valueOf(i), map.get(0x7f0000000000L + i * 64L));
+        }
+        assertNull(map.get(0x7f0000000000L + 32L));
+
+        // Replace a value and create a missing one
+        map.put(0x7f0000000000L, "zero");
+        assertEquals("zero", map.get(0x7f0000000000L));
+        assertEquals("-1", map.computeIfAbsent(-1L, String::valueOf));
+        assertEquals("-1", map.computeIfAbsent(-1L, key -> "other"));
+        assertEquals(nbKeys + 1, map.size());
+        assertEquals(nbKeys + 1, map.values().size());
+    }
+
+    /**
+     * Test the removal of keys, with keys in the same probe sequences, and
+     * the lookups after the removals and the resizes
+     */
+    @Test
+    public void testLongMapRemove() {
+        LongMap<String> map = new LongMap<>();
+        int nbKeys = 1000;
+        for (int i = 0; i < nbKeys; i++) {
+            map.put(0x7f0000000000L + i * 64L, String.valueOf(i));
+        }
+        assertNull(map.remove(0x7f0000000000L + 32L));
+        // Remove every other key, the others must still be found
+        for (int i = 0; i < nbKeys; i += 2) {
+            assertEquals(String.valueOf(i), map.remove(0x7f0000000000L + i * 64L));
+        }
+        assertEquals(nbKeys / 2, map.size());
+        for (int i = 0; i < nbKeys; i++) {
+            String expected = (i % 2 == 0) ? null : String.valueOf(i);
+            assertEquals(expected, map.get(0x7f0000000000L + i * 64L));
+        }
+        assertNull(map.remove(0x7f0000000000L));
+
+        // Add back the keys, over the slots freed by the removals
+        for (int i = 0; i < nbKeys; i += 2) {
+            map.put(0x7f0000000000L + i * 64L, "new" + i); //$NON-NLS-1$
+        }
+        assertEquals(nbKeys, map.size());
+        for (int i = 0; i < nbKeys; i++) {
+            String expected = (i % 2 == 0) ? "new" + i : String.valueOf(i); //$NON-NLS-1$
+            assertEquals(expected, map.get(0x7f0000000000L + i * 64L));
+        }
+
+        // Remove a key then look it up again in a small map
+        LongMap<String> small = new LongMap<>();
+        small.put(1L, "one"); //$NON-NLS-1$
+        small.put(2L, "two"); //$NON-NLS-1$
+        assertEquals("one", small.remove(1L)); //$NON-NLS-1$
+        assertNull(small.get(1L));
+        assertEquals("two", small.get(2L)); //$NON-NLS-1$
+        assertEquals(1, small.size());
+        assertEquals(1, small.values().size());
+    }
+
+    /**
+     * Test the matching of the acquisitions with their requests and with the
+     * releases that blocked them
+     */
+    @Test
+    public void testTracker() {
+        PThreadLockTracker<Long> tracker = new PThreadLockTracker<>(Long::longValue);
+        long mutex = 0x1000L;
+
+        // An acquisition without a request is not matched
+        assertNull(tracker.acquire(mutex, 1));
+
+        // First acquisition, nobody released the lock
+        tracker.request(mutex, 1, 10L);
+        Long request = tracker.acquire(mutex, 1);
+        assertEquals(Long.valueOf(10L), request);
+        assertNull(tracker.getBlockingRelease(mutex, 1, request));
+        // The request is removed by the acquisition
+        assertNull(tracker.acquire(mutex, 1));
+
+        // Thread 2 waits for the release of thread 1
+        tracker.request(mutex, 2, 20L);
+        Long release = 30L;
+        tracker.release(mutex, 1, release);
+        request = tracker.acquire(mutex, 2);
+        assertEquals(Long.valueOf(20L), request);
+        assertSame(release, tracker.getBlockingRelease(mutex, 2, request));
+
+        // A release before the request, or by the same thread, does not block
+        tracker.release(mutex, 2, 40L);
+        tracker.request(mutex, 1, 50L);
+        request = tracker.acquire(mutex, 1);
+        assertEquals(Long.valueOf(50L), request);
+        assertNull(tracker.getBlockingRelease(mutex, 1, request));
+        tracker.request(mutex, 2, 35L);
+        request = tracker.acquire(mutex, 2);
+        assertEquals(Long.valueOf(35L), request);
+        assertNull(tracker.getBlockingRelease(mutex, 2, request));
+
+        // The mutexes are independent
+        tracker.request(0x2000L, 1, 60L);
+        assertNull(tracker.acquire(0x2000L, 2));
+        assertEquals(Long.valueOf(60L), tracker.acquire(0x2000L, 1));
+    }
+
+    /**
+     * Test the statistics, histograms and top contenders of the mutexes
+     */
+    @Test
+    public void testContention() {
+        PThreadLockContention contention = new PThreadLockContention();
+        MutexContention busy = contention.getMutex(0x1000L);
+        busy.addAcquisition(1, 500L, false);
+        busy.addAcquisition(2, 50000L, true);
+        busy.addAcquisition(2, 20000000L, true);
+        busy.addAcquisition(3, 2000000L, true);
+        MutexContention quiet = contention.getMutex(0x2000L);
+        quiet.addAcquisition(1, 100L, false);
+
+        List<MutexContention> mutexes = contention.getMutexes();
+        assertEquals(2, mutexes.size());
+        MutexContention first = mutexes.get(0);
+        assertEquals(0x1000L, first.getId());
+        assertEquals(4, first.getCount());
+        assertEquals(3, first.getContended());
+        assertEquals(22050500L, first.getTotalWait());
+        assertEquals(20000000L, first.getMaxWait());
+        long[] expectedHistogram = { 1, 0, 1, 0, 1, 1 };
+        assertEquals(expectedHistogram.length, PThreadLockContention.NB_BUCKETS);
+        for (int i = 0; i < expectedHistogram.length; i++) {
+            assertEquals(expectedHistogram[i], first.getHistogramCount(i));
+        }
+        assertEquals(0x2000L, mutexes.get(1).getId());
+
+        List<WaitStatistics> contenders = first.getTopContenders(2);
+        assertEquals(2, contenders.size());
+        assertEquals(2, contenders.get(0).getId());
+        assertEquals(2, contenders.get(0).getCount());
+        assertEquals(20050000L, contenders.get(0).getTotalWait());
+        assertEquals(3, contenders.get(1).getId());
+    }
+}
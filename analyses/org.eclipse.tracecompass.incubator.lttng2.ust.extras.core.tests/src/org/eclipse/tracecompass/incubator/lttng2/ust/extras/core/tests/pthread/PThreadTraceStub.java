@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.lttng2.ust.extras.core.tests.pthread;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.analysis.os.linux.core.event.aspect.LinuxTidAspect;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.aspect.ITmfEventAspect;
+import org.eclipse.tracecompass.tmf.tests.stubs.trace.xml.TmfXmlTraceStubNs;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * An XML trace stub whose events have the thread ID in their "tid" field, like
+ * the lttng_ust_pthread events of a userspace trace with the vtid context
+ */
+public class PThreadTraceStub extends TmfXmlTraceStubNs {
+
+    private static final String TID_FIELD = "tid"; //$NON-NLS-1$
+
+    private static final LinuxTidAspect TID_ASPECT = new LinuxTidAspect() {
+        @Override
+        public @Nullable Integer resolve(@NonNull ITmfEvent event) {
+            Long tid = event.getContent().getFieldValue(Long.class, TID_FIELD);
+            return tid == null ? null : tid.intValue();
+        }
+    };
+
+    @Override
+    public Iterable<ITmfEventAspect<?>> getEventAspects() {
+        /*
+         * This method needs to fill the aspects dynamically because aspects in
+         * the parent class are not all present at the beginning of the trace
+         */
+        ImmutableSet.Builder<ITmfEventAspect<?>> builder = ImmutableSet.builder();
+        builder.addAll(super.getEventAspects());
+        builder.add(TID_ASPECT);
+        return builder.build();
+    }
+}
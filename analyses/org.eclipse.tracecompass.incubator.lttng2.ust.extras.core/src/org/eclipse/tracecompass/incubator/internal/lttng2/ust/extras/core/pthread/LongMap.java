@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.lttng2.ust.extras.core.pthread;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A map from primitive long keys, like mutex addresses and thread IDs, to
+ * values. It uses open addressing with linear probing, so that the lookups of
+ * the lock events do not box the keys nor allocate entries. The entries that
+ * follow a removed entry are shifted back, so there are no tombstones.
+ *
+ * @param <V>
+ *            The type of values
+ */
+public class LongMap<V> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] fKeys;
+    private @Nullable Object[] fValues;
+    private int fSize = 0;
+
+    /**
+     * Constructor
+     */
+    public LongMap() {
+        fKeys = new long[INITIAL_CAPACITY];
+        fValues = new Object[INITIAL_CAPACITY];
+    }
+
+    /**
+     * @return The number of entries
+     */
+    public int size() {
+        return fSize;
+    }
+
+    /**
+     * Get the value of a key
+     *
+     * @param key
+     *            The key
+     * @return The value, or <code>null</code> if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable V get(long key) {
+        int mask = fKeys.length - 1;
+        for (int i = hash(key) & mask; fValues[i] != null; i = (i + 1) & mask) {
+            if (fKeys[i] == key) {
+                return (V) fValues[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Set the value of a key
+     *
+     * @param key
+     *            The key
+     * @param value
+     *            The value
+     */
+    public void put(long key, V value) {
+        int mask = fKeys.length - 1;
+        int i = hash(key) & mask;
+        while (fValues[i] != null) {
+            if (fKeys[i] == key) {
+                fValues[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        fKeys[i] = key;
+        fValues[i] = value;
+        fSize++;
+        // Keep the load factor under 1/2 for short probes
+        if (fSize * 2 > fKeys.length) {
+            grow();
+        }
+    }
+
+    /**
+     * Get the value of a key, or create it if there is none
+     *
+     * @param key
+     *            The key
+     * @param function
+     *            The function to create the value from the key
+     * @return The value
+     */
+    public V computeIfAbsent(long key, LongFunction<V> function) {
+        V value = get(key);
+        if (value == null) {
+            value = function.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Remove the value of a key
+     *
+     * @param key
+     *            The key
+     * @return The removed value, or <code>null</code> if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public @Nullable V remove(long key) {
+        int mask = fKeys.length - 1;
+        int i = hash(key) & mask;
+        while (fValues[i] != null && fKeys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        Object value = fValues[i];
+        if (value == null) {
+            return null;
+        }
+        /*
+         * Move back the next entries of the probe sequence that can fill the
+         * free slot, ie whose home slot is not between the free slot and
+         * them, so that the lookups do not stop at the free slot
+         */
+        int free = i;
+        for (int j = (free + 1) & mask; fValues[j] != null; j = (j + 1) & mask) {
+            int home = hash(fKeys[j]) & mask;
+            if (((j - home) & mask) >= ((j - free) & mask)) {
+                fKeys[free] = fKeys[j];
+                fValues[free] = fValues[j];
+                free = j;
+            }
+        }
+        fValues[free] = null;
+        fSize--;
+        return (V) value;
+    }
+
+    /**
+     * @return The values, in no particular order
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> values = new ArrayList<>(fSize);
+        for (Object value : fValues) {
+            if (value != null) {
+                values.add((V) value);
+            }
+        }
+        return values;
+    }
+
+    private void grow() {
+        long[] keys = fKeys;
+        @Nullable Object[] values = fValues;
+        fKeys = new long[keys.length * 2];
+        fValues = new Object[keys.length * 2];
+        int mask = fKeys.length - 1;
+        for (int j = 0; j < keys.length; j++) {
+            if (values[j] != null) {
+                int i = hash(keys[j]) & mask;
+                while (fValues[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                fKeys[i] = keys[j];
+                fValues[i] = values[j];
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        // Mutex addresses are aligned, mix the high bits into the low ones
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.lttng2.ust.extras.core.pthread;
+
+import java.util.regex.Pattern;
+
+/**
+ * The types of lttng_ust_pthread events handled by the
+ * {@link PThreadLockGraphHandler}. The event names are matched once per name,
+ * instead of for every event.
+ */
+enum PThreadEventType {
+    /** A thread released a lock */
+    UNLOCK,
+    /** A thread requested a lock */
+    REQUEST_LOCK,
+    /** A thread acquired a lock */
+    ACQUIRE_LOCK,
+    /** Any other event */
+    OTHER;
+
+    private static final Pattern UNLOCK_EVENT = Pattern.compile("lttng_ust_pthread:pthread_.*_unlock"); //$NON-NLS-1$
+    private static final Pattern ACQUIRE_LOCK_EVENT = Pattern.compile("lttng_ust_pthread:pthread_.*_lock_acq"); //$NON-NLS-1$
+    private static final Pattern REQUEST_LOCK_EVENT = Pattern.compile("lttng_ust_pthread:pthread_.*_lock_req"); //$NON-NLS-1$
+
+    /**
+     * Get the type of an event from its name
+     *
+     * @param name
+     *            The name of the event
+     * @return The type of the event
+     */
+    public static PThreadEventType fromName(String name) {
+        if (UNLOCK_EVENT.matcher(name).matches()) {
+            return UNLOCK;
+        }
+        if (REQUEST_LOCK_EVENT.matcher(name).matches()) {
+            return REQUEST_LOCK;
+        }
+        if (ACQUIRE_LOCK_EVENT.matcher(name).matches()) {
+            return ACQUIRE_LOCK;
+        }
+        return OTHER;
+    }
+}
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.lttng2.ust.extras.core.pthread;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The contention of the pthread mutexes of a trace: for each mutex, the time
+ * the threads waited between their lock requests and acquisitions, as a
+ * histogram, and the threads that waited the most. It is computed by the
+ * {@link PThreadLockContentionAnalysis}.
+ */
+public class PThreadLockContention {
+
+    /**
+     * The upper bounds, exclusive, of the buckets of the wait time histograms,
+     * in nanoseconds. The last bucket has no upper bound.
+     */
+    private static final long[] BUCKET_BOUNDS = { 1000L, 10000L, 100000L, 1000000L, 10000000L };
+
+    /** The number of buckets of the wait time histograms */
+    public static final int NB_BUCKETS = BUCKET_BOUNDS.length + 1;
+
+    private static final Comparator<WaitStatistics> BY_TOTAL_WAIT = Comparator.comparingLong(WaitStatistics::getTotalWait).reversed();
+
+    /**
+     * The statistics of the lock acquisitions of a mutex, or of a thread on a
+     * mutex
+     */
+    public static class WaitStatistics {
+        private final long fId;
+        private long fCount = 0;
+        private long fContended = 0;
+        private long fTotalWait = 0;
+        private long fMaxWait = 0;
+        private final long[] fHistogram = new long[NB_BUCKETS];
+
+        private WaitStatistics(long id) {
+            fId = id;
+        }
+
+        private void add(long waitTime, boolean contended) {
+            fCount++;
+            if (contended) {
+                fContended++;
+            }
+            fTotalWait += waitTime;
+            fMaxWait = Math.max(fMaxWait, waitTime);
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS.length && waitTime >= BUCKET_BOUNDS[bucket]) {
+                bucket++;
+            }
+            fHistogram[bucket]++;
+        }
+
+        /**
+         * @return The address of the mutex, or the ID of the thread
+         */
+        public long getId() {
+            return fId;
+        }
+
+        /**
+         * @return The number of acquisitions
+         */
+        public long getCount() {
+            return fCount;
+        }
+
+        /**
+         * @return The number of acquisitions for which the thread was blocked
+         *         by another thread holding the lock
+         */
+        public long getContended() {
+            return fContended;
+        }
+
+        /**
+         * @return The total time waited, in nanoseconds
+         */
+        public long getTotalWait() {
+            return fTotalWait;
+        }
+
+        /**
+         * @return The longest time waited, in nanoseconds
+         */
+        public long getMaxWait() {
+            return fMaxWait;
+        }
+
+        /**
+         * Get the number of acquisitions in a bucket of the wait time
+         * histogram. The buckets are the wait times under 1 µs, 10 µs, 100 µs,
+         * 1 ms, 10 ms and above.
+         *
+         * @param bucket
+         *            The index of the bucket, up to {@link #NB_BUCKETS}
+         * @return The number of acquisitions
+         */
+        public long getHistogramCount(int bucket) {
+            return fHistogram[bucket];
+        }
+    }
+
+    /**
+     * The statistics of a mutex and of each thread that acquired it
+     */
+    public static class MutexContention extends WaitStatistics {
+        private final LongMap<WaitStatistics> fThreads = new LongMap<>();
+
+        private MutexContention(long mutex) {
+            super(mutex);
+        }
+
+        /**
+         * Add an acquisition of this mutex
+         *
+         * @param tid
+         *            The thread that acquired the mutex
+         * @param waitTime
+         *            The time between the request and the acquisition
+         * @param contended
+         *            Whether the thread was blocked by another thread holding
+         *            the lock
+         */
+        public void addAcquisition(int tid, long waitTime, boolean contended) {
+            super.add(waitTime, contended);
+            fThreads.computeIfAbsent(tid, WaitStatistics::new).add(waitTime, contended);
+        }
+
+        /**
+         * Get the threads that waited the most for this mutex
+         *
+         * @param count
+         *            The maximum number of threads
+         * @return The statistics of the threads, by decreasing total wait
+         */
+        public List<WaitStatistics> getTopContenders(int count) {
+            List<WaitStatistics> threads = fThreads.values();
+            threads.sort(BY_TOTAL_WAIT);
+            return threads.subList(0, Math.min(count, threads.size()));
+        }
+    }
+
+    private final LongMap<MutexContention> fMutexes = new LongMap<>();
+
+    /**
+     * Get the contention of a mutex, to add its acquisitions
+     *
+     * @param mutex
+     *            The address of the mutex
+     * @return The contention of this mutex
+     */
+    public MutexContention getMutex(long mutex) {
+        return fMutexes.computeIfAbsent(mutex, MutexContention::new);
+    }
+
+    /**
+     * @return The contention of all the mutexes, by decreasing total wait
+     */
+    public List<MutexContention> getMutexes() {
+        List<MutexContention> mutexes = fMutexes.values();
+        mutexes.sort(BY_TOTAL_WAIT);
+        return mutexes;
+    }
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.lttng2.ust.extras.core.pthread;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.analysis.os.linux.core.event.aspect.LinuxTidAspect;
+import org.eclipse.tracecompass.incubator.internal.lttng2.ust.extras.core.Activator;
+import org.eclipse.tracecompass.tmf.core.analysis.TmfAbstractAnalysisModule;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
+import org.eclipse.tracecompass.tmf.core.request.TmfEventRequest;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceUtils;
+
+/**
+ * Analysis computing the {@link PThreadLockContention} of a trace from its
+ * lttng_ust_pthread events. The lock requests, acquisitions and releases are
+ * matched like the {@link PThreadLockGraphHandler} does, but the contention
+ * does not need the execution graph to be built.
+ */
+public class PThreadLockContentionAnalysis extends TmfAbstractAnalysisModule {
+
+    /** The ID of this analysis */
+    public static final String ID = "org.eclipse.tracecompass.incubator.lttng2.ust.extras.core.pthread.contention.analysis"; //$NON-NLS-1$
+
+    private static final String MUTEX_FIELD = "mutex"; //$NON-NLS-1$
+
+    private @Nullable ITmfEventRequest fRequest = null;
+    private @Nullable PThreadLockContention fContention = null;
+
+    /**
+     * Get the contention of the mutexes of the trace
+     *
+     * @return The contention, or <code>null</code> if the analysis has not
+     *         completed
+     */
+    public @Nullable PThreadLockContention getContention() {
+        return fContention;
+    }
+
+    @Override
+    protected boolean executeAnalysis(IProgressMonitor monitor) {
+        ITmfTrace trace = getTrace();
+        if (trace == null) {
+            throw new NullPointerException("Trace has not been set, yet the analysis is being run!"); //$NON-NLS-1$
+        }
+        /* Cancel any previous request */
+        ITmfEventRequest request = fRequest;
+        if ((request != null) && (!request.isCompleted())) {
+            request.cancel();
+        }
+
+        try {
+            PThreadLockContention contention = new PThreadLockContention();
+            request = new ContentionEventRequest(contention);
+            fRequest = request;
+            trace.sendRequest(request);
+
+            request.waitForCompletion();
+            if (!request.isCompleted() || request.isCancelled() || monitor.isCanceled()) {
+                return false;
+            }
+            fContention = contention;
+            return true;
+        } catch (InterruptedException e) {
+            Activator.getInstance().logError("Request interrupted", e); //$NON-NLS-1$
+        }
+        return false;
+    }
+
+    @Override
+    protected void canceling() {
+        ITmfEventRequest req = fRequest;
+        if ((req != null) && (!req.isCompleted())) {
+            req.cancel();
+        }
+    }
+
+    private static class ContentionEventRequest extends TmfEventRequest {
+
+        private final PThreadLockContention fContention;
+        /** event name, type of the event */
+        private final Map<String, PThreadEventType> fEventTypes = new HashMap<>();
+        private final PThreadLockTracker<Long> fLocks = new PThreadLockTracker<>(Long::longValue);
+
+        /**
+         * Constructor
+         *
+         * @param contention
+         *            The contention to fill
+         */
+        public ContentionEventRequest(PThreadLockContention contention) {
+            super(ITmfEvent.class,
+                    TmfTimeRange.ETERNITY,
+                    0,
+                    ITmfEventRequest.ALL_DATA,
+                    ITmfEventRequest.ExecutionType.BACKGROUND);
+            fContention = contention;
+        }
+
+        @Override
+        public void handleData(final ITmfEvent event) {
+            super.handleData(event);
+            PThreadEventType type = fEventTypes.computeIfAbsent(event.getName(), PThreadEventType::fromName);
+            if (type == PThreadEventType.OTHER) {
+                return;
+            }
+            Integer tid = TmfTraceUtils.resolveIntEventAspectOfClassForEvent(event.getTrace(), LinuxTidAspect.class, event);
+            if (tid == null) {
+                return;
+            }
+            Long mutex = event.getContent().getFieldValue(Long.class, MUTEX_FIELD);
+            if (mutex == null) {
+                return;
+            }
+            long timestamp = event.getTimestamp().toNanos();
+            switch (type) {
+            case UNLOCK:
+                fLocks.release(mutex, tid, timestamp);
+                break;
+            case REQUEST_LOCK:
+                fLocks.request(mutex, tid, timestamp);
+                break;
+            case ACQUIRE_LOCK:
+                Long request = fLocks.acquire(mutex, tid);
+                if (request != null) {
+                    boolean contended = fLocks.getBlockingRelease(mutex, tid, request) != null;
+                    fContention.getMutex(mutex).addAcquisition(tid, timestamp - request, contended);
+                }
+                break;
+            case OTHER:
+            default:
+                break;
+            }
+        }
+    }
+}
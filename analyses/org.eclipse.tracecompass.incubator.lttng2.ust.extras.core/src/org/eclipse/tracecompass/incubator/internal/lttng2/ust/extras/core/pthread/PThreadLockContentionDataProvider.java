@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.lttng2.ust.extras.core.pthread;
+
+import java.text.Format;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.common.core.format.SubSecondTimeWithUnitFormat;
+import org.eclipse.tracecompass.incubator.internal.lttng2.ust.extras.core.pthread.PThreadLockContention.MutexContention;
+import org.eclipse.tracecompass.incubator.internal.lttng2.ust.extras.core.pthread.PThreadLockContention.WaitStatistics;
+import org.eclipse.tracecompass.tmf.core.model.AbstractTmfTraceDataProvider;
+import org.eclipse.tracecompass.tmf.core.model.CommonStatusMessage;
+import org.eclipse.tracecompass.tmf.core.model.tree.ITmfTreeDataProvider;
+import org.eclipse.tracecompass.tmf.core.model.tree.TmfTreeDataModel;
+import org.eclipse.tracecompass.tmf.core.model.tree.TmfTreeModel;
+import org.eclipse.tracecompass.tmf.core.response.ITmfResponse.Status;
+import org.eclipse.tracecompass.tmf.core.response.TmfModelResponse;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+
+/**
+ * Data provider for a table of the contention of the pthread mutexes. There is
+ * a row for each mutex, by decreasing total wait time, with the threads that
+ * waited the most for it as children.
+ */
+public class PThreadLockContentionDataProvider extends AbstractTmfTraceDataProvider implements ITmfTreeDataProvider<TmfTreeDataModel> {
+
+    /** The ID of this data provider */
+    public static final String ID = "org.eclipse.tracecompass.incubator.lttng2.ust.extras.core.pthread.contention"; //$NON-NLS-1$
+
+    private static final int NB_TOP_CONTENDERS = 5;
+    private static final Format FORMATTER = SubSecondTimeWithUnitFormat.getInstance();
+    private static final List<String> COLUMNS = List.of(
+            "Mutex / Thread", //$NON-NLS-1$
+            "Acquisitions", //$NON-NLS-1$
+            "Contended", //$NON-NLS-1$
+            "Total wait", //$NON-NLS-1$
+            "Average wait", //$NON-NLS-1$
+            "Max wait", //$NON-NLS-1$
+            "< 1 µs", //$NON-NLS-1$
+            "1-10 µs", //$NON-NLS-1$
+            "10-100 µs", //$NON-NLS-1$
+            "0.1-1 ms", //$NON-NLS-1$
+            "1-10 ms", //$NON-NLS-1$
+            ">= 10 ms"); //$NON-NLS-1$
+
+    private final PThreadLockContentionAnalysis fModule;
+
+    /**
+     * Constructor
+     *
+     * @param trace
+     *            The trace this data provider is for
+     * @param module
+     *            The analysis module computing the contention
+     */
+    public PThreadLockContentionDataProvider(ITmfTrace trace, PThreadLockContentionAnalysis module) {
+        super(trace);
+        fModule = module;
+    }
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    @Override
+    public TmfModelResponse<TmfTreeModel<TmfTreeDataModel>> fetchTree(Map<String, Object> fetchParameters, @Nullable IProgressMonitor monitor) {
+        fModule.schedule();
+        if (!fModule.waitForCompletion(monitor)) {
+            return new TmfModelResponse<>(null, Status.FAILED, CommonStatusMessage.ANALYSIS_INITIALIZATION_FAILED);
+        }
+        PThreadLockContention contention = fModule.getContention();
+        if (contention == null) {
+            return new TmfModelResponse<>(new TmfTreeModel<>(COLUMNS, Collections.emptyList()), Status.COMPLETED, CommonStatusMessage.COMPLETED);
+        }
+
+        List<TmfTreeDataModel> entries = new ArrayList<>();
+        long id = 0;
+        long rootId = id++;
+        entries.add(new TmfTreeDataModel(rootId, -1, Collections.singletonList(String.valueOf(getTrace().getName()))));
+        for (MutexContention mutex : contention.getMutexes()) {
+            long mutexId = id++;
+            entries.add(new TmfTreeDataModel(mutexId, rootId, getLabels("0x" + Long.toHexString(mutex.getId()), mutex))); //$NON-NLS-1$
+            for (WaitStatistics thread : mutex.getTopContenders(NB_TOP_CONTENDERS)) {
+                entries.add(new TmfTreeDataModel(id++, mutexId, getLabels(String.valueOf(thread.getId()), thread)));
+            }
+        }
+        return new TmfModelResponse<>(new TmfTreeModel<>(COLUMNS, entries), Status.COMPLETED, CommonStatusMessage.COMPLETED);
+    }
+
+    private static List<String> getLabels(String name, WaitStatistics statistics) {
+        List<String> labels = new ArrayList<>(COLUMNS.size());
+        labels.add(name);
+        labels.add(String.valueOf(statistics.getCount()));
+        labels.add(String.valueOf(statistics.getContended()));
+        labels.add(format(statistics.getTotalWait()));
+        labels.add(format(statistics.getCount() == 0 ? 0 : statistics.getTotalWait() / statistics.getCount()));
+        labels.add(format(statistics.getMaxWait()));
+        for (int i = 0; i < PThreadLockContention.NB_BUCKETS; i++) {
+            labels.add(String.valueOf(statistics.getHistogramCount(i)));
+        }
+        return labels;
+    }
+
+    private static String format(long duration) {
+        return Objects.requireNonNull(FORMATTER.format(duration));
+    }
+}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.lttng2.ust.extras.core.pthread;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.tmf.core.dataprovider.IDataProviderDescriptor;
+import org.eclipse.tracecompass.tmf.core.dataprovider.IDataProviderDescriptor.ProviderType;
+import org.eclipse.tracecompass.tmf.core.dataprovider.IDataProviderFactory;
+import org.eclipse.tracecompass.tmf.core.model.DataProviderDescriptor;
+import org.eclipse.tracecompass.tmf.core.model.tree.ITmfTreeDataModel;
+import org.eclipse.tracecompass.tmf.core.model.tree.ITmfTreeDataProvider;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceUtils;
+
+/**
+ * {@link PThreadLockContentionDataProvider} factory, for the traces with a
+ * {@link PThreadLockContentionAnalysis}
+ */
+public class PThreadLockContentionDataProviderFactory implements IDataProviderFactory {
+
+    private static final IDataProviderDescriptor DESCRIPTOR = new DataProviderDescriptor.Builder()
+            .setId(PThreadLockContentionDataProvider.ID)
+            .setName("Pthread Lock Contention") //$NON-NLS-1$
+            .setDescription("The time waited for each pthread mutex, with a histogram of the wait times and the threads that waited the most") //$NON-NLS-1$
+            .setProviderType(ProviderType.DATA_TREE)
+            .build();
+
+    @Override
+    public @Nullable ITmfTreeDataProvider<? extends ITmfTreeDataModel> createProvider(ITmfTrace trace) {
+        PThreadLockContentionAnalysis module = getModule(trace);
+        return module != null ? new PThreadLockContentionDataProvider(trace, module) : null;
+    }
+
+    @Override
+    public Collection<IDataProviderDescriptor> getDescriptors(ITmfTrace trace) {
+        return getModule(trace) != null ? Collections.singletonList(DESCRIPTOR) : Collections.emptyList();
+    }
+
+    private static @Nullable PThreadLockContentionAnalysis getModule(ITmfTrace trace) {
+        return TmfTraceUtils.getAnalysisModuleOfClass(trace, PThreadLockContentionAnalysis.class, PThreadLockContentionAnalysis.ID);
+    }
+}
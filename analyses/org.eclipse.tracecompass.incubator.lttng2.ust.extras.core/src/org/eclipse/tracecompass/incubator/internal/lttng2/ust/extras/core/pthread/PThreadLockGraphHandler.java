@@ -14,7 +14,6 @@ package org.eclipse.tracecompass.incubator.internal.lttng2.ust.extras.core.pthre
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
-import java.util.regex.Pattern;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.analysis.graph.core.building.AbstractTraceEventHandler;
@@ -32,9 +31,6 @@ import org.eclipse.tracecompass.internal.analysis.graph.core.graph.legacy.OSEdge
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.trace.TmfTraceUtils;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
-
 /**
  * An execution graph handler handling the userspace pthread spin lock events
  * and adding the proper links in the graph.
@@ -43,32 +39,12 @@ import com.google.common.collect.Table;
  */
 public class PThreadLockGraphHandler extends AbstractTraceEventHandler {
 
-    private static final Pattern UNLOCK_EVENT = Pattern.compile("lttng_ust_pthread:pthread_.*_unlock"); //$NON-NLS-1$
-    private static final Pattern ACQUIRE_LOCK_EVENT = Pattern.compile("lttng_ust_pthread:pthread_.*_lock_acq"); //$NON-NLS-1$
-    private static final Pattern REQUEST_LOCK_EVENT = Pattern.compile("lttng_ust_pthread:pthread_.*_lock_req"); //$NON-NLS-1$
     private static final String MUTEX_FIELD = "mutex"; //$NON-NLS-1$
 
-    private static class LastLockOwner {
-        public final Integer fTid;
-        public final ITmfVertex fVertex;
-
-        /**
-         * @param tid
-         *            The ID of the thread who last released the lock
-         * @param vertex
-         *            The vertex at which the lock was removed by the worker
-         */
-        public LastLockOwner(Integer tid, ITmfVertex vertex) {
-            fTid = tid;
-            fVertex = vertex;
-        }
-    }
-
     private final OsExecutionGraphProvider fProvider;
-    /** tid, mutex ID, vertex of the last lock request */
-    private final Table<Integer, Long, ITmfVertex> fLastRequest;
-    /** mutex ID, last lock owner */
-    private final Map<Long, LastLockOwner> fLastLockOwner = new HashMap<>();
+    /** event name, type of the event */
+    private final Map<String, PThreadEventType> fEventTypes = new HashMap<>();
+    private final PThreadLockTracker<ITmfVertex> fLocks = new PThreadLockTracker<>(ITmfVertex::getTimestamp);
 
     /**
      * Constructor
@@ -81,7 +57,6 @@ public class PThreadLockGraphHandler extends AbstractTraceEventHandler {
     public PThreadLockGraphHandler(OsExecutionGraphProvider provider, int priority) {
         super(priority);
         fProvider = provider;
-        fLastRequest = HashBasedTable.create();
     }
 
     /**
@@ -110,13 +85,20 @@ public class PThreadLockGraphHandler extends AbstractTraceEventHandler {
 
     @Override
     public void handleEvent(ITmfEvent event) {
-        String name = event.getName();
-        if (UNLOCK_EVENT.matcher(name).matches()) {
+        PThreadEventType type = fEventTypes.computeIfAbsent(event.getName(), PThreadEventType::fromName);
+        switch (type) {
+        case UNLOCK:
             handleUnlockEvent(event);
-        } else if (REQUEST_LOCK_EVENT.matcher(name).matches()) {
+            break;
+        case REQUEST_LOCK:
             handleRequestLockEvent(event);
-        } else if (ACQUIRE_LOCK_EVENT.matcher(name).matches()) {
+            break;
+        case ACQUIRE_LOCK:
             handleAcquireLockEvent(event);
+            break;
+        case OTHER:
+        default:
+            break;
         }
     }
 
@@ -132,14 +114,14 @@ public class PThreadLockGraphHandler extends AbstractTraceEventHandler {
         OsWorker worker = getOrCreateKernelWorker(event, tid);
 
         // Get the vertex for the last request
-        ITmfVertex lastReqVertex = fLastRequest.get(tid, fieldValue);
+        ITmfVertex lastReqVertex = fLocks.acquire(fieldValue, tid);
         if (lastReqVertex == null) {
             return;
         }
 
-        // Get the last lock owner
-        LastLockOwner lastOwner = fLastLockOwner.get(fieldValue);
-        if (lastOwner != null && lastOwner.fTid != tid && lastOwner.fVertex.getTimestamp() > lastReqVertex.getTimestamp()) {
+        // Get the last lock owner, if it released the lock after the request
+        ITmfVertex ownerVertex = fLocks.getBlockingRelease(fieldValue, tid, lastReqVertex);
+        if (ownerVertex != null) {
             // This thread has been blocked, add the proper vertices and links
             ITmfGraph graph = Objects.requireNonNull(fProvider.getGraph());
 
@@ -151,7 +133,7 @@ public class PThreadLockGraphHandler extends AbstractTraceEventHandler {
             // And add the vertical link between the unlock and the acquisition
             // TODO: check if it's the correct replacement
 //            lastOwner.fVertex.linkVertical(unblockVertex);
-            graph.edgeVertical(lastOwner.fVertex, unblockVertex, new OSEdgeContextState(OSEdgeContextEnum.DEFAULT), MUTEX_FIELD);
+            graph.edgeVertical(ownerVertex, unblockVertex, new OSEdgeContextState(OSEdgeContextEnum.DEFAULT), MUTEX_FIELD);
         }
     }
 
@@ -171,7 +153,7 @@ public class PThreadLockGraphHandler extends AbstractTraceEventHandler {
         // Don't add a state change to the worker just yet, let's keep the previous state until we know it's being blocked
         ITmfVertex vertex = graph.createVertex(worker, event.getTimestamp().toNanos());
         //TmfVertex stateChange = stateChange(worker, event.getTimestamp().toNanos(), EdgeType.RUNNING);
-        fLastRequest.put(tid, fieldValue, vertex);
+        fLocks.request(fieldValue, tid, vertex);
     }
 
     private void handleUnlockEvent(ITmfEvent event) {
@@ -189,7 +171,7 @@ public class PThreadLockGraphHandler extends AbstractTraceEventHandler {
         ITmfGraph graph = Objects.requireNonNull(fProvider.getGraph());
         ITmfVertex vertex = graph.createVertex(worker, event.getTimestamp().toNanos());
         graph.append(vertex, new OSEdgeContextState(OSEdgeContextEnum.RUNNING));
-        fLastLockOwner.put(fieldValue, new LastLockOwner(tid, vertex));
+        fLocks.release(fieldValue, tid, vertex);
     }
 
 }
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.lttng2.ust.extras.core.pthread;
+
+import java.util.function.ToLongFunction;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The state of the pthread mutexes of a trace, to match each lock acquisition
+ * with the request of the thread and with the release it waited for. It is
+ * used by the {@link PThreadLockGraphHandler}, which keeps a vertex for each
+ * request and release, and by the {@link PThreadLockContentionAnalysis},
+ * which keeps their timestamps.
+ *
+ * @param <T>
+ *            The type of the requests and releases
+ */
+public class PThreadLockTracker<T> {
+
+    /**
+     * The state of a mutex
+     */
+    private static class MutexState<T> {
+        /** The ID of the thread who last released the lock */
+        public int fOwnerTid = -1;
+        /** The last release of the lock */
+        public @Nullable T fRelease = null;
+        /** tid, pending lock request */
+        public final LongMap<T> fRequests = new LongMap<>();
+    }
+
+    private final ToLongFunction<T> fTimestamp;
+    /** mutex ID, state of the mutex */
+    private final LongMap<MutexState<T>> fMutexes = new LongMap<>();
+
+    /**
+     * Constructor
+     *
+     * @param timestamp
+     *            The function to get the timestamp of a request or release
+     */
+    public PThreadLockTracker(ToLongFunction<T> timestamp) {
+        fTimestamp = timestamp;
+    }
+
+    private MutexState<T> getMutexState(long mutex) {
+        return fMutexes.computeIfAbsent(mutex, m -> new MutexState<>());
+    }
+
+    /**
+     * Add a lock request
+     *
+     * @param mutex
+     *            The address of the mutex
+     * @param tid
+     *            The thread requesting the lock
+     * @param request
+     *            The request
+     */
+    public void request(long mutex, int tid, T request) {
+        getMutexState(mutex).fRequests.put(tid, request);
+    }
+
+    /**
+     * Add a lock acquisition. The request of the thread is removed, so that a
+     * later acquisition without a request is not matched with it.
+     *
+     * @param mutex
+     *            The address of the mutex
+     * @param tid
+     *            The thread acquiring the lock
+     * @return The request of this acquisition, or <code>null</code> if the
+     *         thread did not request the lock
+     */
+    public @Nullable T acquire(long mutex, int tid) {
+        return getMutexState(mutex).fRequests.remove(tid);
+    }
+
+    /**
+     * Get the release a thread waited for to acquire a lock, that is the last
+     * release of the lock by another thread, if it happened after the request
+     *
+     * @param mutex
+     *            The address of the mutex
+     * @param tid
+     *            The thread acquiring the lock
+     * @param request
+     *            The request of the acquisition
+     * @return The release, or <code>null</code> if the thread was not blocked
+     *         by another thread holding the lock
+     */
+    public @Nullable T getBlockingRelease(long mutex, int tid, T request) {
+        MutexState<T> state = getMutexState(mutex);
+        T release = state.fRelease;
+        if (release == null || state.fOwnerTid == tid || fTimestamp.applyAsLong(release) <= fTimestamp.applyAsLong(request)) {
+            return null;
+        }
+        return release;
+    }
+
+    /**
+     * Add a lock release
+     *
+     * @param mutex
+     *            The address of the mutex
+     * @param tid
+     *            The thread releasing the lock
+     * @param release
+     *            The release
+     */
+    public void release(long mutex, int tid, T release) {
+        MutexState<T> state = getMutexState(mutex);
+        state.fOwnerTid = tid;
+        state.fRelease = release;
+    }
+}
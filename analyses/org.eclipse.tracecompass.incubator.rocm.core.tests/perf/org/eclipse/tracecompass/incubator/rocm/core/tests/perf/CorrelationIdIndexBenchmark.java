@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.rocm.core.tests.perf;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+import org.eclipse.tracecompass.incubator.internal.rocm.core.analysis.handlers.CorrelationIdIndex;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Benchmarks the {@link CorrelationIdIndex} with millions of overlapping
+ * operations completing in random order, as in the queues of a long ROCm
+ * trace. The sequence of operations is generated beforehand, so only the
+ * index is measured.
+ */
+public class CorrelationIdIndexBenchmark {
+
+    private static final String TEST_ID = "org.eclipse.tracecompass.incubator#CorrelationIdIndex#";
+    private static final int LOOP_COUNT = 5;
+    private static final int NB_OPERATIONS = 2000000;
+    private static final int MAX_IN_FLIGHT = 2000;
+    private static final long SEED = 42L;
+
+    /*
+     * The correlation ID of each operation, positive to start the operation
+     * and negative to complete it
+     */
+    private static long[] fOperations = new long[0];
+
+    /**
+     * Generate the sequence of operations
+     */
+    @BeforeClass
+    public static void setUp() {
+        Random random = new Random(SEED);
+        List<Long> inFlight = new ArrayList<>();
+        long nextId = 1;
+        fOperations = new long[NB_OPERATIONS];
+        for (int i = 0; i < NB_OPERATIONS; i++) {
+            // Start operations more often while few are in flight
+            if (inFlight.isEmpty() || (inFlight.size() < MAX_IN_FLIGHT && random.nextInt(MAX_IN_FLIGHT) >= inFlight.size() / 2)) {
+                long id = nextId++;
+                inFlight.add(id);
+                fOperations[i] = id;
+            } else {
+                int pos = random.nextInt(inFlight.size());
+                long id = inFlight.get(pos);
+                inFlight.set(pos, inFlight.get(inFlight.size() - 1));
+                inFlight.remove(inFlight.size() - 1);
+                fOperations[i] = -id;
+            }
+        }
+    }
+
+    /**
+     * Benchmark starting and completing the operations
+     */
+    @Test
+    public void testOverlappingOperations() {
+        Performance perf = Performance.getDefault();
+        String testName = "Overlapping operations";
+        PerformanceMeter pm = Objects.requireNonNull(perf.createPerformanceMeter(TEST_ID + testName));
+        perf.tagAsSummary(pm, testName, Dimension.CPU_TIME);
+        for (int i = 0; i < LOOP_COUNT; i++) {
+            CorrelationIdIndex index = new CorrelationIdIndex();
+            pm.start();
+            long sum = 0;
+            for (long operation : fOperations) {
+                sum += (operation > 0) ? index.add(operation) : index.remove(-operation);
+            }
+            pm.stop();
+            assertTrue(sum > 0);
+            assertTrue(index.size() <= MAX_IN_FLIGHT);
+        }
+        pm.commit();
+    }
+}
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.rocm.core.tests.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.tracecompass.incubator.internal.rocm.core.analysis.handlers.CorrelationIdIndex;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.StateSystemFactory;
+import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
+import org.junit.Test;
+
+/**
+ * Test the {@link CorrelationIdIndex}
+ */
+public class CorrelationIdIndexTest {
+
+    private static final int NB_OPERATIONS = 20000;
+    private static final int MAX_IN_FLIGHT = 100;
+
+    /**
+     * Test that operations take the lowest free depth
+     */
+    @Test
+    public void testLowestFreeDepth() {
+        CorrelationIdIndex index = new CorrelationIdIndex();
+        assertEquals(1, index.add(10));
+        assertEquals(2, index.add(11));
+        assertEquals(3, index.add(12));
+        assertEquals(3, index.getMaxDepth());
+
+        assertEquals(2, index.remove(11));
+        assertEquals(1, index.remove(10));
+        assertEquals(CorrelationIdIndex.NOT_FOUND, index.remove(10));
+        assertEquals(3, index.getMaxDepth());
+        assertEquals(1, index.add(13));
+        assertEquals(2, index.add(14));
+        assertEquals(4, index.add(15));
+
+        assertEquals(4, index.remove(15));
+        assertEquals(3, index.remove(12));
+        assertEquals(2, index.getMaxDepth());
+        assertEquals(3, index.add(16));
+        assertEquals(3, index.size());
+    }
+
+    /**
+     * Test moving the operations up a queue when one completes
+     */
+    @Test
+    public void testMove() {
+        CorrelationIdIndex index = new CorrelationIdIndex();
+        index.add(1);
+        index.add(2);
+        index.add(3);
+        int maxDepth = index.getMaxDepth();
+        int depth = index.remove(1);
+        for (; depth < maxDepth; depth++) {
+            index.move(depth + 1, depth);
+        }
+        assertEquals(2, index.getMaxDepth());
+        assertEquals(Long.valueOf(2), index.getCorrelationId(1));
+        assertEquals(Long.valueOf(3), index.getCorrelationId(2));
+        assertNull(index.getCorrelationId(3));
+        assertEquals(1, index.getDepth(2));
+        assertEquals(2, index.getDepth(3));
+        assertEquals(3, index.add(4));
+    }
+
+    /**
+     * Test that the depth quarks are the depth attributes under the parent
+     */
+    @Test
+    public void testDepthQuarks() {
+        ITmfStateSystemBuilder ss = StateSystemFactory.newStateSystem(StateHistoryBackendFactory.createNullBackend("test")); //$NON-NLS-1$
+        int parent = ss.getQuarkAbsoluteAndAdd("queue"); //$NON-NLS-1$
+        int other = ss.getQuarkAbsoluteAndAdd("other"); //$NON-NLS-1$
+        CorrelationIdIndex index = new CorrelationIdIndex();
+        assertEquals(ss.getQuarkRelativeAndAdd(parent, "3"), index.getDepthQuark(ss, parent, 3)); //$NON-NLS-1$
+        assertEquals(ss.getQuarkRelativeAndAdd(parent, "1"), index.getDepthQuark(ss, parent, 1)); //$NON-NLS-1$
+        assertEquals(ss.getQuarkRelativeAndAdd(other, "2"), index.getDepthQuark(ss, other, 2)); //$NON-NLS-1$
+    }
+
+    /**
+     * Test overlapping operations completing in random order, compared with a
+     * bit set of the used depths
+     */
+    @Test
+    public void testOverlappingOperations() {
+        Random random = new Random(42);
+        CorrelationIdIndex index = new CorrelationIdIndex();
+        BitSet used = new BitSet();
+        List<Long> inFlight = new ArrayList<>();
+        long nextId = 0;
+        for (int i = 0; i < NB_OPERATIONS; i++) {
+            // Start operations more often while few are in flight
+            if (inFlight.isEmpty() || (inFlight.size() < MAX_IN_FLIGHT && random.nextInt(MAX_IN_FLIGHT) >= inFlight.size() / 2)) {
+                long id = nextId++;
+                int expected = used.nextClearBit(1);
+                assertEquals(expected, index.add(id));
+                used.set(expected);
+                inFlight.add(id);
+            } else {
+                int pos = random.nextInt(inFlight.size());
+                long id = inFlight.get(pos);
+                inFlight.set(pos, inFlight.get(inFlight.size() - 1));
+                inFlight.remove(inFlight.size() - 1);
+                int depth = index.getDepth(id);
+                assertEquals(depth, index.remove(id));
+                used.clear(depth);
+            }
+            assertEquals(Math.max(0, used.length() - 1), index.getMaxDepth());
+        }
+        assertEquals(inFlight.size(), index.size());
+        for (Long id : inFlight) {
+            used.clear(index.remove(id));
+        }
+        assertEquals(0, index.size());
+        assertEquals(0, index.getMaxDepth());
+        assertEquals(0, used.cardinality());
+    }
+}
@@ -12,6 +12,7 @@ package org.eclipse.tracecompass.incubator.internal.rocm.core.analysis;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.incubator.internal.rocm.core.analysis.handlers.ApiEventHandler;
+import org.eclipse.tracecompass.incubator.internal.rocm.core.analysis.handlers.CorrelationIdIndex;
 import org.eclipse.tracecompass.incubator.internal.rocm.core.analysis.handlers.IRocmEventHandler;
 import org.eclipse.tracecompass.incubator.internal.rocm.core.analysis.handlers.OperationEventHandler;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
@@ -71,8 +72,9 @@ public class RocmCallStackStateProvider extends AbstractTmfStateProvider {
     public RocmCallStackStateProvider(ITmfTrace trace, RocmEventLayout layout) {
         super(trace, ID);
         fLayout = layout;
-        fApiEventHandler = new ApiEventHandler();
-        fOperationEventHandler = new OperationEventHandler();
+        CorrelationIdIndex operationsIndex = new CorrelationIdIndex();
+        fApiEventHandler = new ApiEventHandler(operationsIndex);
+        fOperationEventHandler = new OperationEventHandler(operationsIndex);
     }
 
     @Override
@@ -17,7 +17,6 @@ import org.eclipse.tracecompass.incubator.internal.rocm.core.analysis.RocmEventL
 import org.eclipse.tracecompass.incubator.rocm.core.ctfplugin.trace.RocmCtfPluginTrace;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
-import org.eclipse.tracecompass.statesystem.core.exceptions.AttributeNotFoundException;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 
 /**
@@ -33,9 +32,21 @@ public class ApiEventHandler implements IRocmEventHandler {
     private static final String HIP = "HIP"; //$NON-NLS-1$
     private static final String HSA = "HSA"; //$NON-NLS-1$
 
+    private final CorrelationIdIndex fOperationsIndex;
     private boolean fIsThreadIdProvidedHSA = false;
     private boolean fIsThreadIdProvidedHIP = false;
 
+    /**
+     * Constructor
+     *
+     * @param operationsIndex
+     *            The index of the operations in the HIP operation queue,
+     *            shared with the handler of the GPU operations
+     */
+    public ApiEventHandler(CorrelationIdIndex operationsIndex) {
+        fOperationsIndex = operationsIndex;
+    }
+
     private static void provideThreadId(ITmfEvent event, ITmfStateSystemBuilder ssb, int quark, RocmEventLayout layout) {
         Integer tid = event.getContent().getFieldValue(Integer.class, layout.fieldThreadId());
         ssb.modifyAttribute(event.getTimestamp().getValue(), tid, quark);
@@ -85,7 +96,7 @@ public class ApiEventHandler implements IRocmEventHandler {
         ssb.pushAttribute(event.getTimestamp().getValue(), eventName, callStackQuark);
     }
 
-    private static void addEventToOperationQueue(ITmfEvent event, ITmfStateSystemBuilder ssb, RocmEventLayout layout) {
+    private void addEventToOperationQueue(ITmfEvent event, ITmfStateSystemBuilder ssb, RocmEventLayout layout) {
         Long correlationId = event.getContent().getFieldValue(Long.class, layout.fieldCorrelationId());
         if (correlationId == null) {
             return;
@@ -95,13 +106,8 @@ public class ApiEventHandler implements IRocmEventHandler {
 
         if (layout.isMemcpyBegin(event.getName()) || (event.getName().equals(layout.hipLaunchKernelBegin()) && ((RocmCtfPluginTrace) event.getTrace()).isContainingKernelGpuActivity())
                 || event.getName().equals(layout.hipStreamSynchronizeBegin())) {
-            int depth = 1;
-            int subQuark = ssb.getQuarkRelativeAndAdd(operationsQuark, String.valueOf(depth));
-            // While there is already activity on the quark
-            while (!ssb.queryOngoingState(subQuark).isNull()) {
-                depth += 1;
-                subQuark = ssb.getQuarkRelativeAndAdd(operationsQuark, String.valueOf(depth));
-            }
+            int depth = fOperationsIndex.add(correlationId);
+            int subQuark = fOperationsIndex.getDepthQuark(ssb, operationsQuark, depth);
             // Register event name in the call stack
             ssb.modifyAttribute(ts, correlationId, subQuark);
             int nameQuark = ssb.getQuarkRelativeAndAdd(subQuark, RocmCallStackStateProvider.NAME);
@@ -114,24 +120,14 @@ public class ApiEventHandler implements IRocmEventHandler {
             }
         }
         if (event.getName().equals(layout.hipStreamSynchronizeEnd())) {
-            int depth = 1;
-            int subQuark;
-            try {
-                subQuark = ssb.getQuarkRelative(operationsQuark, String.valueOf(depth));
-                // While there is already activity on the quark
-                while (correlationId != ssb.queryOngoingState(subQuark).unboxLong()) {
-                    depth += 1;
-                    subQuark = ssb.optQuarkRelative(operationsQuark, String.valueOf(depth));
-                    if (subQuark == ITmfStateSystem.INVALID_ATTRIBUTE) {
-                        return;
-                    }
-                }
-                ssb.modifyAttribute(ts, null, subQuark);
-                int nameQuark = ssb.getQuarkRelative(subQuark, RocmCallStackStateProvider.NAME);
-                ssb.modifyAttribute(ts, null, nameQuark);
-            } catch (AttributeNotFoundException e) {
-                e.printStackTrace();
+            int depth = fOperationsIndex.remove(correlationId);
+            if (depth == CorrelationIdIndex.NOT_FOUND) {
+                return;
             }
+            int subQuark = fOperationsIndex.getDepthQuark(ssb, operationsQuark, depth);
+            ssb.modifyAttribute(ts, null, subQuark);
+            int nameQuark = ssb.getQuarkRelativeAndAdd(subQuark, RocmCallStackStateProvider.NAME);
+            ssb.modifyAttribute(ts, null, nameQuark);
         }
     }
 }
@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.tracecompass.incubator.internal.rocm.core.analysis.handlers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+
+/**
+ * In-memory index of the operations stored at the depth attributes of a
+ * parent attribute, kept alongside the state system while it is being built.
+ *
+ * Each depth holds at most one operation, identified by its correlation id.
+ * The index finds the depth of a correlation id with a hash lookup and the
+ * lowest free depth with a sorted set of the free depths, instead of querying
+ * the ongoing state of each depth attribute in turn. It also caches the quarks
+ * of the depth attributes.
+ *
+ * Depths start at 1, as the depth attributes of a call stack.
+ */
+public class CorrelationIdIndex {
+
+    /** Depth of a correlation id that is not in the index */
+    public static final int NOT_FOUND = -1;
+
+    private final Map<Long, Integer> fDepths = new HashMap<>();
+    /** Correlation id at each depth, at index depth - 1 */
+    private final List<@Nullable Long> fIds = new ArrayList<>();
+    /** Free depths below the highest used depth */
+    private final TreeSet<Integer> fFreeDepths = new TreeSet<>();
+    /** Quark of each depth attribute, at index depth - 1 */
+    private final List<Integer> fDepthQuarks = new ArrayList<>();
+    private int fParentQuark = ITmfStateSystem.INVALID_ATTRIBUTE;
+
+    /**
+     * Add an operation at the lowest free depth
+     *
+     * @param correlationId
+     *            The correlation id of the operation
+     * @return The depth of the operation
+     */
+    public int add(long correlationId) {
+        Integer free = fFreeDepths.pollFirst();
+        int depth;
+        if (free != null) {
+            depth = free;
+            fIds.set(depth - 1, correlationId);
+        } else {
+            fIds.add(correlationId);
+            depth = fIds.size();
+        }
+        Integer previous = fDepths.put(correlationId, depth);
+        if (previous != null && previous != depth) {
+            // A correlation id that was never released, its previous slot is
+            // taken over by this new operation
+            free(previous);
+        }
+        return depth;
+    }
+
+    /**
+     * Remove an operation from the index, its depth becomes free
+     *
+     * @param correlationId
+     *            The correlation id of the operation
+     * @return The depth the operation was at, or {@link #NOT_FOUND} if it is
+     *         not in the index
+     */
+    public int remove(long correlationId) {
+        Integer depth = fDepths.remove(correlationId);
+        if (depth == null) {
+            return NOT_FOUND;
+        }
+        free(depth);
+        return depth;
+    }
+
+    /**
+     * Move the operation at a depth to another depth, which must be free. The
+     * original depth becomes free.
+     *
+     * @param from
+     *            The current depth of the operation
+     * @param to
+     *            The new depth of the operation
+     */
+    public void move(int from, int to) {
+        Long id = getCorrelationId(from);
+        if (id == null) {
+            return;
+        }
+        if (getCorrelationId(to) != null) {
+            throw new IllegalStateException("Depth " + to + " is not free"); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        if (to > fIds.size()) {
+            for (int depth = fIds.size() + 1; depth < to; depth++) {
+                fFreeDepths.add(depth);
+            }
+            while (fIds.size() < to) {
+                fIds.add(null);
+            }
+        }
+        fFreeDepths.remove(to);
+        fIds.set(to - 1, id);
+        fDepths.put(id, to);
+        free(from);
+    }
+
+    /**
+     * Get the depth of an operation
+     *
+     * @param correlationId
+     *            The correlation id of the operation
+     * @return The depth of the operation, or {@link #NOT_FOUND} if it is not
+     *         in the index
+     */
+    public int getDepth(long correlationId) {
+        Integer depth = fDepths.get(correlationId);
+        return depth == null ? NOT_FOUND : depth;
+    }
+
+    /**
+     * Get the correlation id of the operation at a depth
+     *
+     * @param depth
+     *            The depth
+     * @return The correlation id, or <code>null</code> if the depth is free
+     */
+    public @Nullable Long getCorrelationId(int depth) {
+        if (depth < 1 || depth > fIds.size()) {
+            return null;
+        }
+        return fIds.get(depth - 1);
+    }
+
+    /**
+     * Get the highest depth that holds an operation
+     *
+     * @return The highest used depth, or 0 if there are no operations
+     */
+    public int getMaxDepth() {
+        return fIds.size();
+    }
+
+    /**
+     * Get the number of operations in the index
+     *
+     * @return The number of operations
+     */
+    public int size() {
+        return fDepths.size();
+    }
+
+    /**
+     * Get the quark of the attribute of a depth under the parent attribute,
+     * creating it if needed.
+     *
+     * @param ssb
+     *            The state system builder
+     * @param parentQuark
+     *            The quark of the parent attribute. The cached quarks are
+     *            discarded if it changes between calls
+     * @param depth
+     *            The depth
+     * @return The quark of the depth attribute
+     */
+    public int getDepthQuark(ITmfStateSystemBuilder ssb, int parentQuark, int depth) {
+        if (parentQuark != fParentQuark) {
+            fDepthQuarks.clear();
+            fParentQuark = parentQuark;
+        }
+        while (fDepthQuarks.size() < depth) {
+            fDepthQuarks.add(ssb.getQuarkRelativeAndAdd(parentQuark, String.valueOf(fDepthQuarks.size() + 1)));
+        }
+        return fDepthQuarks.get(depth - 1);
+    }
+
+    private void free(int depth) {
+        fIds.set(depth - 1, null);
+        fFreeDepths.add(depth);
+        // Trim the free depths at the top, so the highest depth is used
+        int last = fIds.size();
+        while (last > 0 && fIds.get(last - 1) == null) {
+            fIds.remove(last - 1);
+            fFreeDepths.remove(last);
+            last--;
+        }
+    }
+}
@@ -10,6 +10,9 @@
  *******************************************************************************/
 package org.eclipse.tracecompass.incubator.internal.rocm.core.analysis.handlers;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.eclipse.tracecompass.analysis.profiling.core.instrumented.InstrumentedCallStackAnalysis;
 import org.eclipse.tracecompass.incubator.internal.rocm.core.Activator;
 import org.eclipse.tracecompass.incubator.internal.rocm.core.analysis.RocmCallStackStateProvider;
@@ -33,6 +36,21 @@ public class OperationEventHandler implements IRocmEventHandler {
     private static final String QUEUE = "Queue "; //$NON-NLS-1$
     private static final String UNKNOWN = "Unknown Operation"; //$NON-NLS-1$
 
+    private final CorrelationIdIndex fOperationsIndex;
+    /** Index of the operations of each GPU queue, by call stack quark */
+    private final Map<Integer, CorrelationIdIndex> fQueueIndexes = new HashMap<>();
+
+    /**
+     * Constructor
+     *
+     * @param operationsIndex
+     *            The index of the operations in the HIP operation queue,
+     *            shared with the handler of the API events
+     */
+    public OperationEventHandler(CorrelationIdIndex operationsIndex) {
+        fOperationsIndex = operationsIndex;
+    }
+
     @Override
     public void handleEvent(ITmfEvent event, ITmfStateSystemBuilder ssb, RocmEventLayout layout) {
         Long timestamp = event.getTimestamp().toNanos();
@@ -62,15 +80,12 @@ public class OperationEventHandler implements IRocmEventHandler {
             int queueQuark = ssb.getQuarkRelativeAndAdd(agentQuark, QUEUE + queueId.toString());
             int callStackQuark = ssb.getQuarkRelativeAndAdd(queueQuark, InstrumentedCallStackAnalysis.CALL_STACK);
 
+            CorrelationIdIndex queueIndex = fQueueIndexes.computeIfAbsent(callStackQuark, q -> new CorrelationIdIndex());
+
             // Add the operation to the queue if we are treating a begin event
             if (isHipOperationBegin) {
-                int depth = 1;
-                int subQuark = ssb.getQuarkRelativeAndAdd(callStackQuark, String.valueOf(depth));
-                // While there is already activity on the quark
-                while (!ssb.queryOngoingState(subQuark).isNull()) {
-                    depth += 1;
-                    subQuark = ssb.getQuarkRelativeAndAdd(callStackQuark, String.valueOf(depth));
-                }
+                int depth = queueIndex.add(correlationId);
+                int subQuark = queueIndex.getDepthQuark(ssb, callStackQuark, depth);
                 // Register event name in the call stack
                 ssb.modifyAttribute(timestamp, operationName, subQuark);
                 // Set call stack depth
@@ -81,57 +96,39 @@ public class OperationEventHandler implements IRocmEventHandler {
                 // Else if we have an end event, move all operations after the
                 // one we received up.
             } else {
-                int depth = 1;
-                int maxDepth = ssb.queryOngoingState(callStackQuark).unboxInt();
-                int subQuark = ssb.getQuarkRelativeAndAdd(callStackQuark, String.valueOf(depth));
-                try {
-                    // While there is already activity on the quark, go through
-                    // each level
-                    while (ssb.queryOngoingState(ssb.getQuarkRelative(subQuark, RocmCallStackStateProvider.CORRELATION_ID)).unboxLong() != correlationId) {
-                        depth += 1;
-                        subQuark = ssb.getQuarkRelative(callStackQuark, String.valueOf(depth));
-                    }
-
-                    int previousQuark = -1;
-                    while (!ssb.queryOngoingState(subQuark).isNull()) {
-                        if (depth >= maxDepth) {
-                            ssb.modifyAttribute(timestamp, null, subQuark);
-                            ssb.modifyAttribute(timestamp, depth - 1, callStackQuark);
-                            break;
-                        }
-                        // Getting previous quark
-                        previousQuark = subQuark;
-                        // Getting next level quark
-                        depth += 1;
-                        subQuark = ssb.getQuarkRelative(callStackQuark, String.valueOf(depth));
-                        int nextCorrelationIdQuark = ssb.getQuarkRelativeAndAdd(subQuark, RocmCallStackStateProvider.CORRELATION_ID);
-                        Long nextCorrelationId = ssb.queryOngoingState(nextCorrelationIdQuark).unboxLong();
-                        // Move operation down 1 level (inserting null to force the creation of a new interval
-                        ssb.modifyAttribute(timestamp, null, previousQuark);
-                        ssb.modifyAttribute(timestamp, ssb.queryOngoingState(subQuark).unboxValue(), previousQuark);
-                        ssb.modifyAttribute(timestamp, nextCorrelationId, ssb.getQuarkRelativeAndAdd(previousQuark, RocmCallStackStateProvider.CORRELATION_ID));
-                    }
-                } catch (AttributeNotFoundException e) {
-                    e.printStackTrace();
+                int maxDepth = queueIndex.getMaxDepth();
+                int depth = queueIndex.remove(correlationId);
+                if (depth == CorrelationIdIndex.NOT_FOUND) {
+                    return;
+                }
+                for (; depth < maxDepth; depth++) {
+                    int subQuark = queueIndex.getDepthQuark(ssb, callStackQuark, depth);
+                    int nextQuark = queueIndex.getDepthQuark(ssb, callStackQuark, depth + 1);
+                    Long nextCorrelationId = queueIndex.getCorrelationId(depth + 1);
+                    queueIndex.move(depth + 1, depth);
+                    // Move operation down 1 level (inserting null to force the creation of a new interval
+                    ssb.modifyAttribute(timestamp, null, subQuark);
+                    ssb.modifyAttribute(timestamp, ssb.queryOngoingState(nextQuark).unboxValue(), subQuark);
+                    ssb.modifyAttribute(timestamp, nextCorrelationId, ssb.getQuarkRelativeAndAdd(subQuark, RocmCallStackStateProvider.CORRELATION_ID));
                 }
+                ssb.modifyAttribute(timestamp, null, queueIndex.getDepthQuark(ssb, callStackQuark, maxDepth));
+                ssb.modifyAttribute(timestamp, maxDepth - 1, callStackQuark);
             }
         }
     }
 
-    private static String getCorrespondingHipCall(ITmfEvent event, ITmfStateSystemBuilder ssb, RocmEventLayout layout) throws AttributeNotFoundException {
+    private String getCorrespondingHipCall(ITmfEvent event, ITmfStateSystemBuilder ssb, RocmEventLayout layout) throws AttributeNotFoundException {
         Long correlationId = event.getContent().getFieldValue(Long.class, layout.fieldCorrelationId());
         if (correlationId == null) {
             return UNKNOWN;
         }
         int operationsQuark = ssb.getQuarkAbsoluteAndAdd(RocmCallStackStateProvider.HIP_OPERATION_QUEUES);
         long ts = event.getTimestamp().getValue();
-        int depth = 1;
-        int subQuark = ssb.getQuarkRelative(operationsQuark, String.valueOf(depth));
-        // While there is already activity on the quark
-        while (correlationId != ssb.queryOngoingState(subQuark).unboxLong()) {
-            depth += 1;
-            subQuark = ssb.getQuarkRelative(operationsQuark, String.valueOf(depth));
+        int depth = fOperationsIndex.remove(correlationId);
+        if (depth == CorrelationIdIndex.NOT_FOUND) {
+            throw new AttributeNotFoundException("No queued HIP operation with correlation id " + correlationId); //$NON-NLS-1$
         }
+        int subQuark = fOperationsIndex.getDepthQuark(ssb, operationsQuark, depth);
         ssb.modifyAttribute(ts, null, subQuark);
         int nameQuark = ssb.getQuarkRelative(subQuark, RocmCallStackStateProvider.NAME);
         String hipOperationName = ssb.queryOngoingState(nameQuark).unboxStr();
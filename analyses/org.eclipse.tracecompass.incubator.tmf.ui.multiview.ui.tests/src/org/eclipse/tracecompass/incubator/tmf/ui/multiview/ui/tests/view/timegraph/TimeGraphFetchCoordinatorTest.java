@@ -0,0 +1,364 @@
+/**********************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package org.eclipse.tracecompass.incubator.tmf.ui.multiview.ui.tests.view.timegraph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.incubator.internal.tmf.ui.multiview.ui.view.timegraph.TimeGraphFetchCoordinator;
+import org.eclipse.tracecompass.tmf.core.dataprovider.DataProviderParameterUtils;
+import org.eclipse.tracecompass.tmf.core.model.CommonStatusMessage;
+import org.eclipse.tracecompass.tmf.core.model.timegraph.ITimeGraphArrow;
+import org.eclipse.tracecompass.tmf.core.model.timegraph.ITimeGraphDataProvider;
+import org.eclipse.tracecompass.tmf.core.model.timegraph.ITimeGraphRowModel;
+import org.eclipse.tracecompass.tmf.core.model.timegraph.ITimeGraphState;
+import org.eclipse.tracecompass.tmf.core.model.timegraph.TimeGraphEntryModel;
+import org.eclipse.tracecompass.tmf.core.model.timegraph.TimeGraphModel;
+import org.eclipse.tracecompass.tmf.core.model.timegraph.TimeGraphRowModel;
+import org.eclipse.tracecompass.tmf.core.model.timegraph.TimeGraphState;
+import org.eclipse.tracecompass.tmf.core.model.tree.TmfTreeModel;
+import org.eclipse.tracecompass.tmf.core.response.ITmfResponse;
+import org.eclipse.tracecompass.tmf.core.response.TmfModelResponse;
+import org.junit.Test;
+
+/**
+ * Test the {@link TimeGraphFetchCoordinator}: the reuse of the cached slices,
+ * the sharing and cancellation of the requests and the invalidation of the
+ * cache
+ */
+public class TimeGraphFetchCoordinatorTest {
+
+    /** Duration of the states of the stub provider */
+    private static final long STATE_DURATION = 100;
+    private static final List<Long> ITEMS = List.of(1L, 2L);
+
+    /**
+     * A provider of rows with states of fixed duration, counting the calls
+     */
+    private static class StubProvider implements ITimeGraphDataProvider<TimeGraphEntryModel> {
+
+        private int fTreeCalls = 0;
+        private final List<List<Long>> fRowRequests = Collections.synchronizedList(new ArrayList<>());
+        private final @Nullable CountDownLatch fRowStarted;
+        private final @Nullable CountDownLatch fRowRelease;
+
+        public StubProvider() {
+            this(null, null);
+        }
+
+        public StubProvider(@Nullable CountDownLatch rowStarted, @Nullable CountDownLatch rowRelease) {
+            fRowStarted = rowStarted;
+            fRowRelease = rowRelease;
+        }
+
+        @Override
+        public String getId() {
+            return "stub"; //$NON-NLS-1$
+        }
+
+        @Override
+        public TmfModelResponse<TmfTreeModel<TimeGraphEntryModel>> fetchTree(Map<String, Object> fetchParameters, @Nullable IProgressMonitor monitor) {
+            fTreeCalls++;
+            List<TimeGraphEntryModel> entries = new ArrayList<>();
+            for (Long item : ITEMS) {
+                entries.add(new TimeGraphEntryModel(item, -1, "entry " + item, 0, 100000)); //$NON-NLS-1$
+            }
+            return new TmfModelResponse<>(new TmfTreeModel<>(Collections.emptyList(), entries), ITmfResponse.Status.COMPLETED, CommonStatusMessage.COMPLETED);
+        }
+
+        @Override
+        public TmfModelResponse<TimeGraphModel> fetchRowModel(Map<String, Object> fetchParameters, @Nullable IProgressMonitor monitor) {
+            CountDownLatch started = fRowStarted;
+            CountDownLatch release = fRowRelease;
+            if (started != null && release != null) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            List<Long> times = DataProviderParameterUtils.extractTimeRequested(fetchParameters);
+            List<Long> items = DataProviderParameterUtils.extractSelectedItems(fetchParameters);
+            assertNotNull(times);
+            assertNotNull(items);
+            fRowRequests.add(times);
+            List<ITimeGraphRowModel> rows = new ArrayList<>();
+            for (Long item : items) {
+                rows.add(new TimeGraphRowModel(item, getStates(times)));
+            }
+            return new TmfModelResponse<>(new TimeGraphModel(rows), ITmfResponse.Status.COMPLETED, CommonStatusMessage.COMPLETED);
+        }
+
+        @Override
+        public TmfModelResponse<List<ITimeGraphArrow>> fetchArrows(Map<String, Object> fetchParameters, @Nullable IProgressMonitor monitor) {
+            return new TmfModelResponse<>(Collections.emptyList(), ITmfResponse.Status.COMPLETED, CommonStatusMessage.COMPLETED);
+        }
+
+        @Override
+        public TmfModelResponse<Map<String, String>> fetchTooltip(Map<String, Object> fetchParameters, @Nullable IProgressMonitor monitor) {
+            return new TmfModelResponse<>(Collections.emptyMap(), ITmfResponse.Status.COMPLETED, CommonStatusMessage.COMPLETED);
+        }
+
+        /**
+         * Get the states intersecting the sampled times, once each
+         */
+        private static List<ITimeGraphState> getStates(List<Long> times) {
+            Map<Long, ITimeGraphState> states = new LinkedHashMap<>();
+            for (Long time : times) {
+                long index = Math.floorDiv(time, STATE_DURATION);
+                states.computeIfAbsent(index, i -> new TimeGraphState(i * STATE_DURATION, STATE_DURATION, (int) (long) i));
+            }
+            return new ArrayList<>(states.values());
+        }
+
+        public int getTreeCalls() {
+            return fTreeCalls;
+        }
+
+        public List<List<Long>> getRowRequests() {
+            return fRowRequests;
+        }
+    }
+
+    private static Map<String, Object> getRowParameters(long start, long end, long resolution) {
+        Map<String, Object> parameters = new HashMap<>();
+        List<Long> times = new ArrayList<>();
+        for (long time = start; time <= end; time += resolution) {
+            times.add(time);
+        }
+        parameters.put(DataProviderParameterUtils.REQUESTED_TIME_KEY, times);
+        parameters.put(DataProviderParameterUtils.REQUESTED_ITEMS_KEY, ITEMS);
+        return parameters;
+    }
+
+    private static TmfModelResponse<TimeGraphModel> fetchRows(StubProvider provider, long start, long end, long resolution) {
+        return TimeGraphFetchCoordinator.getInstance().fetchRowModel(provider, getRowParameters(start, end, resolution), start, end, resolution, new NullProgressMonitor());
+    }
+
+    private static List<Long> getStateStarts(TimeGraphModel model, long item) {
+        for (ITimeGraphRowModel row : model.getRows()) {
+            if (row.getEntryID() == item) {
+                List<Long> starts = new ArrayList<>();
+                row.getStates().forEach(state -> starts.add(state.getStartTime()));
+                return starts;
+            }
+        }
+        throw new AssertionError("No row for item " + item); //$NON-NLS-1$
+    }
+
+    /**
+     * Test that the rows fetched through the cache are those of the provider
+     * and that the cached slices are reused
+     */
+    @Test
+    public void testSliceReuse() {
+        StubProvider provider = new StubProvider();
+        TmfModelResponse<TimeGraphModel> response = fetchRows(provider, 10000, 20000, 10);
+        assertEquals(ITmfResponse.Status.COMPLETED, response.getStatus());
+        TimeGraphModel model = response.getModel();
+        assertNotNull(model);
+        // Every state in the range, once
+        List<Long> expected = new ArrayList<>();
+        for (long start = 10000; start <= 20000; start += STATE_DURATION) {
+            expected.add(start);
+        }
+        for (Long item : ITEMS) {
+            assertEquals(expected, getStateStarts(model, item));
+        }
+        int calls = provider.getRowRequests().size();
+        assertEquals(1, calls);
+
+        // The same range is only read from the cache
+        response = fetchRows(provider, 10000, 20000, 10);
+        model = response.getModel();
+        assertNotNull(model);
+        assertEquals(expected, getStateStarts(model, 1));
+        assertEquals(calls, provider.getRowRequests().size());
+
+        // Moving the window only fetches the slices after the previous one
+        response = fetchRows(provider, 15000, 25000, 10);
+        model = response.getModel();
+        assertNotNull(model);
+        assertEquals(calls + 1, provider.getRowRequests().size());
+        List<Long> times = provider.getRowRequests().get(calls);
+        assertTrue(times.get(0) > 20000 - 32 * 10);
+        expected.clear();
+        for (long start = 15000; start <= 25000; start += STATE_DURATION) {
+            expected.add(start);
+        }
+        assertEquals(expected, getStateStarts(model, 2));
+    }
+
+    /**
+     * Test that panning back to a window is answered from the cache, without
+     * calling the provider
+     */
+    @Test
+    public void testRepeatedPan() {
+        StubProvider provider = new StubProvider();
+        TimeGraphFetchCoordinator coordinator = TimeGraphFetchCoordinator.getInstance();
+        fetchRows(provider, 10000, 20000, 10);
+        fetchRows(provider, 15000, 25000, 10);
+        long providerCalls = coordinator.getProviderCalls();
+        long cacheHits = coordinator.getCacheHits();
+
+        TmfModelResponse<TimeGraphModel> response = fetchRows(provider, 10000, 20000, 10);
+        assertEquals(ITmfResponse.Status.COMPLETED, response.getStatus());
+        assertEquals(cacheHits + 1, coordinator.getCacheHits());
+        assertEquals(providerCalls, coordinator.getProviderCalls());
+        assertEquals(2, provider.getRowRequests().size());
+    }
+
+    /**
+     * Test that two lanes requesting the same window at the same time share
+     * one call to the provider
+     *
+     * @throws Exception
+     *             if a lane fails
+     */
+    @Test
+    public void testSharedWindow() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        StubProvider provider = new StubProvider(started, release);
+        TimeGraphFetchCoordinator coordinator = TimeGraphFetchCoordinator.getInstance();
+        long providerCalls = coordinator.getProviderCalls();
+        long sharedRequests = coordinator.getSharedRequests();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // The first lane sends the request and blocks in the provider
+            Future<TmfModelResponse<TimeGraphModel>> first = executor.submit(() -> fetchRows(provider, 0, 10000, 10));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            // The second lane waits for the request of the first one
+            Future<TmfModelResponse<TimeGraphModel>> second = executor.submit(() -> fetchRows(provider, 0, 10000, 10));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (coordinator.getSharedRequests() == sharedRequests && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(sharedRequests + 1, coordinator.getSharedRequests());
+
+            release.countDown();
+            TimeGraphModel firstModel = first.get(10, TimeUnit.SECONDS).getModel();
+            TimeGraphModel secondModel = second.get(10, TimeUnit.SECONDS).getModel();
+            assertNotNull(firstModel);
+            assertNotNull(secondModel);
+            assertEquals(getStateStarts(firstModel, 1), getStateStarts(secondModel, 1));
+            assertEquals(providerCalls + 1, coordinator.getProviderCalls());
+            assertEquals(1, provider.getRowRequests().size());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Test that the provider is not asked for many more samples than the
+     * requested resolution
+     */
+    @Test
+    public void testSampling() {
+        StubProvider provider = new StubProvider();
+        // 1000 samples at a resolution that is not on the grid
+        fetchRows(provider, 0, 999 * 7, 7);
+        int nbTimes = 0;
+        for (List<Long> times : provider.getRowRequests()) {
+            nbTimes += times.size();
+        }
+        assertTrue("Sampled " + nbTimes, nbTimes >= 1000); //$NON-NLS-1$
+        assertTrue("Sampled " + nbTimes, nbTimes <= 1000 * 1.19 + 2 * 32); //$NON-NLS-1$
+    }
+
+    /**
+     * Test that a lane waiting for the request of another lane stops waiting
+     * when its monitor is cancelled
+     *
+     * @throws Exception
+     *             if the other lane fails
+     */
+    @Test
+    public void testSharedRequestCancellation() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        StubProvider provider = new StubProvider(started, release);
+        Map<String, Object> parameters = getRowParameters(0, 1000, 10);
+        parameters.put(DataProviderParameterUtils.FULL_SEARCH_KEY, true);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // The first lane sends the request and blocks in the provider
+            Future<TmfModelResponse<TimeGraphModel>> first = executor.submit(() -> TimeGraphFetchCoordinator.getInstance().fetchRowModel(provider, parameters, 0, 1000, 10, new NullProgressMonitor()));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            // The second lane shares it, and is cancelled while it waits
+            IProgressMonitor monitor = new NullProgressMonitor();
+            executor.submit(() -> {
+                Thread.sleep(200);
+                monitor.setCanceled(true);
+                return null;
+            });
+            TmfModelResponse<TimeGraphModel> second = TimeGraphFetchCoordinator.getInstance().fetchRowModel(provider, parameters, 0, 1000, 10, monitor);
+            assertEquals(ITmfResponse.Status.CANCELLED, second.getStatus());
+            assertTrue(provider.getRowRequests().isEmpty());
+
+            release.countDown();
+            assertEquals(ITmfResponse.Status.COMPLETED, first.get(10, TimeUnit.SECONDS).getStatus());
+            assertEquals(1, provider.getRowRequests().size());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Test that the trees and rows are fetched again once the cache of the
+     * provider is invalidated, and that the trees are kept by time range
+     */
+    @Test
+    public void testInvalidation() {
+        StubProvider provider = new StubProvider();
+        TimeGraphFetchCoordinator coordinator = TimeGraphFetchCoordinator.getInstance();
+        Map<String, Object> parameters = new HashMap<>();
+        coordinator.fetchTree(provider, parameters, 0, 100000, new NullProgressMonitor());
+        coordinator.fetchTree(provider, parameters, 0, 100000, new NullProgressMonitor());
+        assertEquals(1, provider.getTreeCalls());
+        // Another range of the trace is another tree
+        coordinator.fetchTree(provider, parameters, 0, 200000, new NullProgressMonitor());
+        assertEquals(2, provider.getTreeCalls());
+
+        fetchRows(provider, 0, 10000, 10);
+        fetchRows(provider, 0, 10000, 10);
+        assertEquals(1, provider.getRowRequests().size());
+
+        coordinator.invalidate(provider);
+        coordinator.fetchTree(provider, parameters, 0, 100000, new NullProgressMonitor());
+        assertEquals(3, provider.getTreeCalls());
+        fetchRows(provider, 0, 10000, 10);
+        assertEquals(2, provider.getRowRequests().size());
+    }
+}
@@ -184,7 +184,8 @@ public class BaseDataProviderTimeGraphMultiViewer extends AbstractTimeGraphMulti
         boolean complete = false;
         while (!complete && !monitor.isCanceled()) {
             Map<@NonNull String, @NonNull Object> parameters = getFetchTreeParameters();
-            TmfModelResponse<TmfTreeModel<@NonNull TimeGraphEntryModel>> response = dataProvider.fetchTree(parameters, monitor);
+            TmfModelResponse<TmfTreeModel<@NonNull TimeGraphEntryModel>> response = TimeGraphFetchCoordinator.getInstance().fetchTree(dataProvider, parameters,
+                    trace.getStartTime().toNanos(), trace.getEndTime().toNanos(), monitor);
             if (response.getStatus() == ITmfResponse.Status.FAILED) {
                 Activator.getDefault().logError(getClass().getSimpleName() + " Data Provider failed: " + response.getStatusMessage()); //$NON-NLS-1$
                 return;
@@ -402,7 +403,7 @@ public class BaseDataProviderTimeGraphMultiViewer extends AbstractTimeGraphMulti
         for (Entry<ITimeGraphDataProvider<? extends TimeGraphEntryModel>, Collection<Long>> entry : providersToModelIds.asMap().entrySet()) {
             ITimeGraphDataProvider<? extends TimeGraphEntryModel> dataProvider = entry.getKey();
             Map<@NonNull String, @NonNull Object> parameters = getFetchRowModelParameters(start, end, resolution, fullSearch, entry.getValue());
-            TmfModelResponse<TimeGraphModel> response = dataProvider.fetchRowModel(parameters, monitor);
+            TmfModelResponse<TimeGraphModel> response = TimeGraphFetchCoordinator.getInstance().fetchRowModel(dataProvider, parameters, start, end, resolution, monitor);
 
             TimeGraphModel model = response.getModel();
             if (model != null) {
@@ -535,7 +536,7 @@ public class BaseDataProviderTimeGraphMultiViewer extends AbstractTimeGraphMulti
         Map<@NonNull String, @NonNull Object> parameters = getFetchArrowsParameters(times);
 
         for (ITimeGraphDataProvider<? extends TimeGraphEntryModel> provider : providers) {
-            TmfModelResponse<List<ITimeGraphArrow>> response = provider.fetchArrows(parameters, monitor);
+            TmfModelResponse<List<ITimeGraphArrow>> response = TimeGraphFetchCoordinator.getInstance().fetchArrows(provider, parameters, monitor);
             List<ITimeGraphArrow> model = response.getModel();
 
             if (model != null) {
@@ -751,12 +752,14 @@ public class BaseDataProviderTimeGraphMultiViewer extends AbstractTimeGraphMulti
             synchronized (fEntries) {
                 if (!fProviders.isEmpty()) {
                     fProviders.removeAll(viewTrace).forEach(provider -> {
+                        TimeGraphFetchCoordinator.getInstance().invalidate(provider);
                         fEntries.row(provider).clear();
                         fEntryIds.column(provider).clear();
                     });
                 } else {
                     for (TimeGraphEntry entry : entryList) {
                         if (entry instanceof TraceEntry) {
+                            TimeGraphFetchCoordinator.getInstance().invalidate(((TraceEntry) entry).getProvider());
                             fEntries.row(((TraceEntry) entry).getProvider()).clear();
                         }
                     }
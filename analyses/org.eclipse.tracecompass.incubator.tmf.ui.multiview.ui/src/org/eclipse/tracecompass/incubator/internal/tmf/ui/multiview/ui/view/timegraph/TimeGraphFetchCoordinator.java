@@ -0,0 +1,592 @@
+/**********************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.tmf.ui.multiview.ui.view.timegraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.tmf.core.dataprovider.DataProviderParameterUtils;
+import org.eclipse.tracecompass.tmf.core.model.CommonStatusMessage;
+import org.eclipse.tracecompass.tmf.core.model.timegraph.ITimeGraphArrow;
+import org.eclipse.tracecompass.tmf.core.model.timegraph.ITimeGraphDataProvider;
+import org.eclipse.tracecompass.tmf.core.model.timegraph.ITimeGraphRowModel;
+import org.eclipse.tracecompass.tmf.core.model.timegraph.ITimeGraphState;
+import org.eclipse.tracecompass.tmf.core.model.timegraph.TimeGraphEntryModel;
+import org.eclipse.tracecompass.tmf.core.model.timegraph.TimeGraphModel;
+import org.eclipse.tracecompass.tmf.core.model.timegraph.TimeGraphRowModel;
+import org.eclipse.tracecompass.tmf.core.model.tree.TmfTreeModel;
+import org.eclipse.tracecompass.tmf.core.response.ITmfResponse;
+import org.eclipse.tracecompass.tmf.core.response.TmfModelResponse;
+
+/**
+ * Fetches the data of the time graph data providers for all the lanes of the
+ * multiviews, so that the lanes showing the same provider share the requests.
+ * <ul>
+ * <li>Identical requests made at the same time by many lanes are sent to the
+ * provider only once.</li>
+ * <li>The completed trees are kept for the lanes built later, for the same
+ * parameters.</li>
+ * <li>The rows are sampled on a grid of fixed steps, a quarter of an octave
+ * apart, and kept by slices of the time axis for each entry and each step, so
+ * that only the newly exposed slices are fetched when the window is moved.</li>
+ * </ul>
+ * The providers are weakly referenced, their cache is released with them, or
+ * when the viewers invalidate it.
+ * <p>
+ * The windows around the visible one are not prefetched: a prefetch costs as
+ * much as a full window for each provider and competes with the requests of
+ * the visible lanes, while panning only fetches the few newly exposed slices.
+ */
+public final class TimeGraphFetchCoordinator {
+
+    /** Number of sampled times in a cached slice of the time axis */
+    private static final int SLICE_SAMPLES = 32;
+    /** Maximum number of slices cached for a provider */
+    private static final int MAX_SLICES = 1024;
+    /** Maximum number of trees cached for a provider */
+    private static final int MAX_TREES = 16;
+    /** Number of sampling levels between two powers of two */
+    private static final int LEVELS_PER_OCTAVE = 4;
+    /** Largest sampling step whose slices fit in a long */
+    private static final long MAX_STEP = (1L << 62) / SLICE_SAMPLES;
+    /** Interval at which a shared request checks the monitor of its lane */
+    private static final long WAIT_INTERVAL_MS = 50;
+
+    private static final String TREE = "tree"; //$NON-NLS-1$
+    private static final String ROWS = "rows"; //$NON-NLS-1$
+    private static final String ARROWS = "arrows"; //$NON-NLS-1$
+
+    private static final TimeGraphFetchCoordinator INSTANCE = new TimeGraphFetchCoordinator();
+
+    private final Map<Object, ProviderCache> fCaches = Collections.synchronizedMap(new WeakHashMap<>());
+    private final Map<RequestKey, CompletableFuture<TmfModelResponse<?>>> fRunningRequests = new ConcurrentHashMap<>();
+    private final AtomicLong fProviderCalls = new AtomicLong();
+    private final AtomicLong fSharedRequests = new AtomicLong();
+    private final AtomicLong fCacheHits = new AtomicLong();
+
+    private TimeGraphFetchCoordinator() {
+        // Singleton
+    }
+
+    /**
+     * Get the instance shared by all the viewers
+     *
+     * @return the coordinator
+     */
+    public static TimeGraphFetchCoordinator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Fetch the tree of a provider, or get the tree completed for another lane
+     * with the same parameters, for the same time range of the trace. The
+     * completed trees are kept until the cache of the provider is invalidated.
+     *
+     * @param <M>
+     *            the type of the entries
+     * @param provider
+     *            the data provider
+     * @param parameters
+     *            the parameters of the query
+     * @param start
+     *            the start time of the trace
+     * @param end
+     *            the end time of the trace, that changes while the trace is
+     *            indexed
+     * @param monitor
+     *            the progress monitor
+     * @return the response of the provider
+     */
+    public <M extends @NonNull TimeGraphEntryModel> TmfModelResponse<TmfTreeModel<M>> fetchTree(ITimeGraphDataProvider<M> provider,
+            Map<@NonNull String, @NonNull Object> parameters, long start, long end, IProgressMonitor monitor) {
+        ProviderCache cache = getCache(provider);
+        TreeKey key = new TreeKey(parameters, start, end);
+        @SuppressWarnings("unchecked")
+        TmfModelResponse<TmfTreeModel<M>> cached = (TmfModelResponse<TmfTreeModel<M>>) cache.getTree(key);
+        if (cached != null) {
+            fCacheHits.incrementAndGet();
+            return cached;
+        }
+        TmfModelResponse<TmfTreeModel<M>> response = share(provider, TREE, parameters, monitor, () -> provider.fetchTree(parameters, monitor));
+        if (response.getStatus() == ITmfResponse.Status.COMPLETED) {
+            cache.putTree(key, response);
+        }
+        return response;
+    }
+
+    /**
+     * Fetch the arrows of a provider, sharing the request with the other lanes
+     *
+     * @param provider
+     *            the data provider
+     * @param parameters
+     *            the parameters of the query
+     * @param monitor
+     *            the progress monitor
+     * @return the response of the provider
+     */
+    public TmfModelResponse<List<ITimeGraphArrow>> fetchArrows(ITimeGraphDataProvider<? extends TimeGraphEntryModel> provider,
+            Map<@NonNull String, @NonNull Object> parameters, IProgressMonitor monitor) {
+        return share(provider, ARROWS, parameters, monitor, () -> provider.fetchArrows(parameters, monitor));
+    }
+
+    /**
+     * Fetch the rows of some entries for a time range. The rows are sampled at
+     * the largest step of the grid not larger than the requested resolution,
+     * so with about 19% more samples than requested at most, and only the slices of
+     * the time axis missing from the cache are requested, the partial slices
+     * at the edges of the range adding at most the samples of two slices. Full
+     * searches are not cached.
+     *
+     * @param provider
+     *            the data provider
+     * @param parameters
+     *            the parameters of the query, as built by the viewer for the
+     *            requested range
+     * @param start
+     *            the start of the range
+     * @param end
+     *            the end of the range
+     * @param resolution
+     *            the resolution of the range
+     * @param monitor
+     *            the progress monitor
+     * @return the rows of the requested entries
+     */
+    public TmfModelResponse<TimeGraphModel> fetchRowModel(ITimeGraphDataProvider<? extends TimeGraphEntryModel> provider,
+            Map<@NonNull String, @NonNull Object> parameters, long start, long end, long resolution, IProgressMonitor monitor) {
+        List<Long> items = DataProviderParameterUtils.extractSelectedItems(parameters);
+        int level = getLevel(resolution);
+        long step = getStep(level);
+        if (items == null || parameters.containsKey(DataProviderParameterUtils.FULL_SEARCH_KEY) || step > MAX_STEP || start > end) {
+            return share(provider, ROWS, parameters, monitor, () -> provider.fetchRowModel(parameters, monitor));
+        }
+
+        long width = step * SLICE_SAMPLES;
+        long firstSlice = Math.floorDiv(start, width);
+        long lastSlice = Math.floorDiv(end, width);
+        Map<@NonNull String, @NonNull Object> filters = new HashMap<>(parameters);
+        filters.remove(DataProviderParameterUtils.REQUESTED_TIME_KEY);
+        filters.remove(DataProviderParameterUtils.REQUESTED_ITEMS_KEY);
+
+        // Find the slices missing for the requested entries
+        ProviderCache cache = getCache(provider);
+        Map<Long, Map<Long, List<ITimeGraphState>>> slices = new HashMap<>();
+        Set<Long> missingSlices = new LinkedHashSet<>();
+        Set<Long> missingItems = new LinkedHashSet<>();
+        for (long slice = firstSlice; slice <= lastSlice; slice++) {
+            Map<Long, List<ITimeGraphState>> rows = cache.getSlice(new SliceKey(filters, level, slice));
+            if (rows != null) {
+                slices.put(slice, rows);
+            }
+            for (Long item : items) {
+                if (rows == null || !rows.containsKey(item)) {
+                    missingSlices.add(slice);
+                    missingItems.add(item);
+                }
+            }
+        }
+
+        if (missingSlices.isEmpty()) {
+            fCacheHits.incrementAndGet();
+        }
+
+        // Fetch the consecutive missing slices together
+        ITmfResponse.Status status = ITmfResponse.Status.COMPLETED;
+        String statusMessage = CommonStatusMessage.COMPLETED;
+        List<Long> runs = new ArrayList<>(missingSlices);
+        int i = 0;
+        while (i < runs.size() && !monitor.isCanceled()) {
+            long runStart = runs.get(i);
+            long runEnd = runStart;
+            while (i + 1 < runs.size() && runs.get(i + 1) == runEnd + 1) {
+                runEnd = runs.get(++i);
+            }
+            i++;
+            TmfModelResponse<TimeGraphModel> response = fetchSlices(provider, filters, missingItems, step, runStart, runEnd, monitor);
+            TimeGraphModel model = response.getModel();
+            if (response.getStatus() != ITmfResponse.Status.COMPLETED) {
+                status = worst(status, response.getStatus());
+                statusMessage = response.getStatusMessage();
+            }
+            if (model == null) {
+                continue;
+            }
+            for (long slice = runStart; slice <= runEnd; slice++) {
+                Map<Long, List<ITimeGraphState>> rows = split(model, missingItems, slice * width, (slice + 1) * width);
+                Map<Long, List<ITimeGraphState>> cachedRows = slices.get(slice);
+                if (cachedRows != null) {
+                    rows.putAll(cachedRows);
+                }
+                slices.put(slice, rows);
+                if (response.getStatus() == ITmfResponse.Status.COMPLETED) {
+                    cache.putSlice(new SliceKey(filters, level, slice), rows);
+                }
+            }
+        }
+        if (monitor.isCanceled()) {
+            return new TmfModelResponse<>(null, ITmfResponse.Status.CANCELLED, CommonStatusMessage.TASK_CANCELLED);
+        }
+
+        // Assemble the rows of the range from the slices
+        List<ITimeGraphRowModel> rows = new ArrayList<>(items.size());
+        for (Long item : items) {
+            List<ITimeGraphState> states = new ArrayList<>();
+            long lastStart = Long.MIN_VALUE;
+            for (long slice = firstSlice; slice <= lastSlice; slice++) {
+                Map<Long, List<ITimeGraphState>> sliceRows = slices.get(slice);
+                List<ITimeGraphState> sliceStates = sliceRows != null ? sliceRows.get(item) : null;
+                if (sliceStates == null) {
+                    continue;
+                }
+                for (ITimeGraphState state : sliceStates) {
+                    // The states crossing slices are in each of them
+                    if ((states.isEmpty() || state.getStartTime() > lastStart) && intersects(state, start, end)) {
+                        states.add(state);
+                        lastStart = state.getStartTime();
+                    }
+                }
+            }
+            rows.add(new TimeGraphRowModel(item, states));
+        }
+        return new TmfModelResponse<>(new TimeGraphModel(rows), status, statusMessage);
+    }
+
+    /**
+     * Invalidate the cached trees and rows of a provider, for instance when
+     * its trace is closed or its data changed
+     *
+     * @param provider
+     *            the data provider
+     */
+    public void invalidate(ITimeGraphDataProvider<? extends TimeGraphEntryModel> provider) {
+        fCaches.remove(provider);
+    }
+
+    /**
+     * Get the number of requests sent to the providers
+     *
+     * @return the number of provider calls
+     */
+    public long getProviderCalls() {
+        return fProviderCalls.get();
+    }
+
+    /**
+     * Get the number of requests answered by a request already running for
+     * another lane
+     *
+     * @return the number of shared requests
+     */
+    public long getSharedRequests() {
+        return fSharedRequests.get();
+    }
+
+    /**
+     * Get the number of tree and row requests answered from the cache only
+     *
+     * @return the number of cache hits
+     */
+    public long getCacheHits() {
+        return fCacheHits.get();
+    }
+
+    /**
+     * Get the sampling level of a resolution, the level of the largest step
+     * of the grid not larger than the resolution
+     */
+    private static int getLevel(long resolution) {
+        long max = Long.max(1, resolution);
+        int level = LEVELS_PER_OCTAVE * (64 - Long.numberOfLeadingZeros(max));
+        while (level > 0 && getStep(level) > max) {
+            level--;
+        }
+        return level;
+    }
+
+    /**
+     * Get the sampling step of a level, the levels are a quarter of an octave
+     * apart so that the step is never much finer than the resolution
+     */
+    private static long getStep(int level) {
+        return Long.max(1, Math.round(Math.pow(2, (double) level / LEVELS_PER_OCTAVE)));
+    }
+
+    private TmfModelResponse<TimeGraphModel> fetchSlices(ITimeGraphDataProvider<? extends TimeGraphEntryModel> provider,
+            Map<@NonNull String, @NonNull Object> filters, Collection<Long> items, long step, long firstSlice, long lastSlice, IProgressMonitor monitor) {
+        long sliceStart = firstSlice * step * SLICE_SAMPLES;
+        int nbTimes = (int) (lastSlice - firstSlice + 1) * SLICE_SAMPLES;
+        List<Long> times = new ArrayList<>(nbTimes);
+        for (int i = 0; i < nbTimes; i++) {
+            times.add(sliceStart + i * step);
+        }
+        Map<@NonNull String, @NonNull Object> parameters = new HashMap<>(filters);
+        parameters.put(DataProviderParameterUtils.REQUESTED_TIME_KEY, times);
+        parameters.put(DataProviderParameterUtils.REQUESTED_ITEMS_KEY, new ArrayList<>(items));
+        return share(provider, ROWS, parameters, monitor, () -> provider.fetchRowModel(parameters, monitor));
+    }
+
+    private static Map<Long, List<ITimeGraphState>> split(TimeGraphModel model, Collection<Long> items, long start, long end) {
+        Map<Long, List<ITimeGraphState>> rows = new HashMap<>();
+        for (Long item : items) {
+            rows.put(item, Collections.emptyList());
+        }
+        for (ITimeGraphRowModel row : model.getRows()) {
+            List<ITimeGraphState> states = new ArrayList<>();
+            for (ITimeGraphState state : row.getStates()) {
+                if (intersects(state, start, end - 1)) {
+                    states.add(state);
+                }
+            }
+            rows.put(row.getEntryID(), states);
+        }
+        return rows;
+    }
+
+    /**
+     * Whether a state intersects a time range, the end of the state being the
+     * start of the next one
+     */
+    private static boolean intersects(ITimeGraphState state, long start, long end) {
+        long stateStart = state.getStartTime();
+        return stateStart <= end && (stateStart >= start || stateStart + state.getDuration() > start);
+    }
+
+    private static ITmfResponse.Status worst(ITmfResponse.Status status, ITmfResponse.Status other) {
+        for (ITmfResponse.Status worst : Arrays.asList(ITmfResponse.Status.CANCELLED, ITmfResponse.Status.FAILED, ITmfResponse.Status.RUNNING)) {
+            if (status == worst || other == worst) {
+                return worst;
+            }
+        }
+        return ITmfResponse.Status.COMPLETED;
+    }
+
+    /**
+     * Send a request to a provider, unless the same request is already running
+     * for another lane, in which case its response is used. The lane stops
+     * waiting for it when its own monitor is cancelled. If the running request
+     * fails or is cancelled by its own lane, this one is sent again.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> TmfModelResponse<T> share(Object provider, String kind, Map<@NonNull String, @NonNull Object> parameters,
+            IProgressMonitor monitor, Supplier<TmfModelResponse<T>> fetch) {
+        RequestKey key = new RequestKey(provider, kind, parameters);
+        CompletableFuture<TmfModelResponse<?>> future = new CompletableFuture<>();
+        CompletableFuture<TmfModelResponse<?>> running = fRunningRequests.putIfAbsent(key, future);
+        if (running != null) {
+            fSharedRequests.incrementAndGet();
+            TmfModelResponse<?> response = null;
+            try {
+                while (response == null && !monitor.isCanceled()) {
+                    try {
+                        response = running.get(WAIT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                    } catch (TimeoutException e) {
+                        // Check the monitor and wait again
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new TmfModelResponse<>(null, ITmfResponse.Status.CANCELLED, CommonStatusMessage.TASK_CANCELLED);
+            } catch (ExecutionException e) {
+                // Failed for the other lane, send it for this one
+            }
+            if (monitor.isCanceled()) {
+                return new TmfModelResponse<>(null, ITmfResponse.Status.CANCELLED, CommonStatusMessage.TASK_CANCELLED);
+            }
+            if (response != null && response.getStatus() != ITmfResponse.Status.CANCELLED) {
+                return (TmfModelResponse<T>) response;
+            }
+            fProviderCalls.incrementAndGet();
+            return fetch.get();
+        }
+        try {
+            fProviderCalls.incrementAndGet();
+            TmfModelResponse<T> response = fetch.get();
+            future.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            fRunningRequests.remove(key, future);
+        }
+    }
+
+    private ProviderCache getCache(Object provider) {
+        synchronized (fCaches) {
+            return fCaches.computeIfAbsent(provider, p -> new ProviderCache());
+        }
+    }
+
+    /**
+     * The trees and the row slices of a provider
+     */
+    private static class ProviderCache {
+        private final Map<TreeKey, TmfModelResponse<?>> fTrees = new LinkedHashMap<TreeKey, TmfModelResponse<?>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TreeKey, TmfModelResponse<?>> eldest) {
+                return size() > MAX_TREES;
+            }
+        };
+        private final Map<SliceKey, Map<Long, List<ITimeGraphState>>> fSlices = new LinkedHashMap<SliceKey, Map<Long, List<ITimeGraphState>>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SliceKey, Map<Long, List<ITimeGraphState>>> eldest) {
+                return size() > MAX_SLICES;
+            }
+        };
+
+        public synchronized @Nullable TmfModelResponse<?> getTree(TreeKey key) {
+            return fTrees.get(key);
+        }
+
+        public synchronized void putTree(TreeKey key, TmfModelResponse<?> response) {
+            fTrees.put(key, response);
+        }
+
+        public synchronized @Nullable Map<Long, List<ITimeGraphState>> getSlice(SliceKey key) {
+            return fSlices.get(key);
+        }
+
+        public synchronized void putSlice(SliceKey key, Map<Long, List<ITimeGraphState>> rows) {
+            Map<Long, List<ITimeGraphState>> previous = fSlices.get(key);
+            if (previous != null) {
+                Map<Long, List<ITimeGraphState>> merged = new HashMap<>(previous);
+                merged.putAll(rows);
+                fSlices.put(key, merged);
+            } else {
+                fSlices.put(key, new HashMap<>(rows));
+            }
+        }
+    }
+
+    /**
+     * The parameters of a tree request and the time range of the trace
+     */
+    private static final class TreeKey {
+        private final Map<String, Object> fParameters;
+        private final long fStart;
+        private final long fEnd;
+
+        public TreeKey(Map<String, Object> parameters, long start, long end) {
+            fParameters = new HashMap<>(parameters);
+            fStart = start;
+            fEnd = end;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fParameters, fStart, fEnd);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof TreeKey)) {
+                return false;
+            }
+            TreeKey other = (TreeKey) obj;
+            return fStart == other.fStart && fEnd == other.fEnd && fParameters.equals(other.fParameters);
+        }
+    }
+
+    /**
+     * A slice of the time axis at a sampling level, for some filters, the
+     * filters being all the parameters of the request except its times and
+     * items
+     */
+    private static final class SliceKey {
+        private final Map<String, Object> fFilters;
+        private final int fLevel;
+        private final long fIndex;
+
+        public SliceKey(Map<String, Object> filters, int level, long index) {
+            fFilters = filters;
+            fLevel = level;
+            fIndex = index;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fFilters, fLevel, fIndex);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof SliceKey)) {
+                return false;
+            }
+            SliceKey other = (SliceKey) obj;
+            return fLevel == other.fLevel && fIndex == other.fIndex && fFilters.equals(other.fFilters);
+        }
+    }
+
+    /**
+     * A request to a provider, the providers are compared by identity
+     */
+    private static final class RequestKey {
+        private final Object fProvider;
+        private final String fKind;
+        private final Map<String, Object> fParameters;
+
+        public RequestKey(Object provider, String kind, Map<String, Object> parameters) {
+            fProvider = provider;
+            fKind = kind;
+            fParameters = new HashMap<>(parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(fProvider), fKind, fParameters);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof RequestKey)) {
+                return false;
+            }
+            RequestKey other = (RequestKey) obj;
+            return fProvider == other.fProvider && fKind.equals(other.fKind) && fParameters.equals(other.fParameters);
+        }
+    }
+}
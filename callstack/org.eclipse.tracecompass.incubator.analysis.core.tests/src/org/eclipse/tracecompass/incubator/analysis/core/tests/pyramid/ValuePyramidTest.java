@@ -0,0 +1,315 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.analysis.core.tests.pyramid;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.eclipse.tracecompass.incubator.analysis.core.pyramid.ValuePyramid;
+import org.eclipse.tracecompass.incubator.analysis.core.pyramid.ValuePyramid.Statistic;
+import org.junit.Test;
+
+/**
+ * Test the {@link ValuePyramid}
+ */
+public class ValuePyramidTest {
+
+    private static final double DELTA = 1e-9;
+
+    /**
+     * Test the buckets of a simple step function
+     */
+    @Test
+    public void testStepFunction() {
+        ValuePyramid.Builder builder = new ValuePyramid.Builder(4);
+        builder.update(1, 0L, 2.0);
+        builder.update(1, 5L, 4.0);
+        builder.update(1, 8L, 0.0);
+        ValuePyramid pyramid = builder.build(15L);
+        assertEquals(0L, pyramid.getStart());
+        assertEquals(16L, pyramid.getEnd());
+        assertEquals(4L, pyramid.getBucketWidth());
+
+        List<Long> times = Arrays.asList(0L, 4L, 8L, 12L);
+        assertArrayEquals(new double[] { 2.0, 2.0, 0.0, 0.0 }, pyramid.getValues(1, times, Statistic.MIN), DELTA);
+        assertArrayEquals(new double[] { 2.0, 4.0, 0.0, 0.0 }, pyramid.getValues(1, times, Statistic.MAX), DELTA);
+        assertArrayEquals(new double[] { 2.0, 3.5, 0.0, 0.0 }, pyramid.getValues(1, times, Statistic.AVERAGE), DELTA);
+
+        // One level up
+        times = Arrays.asList(0L, 8L);
+        assertArrayEquals(new double[] { 2.75, 0.0 }, pyramid.getValues(1, times, Statistic.AVERAGE), DELTA);
+        assertArrayEquals(new double[] { 4.0, 0.0 }, pyramid.getValues(1, times, Statistic.MAX), DELTA);
+
+        // Too fine for the pyramid
+        assertEquals(-1, pyramid.getLevel(Arrays.asList(0L, 1L, 2L)));
+        assertNull(pyramid.getValues(1, Arrays.asList(0L, 1L, 2L), Statistic.AVERAGE));
+
+        // A series that was never updated
+        assertArrayEquals(new double[] { 0.0, 0.0 }, pyramid.getValues(2, times, Statistic.AVERAGE), DELTA);
+    }
+
+    /**
+     * Test random step functions of many series, whose updates are in time
+     * order for each series but not between series, against the values
+     * computed from the step functions
+     */
+    @Test
+    public void testRandomStepFunctions() {
+        Random random = new Random(7);
+        int nbBuckets = 64;
+        ValuePyramid.Builder builder = new ValuePyramid.Builder(nbBuckets);
+        Map<Integer, TreeMap<Long, Double>> steps = new HashMap<>();
+        long end = 0;
+        for (int key = 0; key < 20; key++) {
+            TreeMap<Long, Double> updates = new TreeMap<>();
+            long time = 100000L - key * 5000L + random.nextInt(1000);
+            for (int i = 0; i < 500; i++) {
+                double value = random.nextInt(4) == 0 ? 0.0 : random.nextDouble() * 100;
+                builder.update(key, time, value);
+                updates.put(time, value);
+                end = Math.max(end, time);
+                time += 1 + random.nextInt(2000);
+            }
+            steps.put(key, updates);
+        }
+        ValuePyramid pyramid = builder.build(end);
+        assertEquals(end + 1, pyramid.getEnd());
+        long width = pyramid.getBucketWidth();
+        long start = pyramid.getStart();
+        assertTrue((pyramid.getEnd() - start + width - 1) / width <= nbBuckets);
+
+        for (int level = 0; (width << level) < pyramid.getEnd() - start; level++) {
+            long levelWidth = width << level;
+            List<Long> times = new ArrayList<>();
+            for (long time = start; time < pyramid.getEnd(); time += levelWidth) {
+                times.add(time);
+            }
+            assertEquals(level, pyramid.getLevel(times));
+            for (int key = 0; key < 20; key++) {
+                TreeMap<Long, Double> updates = steps.get(key);
+                double[] min = pyramid.getValues(key, times, Statistic.MIN);
+                double[] max = pyramid.getValues(key, times, Statistic.MAX);
+                double[] avg = pyramid.getValues(key, times, Statistic.AVERAGE);
+                assertNotNull(min);
+                assertNotNull(max);
+                assertNotNull(avg);
+                for (int i = 0; i < times.size(); i++) {
+                    long bucketStart = times.get(i);
+                    long bucketEnd = Math.min(bucketStart + levelWidth, pyramid.getEnd());
+                    double[] expected = getStatistics(updates, bucketStart, bucketEnd);
+                    assertEquals(expected[0], min[i], DELTA);
+                    assertEquals(expected[1], max[i], DELTA);
+                    assertEquals(expected[2], avg[i], 1e-6);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test the average of a few buckets of durations and counts
+     */
+    @Test
+    public void testDurationsAndCounts() {
+        ValuePyramid.Builder builder = new ValuePyramid.Builder(4);
+        builder.addDuration(1, 100L, 102L);
+        builder.addDuration(1, 104L, 110L);
+        builder.addCount(2, 101L);
+        builder.addCount(2, 103L);
+        builder.addCount(2, 112L);
+        ValuePyramid pyramid = builder.build(115L);
+        assertEquals(100L, pyramid.getStart());
+        assertEquals(116L, pyramid.getEnd());
+        assertEquals(4L, pyramid.getBucketWidth());
+
+        List<Long> times = Arrays.asList(100L, 104L, 108L, 112L);
+        assertArrayEquals(new double[] { 0.5, 1.0, 0.5, 0.0 }, pyramid.getValues(1, times, Statistic.AVERAGE), DELTA);
+        assertArrayEquals(new double[] { 0.5, 0.0, 0.0, 0.25 }, pyramid.getValues(2, times, Statistic.AVERAGE), DELTA);
+
+        // One level up
+        times = Arrays.asList(100L, 108L);
+        assertArrayEquals(new double[] { 0.75, 0.25 }, pyramid.getValues(1, times, Statistic.AVERAGE), DELTA);
+
+        // Too fine for the pyramid
+        assertNull(pyramid.getValues(1, Arrays.asList(100L, 101L, 102L), Statistic.AVERAGE));
+    }
+
+    /**
+     * Test a duration added before the start of the pyramid, which moves the
+     * start back
+     */
+    @Test
+    public void testDurationBeforeStart() {
+        ValuePyramid.Builder builder = new ValuePyramid.Builder(4);
+        builder.addDuration(1, 100L, 102L);
+        builder.addDuration(1, 104L, 110L);
+        builder.addDuration(2, 90L, 94L);
+        ValuePyramid pyramid = builder.build(115L);
+        assertEquals(84L, pyramid.getStart());
+        assertEquals(116L, pyramid.getEnd());
+        assertEquals(8L, pyramid.getBucketWidth());
+
+        List<Long> times = Arrays.asList(84L, 92L, 100L, 108L);
+        assertArrayEquals(new double[] { 0.0, 0.0, 0.75, 0.25 }, pyramid.getValues(1, times, Statistic.AVERAGE), DELTA);
+        assertArrayEquals(new double[] { 0.25, 0.25, 0.0, 0.0 }, pyramid.getValues(2, times, Statistic.AVERAGE), DELTA);
+    }
+
+    /**
+     * Test series written in a few buckets only, while the time range of the
+     * pyramid grows forwards and backwards
+     */
+    @Test
+    public void testSparseSeries() {
+        ValuePyramid.Builder builder = new ValuePyramid.Builder(8);
+        builder.addCount(1, 16L);
+        builder.addCount(1, 17L);
+        for (long time = 16; time < 64; time += 4) {
+            builder.addDuration(2, time, time + 2);
+        }
+        builder.addDuration(3, 0L, 4L);
+        ValuePyramid pyramid = builder.build(63L);
+        assertEquals(0L, pyramid.getStart());
+        assertEquals(64L, pyramid.getEnd());
+        assertEquals(8L, pyramid.getBucketWidth());
+
+        List<Long> times = Arrays.asList(0L, 8L, 16L, 24L, 32L, 40L, 48L, 56L);
+        assertArrayEquals(new double[] { 0.0, 0.0, 0.25, 0.0, 0.0, 0.0, 0.0, 0.0 }, pyramid.getValues(1, times, Statistic.AVERAGE), DELTA);
+        assertArrayEquals(new double[] { 0.0, 0.0, 0.5, 0.5, 0.5, 0.5, 0.5, 0.5 }, pyramid.getValues(2, times, Statistic.AVERAGE), DELTA);
+        assertArrayEquals(new double[] { 0.5, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0 }, pyramid.getValues(3, times, Statistic.AVERAGE), DELTA);
+    }
+
+    /**
+     * Test random durations and counts, added in random order, against the
+     * time and counts computed from them
+     */
+    @Test
+    public void testRandomDurationsAndCounts() {
+        Random random = new Random(11);
+        int nbBuckets = 64;
+        ValuePyramid.Builder builder = new ValuePyramid.Builder(nbBuckets);
+        List<long[]> periods = new ArrayList<>();
+        long time = 0;
+        for (int i = 0; i < 2000; i++) {
+            long start = time + random.nextInt(500);
+            long end = start + 1 + random.nextInt(3000);
+            periods.add(new long[] { start, end });
+            time = end;
+        }
+        Collections.shuffle(periods, random);
+        for (long[] period : periods) {
+            builder.addDuration(0, period[0], period[1]);
+            builder.addCount(1, period[0]);
+        }
+        ValuePyramid pyramid = builder.build(time);
+        long width = pyramid.getBucketWidth();
+        long start = pyramid.getStart();
+        assertTrue((pyramid.getEnd() - start + width - 1) / width <= nbBuckets);
+
+        for (int level = 0; (width << level) < pyramid.getEnd() - start; level++) {
+            long levelWidth = width << level;
+            List<Long> times = new ArrayList<>();
+            for (long t = start; t < pyramid.getEnd(); t += levelWidth) {
+                times.add(t);
+            }
+            assertEquals(level, pyramid.getLevel(times));
+            double[] busy = pyramid.getValues(0, times, Statistic.AVERAGE);
+            double[] calls = pyramid.getValues(1, times, Statistic.AVERAGE);
+            assertNotNull(busy);
+            assertNotNull(calls);
+            for (int i = 0; i < times.size(); i++) {
+                long bucketStart = times.get(i);
+                long bucketEnd = Math.min(bucketStart + levelWidth, pyramid.getEnd());
+                long busyTime = 0;
+                long nbCalls = 0;
+                for (long[] period : periods) {
+                    busyTime += Math.max(0, Math.min(period[1], bucketEnd) - Math.max(period[0], bucketStart));
+                    if (bucketStart <= period[0] && period[0] < bucketEnd) {
+                        nbCalls++;
+                    }
+                }
+                assertEquals((double) busyTime / (bucketEnd - bucketStart), busy[i], DELTA);
+                assertEquals((double) nbCalls / (bucketEnd - bucketStart), calls[i], DELTA);
+            }
+        }
+    }
+
+    /**
+     * Test saving and reading a pyramid
+     *
+     * @throws IOException
+     *             if the temporary file cannot be used
+     */
+    @Test
+    public void testReadWrite() throws IOException {
+        ValuePyramid.Builder builder = new ValuePyramid.Builder(16);
+        for (int i = 0; i < 100; i++) {
+            builder.update(i % 3, i * 10L, i % 7);
+            builder.addDuration(3, i * 10L, i * 10L + 5);
+            builder.addCount(4, i * 10L);
+        }
+        ValuePyramid pyramid = builder.build(1000L);
+        File file = File.createTempFile("pyramid", ".pyramid"); //$NON-NLS-1$ //$NON-NLS-2$
+        try {
+            pyramid.write(file);
+            ValuePyramid read = ValuePyramid.read(file);
+            assertEquals(pyramid.getStart(), read.getStart());
+            assertEquals(pyramid.getEnd(), read.getEnd());
+            assertEquals(pyramid.getBucketWidth(), read.getBucketWidth());
+            List<Long> times = new ArrayList<>();
+            for (long time = 0; time < 1000L; time += 128) {
+                times.add(time);
+            }
+            for (int key = 0; key < 5; key++) {
+                for (Statistic statistic : Statistic.values()) {
+                    assertArrayEquals(pyramid.getValues(key, times, statistic), read.getValues(key, times, statistic), 0.0);
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Compute the minimum, maximum and average of a step function in a time
+     * range, the function being 0 before its first update
+     */
+    private static double[] getStatistics(TreeMap<Long, Double> updates, long start, long end) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum = 0;
+        long time = start;
+        while (time < end) {
+            Map.Entry<Long, Double> current = updates.floorEntry(time);
+            double value = current == null ? 0.0 : current.getValue();
+            Long next = updates.higherKey(time);
+            long stepEnd = next == null ? end : Math.min(next, end);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value * (stepEnd - time);
+            time = stepEnd;
+        }
+        return new double[] { min, max, sum / (end - start) };
+    }
+}
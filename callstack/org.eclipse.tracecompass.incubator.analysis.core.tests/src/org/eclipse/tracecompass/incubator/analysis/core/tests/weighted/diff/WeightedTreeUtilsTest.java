@@ -135,6 +135,39 @@ public class WeightedTreeUtilsTest {
 
     }
 
+    /**
+     * Test the
+     * {@link WeightedTreeUtils#diffTrees(Collection, Collection, String, double)}
+     * method, that only keeps the nodes above a difference threshold
+     */
+    @Test
+    public void testDiffTreeThreshold() {
+        List<WeightedTree<Integer>> tree1 = fTree1;
+        List<WeightedTree<Integer>> tree2 = fTree2;
+        assertNotNull(tree1);
+        assertNotNull(tree2);
+
+        // All nodes of the first element have a difference below the threshold
+        Collection<DifferentialWeightedTree<Integer>> diffTrees = WeightedTreeUtils.diffTrees(tree1, tree2, null, 0.5);
+        assertEquals("Size of differential tree", 1, diffTrees.size());
+        Collection<DifferentialWeightedTree<Integer>> nextTree = getAndVerifyTree(diffTrees, VALUE2, 20, 1.0);
+        assertEquals("Size of differential tree level 2", 2, nextTree.size());
+        getAndVerifyTree(nextTree, VALUE4, 10, 1.0);
+        nextTree = getAndVerifyTree(nextTree, VALUE5, 10, 1.0);
+        assertEquals("Size of diferential tree level 3", 1, nextTree.size());
+        getAndVerifyTree(nextTree, VALUE3, 5, Double.NaN);
+
+        // The first element is kept for its child above the threshold
+        diffTrees = WeightedTreeUtils.diffTrees(tree1, tree2, null, 0.1);
+        assertEquals("Size of differential tree", 2, diffTrees.size());
+        nextTree = getAndVerifyTree(diffTrees, VALUE1, 10, 0);
+        assertEquals("Size of differential tree level 2", 1, nextTree.size());
+        getAndVerifyTree(nextTree, VALUE2, 3, -0.25);
+
+        // A negative infinity threshold keeps all the nodes
+        verifyDiffTrees12(WeightedTreeUtils.diffTrees(tree1, tree2, null, Double.NEGATIVE_INFINITY));
+    }
+
     /**
      * Test the
      * {@link WeightedTreeUtils#diffTreeSets(IWeightedTreeProvider, IWeightedTreeSet, IWeightedTreeSet)}
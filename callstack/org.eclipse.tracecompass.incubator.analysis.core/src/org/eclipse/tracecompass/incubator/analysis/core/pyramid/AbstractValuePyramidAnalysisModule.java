@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.analysis.core.pyramid;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.incubator.internal.analysis.core.Activator;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.tmf.core.statesystem.TmfStateSystemAnalysisModule;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
+
+/**
+ * State system analysis module whose state provider records a
+ * {@link ValuePyramid} while the state system is built. The pyramid is saved
+ * in the supplementary files next to the state system, and read back when the
+ * state system is opened from its file.
+ */
+public abstract class AbstractValuePyramidAnalysisModule extends TmfStateSystemAnalysisModule {
+
+    /** Suffix of the supplementary file of the value pyramid */
+    private static final String PYRAMID_SUFFIX = ".pyramid"; //$NON-NLS-1$
+
+    private @Nullable IValuePyramidProvider fPyramidProvider = null;
+    private @Nullable ValuePyramid fPyramid = null;
+    private boolean fPyramidRead = false;
+
+    /**
+     * Set the state provider whose value pyramid is saved when the state
+     * system is built. To be called from {@link #createStateProvider()} by
+     * the analyses that record a pyramid.
+     *
+     * @param <T>
+     *            the type of the state provider
+     * @param provider
+     *            the state provider created for this analysis
+     * @return the state provider
+     */
+    protected <T extends IValuePyramidProvider> T recordPyramid(T provider) {
+        fPyramidProvider = provider;
+        return provider;
+    }
+
+    @Override
+    protected boolean executeAnalysis(@Nullable IProgressMonitor monitor) {
+        boolean ret = super.executeAnalysis(monitor);
+        IValuePyramidProvider provider = fPyramidProvider;
+        fPyramidProvider = null;
+        ITmfStateSystem ss = getStateSystem();
+        if (!ret || provider == null || ss == null) {
+            return ret;
+        }
+        ss.waitUntilBuilt();
+        ValuePyramid pyramid = provider.getPyramid();
+        File file = getPyramidFile();
+        if (pyramid != null && file != null) {
+            synchronized (this) {
+                fPyramid = pyramid;
+                fPyramidRead = true;
+            }
+            try {
+                pyramid.write(file);
+            } catch (IOException e) {
+                Activator.getInstance().logWarning("Error saving the value pyramid " + file, e); //$NON-NLS-1$
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Get the multi-resolution summary of the values of the state system,
+     * recorded while the state system was built and saved in the
+     * supplementary files
+     *
+     * @return the pyramid, or <code>null</code> if this analysis does not
+     *         record one or if the state system was built before the pyramid
+     *         was saved
+     */
+    public synchronized @Nullable ValuePyramid getPyramid() {
+        if (fPyramidRead) {
+            return fPyramid;
+        }
+        File file = getPyramidFile();
+        if (file == null || !file.exists()) {
+            return null;
+        }
+        fPyramidRead = true;
+        try {
+            fPyramid = ValuePyramid.read(file);
+        } catch (IOException e) {
+            Activator.getInstance().logWarning("Error reading the value pyramid " + file, e); //$NON-NLS-1$
+        }
+        return fPyramid;
+    }
+
+    private @Nullable File getPyramidFile() {
+        ITmfTrace trace = getTrace();
+        if (trace == null) {
+            return null;
+        }
+        return new File(TmfTraceManager.getSupplementaryFileDir(trace) + File.separator + getId() + PYRAMID_SUFFIX);
+    }
+}
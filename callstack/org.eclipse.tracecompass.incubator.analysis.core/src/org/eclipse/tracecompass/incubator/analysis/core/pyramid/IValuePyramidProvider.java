@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.analysis.core.pyramid;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Interface that state providers implement if they record a
+ * {@link ValuePyramid} while the state system is built, so that their analysis
+ * module can save it with the supplementary files.
+ */
+public interface IValuePyramidProvider {
+
+    /**
+     * Get the pyramid recorded while the state system was built
+     *
+     * @return the pyramid, or <code>null</code> if the state system is not
+     *         built yet or if nothing was recorded
+     */
+    @Nullable ValuePyramid getPyramid();
+}
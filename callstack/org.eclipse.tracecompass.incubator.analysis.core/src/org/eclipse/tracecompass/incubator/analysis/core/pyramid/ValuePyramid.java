@@ -0,0 +1,610 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.analysis.core.pyramid;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Multi-resolution summary of numerical series, usually attributes of a state
+ * system. The time range of the analysis is cut in buckets of equal width, and
+ * the minimum, maximum and time-weighted sum of the value of each series is
+ * kept for every bucket. Each level of the pyramid has buckets twice as wide
+ * as the level below, so the values for a given resolution are read from a
+ * number of buckets proportional to the number of requested points, without
+ * querying the state system.
+ *
+ * A series is either a step function, whose value is set by each update until
+ * the next one, or a sum of durations and counts, whose average is the ratio
+ * of the time covered by the durations or the number of counts per
+ * nanosecond.
+ *
+ * The pyramid is recorded with a {@link Builder} while the state provider
+ * runs, and can be saved to and read from a file. Series with no value are
+ * considered to have a value of 0.
+ */
+public class ValuePyramid {
+
+    /** Magic number of the pyramid files, "VPYR" */
+    private static final int MAGIC = 0x56505952;
+    private static final int VERSION = 1;
+
+    /** Default maximal number of buckets of the lowest level */
+    public static final int DEFAULT_NB_BUCKETS = 1024;
+
+    /**
+     * The statistic to read from the buckets
+     */
+    public enum Statistic {
+        /** The minimal value in the bucket */
+        MIN,
+        /** The maximal value in the bucket */
+        MAX,
+        /**
+         * The time-weighted average value in the bucket, or the sum divided by
+         * the duration of the bucket for durations and counts
+         */
+        AVERAGE
+    }
+
+    private final long fOrigin;
+    private final long fWidth;
+    private final int fNbBuckets;
+    private final long fEnd;
+    /** Levels of buckets of each series, by key */
+    private final Map<Integer, Series> fSeries;
+
+    /**
+     * Buckets of a series, from the lowest level to a level of one bucket
+     */
+    private static final class Series {
+        private final double[][] fMin;
+        private final double[][] fMax;
+        private final double[][] fSum;
+
+        public Series(double[] min, double[] max, double[] sum) {
+            int nbLevels = 1;
+            for (int count = min.length; count > 1; count = (count + 1) / 2) {
+                nbLevels++;
+            }
+            fMin = new double[nbLevels][];
+            fMax = new double[nbLevels][];
+            fSum = new double[nbLevels][];
+            fMin[0] = min;
+            fMax[0] = max;
+            fSum[0] = sum;
+            for (int level = 1; level < nbLevels; level++) {
+                double[] lowMin = fMin[level - 1];
+                double[] lowMax = fMax[level - 1];
+                double[] lowSum = fSum[level - 1];
+                int count = (lowMin.length + 1) / 2;
+                double[] levelMin = new double[count];
+                double[] levelMax = new double[count];
+                double[] levelSum = new double[count];
+                for (int i = 0; i < count; i++) {
+                    int left = 2 * i;
+                    int right = Math.min(left + 1, lowMin.length - 1);
+                    levelMin[i] = Math.min(lowMin[left], lowMin[right]);
+                    levelMax[i] = Math.max(lowMax[left], lowMax[right]);
+                    levelSum[i] = right == left ? lowSum[left] : lowSum[left] + lowSum[right];
+                }
+                fMin[level] = levelMin;
+                fMax[level] = levelMax;
+                fSum[level] = levelSum;
+            }
+        }
+    }
+
+    private ValuePyramid(long origin, long width, int nbBuckets, long end, Map<Integer, double[][]> buckets) {
+        fOrigin = origin;
+        fWidth = width;
+        fNbBuckets = nbBuckets;
+        fEnd = end;
+        fSeries = new HashMap<>();
+        for (Entry<Integer, double[][]> entry : buckets.entrySet()) {
+            double[][] series = entry.getValue();
+            fSeries.put(entry.getKey(), new Series(series[0], series[1], series[2]));
+        }
+    }
+
+    /**
+     * Get the start of the time range of the pyramid
+     *
+     * @return the start time
+     */
+    public long getStart() {
+        return fOrigin;
+    }
+
+    /**
+     * Get the end of the time range of the pyramid, exclusive
+     *
+     * @return the end time
+     */
+    public long getEnd() {
+        return fEnd;
+    }
+
+    /**
+     * Get the width of the buckets of the lowest level
+     *
+     * @return the width of the buckets, in nanoseconds
+     */
+    public long getBucketWidth() {
+        return fWidth;
+    }
+
+    /**
+     * Get the level of the pyramid to read for the requested times, which is
+     * the level with the widest buckets that are not wider than the spacing
+     * between the times
+     *
+     * @param times
+     *            the requested times
+     * @return the level to read, or -1 if the lowest level is too coarse for
+     *         these times and the state system should be queried instead
+     */
+    public int getLevel(List<Long> times) {
+        if (fNbBuckets == 0 || times.isEmpty()) {
+            return -1;
+        }
+        if (times.size() == 1) {
+            return 0;
+        }
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (Long time : times) {
+            min = Math.min(min, time);
+            max = Math.max(max, time);
+        }
+        long spacing = (max - min) / (times.size() - 1);
+        if (spacing < fWidth) {
+            return -1;
+        }
+        int level = 0;
+        int count = fNbBuckets;
+        while (count > 1 && (fWidth << (level + 1)) <= spacing) {
+            level++;
+            count = (count + 1) / 2;
+        }
+        return level;
+    }
+
+    /**
+     * Get a statistic of the value of a series at the requested times, read
+     * from the buckets containing these times
+     *
+     * @param key
+     *            the key of the series
+     * @param times
+     *            the requested times
+     * @param statistic
+     *            the statistic to read
+     * @return the values for each time, or <code>null</code> if the pyramid
+     *         is too coarse for these times, see {@link #getLevel(List)}
+     */
+    public double @Nullable [] getValues(int key, List<Long> times, Statistic statistic) {
+        int level = getLevel(times);
+        if (level < 0) {
+            return null;
+        }
+        double[] values = new double[times.size()];
+        Series series = fSeries.get(key);
+        if (series == null) {
+            return values;
+        }
+        long width = fWidth << level;
+        double[] mins = series.fMin[level];
+        double[] maxs = series.fMax[level];
+        double[] sums = series.fSum[level];
+        for (int i = 0; i < values.length; i++) {
+            long time = times.get(i);
+            if (time < fOrigin || time >= fEnd) {
+                continue;
+            }
+            int index = (int) ((time - fOrigin) / width);
+            if (index >= sums.length) {
+                continue;
+            }
+            switch (statistic) {
+            case MIN:
+                values[i] = mins[index];
+                break;
+            case MAX:
+                values[i] = maxs[index];
+                break;
+            case AVERAGE:
+            default:
+                long bucketStart = fOrigin + index * width;
+                long covered = Math.min(bucketStart + width, fEnd) - bucketStart;
+                values[i] = sums[index] / covered;
+                break;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Save the pyramid to a file. Only the lowest level is written, the other
+     * levels are computed again when the file is read.
+     *
+     * @param file
+     *            the file to write
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public void write(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fOrigin);
+            out.writeLong(fWidth);
+            out.writeInt(fNbBuckets);
+            out.writeLong(fEnd);
+            out.writeInt(fSeries.size());
+            for (Entry<Integer, Series> entry : fSeries.entrySet()) {
+                Series series = entry.getValue();
+                out.writeInt(entry.getKey());
+                for (int i = 0; i < fNbBuckets; i++) {
+                    out.writeDouble(series.fMin[0][i]);
+                    out.writeDouble(series.fMax[0][i]);
+                    out.writeDouble(series.fSum[0][i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read a pyramid from a file written by {@link #write(File)}
+     *
+     * @param file
+     *            the file to read
+     * @return the pyramid
+     * @throws IOException
+     *             if the file cannot be read or is not a valid pyramid
+     */
+    public static ValuePyramid read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a valid value pyramid: " + file); //$NON-NLS-1$
+            }
+            long origin = in.readLong();
+            long width = in.readLong();
+            int nbBuckets = in.readInt();
+            long end = in.readLong();
+            int nbSeries = in.readInt();
+            if (width <= 0 || nbBuckets < 0 || nbSeries < 0) {
+                throw new IOException("Invalid header in value pyramid: " + file); //$NON-NLS-1$
+            }
+            Map<Integer, double[][]> buckets = new HashMap<>();
+            for (int i = 0; i < nbSeries; i++) {
+                int key = in.readInt();
+                double[][] series = new double[3][nbBuckets];
+                for (int j = 0; j < nbBuckets; j++) {
+                    series[0][j] = in.readDouble();
+                    series[1][j] = in.readDouble();
+                    series[2][j] = in.readDouble();
+                }
+                buckets.put(key, series);
+            }
+            return new ValuePyramid(origin, width, nbBuckets, end, buckets);
+        }
+    }
+
+    /**
+     * Records the series while the state system is built. A series is either a
+     * step function, where each {@link #update} sets its value until its next
+     * update, or a sum of durations and counts, added with
+     * {@link #addDuration} and {@link #addCount}. The start of the pyramid is
+     * moved back when a series is recorded before it. The width of the
+     * buckets starts at 1 nanosecond and is doubled, merging the buckets two
+     * by two, each time the recorded time range does not fit in the maximal
+     * number of buckets, so the memory used does not depend on the length of
+     * the trace.
+     */
+    public static class Builder {
+
+        private final int fMaxBuckets;
+        private final Map<Integer, Recorder> fRecorders = new HashMap<>();
+        private long fOrigin = Long.MAX_VALUE;
+        private long fWidth = 1;
+        private int fNbBuckets = 0;
+        private long fEnd = Long.MIN_VALUE;
+
+        /**
+         * Series being recorded. The buckets are allocated as they are
+         * written, the buckets after the end of the arrays are empty.
+         */
+        private final class Recorder {
+            private double[] fMin = new double[0];
+            private double[] fMax = new double[0];
+            private double[] fSum = new double[0];
+            private long fLastTime;
+            private double fLastValue = 0.0;
+
+            public Recorder(long time) {
+                // The series had no value since the start of the pyramid
+                fLastTime = fOrigin;
+                addStep(time);
+            }
+
+            /**
+             * Make sure the arrays have at least the number of buckets in
+             * parameter, growing them like an array list up to the maximal
+             * number of buckets
+             */
+            private void ensureCapacity(int nbBuckets) {
+                int length = fMin.length;
+                if (nbBuckets <= length) {
+                    return;
+                }
+                int capacity = Math.min(fMaxBuckets, Math.max(nbBuckets, length + (length >> 1)));
+                fMin = Arrays.copyOf(fMin, capacity);
+                fMax = Arrays.copyOf(fMax, capacity);
+                fSum = Arrays.copyOf(fSum, capacity);
+                Arrays.fill(fMin, length, capacity, Double.POSITIVE_INFINITY);
+                Arrays.fill(fMax, length, capacity, Double.NEGATIVE_INFINITY);
+            }
+
+            public void update(long time, double value) {
+                addStep(Math.max(time, fLastTime));
+                fLastValue = value;
+            }
+
+            /**
+             * Add the last value to the buckets, from the last update to the
+             * time in parameter, exclusively
+             */
+            private void addStep(long time) {
+                long start = fLastTime;
+                double value = fLastValue;
+                fLastTime = time;
+                if (time <= start) {
+                    return;
+                }
+                int first = (int) ((start - fOrigin) / fWidth);
+                int last = (int) ((time - 1 - fOrigin) / fWidth);
+                ensureCapacity(last + 1);
+                for (int i = first; i <= last; i++) {
+                    long bucketStart = fOrigin + i * fWidth;
+                    long overlap = Math.min(time, bucketStart + fWidth) - Math.max(start, bucketStart);
+                    fMin[i] = Math.min(fMin[i], value);
+                    fMax[i] = Math.max(fMax[i], value);
+                    fSum[i] += value * overlap;
+                }
+            }
+
+            /**
+             * Add a duration, split between the buckets it overlaps
+             */
+            public void addDuration(long start, long end) {
+                int first = (int) ((start - fOrigin) / fWidth);
+                int last = (int) ((end - 1 - fOrigin) / fWidth);
+                ensureCapacity(last + 1);
+                for (int i = first; i <= last; i++) {
+                    long bucketStart = fOrigin + i * fWidth;
+                    fSum[i] += Math.min(end, bucketStart + fWidth) - Math.max(start, bucketStart);
+                }
+            }
+
+            public void addCount(long time) {
+                int index = (int) ((time - fOrigin) / fWidth);
+                ensureCapacity(index + 1);
+                fSum[index]++;
+            }
+
+            private void coarsen(int nbBuckets) {
+                // The buckets after the end of the arrays are empty
+                int used = Math.min(nbBuckets, fMin.length);
+                int count = (used + 1) / 2;
+                for (int i = 0; i < count; i++) {
+                    int left = 2 * i;
+                    int right = left + 1;
+                    if (right < used) {
+                        fMin[i] = Math.min(fMin[left], fMin[right]);
+                        fMax[i] = Math.max(fMax[left], fMax[right]);
+                        fSum[i] = fSum[left] + fSum[right];
+                    } else {
+                        fMin[i] = fMin[left];
+                        fMax[i] = fMax[left];
+                        fSum[i] = fSum[left];
+                    }
+                }
+                Arrays.fill(fMin, count, used, Double.POSITIVE_INFINITY);
+                Arrays.fill(fMax, count, used, Double.NEGATIVE_INFINITY);
+                Arrays.fill(fSum, count, used, 0.0);
+            }
+
+            private void prepend(int nbNew, int nbBuckets) {
+                int used = Math.min(nbBuckets, fMin.length);
+                ensureCapacity(nbNew + used);
+                System.arraycopy(fMin, 0, fMin, nbNew, used);
+                System.arraycopy(fMax, 0, fMax, nbNew, used);
+                System.arraycopy(fSum, 0, fSum, nbNew, used);
+                // The series had no value before the previous start
+                Arrays.fill(fMin, 0, nbNew, 0.0);
+                Arrays.fill(fMax, 0, nbNew, 0.0);
+                Arrays.fill(fSum, 0, nbNew, 0.0);
+            }
+
+            public double[][] getBuckets(int nbBuckets) {
+                // The copies are padded with zeros, like the empty buckets
+                double[][] buckets = new double[][] { Arrays.copyOf(fMin, nbBuckets), Arrays.copyOf(fMax, nbBuckets), Arrays.copyOf(fSum, nbBuckets) };
+                for (int i = 0; i < nbBuckets; i++) {
+                    if (buckets[0][i] == Double.POSITIVE_INFINITY) {
+                        buckets[0][i] = 0.0;
+                        buckets[1][i] = 0.0;
+                    }
+                }
+                return buckets;
+            }
+        }
+
+        /**
+         * Constructor, with the default number of buckets
+         */
+        public Builder() {
+            this(DEFAULT_NB_BUCKETS);
+        }
+
+        /**
+         * Constructor
+         *
+         * @param maxBuckets
+         *            the maximal number of buckets of the lowest level, the
+         *            resolution of the pyramid is the duration of the trace
+         *            divided by this number
+         */
+        public Builder(int maxBuckets) {
+            if (maxBuckets < 2) {
+                throw new IllegalArgumentException("At least 2 buckets are needed: " + maxBuckets); //$NON-NLS-1$
+            }
+            fMaxBuckets = maxBuckets;
+        }
+
+        /**
+         * Record a new value of a step series. The updates of a series must be
+         * in time order, but the updates of different series do not need to
+         * be.
+         *
+         * @param key
+         *            the key of the series
+         * @param time
+         *            the time of the update
+         * @param value
+         *            the new value of the series
+         */
+        public void update(int key, long time, double value) {
+            ensureRange(time, time + 1);
+            getRecorder(key, time).update(time, value);
+        }
+
+        /**
+         * Add a duration to a series, like a busy period. The time of the
+         * duration is split between the buckets it overlaps, so the average of
+         * the series is the ratio of the time covered by its durations. The
+         * durations can be added in any order.
+         *
+         * @param key
+         *            the key of the series
+         * @param start
+         *            the start time of the duration
+         * @param end
+         *            the end time of the duration, exclusive
+         */
+        public void addDuration(int key, long start, long end) {
+            if (end <= start) {
+                return;
+            }
+            ensureRange(start, end);
+            getRecorder(key, start).addDuration(start, end);
+        }
+
+        /**
+         * Add a count to a series, like a call. The average of the series is
+         * the number of counts per nanosecond. The counts can be added in any
+         * order.
+         *
+         * @param key
+         *            the key of the series
+         * @param time
+         *            the time of the count
+         */
+        public void addCount(int key, long time) {
+            ensureRange(time, time + 1);
+            getRecorder(key, time).addCount(time);
+        }
+
+        private Recorder getRecorder(int key, long time) {
+            Recorder recorder = fRecorders.get(key);
+            if (recorder == null) {
+                recorder = new Recorder(time);
+                fRecorders.put(key, recorder);
+            }
+            return recorder;
+        }
+
+        /**
+         * Build the pyramid, keeping the last value of each step series until
+         * the end time
+         *
+         * @param end
+         *            the end time of the state system
+         * @return the pyramid
+         */
+        public ValuePyramid build(long end) {
+            if (fRecorders.isEmpty()) {
+                return new ValuePyramid(0L, 1L, 0, 0L, new HashMap<>());
+            }
+            ensureRange(end, end + 1);
+            Map<Integer, double[][]> buckets = new HashMap<>();
+            for (Entry<Integer, Recorder> entry : fRecorders.entrySet()) {
+                Recorder recorder = entry.getValue();
+                recorder.update(fEnd, 0.0);
+                buckets.put(entry.getKey(), recorder.getBuckets(fNbBuckets));
+            }
+            return new ValuePyramid(fOrigin, fWidth, fNbBuckets, fEnd, buckets);
+        }
+
+        /**
+         * Make sure the buckets cover the time range in parameter, moving the
+         * start of the pyramid back or widening the buckets if needed
+         */
+        private void ensureRange(long start, long end) {
+            if (fNbBuckets == 0) {
+                fOrigin = start;
+            }
+            fEnd = Math.max(fEnd, end);
+            if (start < fOrigin) {
+                int nbNew = (int) Math.min(fMaxBuckets, ceilDiv(fOrigin - start, fWidth));
+                while (fNbBuckets + nbNew > fMaxBuckets) {
+                    coarsen();
+                    nbNew = (int) Math.min(fMaxBuckets, ceilDiv(fOrigin - start, fWidth));
+                }
+                for (Recorder recorder : fRecorders.values()) {
+                    recorder.prepend(nbNew, fNbBuckets);
+                }
+                fOrigin -= nbNew * fWidth;
+                fNbBuckets += nbNew;
+            }
+            while (ceilDiv(fEnd - fOrigin, fWidth) > fMaxBuckets) {
+                coarsen();
+            }
+            fNbBuckets = (int) Math.max(fNbBuckets, ceilDiv(fEnd - fOrigin, fWidth));
+        }
+
+        private void coarsen() {
+            for (Recorder recorder : fRecorders.values()) {
+                recorder.coarsen(fNbBuckets);
+            }
+            fNbBuckets = (fNbBuckets + 1) / 2;
+            fWidth *= 2;
+        }
+
+        private static long ceilDiv(long dividend, long divisor) {
+            return (dividend + divisor - 1) / divisor;
+        }
+    }
+}
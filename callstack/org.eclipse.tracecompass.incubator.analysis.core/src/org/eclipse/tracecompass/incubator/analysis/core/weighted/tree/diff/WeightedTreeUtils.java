@@ -14,7 +14,9 @@ package org.eclipse.tracecompass.incubator.analysis.core.weighted.tree.diff;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
@@ -56,50 +58,84 @@ public final class WeightedTreeUtils {
      * @return The differential weighted tree
      */
     public static <@NonNull T> Collection<DifferentialWeightedTree<T>> diffTrees(Collection<WeightedTree<T>> first, Collection<WeightedTree<T>> second, @Nullable String statisticType) {
+        return diffTrees(first, second, statisticType, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Does the differential between 2 weighted trees, like
+     * {@link #diffTrees(Collection, Collection, String)}, but only keeps the
+     * nodes whose difference is significant.
+     *
+     * A node is kept if the absolute value of its differential value is above
+     * the threshold, if it did not exist in the first tree, or if one of its
+     * descendants is kept. The trees are differentiated in a single depth-first
+     * pass and the differential nodes are only created for the nodes that are
+     * kept, so the memory used depends on the size of the result.
+     *
+     * @param <T>
+     *            The type of element in the tree
+     * @param first
+     *            The tree that will be differentiated.
+     * @param second
+     *            The tree to use as the base
+     * @param statisticType
+     *            Determines the statistic (duration or self time) that the
+     *            flame graph will represent
+     * @param threshold
+     *            The minimal absolute relative difference for a node to be
+     *            kept. {@link Double#NEGATIVE_INFINITY} keeps all nodes
+     * @return The differential weighted tree
+     */
+    public static <@NonNull T> Collection<DifferentialWeightedTree<T>> diffTrees(Collection<WeightedTree<T>> first, Collection<WeightedTree<T>> second, @Nullable String statisticType, double threshold) {
+        // Index the first collection by object, keeping the first tree of each object
+        Map<T, WeightedTree<T>> firstByObject = new HashMap<>();
+        for (WeightedTree<T> tree : first) {
+            firstByObject.putIfAbsent(tree.getObject(), tree);
+        }
         List<DifferentialWeightedTree<T>> diffTrees = new ArrayList<>();
         for (WeightedTree<T> base : second) {
             T object = base.getObject();
             // Find the equivalent tree in the first collection
-            WeightedTree<T> other = findObject(first, object);
-            DifferentialWeightedTree<@NonNull T> diffTree = calculateDiffTree(object, base, other, statisticType);
-            diffTrees.add(diffTree);
-
-            // Make the differential of the children
-            for (DifferentialWeightedTree<T> childTree : diffTrees(other == null ? Collections.<WeightedTree<T>> emptyList() : other.getChildren(), base.getChildren(), null)) {
+            WeightedTree<T> other = firstByObject.get(object);
+            // Make the differential of the children first, to know if this node is needed
+            Collection<DifferentialWeightedTree<T>> children = diffTrees(other == null ? Collections.<WeightedTree<T>> emptyList() : other.getChildren(), base.getChildren(), null, threshold);
+            double diffWeight = calculateDifference(base, other, statisticType);
+            if (children.isEmpty() && !isAboveThreshold(diffWeight, threshold)) {
+                continue;
+            }
+            DifferentialWeightedTree<@NonNull T> diffTree = new DifferentialWeightedTree<>(base, object, base.getWeight(), diffWeight);
+            for (DifferentialWeightedTree<T> childTree : children) {
                 diffTree.addChild(childTree);
             }
+            diffTrees.add(diffTree);
         }
         return diffTrees;
     }
 
-    private static <T> DifferentialWeightedTree<@NonNull T> calculateDiffTree(@NonNull T object, WeightedTree<@NonNull T> base, @Nullable WeightedTree<@NonNull T> other, @Nullable String statisticType) {
-        double diffWeight;
+    private static boolean isAboveThreshold(double diffWeight, double threshold) {
+        // A NaN difference means the object is new, it is always significant
+        return Double.isNaN(diffWeight) || Math.abs(diffWeight) > threshold;
+    }
+
+    private static <T> double calculateDifference(WeightedTree<@NonNull T> base, @Nullable WeightedTree<@NonNull T> other, @Nullable String statisticType) {
         double nullDiff = Double.NaN;
-        DifferentialWeightedTree<@NonNull T> diffTree;
         if (statisticType == null) {
-            diffWeight = other == null ? nullDiff : (double) (base.getWeight() - other.getWeight()) / other.getWeight();
-            diffTree = new DifferentialWeightedTree<>(base, object, base.getWeight(), diffWeight);
-
+            return other == null ? nullDiff : (double) (base.getWeight() - other.getWeight()) / other.getWeight();
+        }
+        long baseWeight = 0;
+        long otherWeight = 0;
+        if (base instanceof AggregatedCalledFunction) {
+            long[] weightsArray = calculateWeights(base, other, statisticType);
+            baseWeight = weightsArray[0];
+            otherWeight = weightsArray[1];
         } else {
-            long baseWeight = 0;
-            long otherWeight = 0;
-            if (base instanceof AggregatedCalledFunction) {
-                long[] weightsArray = calculateWeights(base, other, statisticType);
-                baseWeight = weightsArray[0];
-                otherWeight = weightsArray[1];
-            } else {
-                baseWeight = base.getWeight();
-                otherWeight = other == null ? 0 : other.getWeight();
-            }
-            if (other == null || otherWeight == 0) {
-                diffWeight = nullDiff;
-            } else {
-                diffWeight = (double) (baseWeight - otherWeight) / otherWeight;
-            }
-            diffTree = new DifferentialWeightedTree<>(base, object, base.getWeight(), diffWeight);
-
+            baseWeight = base.getWeight();
+            otherWeight = other == null ? 0 : other.getWeight();
+        }
+        if (other == null || otherWeight == 0) {
+            return nullDiff;
         }
-        return diffTree;
+        return (double) (baseWeight - otherWeight) / otherWeight;
     }
 
     private static <T> long[] calculateWeights(WeightedTree<@NonNull T> base, @Nullable WeightedTree<@NonNull T> other, String statisticType) {
@@ -257,13 +293,4 @@ public final class WeightedTreeUtils {
         return pairedElements;
     }
 
-    private static @Nullable <@NonNull T> WeightedTree<T> findObject(Collection<WeightedTree<T>> tree, @NonNull T object) {
-        for (WeightedTree<T> other : tree) {
-            if (other.getObject().equals(object)) {
-                return other;
-            }
-        }
-        return null;
-    }
-
 }
@@ -12,6 +12,7 @@
 package org.eclipse.tracecompass.incubator.scripting.core.tests.analysis;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -21,6 +22,7 @@ import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.incubator.internal.scripting.core.trace.ScriptPartitionedEventRequest;
 import org.eclipse.tracecompass.incubator.scripting.core.analysis.AnalysisScriptingModule;
 import org.eclipse.tracecompass.incubator.scripting.core.analysis.ScriptedAnalysis;
 import org.eclipse.tracecompass.incubator.scripting.core.tests.stubs.ScriptingTestUtils;
@@ -107,6 +109,106 @@ public class AnalysisModuleTest {
         }
     }
 
+    /**
+     * Test getting events in batches from the event iterator
+     */
+    @Test
+    public void testEventIteratorBatch() {
+        AnalysisScriptingModule scriptModule = new AnalysisScriptingModule();
+
+        ITmfTrace trace = ScriptingTestUtils.getTrace();
+        try {
+            ScriptedAnalysis analysis = scriptModule.createScriptedAnalysis(trace, ANALYSIS_NAME);
+            assertNotNull(analysis);
+
+            ScriptEventsIterator eventIterator = analysis.getEventIterator();
+            assertNotNull(eventIterator);
+            eventIterator.addEvent("entry");
+
+            int count = 0;
+            ITmfEvent[] batch = eventIterator.nextBatch(5);
+            while (batch.length > 0) {
+                assertTrue(batch.length <= 5);
+                for (ITmfEvent event : batch) {
+                    assertEquals("entry", event.getName());
+                }
+                count += batch.length;
+                batch = eventIterator.nextBatch(5);
+            }
+            assertEquals(18, count);
+            assertFalse(eventIterator.hasNext());
+
+        } finally {
+            trace.dispose();
+        }
+    }
+
+    /**
+     * Test the event iterator with a time range and an events filter
+     */
+    @Test
+    public void testEventIteratorWithTimeRange() {
+        AnalysisScriptingModule scriptModule = new AnalysisScriptingModule();
+
+        ITmfTrace trace = ScriptingTestUtils.getTrace();
+        try {
+            ScriptedAnalysis analysis = scriptModule.createScriptedAnalysis(trace, ANALYSIS_NAME);
+            assertNotNull(analysis);
+
+            ScriptEventsIterator eventIterator = analysis.getEventIterator();
+            assertNotNull(eventIterator);
+            eventIterator.setTimeRange(1, 5);
+
+            int count = 0;
+            while (eventIterator.hasNext()) {
+                eventIterator.next();
+                count++;
+            }
+            assertEquals(11, count);
+
+            eventIterator = analysis.getEventIterator();
+            eventIterator.setTimeRange(1, 5);
+            eventIterator.addEvent("entry");
+            count = 0;
+            while (eventIterator.hasNext()) {
+                eventIterator.next();
+                count++;
+            }
+            assertEquals(10, count);
+
+        } finally {
+            trace.dispose();
+        }
+    }
+
+    /**
+     * Test that the partitioned event request sends each event to exactly one
+     * partition, according to its key
+     */
+    @Test
+    public void testPartitionedEventRequest() {
+        ITmfTrace trace = ScriptingTestUtils.getTrace();
+        try {
+            int nbPartitions = 2;
+            ScriptPartitionedEventRequest request = new ScriptPartitionedEventRequest(nbPartitions, ITmfEvent::getName);
+            trace.sendRequest(request);
+
+            int count = 0;
+            for (int i = 0; i < nbPartitions; i++) {
+                ScriptEventsIterator eventIterator = request.getEventIterator(i);
+                while (eventIterator.hasNext()) {
+                    ITmfEvent event = eventIterator.next();
+                    assertEquals(i, Math.floorMod(event.getName().hashCode(), nbPartitions));
+                    count++;
+                }
+            }
+            // Make sure all the events of the trace were routed
+            assertEquals(36, count);
+
+        } finally {
+            trace.dispose();
+        }
+    }
 
     /**
      * Test the
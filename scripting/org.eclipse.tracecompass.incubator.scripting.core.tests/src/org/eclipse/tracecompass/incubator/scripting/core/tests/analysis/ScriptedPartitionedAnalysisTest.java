@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.scripting.core.tests.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.incubator.scripting.core.analysis.AnalysisScriptingModule;
+import org.eclipse.tracecompass.incubator.scripting.core.analysis.ScriptedAnalysis;
+import org.eclipse.tracecompass.incubator.scripting.core.analysis.ScriptedPartitionedAnalysis;
+import org.eclipse.tracecompass.incubator.scripting.core.tests.stubs.ScriptingTestUtils;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.StateSystemUtils.QuarkIterator;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.junit.rules.Timeout;
+
+/**
+ * Test the {@link ScriptedPartitionedAnalysis}: the merged state system of the
+ * partitions is compared with the one of a sequential analysis
+ */
+public class ScriptedPartitionedAnalysisTest {
+
+    private static final @NonNull String SEQUENTIAL_NAME = "sequentialTest";
+    private static final @NonNull String PARTITIONED_NAME = "partitionedTest";
+    private static final String TID_FIELD = "tid";
+    private static final String OP_FIELD = "op";
+    private static final String THREADS = "Threads";
+
+    /** Time-out tests after 1 minute. */
+    @Rule
+    public TestRule globalTimeout = new Timeout(1, TimeUnit.MINUTES);
+
+    /**
+     * Process the events the same way in the sequential analysis and in each
+     * partition: the call depth and the last function entered of each thread
+     */
+    private static boolean processEvents(Iterator<ITmfEvent> iterator, ITmfStateSystemBuilder ss) {
+        while (iterator.hasNext()) {
+            ITmfEvent event = iterator.next();
+            String tid = event.getContent().getFieldValue(String.class, TID_FIELD);
+            if (tid == null) {
+                continue;
+            }
+            long time = event.getTimestamp().toNanos();
+            int depthQuark = ss.getQuarkAbsoluteAndAdd(THREADS, tid, "depth");
+            Object depth = ss.queryOngoing(depthQuark);
+            int current = (depth instanceof Integer) ? (Integer) depth : 0;
+            if (event.getName().equals("entry")) {
+                ss.modifyAttribute(time, current + 1, depthQuark);
+                ss.modifyAttribute(time, event.getContent().getFieldValue(String.class, OP_FIELD), ss.getQuarkAbsoluteAndAdd(THREADS, tid, OP_FIELD));
+            } else {
+                ss.modifyAttribute(time, current > 1 ? current - 1 : null, depthQuark);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Test that the state system merged from the partitions is the same as the
+     * one built by reading the events sequentially
+     */
+    @Test
+    public void testPartitionedSameAsSequential() {
+        AnalysisScriptingModule scriptModule = new AnalysisScriptingModule();
+        ITmfTrace trace = ScriptingTestUtils.getTrace();
+        try {
+            ScriptedAnalysis sequential = scriptModule.createScriptedAnalysis(trace, SEQUENTIAL_NAME);
+            ITmfStateSystemBuilder expected = sequential.getStateSystem(false);
+            assertNotNull(expected);
+            assertTrue(processEvents(sequential.getEventIterator(), expected));
+            sequential.complete();
+
+            ScriptedPartitionedAnalysis partitioned = scriptModule.createPartitionedAnalysis(trace, PARTITIONED_NAME, TID_FIELD, 3);
+            AtomicInteger nbEvents = new AtomicInteger();
+            assertTrue(partitioned.runPartitions(partition -> {
+                Iterator<ITmfEvent> iterator = partition.getEventIterator();
+                Iterator<ITmfEvent> counting = new Iterator<ITmfEvent>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public ITmfEvent next() {
+                        nbEvents.incrementAndGet();
+                        return iterator.next();
+                    }
+                };
+                return processEvents(counting, partition.getStateSystem());
+            }));
+            assertTrue(partitioned.isComplete());
+            assertEquals(36, nbEvents.get());
+
+            ITmfStateSystemBuilder actual = partitioned.getStateSystem(true);
+            assertNotNull(actual);
+            assertSameStateSystems(expected, actual);
+        } finally {
+            trace.dispose();
+        }
+    }
+
+    /**
+     * Test that the merge fails when many partitions write to the same
+     * attribute, instead of overwriting the state of one another
+     */
+    @Test
+    public void testPartitionsWriteSameAttribute() {
+        AnalysisScriptingModule scriptModule = new AnalysisScriptingModule();
+        ITmfTrace trace = ScriptingTestUtils.getTrace();
+        try {
+            ScriptedPartitionedAnalysis partitioned = scriptModule.createPartitionedAnalysis(trace, PARTITIONED_NAME, TID_FIELD, 2);
+            // The number of partitions is capped by the number of processors
+            assumeTrue(partitioned.getNbPartitions() == 2);
+            assertFalse(partitioned.runPartitions(partition -> {
+                ITmfStateSystemBuilder ss = partition.getStateSystem();
+                ss.modifyAttribute(trace.getStartTime().toNanos(), partition.getPartition(), ss.getQuarkAbsoluteAndAdd("Shared"));
+                return processEvents(partition.getEventIterator(), ss);
+            }));
+        } finally {
+            trace.dispose();
+        }
+    }
+
+    /**
+     * Test that a partition that stops before reading all its events does not
+     * block the other partitions, nor itself once it is closed
+     */
+    @Test
+    public void testPartitionStopsEarly() {
+        AnalysisScriptingModule scriptModule = new AnalysisScriptingModule();
+        ITmfTrace trace = ScriptingTestUtils.getTrace();
+        try {
+            ScriptedPartitionedAnalysis partitioned = scriptModule.createPartitionedAnalysis(trace, PARTITIONED_NAME, TID_FIELD, 3);
+            assertTrue(partitioned.runPartitions(partition -> {
+                Iterator<ITmfEvent> iterator = partition.getEventIterator();
+                if (partition.getPartition() == 0) {
+                    // Read a single event, the others stay in the queue
+                    if (iterator.hasNext()) {
+                        iterator.next();
+                    }
+                    return true;
+                }
+                return processEvents(iterator, partition.getStateSystem());
+            }));
+            assertTrue(partitioned.isComplete());
+        } finally {
+            trace.dispose();
+        }
+    }
+
+    private static void assertSameStateSystems(ITmfStateSystem expected, ITmfStateSystem actual) {
+        assertEquals(expected.getNbAttributes(), actual.getNbAttributes());
+        assertEquals(expected.getStartTime(), actual.getStartTime());
+        assertEquals(expected.getCurrentEndTime(), actual.getCurrentEndTime());
+        for (int quark = 0; quark < expected.getNbAttributes(); quark++) {
+            String[] path = expected.getFullAttributePathArray(quark);
+            int actualQuark = actual.optQuarkAbsolute(path);
+            assertNotEquals(ITmfStateSystem.INVALID_ATTRIBUTE, actualQuark);
+            Iterator<ITmfStateInterval> expectedIntervals = new QuarkIterator(expected, quark, expected.getStartTime(), expected.getCurrentEndTime());
+            Iterator<ITmfStateInterval> actualIntervals = new QuarkIterator(actual, actualQuark, expected.getStartTime(), expected.getCurrentEndTime());
+            while (expectedIntervals.hasNext()) {
+                assertTrue(actualIntervals.hasNext());
+                ITmfStateInterval expectedInterval = expectedIntervals.next();
+                ITmfStateInterval actualInterval = actualIntervals.next();
+                assertEquals(expectedInterval.getStartTime(), actualInterval.getStartTime());
+                assertEquals(expectedInterval.getEndTime(), actualInterval.getEndTime());
+                assertEquals(expectedInterval.getValue(), actualInterval.getValue());
+            }
+            assertFalse(actualIntervals.hasNext());
+        }
+    }
+}
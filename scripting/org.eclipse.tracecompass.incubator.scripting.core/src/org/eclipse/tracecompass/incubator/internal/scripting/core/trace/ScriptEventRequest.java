@@ -11,6 +11,8 @@
 
 package org.eclipse.tracecompass.incubator.internal.scripting.core.trace;
 
+import java.util.Set;
+
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.tracecompass.common.core.collect.BufferedBlockingQueue;
 import org.eclipse.tracecompass.incubator.scripting.core.trace.ScriptEventsIterator;
@@ -28,6 +30,10 @@ import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
  * events. Callers need to explicitly send the request to a trace or experiment,
  * using {@link ITmfTrace#sendRequest(ITmfEventRequest)}.
  *
+ * The request can be restricted to a time range and a set of event names, in
+ * which case only the matching events are put in the queue to the script
+ * thread.
+ *
  * @author Geneviève Bastien
  */
 public class ScriptEventRequest extends TmfEventRequest {
@@ -51,19 +57,34 @@ public class ScriptEventRequest extends TmfEventRequest {
 
     private final BufferedBlockingQueue<ITmfEvent> fEventsQueue;
     private final ScriptEventsIterator fEventIterator;
+    private final Set<String> fNames;
 
     /**
      * Constructor
+     *
+     * @param iterator
+     *            The iterator that will consume the events of this request
+     * @param range
+     *            The time range of the request
+     * @param names
+     *            The names of the events to put in the queue. If empty, all
+     *            events are queued. This set is not copied, so that names
+     *            added to it while the request runs are taken into account, it
+     *            should thus be thread-safe.
      */
-    public ScriptEventRequest() {
-        super(ITmfEvent.class, TmfTimeRange.ETERNITY, 0, ITmfEventRequest.ALL_DATA, ExecutionType.BACKGROUND, 100);
+    public ScriptEventRequest(ScriptEventsIterator iterator, TmfTimeRange range, Set<String> names) {
+        super(ITmfEvent.class, range, 0, ITmfEventRequest.ALL_DATA, ExecutionType.BACKGROUND, 100);
         fEventsQueue = new BufferedBlockingQueue<>(DEFAULT_EVENTS_QUEUE_SIZE, DEFAULT_EVENTS_CHUNK_SIZE);
-        fEventIterator = new ScriptEventsIterator(fEventsQueue);
+        fEventIterator = iterator;
+        fNames = names;
     }
 
     @Override
     public void handleData(@NonNull ITmfEvent event) {
         super.handleData(event);
+        if (!fNames.isEmpty() && !fNames.contains(event.getName())) {
+            return;
+        }
         fEventsQueue.put(event);
     }
 
@@ -79,13 +100,20 @@ public class ScriptEventRequest extends TmfEventRequest {
     @Override
     public synchronized void cancel() {
         super.cancel();
-        while (!fEventsQueue.isEmpty()) {
-          fEventIterator.next();
-        }
+        fEventIterator.discardQueuedEvents();
         fEventsQueue.put(END_EVENT);
         fEventsQueue.flushInputBuffer();
     }
 
+    /**
+     * Get the queue in which the events of this request are put.
+     *
+     * @return The events queue
+     */
+    public BufferedBlockingQueue<ITmfEvent> getEventsQueue() {
+        return fEventsQueue;
+    }
+
     /**
      * Get the event iterator that will contain the events being read.
      *
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.scripting.core.trace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Function;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.common.core.collect.BufferedBlockingQueue;
+import org.eclipse.tracecompass.incubator.scripting.core.trace.ScriptEventsIterator;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
+import org.eclipse.tracecompass.tmf.core.request.TmfEventRequest;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
+
+/**
+ * An event request that reads the trace once and routes each event to one of
+ * many event queues, depending on a partition key resolved from the event.
+ * Each partition has its own {@link ScriptEventsIterator}, so the partitions
+ * can be consumed by different scripts running in parallel.
+ *
+ * Events for which the key cannot be resolved go to the first partition.
+ *
+ * The queue of a partition whose consumer is done is ended by the request,
+ * with the next event or when the request completes, so that its last partial
+ * chunk of events is flushed with the end event and the consumer does not wait
+ * for events that will not come.
+ */
+public class ScriptPartitionedEventRequest extends TmfEventRequest {
+
+    private static final int DEFAULT_EVENTS_QUEUE_SIZE = 127;
+    private static final int DEFAULT_EVENTS_CHUNK_SIZE = 127;
+
+    /** The consumer of the partition reads its events */
+    private static final int OPEN = 0;
+    /** The consumer of the partition is done, its queue is not ended yet */
+    private static final int CLOSED = 1;
+    /** The end event was put in the queue of the partition */
+    private static final int ENDED = 2;
+
+    private final List<BufferedBlockingQueue<ITmfEvent>> fEventsQueues;
+    private final List<ScriptEventsIterator> fEventIterators;
+    private final Function<ITmfEvent, @Nullable Object> fKeyResolver;
+    /** The state of each partition, {@link #OPEN}, {@link #CLOSED} or {@link #ENDED} */
+    private final AtomicIntegerArray fStates;
+    /** The number of partitions in the {@link #CLOSED} state */
+    private final AtomicInteger fNbClosed = new AtomicInteger();
+
+    /**
+     * Constructor
+     *
+     * @param nbPartitions
+     *            The number of partitions
+     * @param keyResolver
+     *            The function resolving the partition key of an event
+     */
+    public ScriptPartitionedEventRequest(int nbPartitions, Function<ITmfEvent, @Nullable Object> keyResolver) {
+        super(ITmfEvent.class, TmfTimeRange.ETERNITY, 0, ITmfEventRequest.ALL_DATA, ExecutionType.BACKGROUND, 100);
+        if (nbPartitions <= 0) {
+            throw new IllegalArgumentException("The number of partitions should be positive: " + nbPartitions); //$NON-NLS-1$
+        }
+        fEventsQueues = new ArrayList<>(nbPartitions);
+        fEventIterators = new ArrayList<>(nbPartitions);
+        for (int i = 0; i < nbPartitions; i++) {
+            BufferedBlockingQueue<ITmfEvent> queue = new BufferedBlockingQueue<>(DEFAULT_EVENTS_QUEUE_SIZE, DEFAULT_EVENTS_CHUNK_SIZE);
+            fEventsQueues.add(queue);
+            fEventIterators.add(new ScriptEventsIterator(queue));
+        }
+        fKeyResolver = keyResolver;
+        fStates = new AtomicIntegerArray(nbPartitions);
+    }
+
+    @Override
+    public void handleData(@NonNull ITmfEvent event) {
+        super.handleData(event);
+        if (fNbClosed.get() != 0) {
+            for (int i = 0; i < fEventsQueues.size(); i++) {
+                if (fStates.compareAndSet(i, CLOSED, ENDED)) {
+                    fNbClosed.decrementAndGet();
+                    endPartition(i);
+                }
+            }
+        }
+        Object key = fKeyResolver.apply(event);
+        int partition = (key == null) ? 0 : Math.floorMod(key.hashCode(), fEventsQueues.size());
+        if (fStates.get(partition) != OPEN) {
+            return;
+        }
+        fEventsQueues.get(partition).put(event);
+    }
+
+    @Override
+    public synchronized void done() {
+        super.done();
+        if (!isCancelled()) {
+            endAllPartitions();
+        }
+    }
+
+    @Override
+    public synchronized void cancel() {
+        super.cancel();
+        // The consumers still read their queue, so the end event can be queued
+        // after the remaining events
+        endAllPartitions();
+    }
+
+    private void endAllPartitions() {
+        for (int i = 0; i < fEventsQueues.size(); i++) {
+            int state = fStates.getAndSet(i, ENDED);
+            if (state == CLOSED) {
+                fNbClosed.decrementAndGet();
+            }
+            if (state != ENDED) {
+                endPartition(i);
+            }
+        }
+    }
+
+    private void endPartition(int partition) {
+        BufferedBlockingQueue<ITmfEvent> queue = fEventsQueues.get(partition);
+        queue.put(ScriptEventRequest.END_EVENT);
+        queue.flushInputBuffer();
+    }
+
+    /**
+     * Signal that the consumer of a partition is done. The events of this
+     * partition are dropped from now on, and those already queued are
+     * discarded up to the end event, so that the other partitions are not
+     * blocked by this one. The end event is queued with the next event read
+     * from the trace, or when the request completes.
+     *
+     * @param partition
+     *            The index of the partition
+     */
+    public void closePartition(int partition) {
+        if (fStates.compareAndSet(partition, OPEN, CLOSED)) {
+            fNbClosed.incrementAndGet();
+        }
+        ScriptEventsIterator iterator = fEventIterators.get(partition);
+        while (iterator.hasNext()) {
+            iterator.next();
+        }
+    }
+
+    /**
+     * Get the number of partitions of this request
+     *
+     * @return The number of partitions
+     */
+    public int getNbPartitions() {
+        return fEventsQueues.size();
+    }
+
+    /**
+     * Get the event iterator of a partition
+     *
+     * @param partition
+     *            The index of the partition
+     * @return The event iterator
+     */
+    public ScriptEventsIterator getEventIterator(int partition) {
+        return fEventIterators.get(partition);
+    }
+
+}
@@ -88,4 +88,36 @@ public class AnalysisScriptingModule {
     public ScriptedAnalysis createScriptedAnalysis(@Nullable ITmfTrace trace, String analysisName) {
         return new ScriptedAnalysis(Objects.requireNonNull(trace, "Trace should not be null"), analysisName); //$NON-NLS-1$
     }
+
+    /**
+     * Create a scripted analysis whose events are partitioned by a key and
+     * processed in parallel by many instances of a script. The trace is read
+     * only once, each event being sent to the partition of its key. The
+     * script is then run once per partition with the
+     * {@link ScriptedPartitionedAnalysis#run(String)} method, each partition
+     * filling its own state system, and the results are merged in the state
+     * system of the analysis at the end. If the trace is <code>null</code>,
+     * it will throw a {@link NullPointerException}.
+     *
+     * @param trace
+     *            The trace being analyzed.
+     * @param analysisName
+     *            The name of the analysis to create. If backends like state
+     *            systems are saved by this analysis, this name will be used to
+     *            retrieve the previous data.
+     * @param partitionKey
+     *            The key to partition the events by: <code>cpu</code> for the
+     *            CPU of the event, <code>tid</code> for its thread ID, or the
+     *            name of an event field or aspect. Events whose key cannot be
+     *            resolved all go to the first partition.
+     * @param nbPartitions
+     *            The number of partitions, ie the number of scripts that will
+     *            run in parallel. It is capped at the number of available
+     *            processors.
+     * @return The new partitioned analysis for this trace.
+     */
+    @WrapToScript
+    public ScriptedPartitionedAnalysis createPartitionedAnalysis(@Nullable ITmfTrace trace, String analysisName, String partitionKey, int nbPartitions) {
+        return new ScriptedPartitionedAnalysis(Objects.requireNonNull(trace, "Trace should not be null"), analysisName, partitionKey, nbPartitions); //$NON-NLS-1$
+    }
 }
@@ -15,7 +15,6 @@ import org.eclipse.ease.modules.ScriptParameter;
 import org.eclipse.ease.modules.WrapToScript;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.incubator.internal.scripting.core.analysis.TmfScriptAnalysis;
-import org.eclipse.tracecompass.incubator.internal.scripting.core.trace.ScriptEventRequest;
 import org.eclipse.tracecompass.incubator.scripting.core.trace.ScriptEventsIterator;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
@@ -84,7 +83,10 @@ public class ScriptedAnalysis {
      * trace. To reduce overhead of passing all events to/from the script when
      * only a subset of events is requested, the
      * {@link ScriptEventsIterator#addEvent(String)} method can be used to set
-     * the events to filter.
+     * the events to filter. Events added before the iteration starts are
+     * filtered directly by the event request, and the
+     * {@link ScriptEventsIterator#nextBatch(int)} method can be used to get
+     * multiple events at once.
      *
      * Thus, to iterate through a trace in a scripted analysis, one can just do
      * the following snippet (javascript)
@@ -105,9 +107,7 @@ public class ScriptedAnalysis {
      */
     @WrapToScript
     public ScriptEventsIterator getEventIterator() {
-        ScriptEventRequest scriptEventRequest = new ScriptEventRequest();
-        fTrace.sendRequest(scriptEventRequest);
-        return scriptEventRequest.getEventIterator();
+        return new ScriptEventsIterator(fTrace);
     }
 
     /**
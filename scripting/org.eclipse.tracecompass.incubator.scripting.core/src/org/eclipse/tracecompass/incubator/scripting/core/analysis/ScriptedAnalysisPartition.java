@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.scripting.core.analysis;
+
+import org.eclipse.ease.modules.WrapToScript;
+import org.eclipse.tracecompass.incubator.scripting.core.trace.ScriptEventsIterator;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.StateSystemFactory;
+import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+
+/**
+ * One partition of a {@link ScriptedPartitionedAnalysis}. An instance of this
+ * class is available to each partition's script, under the
+ * {@link ScriptedPartitionedAnalysis#PARTITION_VARIABLE} variable name. It
+ * provides the iterator on the events of this partition only and a state
+ * system in which to save the partition's data.
+ * <p>
+ * The state systems of all partitions are merged in the analysis' state system
+ * when all partitions are done. Partitions must write to distinct attributes,
+ * typically under an attribute named after the partition key: the merge fails
+ * if an attribute has values in many partitions.
+ * </p>
+ */
+public class ScriptedAnalysisPartition {
+
+    private final ITmfTrace fTrace;
+    private final int fPartition;
+    private final int fNbPartitions;
+    private final ScriptEventsIterator fEventIterator;
+    private final ITmfStateSystemBuilder fStateSystem;
+
+    /**
+     * Constructor
+     *
+     * package-private because it is only expected to be constructed by the
+     * partitioned analysis.
+     *
+     * @param trace
+     *            The trace being analyzed
+     * @param name
+     *            The name of the analysis
+     * @param partition
+     *            The index of this partition
+     * @param nbPartitions
+     *            The total number of partitions
+     * @param eventIterator
+     *            The iterator on the events of this partition
+     */
+    ScriptedAnalysisPartition(ITmfTrace trace, String name, int partition, int nbPartitions, ScriptEventsIterator eventIterator) {
+        fTrace = trace;
+        fPartition = partition;
+        fNbPartitions = nbPartitions;
+        fEventIterator = eventIterator;
+        fStateSystem = StateSystemFactory.newStateSystem(StateHistoryBackendFactory.createInMemoryBackend(name + '-' + partition, trace.getStartTime().toNanos()));
+    }
+
+    /**
+     * Get the iterator on the events of this partition
+     *
+     * @return The event iterator, starting from the first event
+     */
+    @WrapToScript
+    public ScriptEventsIterator getEventIterator() {
+        return fEventIterator;
+    }
+
+    /**
+     * Get the state system of this partition. It is an in-memory state system
+     * that will be merged in the analysis' state system at the end.
+     *
+     * @return The state system builder
+     */
+    @WrapToScript
+    public ITmfStateSystemBuilder getStateSystem() {
+        return fStateSystem;
+    }
+
+    /**
+     * Get the index of this partition
+     *
+     * @return The index of the partition, between 0 and the number of
+     *         partitions - 1
+     */
+    @WrapToScript
+    public int getPartition() {
+        return fPartition;
+    }
+
+    /**
+     * Get the total number of partitions
+     *
+     * @return The number of partitions
+     */
+    @WrapToScript
+    public int getNbPartitions() {
+        return fNbPartitions;
+    }
+
+    /**
+     * Get the trace being analyzed
+     *
+     * @return The trace
+     */
+    @WrapToScript
+    public ITmfTrace getTrace() {
+        return fTrace;
+    }
+}
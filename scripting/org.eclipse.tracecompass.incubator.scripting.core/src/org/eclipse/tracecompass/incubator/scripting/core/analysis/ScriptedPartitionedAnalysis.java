@@ -0,0 +1,311 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.scripting.core.analysis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.eclipse.ease.modules.WrapToScript;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.analysis.os.linux.core.event.aspect.LinuxTidAspect;
+import org.eclipse.tracecompass.incubator.internal.scripting.core.Activator;
+import org.eclipse.tracecompass.incubator.internal.scripting.core.ScriptExecutionHelper;
+import org.eclipse.tracecompass.incubator.internal.scripting.core.trace.ScriptPartitionedEventRequest;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.StateSystemUtils.QuarkIterator;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
+import org.eclipse.tracecompass.tmf.core.event.aspect.TmfCpuAspect;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceUtils;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * A scripted analysis whose events are partitioned by a key, for instance the
+ * CPU or the thread ID, and processed in parallel. The trace is read once and
+ * each event is routed to one of the partitions, according to its key. The
+ * same script is then executed once per partition, each in its own engine and
+ * thread. The script gets its partition through the
+ * {@link #PARTITION_VARIABLE} variable, a {@link ScriptedAnalysisPartition}
+ * with an event iterator and a state system of its own.
+ * <p>
+ * When all partitions are done, their state systems are merged into the state
+ * system of this analysis, which can then be used like the one of any other
+ * scripted analysis. The state of each partition is isolated: an attribute
+ * with values can be written by only one partition, for example under an
+ * attribute named after the partition key, and the merge fails if many
+ * partitions write to the same attribute. The changes are streamed in
+ * chronological order from the intervals of the partitions, without loading
+ * them all in memory.
+ * </p>
+ */
+public class ScriptedPartitionedAnalysis extends ScriptedAnalysis {
+
+    /** Name of the script variable containing the partition object */
+    public static final String PARTITION_VARIABLE = "partition"; //$NON-NLS-1$
+    /** Partition key to partition the events by CPU */
+    public static final String CPU_KEY = "cpu"; //$NON-NLS-1$
+    /** Partition key to partition the events by thread ID */
+    public static final String TID_KEY = "tid"; //$NON-NLS-1$
+
+    private final String fPartitionKey;
+    private final int fNbPartitions;
+
+    /**
+     * Constructor
+     *
+     * package-private because it is only expected to be constructed by the
+     * module.
+     *
+     * @param activeTrace
+     *            The trace to associate with this analysis
+     * @param name
+     *            The name of the analysis
+     * @param partitionKey
+     *            The key to partition the events by, either {@link #CPU_KEY},
+     *            {@link #TID_KEY} or the name of an event field
+     * @param nbPartitions
+     *            The number of partitions to process in parallel, at most the
+     *            number of available processors
+     */
+    ScriptedPartitionedAnalysis(ITmfTrace activeTrace, String name, String partitionKey, int nbPartitions) {
+        super(activeTrace, name);
+        if (nbPartitions <= 0) {
+            throw new IllegalArgumentException("The number of partitions should be positive: " + nbPartitions); //$NON-NLS-1$
+        }
+        fPartitionKey = partitionKey;
+        /*
+         * Each partition needs its own thread: the events are routed to the
+         * partitions by a single request, so a partition waiting for a thread
+         * would block the request once its queue is full
+         */
+        fNbPartitions = Math.min(nbPartitions, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Get the key used to partition the events
+     *
+     * @return The partition key
+     */
+    @WrapToScript
+    public String getPartitionKey() {
+        return fPartitionKey;
+    }
+
+    /**
+     * Get the number of partitions of this analysis, which is at most the
+     * number of available processors
+     *
+     * @return The number of partitions
+     */
+    @WrapToScript
+    public int getNbPartitions() {
+        return fNbPartitions;
+    }
+
+    /**
+     * Execute the script once per partition, in parallel, then merge the state
+     * systems of the partitions into this analysis' state system. In the
+     * script, the partition is available through the
+     * {@link #PARTITION_VARIABLE} variable, for example (javascript)
+     *
+     * <pre>
+     * var iter = partition.getEventIterator();
+     * var ss = partition.getStateSystem();
+     * while (iter.hasNext()) {
+     *     event = iter.next();
+     *     // Do something with the event
+     * }
+     * </pre>
+     *
+     * @param scriptPath
+     *            The absolute path of the script to execute for each partition
+     * @return Whether all partitions executed successfully. If not, the state
+     *         system of this analysis is not filled.
+     */
+    @WrapToScript
+    public boolean run(String scriptPath) {
+        return runPartitions(partition -> ScriptExecutionHelper.executeScript(scriptPath, null, null, ImmutableMap.of(PARTITION_VARIABLE, partition)) != null);
+    }
+
+    /**
+     * Execute a task once per partition, in parallel, then merge the state
+     * systems of the partitions into this analysis' state system. The
+     * {@link #run(String)} method executes a script as the task, this method
+     * lets Java callers process the partitions directly.
+     *
+     * @param task
+     *            The task to execute for each partition, returning whether it
+     *            executed successfully
+     * @return Whether all partitions executed successfully and were merged.
+     *         If not, the state system of this analysis is not filled.
+     */
+    public boolean runPartitions(Predicate<ScriptedAnalysisPartition> task) {
+        ITmfTrace trace = getTrace();
+        ScriptPartitionedEventRequest request = new ScriptPartitionedEventRequest(fNbPartitions, getKeyResolver(trace, fPartitionKey));
+        List<ScriptedAnalysisPartition> partitions = new ArrayList<>(fNbPartitions);
+        for (int i = 0; i < fNbPartitions; i++) {
+            partitions.add(new ScriptedAnalysisPartition(trace, getName(), i, fNbPartitions, request.getEventIterator(i)));
+        }
+        trace.sendRequest(request);
+
+        ExecutorService executor = Executors.newFixedThreadPool(fNbPartitions);
+        boolean success = true;
+        try {
+            List<Future<Boolean>> results = new ArrayList<>(fNbPartitions);
+            for (ScriptedAnalysisPartition partition : partitions) {
+                results.add(executor.submit(() -> {
+                    try {
+                        return task.test(partition);
+                    } finally {
+                        // Do not let the other partitions wait for this one
+                        request.closePartition(partition.getPartition());
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                success &= result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            success = false;
+        } catch (ExecutionException e) {
+            Activator.getInstance().logError("Error executing a partition of analysis " + getName(), e); //$NON-NLS-1$
+            success = false;
+        } finally {
+            executor.shutdownNow();
+            if (!request.isCompleted()) {
+                request.cancel();
+            }
+        }
+
+        try {
+            if (success) {
+                success = merge(partitions);
+            }
+        } finally {
+            for (ScriptedAnalysisPartition partition : partitions) {
+                partition.getStateSystem().dispose();
+            }
+        }
+        return success;
+    }
+
+    private boolean merge(List<ScriptedAnalysisPartition> partitions) {
+        ITmfStateSystemBuilder target = getStateSystem(false);
+        if (target == null) {
+            return false;
+        }
+        long traceEnd = getTrace().getEndTime().toNanos();
+        /*
+         * Each attribute with values has a cursor on its intervals. The
+         * cursors are kept by time of their next interval, so the changes are
+         * applied in chronological order, with one interval per attribute in
+         * memory.
+         */
+        PriorityQueue<AttributeCursor> cursors = new PriorityQueue<>(Comparator.comparingLong(AttributeCursor::getTime));
+        /* target quark, partition that writes it */
+        Map<Integer, Integer> owners = new HashMap<>();
+        for (ScriptedAnalysisPartition partition : partitions) {
+            ITmfStateSystemBuilder ss = partition.getStateSystem();
+            int nbAttributes = ss.getNbAttributes();
+            if (nbAttributes == 0) {
+                continue;
+            }
+            if (!ss.waitUntilBuilt(0)) {
+                ss.closeHistory(Math.max(traceEnd, ss.getCurrentEndTime()));
+            }
+            long end = ss.getCurrentEndTime();
+            for (int quark = 0; quark < nbAttributes; quark++) {
+                String[] path = ss.getFullAttributePathArray(quark);
+                int targetQuark = target.getQuarkAbsoluteAndAdd(path);
+                Iterator<ITmfStateInterval> intervals = new QuarkIterator(ss, quark, ss.getStartTime(), end);
+                ITmfStateInterval first = null;
+                while (first == null && intervals.hasNext()) {
+                    ITmfStateInterval interval = intervals.next();
+                    if (interval.getValue() != null) {
+                        first = interval;
+                    }
+                }
+                if (first == null) {
+                    // No value, the attribute may be shared with other partitions
+                    continue;
+                }
+                Integer owner = owners.putIfAbsent(targetQuark, partition.getPartition());
+                if (owner != null) {
+                    Activator.getInstance().logError("Attribute " + Arrays.toString(path) + " of analysis " + getName() + " is written by partitions " + owner + " and " + partition.getPartition()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+                    return false;
+                }
+                cursors.add(new AttributeCursor(targetQuark, first, intervals));
+            }
+        }
+        AttributeCursor cursor = cursors.poll();
+        while (cursor != null) {
+            ITmfStateInterval interval = cursor.fNext;
+            target.modifyAttribute(interval.getStartTime(), interval.getValue(), cursor.fQuark);
+            if (cursor.fIntervals.hasNext()) {
+                cursor.fNext = cursor.fIntervals.next();
+                cursors.add(cursor);
+            }
+            cursor = cursors.poll();
+        }
+        complete();
+        return true;
+    }
+
+    private static Function<ITmfEvent, @Nullable Object> getKeyResolver(ITmfTrace trace, String partitionKey) {
+        switch (partitionKey) {
+        case CPU_KEY:
+            return event -> TmfTraceUtils.resolveIntEventAspectOfClassForEvent(trace, TmfCpuAspect.class, event);
+        case TID_KEY:
+            return event -> TmfTraceUtils.resolveIntEventAspectOfClassForEvent(trace, LinuxTidAspect.class, event);
+        default:
+            return event -> {
+                ITmfEventField field = event.getContent().getField(partitionKey);
+                if (field != null) {
+                    return field.getValue();
+                }
+                return TmfTraceUtils.resolveAspectOfNameForEvent(trace, partitionKey, event);
+            };
+        }
+    }
+
+    private static final class AttributeCursor {
+        private final int fQuark;
+        private final Iterator<ITmfStateInterval> fIntervals;
+        private ITmfStateInterval fNext;
+
+        public AttributeCursor(int quark, ITmfStateInterval first, Iterator<ITmfStateInterval> intervals) {
+            fQuark = quark;
+            fNext = first;
+            fIntervals = intervals;
+        }
+
+        public long getTime() {
+            return fNext.getStartTime();
+        }
+    }
+}
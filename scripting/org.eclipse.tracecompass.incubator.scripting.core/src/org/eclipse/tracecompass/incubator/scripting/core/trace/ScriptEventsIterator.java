@@ -11,28 +11,43 @@
 
 package org.eclipse.tracecompass.incubator.scripting.core.trace;
 
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.common.core.collect.BufferedBlockingQueue;
 import org.eclipse.tracecompass.incubator.internal.scripting.core.trace.ScriptEventRequest;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
 
 /**
  * An event iterator class for scripting which allows to return to the script
  * only the requested events, by setting the desired event names with the
  * {@link #addEvent(String)} method. If no event is added, all events will be
  * returned.
+ * <p>
+ * When the iterator is obtained for a trace, the event request is only sent
+ * when the first event is requested. The event names added and the time range
+ * set before that are pushed down to the request, so that the other events are
+ * never sent to the script thread.
+ * </p>
  *
  * @author Geneviève Bastien
  */
 public class ScriptEventsIterator implements Iterator<ITmfEvent> {
 
-    private final BufferedBlockingQueue<ITmfEvent> fEventsQueue;
-    private final Collection<String> fNames = new HashSet<>();
+    private static final ITmfEvent[] EMPTY_BATCH = new ITmfEvent[0];
+
+    private final @Nullable ITmfTrace fTrace;
+    private final Set<String> fNames = ConcurrentHashMap.newKeySet();
+    private TmfTimeRange fTimeRange = TmfTimeRange.ETERNITY;
+    private @Nullable BufferedBlockingQueue<ITmfEvent> fEventsQueue;
+    private @Nullable ScriptEventRequest fRequest;
     private @Nullable ITmfEvent fNext;
 
     /**
@@ -42,36 +57,71 @@ public class ScriptEventsIterator implements Iterator<ITmfEvent> {
      *            The blocking queue from which to get the events
      */
     public ScriptEventsIterator(BufferedBlockingQueue<ITmfEvent> eventsQueue) {
+        fTrace = null;
         fEventsQueue = eventsQueue;
     }
 
+    /**
+     * Constructor for an iterator that will send its own request to the trace
+     * when the first event is requested.
+     *
+     * @param trace
+     *            The trace to iterate through
+     */
+    public ScriptEventsIterator(ITmfTrace trace) {
+        fTrace = trace;
+    }
+
     @Override
     public synchronized boolean hasNext() {
         ITmfEvent next = fNext;
         if (next == null) {
-            next = findNextEvent();
+            next = findNextEvent(getEventsQueue());
             fNext = next;
         }
         return next != ScriptEventRequest.END_EVENT;
     }
 
-    private ITmfEvent findNextEvent() {
-        ITmfEvent event = fEventsQueue.take();
+    private ITmfEvent findNextEvent(BufferedBlockingQueue<ITmfEvent> eventsQueue) {
+        ITmfEvent event = eventsQueue.take();
+        /*
+         * The request already filters the events, but names may have been added
+         * after it started, so events queued before that need to be filtered
+         * here
+         */
         if (fNames.isEmpty()) {
             return event;
         }
         while (event != ScriptEventRequest.END_EVENT && !fNames.contains(event.getName())) {
-            event = fEventsQueue.take();
+            event = eventsQueue.take();
         }
         return event;
     }
 
+    private BufferedBlockingQueue<ITmfEvent> getEventsQueue() {
+        BufferedBlockingQueue<ITmfEvent> eventsQueue = fEventsQueue;
+        if (eventsQueue != null) {
+            return eventsQueue;
+        }
+        ITmfTrace trace = fTrace;
+        if (trace == null) {
+            throw new IllegalStateException("Iterator has neither a queue nor a trace"); //$NON-NLS-1$
+        }
+        ScriptEventRequest request = new ScriptEventRequest(this, fTimeRange, fNames);
+        eventsQueue = request.getEventsQueue();
+        fEventsQueue = eventsQueue;
+        fRequest = request;
+        trace.sendRequest(request);
+        return eventsQueue;
+    }
+
     /**
      * Add an event name to the list of events to return. Once an event has been
      * added to this iterator, only those events will be returned.
      * <p>
      * To return multiple events, this method can be called multiple times, once
-     * for each event.
+     * for each event. Events added before the iteration starts are filtered
+     * directly by the event request.
      * </p>
      * @param eventName
      *            The name of the event to return
@@ -80,6 +130,22 @@ public class ScriptEventsIterator implements Iterator<ITmfEvent> {
         fNames.add(eventName);
     }
 
+    /**
+     * Set the time range of the events to return. This method needs to be
+     * called before the first event is requested.
+     *
+     * @param start
+     *            The start time of the range, in nanoseconds
+     * @param end
+     *            The end time of the range, in nanoseconds
+     */
+    public synchronized void setTimeRange(long start, long end) {
+        if (fEventsQueue != null) {
+            throw new IllegalStateException("The time range cannot be set once the iteration has started"); //$NON-NLS-1$
+        }
+        fTimeRange = new TmfTimeRange(TmfTimestamp.fromNanos(start), TmfTimestamp.fromNanos(end));
+    }
+
     @Override
     public synchronized ITmfEvent next() {
         if (hasNext()) {
@@ -92,4 +158,54 @@ public class ScriptEventsIterator implements Iterator<ITmfEvent> {
         throw new NoSuchElementException("No more elements in the queue"); //$NON-NLS-1$
     }
 
+    /**
+     * Get the next events in an array, to avoid going back and forth between
+     * the script and the iterator for each event. This method blocks until the
+     * requested number of events is available or the last event was read.
+     *
+     * @param count
+     *            The maximum number of events to return
+     * @return An array of at most <code>count</code> events, which is empty
+     *         only if there are no more events
+     */
+    public synchronized ITmfEvent[] nextBatch(int count) {
+        if (count <= 0) {
+            return EMPTY_BATCH;
+        }
+        ITmfEvent[] batch = new ITmfEvent[count];
+        int size = 0;
+        while (size < count && hasNext()) {
+            batch[size++] = next();
+        }
+        return size == count ? batch : Arrays.copyOf(batch, size);
+    }
+
+    /**
+     * Discard all the events currently in the queue, so that a producer blocked
+     * on a full queue can finish. Not to be used by scripts.
+     */
+    public synchronized void discardQueuedEvents() {
+        BufferedBlockingQueue<ITmfEvent> eventsQueue = fEventsQueue;
+        if (eventsQueue == null) {
+            return;
+        }
+        while (!eventsQueue.isEmpty()) {
+            eventsQueue.take();
+        }
+    }
+
+    /**
+     * Cancel the event request of this iterator, if it was started and is not
+     * completed yet. Not to be used by scripts.
+     */
+    public void cancel() {
+        ScriptEventRequest request;
+        synchronized (this) {
+            request = fRequest;
+        }
+        if (request != null && !request.isCompleted()) {
+            request.cancel();
+        }
+    }
+
 }
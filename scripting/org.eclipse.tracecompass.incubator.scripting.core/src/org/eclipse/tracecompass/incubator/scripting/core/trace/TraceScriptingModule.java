@@ -29,7 +29,6 @@ import org.eclipse.ease.modules.ScriptParameter;
 import org.eclipse.ease.modules.WrapToScript;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.incubator.internal.scripting.core.trace.Messages;
-import org.eclipse.tracecompass.incubator.internal.scripting.core.trace.ScriptEventRequest;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
 import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
@@ -136,7 +135,10 @@ public class TraceScriptingModule extends AbstractScriptModule {
      * trace. To reduce overhead of passing all events to/from the script when
      * only a subset of events is requested, the
      * {@link ScriptEventsIterator#addEvent(String)} method can be used to set
-     * the events to filter.
+     * the events to filter. Events added before the iteration starts are
+     * filtered directly by the event request, and the
+     * {@link ScriptEventsIterator#nextBatch(int)} method can be used to get
+     * multiple events at once.
      *
      * Thus, to iterate through the events of a trace in a scripted analysis,
      * one can just do the following snippet (javascript)
@@ -165,14 +167,13 @@ public class TraceScriptingModule extends AbstractScriptModule {
             throw new IllegalArgumentException("Trace should not be null"); //$NON-NLS-1$
         }
 
-        ScriptEventRequest scriptEventRequest = new ScriptEventRequest();
-        trace.sendRequest(scriptEventRequest);
-        setupEventIteratorExecutionListener(scriptEventRequest);
+        ScriptEventsIterator eventIterator = new ScriptEventsIterator(trace);
+        setupEventIteratorExecutionListener(eventIterator);
 
-        return scriptEventRequest.getEventIterator();
+        return eventIterator;
     }
 
-    private void setupEventIteratorExecutionListener(ScriptEventRequest scriptEventRequest) {
+    private void setupEventIteratorExecutionListener(ScriptEventsIterator eventIterator) {
         IScriptEngine scriptEngine = getScriptEngine();
         if (scriptEngine == null) {
             return;
@@ -181,8 +182,8 @@ public class TraceScriptingModule extends AbstractScriptModule {
         scriptEngine.addExecutionListener(new IExecutionListener() {
             @Override
             public void notify(@Nullable IScriptEngine engine, @Nullable Script script, int status) {
-                if (status == SCRIPT_END && !scriptEventRequest.isCompleted()) {
-                    scriptEventRequest.cancel();
+                if (status == SCRIPT_END) {
+                    eventIterator.cancel();
                 }
             }
         });
@@ -325,6 +325,62 @@ public class BookmarkManagerServiceTest extends RestServerTest {
         }
     }
 
+    /**
+     * Test the fetching of the bookmarks that intersect a time range.
+     */
+    @Test
+    public void testGetBookmarksInRange() {
+        WebTarget application = getApplicationEndpoint();
+        WebTarget bookmarkTarget = application.path(EXPERIMENTS)
+                .path(experiment.getUUID().toString())
+                .path(BOOKMARKS);
+
+        // Create bookmarks at [0, 10], [20, 20] and [5, 100]
+        long[][] ranges = { { START_TIME, END_TIME }, { 20L, 20L }, { 5L, 100L } };
+        for (int i = 0; i < ranges.length; i++) {
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put(NAME, "Bookmark" + i);
+            parameters.put(START, ranges[i][0]);
+            parameters.put(END, ranges[i][1]);
+            try (Response response = bookmarkTarget.request().post(Entity.json(new QueryParameters(parameters, Collections.emptyList())))) {
+                assertEquals(SUCCESSFUL_BOOKMARK_CREATION, 200, response.getStatus());
+            }
+        }
+
+        // All the bookmarks are sorted by start time
+        try (Response response = bookmarkTarget.request().get()) {
+            BookmarkModelStub[] bookmarks = response.readEntity(BookmarkModelStub[].class);
+            assertEquals(3, bookmarks.length);
+            assertEquals("Bookmark0", bookmarks[0].getName());
+            assertEquals("Bookmark2", bookmarks[1].getName());
+            assertEquals("Bookmark1", bookmarks[2].getName());
+        }
+
+        // Only the bookmarks that intersect the range
+        try (Response response = bookmarkTarget.queryParam(START, 11L).queryParam(END, 20L).request().get()) {
+            assertEquals(SUCCESSFUL_STATUS_CODE, 200, response.getStatus());
+            BookmarkModelStub[] bookmarks = response.readEntity(BookmarkModelStub[].class);
+            assertEquals(2, bookmarks.length);
+            assertEquals("Bookmark2", bookmarks[0].getName());
+            assertEquals("Bookmark1", bookmarks[1].getName());
+        }
+        try (Response response = bookmarkTarget.queryParam(START, 10L).queryParam(END, 10L).request().get()) {
+            BookmarkModelStub[] bookmarks = response.readEntity(BookmarkModelStub[].class);
+            assertEquals(2, bookmarks.length);
+            assertEquals("Bookmark0", bookmarks[0].getName());
+            assertEquals("Bookmark2", bookmarks[1].getName());
+        }
+        try (Response response = bookmarkTarget.queryParam(START, 101L).request().get()) {
+            BookmarkModelStub[] bookmarks = response.readEntity(BookmarkModelStub[].class);
+            assertEquals(0, bookmarks.length);
+        }
+
+        // Invalid range
+        try (Response response = bookmarkTarget.queryParam(START, 20L).queryParam(END, 10L).request().get()) {
+            assertEquals("Should return 400 for invalid time range", 400, response.getStatus());
+        }
+    }
+
     /**
      * Test the fetching of a specific bookmark.
      */
@@ -17,8 +17,7 @@ import static org.eclipse.tracecompass.incubator.internal.trace.server.jersey.re
 import static org.eclipse.tracecompass.incubator.internal.trace.server.jersey.rest.core.services.EndpointConstants.NO_SUCH_EXPERIMENT;
 import static org.eclipse.tracecompass.incubator.internal.trace.server.jersey.rest.core.services.EndpointConstants.BKM;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -32,22 +31,14 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
-import org.eclipse.core.resources.IFile;
-import org.eclipse.core.resources.IMarker;
-import org.eclipse.core.resources.IResource;
-import org.eclipse.core.runtime.CoreException;
-import org.eclipse.osgi.util.NLS;
 import org.eclipse.tracecompass.incubator.internal.trace.server.jersey.rest.core.Activator;
 import org.eclipse.tracecompass.incubator.internal.trace.server.jersey.rest.core.model.BookmarkQueryParameters;
 import org.eclipse.tracecompass.incubator.internal.trace.server.jersey.rest.core.model.views.QueryParameters;
-import org.eclipse.tracecompass.tmf.core.resources.ITmfMarker;
-import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
-import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
-import org.eclipse.tracecompass.tmf.core.trace.experiment.TmfExperiment;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -68,45 +59,47 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 public class BookmarkManagerService {
 
     // Bookmark attribute constants
-    private static final String BOOKMARK_UUID = "uuid"; //$NON-NLS-1$
     private static final String BOOKMARK_NAME = "name"; //$NON-NLS-1$
     private static final String BOOKMARK_START = "start"; //$NON-NLS-1$
     private static final String BOOKMARK_END = "end"; //$NON-NLS-1$
 
-    private static final String BOOKMARK_DEFAULT_COLOR = "RGBA {255, 0, 0, 128}"; //$NON-NLS-1$
-
     /**
-     * Retrieve all bookmarks for a specific experiment
+     * Retrieve the bookmarks of a specific experiment, all of them or the ones
+     * that intersect a time range
      *
      * @param expUUID
      *            UUID of the experiment
-     * @return Response containing the list of bookmarks
+     * @param start
+     *            start of the time range, or null for no lower bound
+     * @param end
+     *            end of the time range, or null for no upper bound
+     * @return Response containing the list of bookmarks, sorted by start time
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    @Operation(summary = "Get all bookmarks for an experiment", responses = {
+    @Operation(summary = "Get the bookmarks of an experiment, optionally only the ones intersecting a time range", responses = {
             @ApiResponse(responseCode = "200", description = "Returns the list of bookmarks", content = @Content(array = @ArraySchema(schema = @Schema(implementation = org.eclipse.tracecompass.incubator.internal.trace.server.jersey.rest.core.model.Bookmark.class)))),
+            @ApiResponse(responseCode = "400", description = INVALID_PARAMETERS, content = @Content(schema = @Schema(implementation = String.class))),
             @ApiResponse(responseCode = "404", description = NO_SUCH_EXPERIMENT, content = @Content(schema = @Schema(implementation = String.class)))
     })
-    public Response getBookmarks(@Parameter(description = EXP_UUID) @PathParam("expUUID") UUID expUUID) {
-        TmfExperiment experiment = ExperimentManagerService.getExperimentByUUID(expUUID);
-        if (experiment == null) {
-            return Response.status(Status.NOT_FOUND).entity(NO_SUCH_EXPERIMENT).build();
-        }
+    public Response getBookmarks(
+            @Parameter(description = EXP_UUID) @PathParam("expUUID") UUID expUUID,
+            @Parameter(description = "Start of the time range, inclusive") @QueryParam(BOOKMARK_START) Long start,
+            @Parameter(description = "End of the time range, inclusive") @QueryParam(BOOKMARK_END) Long end) {
 
-        IFile editorFile = TmfTraceManager.getInstance().getTraceEditorFile(experiment);
-        if (editorFile == null) {
-            return Response.ok(Collections.emptyList()).build();
+        long rangeStart = start == null ? Long.MIN_VALUE : start;
+        long rangeEnd = end == null ? Long.MAX_VALUE : end;
+        if (rangeStart > rangeEnd) {
+            return Response.status(Status.BAD_REQUEST).entity(INVALID_PARAMETERS).build();
         }
 
-        try {
-            IMarker[] markers = findBookmarkMarkers(editorFile);
-            List<Bookmark> bookmarks = markersToBookmarks(markers);
-            return Response.ok(bookmarks).build();
-        } catch (CoreException e) {
-            Activator.getInstance().logError("Failed to get bookmarks", e); //$NON-NLS-1$
-            return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+        BookmarkStore store = ExperimentManagerService.getBookmarkStore(expUUID);
+        if (store == null) {
+            return Response.status(Status.NOT_FOUND).entity(NO_SUCH_EXPERIMENT).build();
         }
+
+        List<Bookmark> bookmarks = (start == null && end == null) ? store.getBookmarks() : store.getBookmarks(rangeStart, rangeEnd);
+        return Response.ok(bookmarks).build();
     }
 
     /**
@@ -129,33 +122,17 @@ public class BookmarkManagerService {
             @Parameter(description = EXP_UUID) @PathParam("expUUID") UUID expUUID,
             @Parameter(description = "Bookmark UUID") @PathParam("bookmarkUUID") UUID bookmarkUUID) {
 
-        TmfExperiment experiment = ExperimentManagerService.getExperimentByUUID(expUUID);
-        if (experiment == null) {
+        BookmarkStore store = ExperimentManagerService.getBookmarkStore(expUUID);
+        if (store == null) {
             return Response.status(Status.NOT_FOUND).entity(NO_SUCH_EXPERIMENT).build();
         }
 
-        IFile editorFile = TmfTraceManager.getInstance().getTraceEditorFile(experiment);
-        if (editorFile == null) {
+        Bookmark bookmark = store.get(bookmarkUUID);
+        if (bookmark == null) {
             return Response.status(Status.NOT_FOUND).entity(EndpointConstants.BOOKMARK_NOT_FOUND).build();
         }
 
-        try {
-            IMarker[] markers = findBookmarkMarkers(editorFile);
-            IMarker marker = findMarkerByUUID(markers, bookmarkUUID);
-            if (marker == null) {
-                return Response.status(Status.NOT_FOUND).entity(EndpointConstants.BOOKMARK_NOT_FOUND).build();
-            }
-
-            Bookmark bookmark = markerToBookmark(marker);
-            if (bookmark == null) {
-                return Response.status(Status.NOT_FOUND).entity(EndpointConstants.BOOKMARK_NOT_FOUND).build();
-            }
-
-            return Response.ok(bookmark).build();
-        } catch (CoreException e) {
-            Activator.getInstance().logError("Failed to get bookmark", e); //$NON-NLS-1$
-            return Response.status(Status.INTERNAL_SERVER_ERROR).build();
-        }
+        return Response.ok(bookmark).build();
     }
 
     /**
@@ -191,28 +168,19 @@ public class BookmarkManagerService {
             return Response.status(Status.BAD_REQUEST).entity(errorMessage).build();
         }
 
-        TmfExperiment experiment = ExperimentManagerService.getExperimentByUUID(expUUID);
-        if (experiment == null) {
+        BookmarkStore store = ExperimentManagerService.getBookmarkStore(expUUID);
+        if (store == null) {
             return Response.status(Status.NOT_FOUND).entity(NO_SUCH_EXPERIMENT).build();
         }
 
-        IFile editorFile = TmfTraceManager.getInstance().getTraceEditorFile(experiment);
-        if (editorFile == null) {
-            return Response.status(Status.NOT_FOUND).entity(EndpointConstants.BOOKMARK_NOT_FOUND).build();
-        }
-
         try {
             String name = Objects.requireNonNull((String) parameters.get(BOOKMARK_NAME));
             long start = Objects.requireNonNull((Number) parameters.get(BOOKMARK_START)).longValue();
             long end = Objects.requireNonNull((Number) parameters.get(BOOKMARK_END)).longValue();
-            UUID uuid = generateUUID(editorFile);
 
-            Bookmark bookmark = new Bookmark(uuid, name, start, end);
-
-            IMarker marker = editorFile.createMarker(IMarker.BOOKMARK);
-            setMarkerAttributes(marker, bookmark);
+            Bookmark bookmark = store.create(name, start, end);
             return Response.ok(bookmark).build();
-        } catch (CoreException e) {
+        } catch (IOException e) {
             Activator.getInstance().logError("Failed to create bookmark", e); //$NON-NLS-1$
             return Response.status(Status.INTERNAL_SERVER_ERROR).build();
         }
@@ -255,32 +223,23 @@ public class BookmarkManagerService {
             return Response.status(Status.BAD_REQUEST).entity(errorMessage).build();
         }
 
-        TmfExperiment experiment = ExperimentManagerService.getExperimentByUUID(expUUID);
-        if (experiment == null) {
+        BookmarkStore store = ExperimentManagerService.getBookmarkStore(expUUID);
+        if (store == null) {
             return Response.status(Status.NOT_FOUND).entity(NO_SUCH_EXPERIMENT).build();
         }
 
-        IFile editorFile = TmfTraceManager.getInstance().getTraceEditorFile(experiment);
-        if (editorFile == null) {
-            return Response.status(Status.NOT_FOUND).entity(EndpointConstants.BOOKMARK_NOT_FOUND).build();
-        }
-
         String name = Objects.requireNonNull((String) parameters.get(BOOKMARK_NAME));
         long start = Objects.requireNonNull((Number) parameters.get(BOOKMARK_START)).longValue();
         long end = Objects.requireNonNull((Number) parameters.get(BOOKMARK_END)).longValue();
 
-        Bookmark bookmark = new Bookmark(bookmarkUUID, name, start, end);
-
         try {
-            IMarker[] markers = findBookmarkMarkers(editorFile);
-            IMarker marker = findMarkerByUUID(markers, bookmarkUUID);
-            if (marker == null) {
+            Bookmark bookmark = store.update(new Bookmark(bookmarkUUID, name, start, end));
+            if (bookmark == null) {
                 return Response.status(Status.NOT_FOUND).entity(EndpointConstants.BOOKMARK_NOT_FOUND).build();
             }
 
-            setMarkerAttributes(marker, bookmark);
             return Response.ok(bookmark).build();
-        } catch (CoreException e) {
+        } catch (IOException e) {
             Activator.getInstance().logError("Failed to update bookmark", e); //$NON-NLS-1$
             return Response.status(Status.INTERNAL_SERVER_ERROR).build();
         }
@@ -306,146 +265,21 @@ public class BookmarkManagerService {
             @Parameter(description = EXP_UUID) @PathParam("expUUID") UUID expUUID,
             @Parameter(description = "Bookmark UUID") @PathParam("bookmarkUUID") UUID bookmarkUUID) {
 
-        TmfExperiment experiment = ExperimentManagerService.getExperimentByUUID(expUUID);
-        if (experiment == null) {
+        BookmarkStore store = ExperimentManagerService.getBookmarkStore(expUUID);
+        if (store == null) {
             return Response.status(Status.NOT_FOUND).entity(NO_SUCH_EXPERIMENT).build();
         }
 
-        IFile editorFile = TmfTraceManager.getInstance().getTraceEditorFile(experiment);
-        if (editorFile == null) {
-            return Response.status(Status.NOT_FOUND).entity(EndpointConstants.BOOKMARK_NOT_FOUND).build();
-        }
-
         try {
-            IMarker[] markers = findBookmarkMarkers(editorFile);
-            IMarker marker = findMarkerByUUID(markers, bookmarkUUID);
-            if (marker == null) {
-                return Response.status(Status.NOT_FOUND).entity(EndpointConstants.BOOKMARK_NOT_FOUND).build();
-            }
-
-            Bookmark bookmark = markerToBookmark(marker);
+            Bookmark bookmark = store.delete(bookmarkUUID);
             if (bookmark == null) {
                 return Response.status(Status.NOT_FOUND).entity(EndpointConstants.BOOKMARK_NOT_FOUND).build();
             }
 
-            marker.delete();
             return Response.ok(bookmark).build();
-        } catch (CoreException e) {
+        } catch (IOException e) {
             Activator.getInstance().logError("Failed to delete bookmark", e); //$NON-NLS-1$
             return Response.status(Status.INTERNAL_SERVER_ERROR).build();
         }
     }
-
-    /**
-     * Generate a random UUID for a new bookmark
-     */
-    private static UUID generateUUID(IFile editorFile) throws CoreException {
-        IMarker[] markers = findBookmarkMarkers(editorFile);
-        while (true) {
-            UUID uuid = UUID.randomUUID();
-
-            // Check if the UUID hasn't been used yet
-            if (findMarkerByUUID(markers, uuid) == null) {
-                return uuid;
-            }
-        }
-    }
-
-    /**
-     * Find all bookmark markers in the editor file
-     */
-    private static IMarker[] findBookmarkMarkers(IFile editorFile) throws CoreException {
-        return editorFile.findMarkers(IMarker.BOOKMARK, false, IResource.DEPTH_ZERO);
-    }
-
-    /**
-     * Convert a marker to a Bookmark object
-     */
-    private static Bookmark markerToBookmark(IMarker marker) {
-        String uuid = marker.getAttribute(BOOKMARK_UUID, (String) null);
-        if (uuid == null) {
-            return null;
-        }
-
-        String name = marker.getAttribute(IMarker.MESSAGE, (String) null);
-        if (name == null) {
-            return null;
-        }
-
-        String startStr = marker.getAttribute(ITmfMarker.MARKER_TIME, (String) null);
-        if (startStr == null) {
-            return null;
-        }
-        long start;
-        try {
-            start = Long.parseLong(startStr);
-        } catch (NumberFormatException e) {
-            return null;
-        }
-
-        long duration = 0;
-        String durationStr = marker.getAttribute(ITmfMarker.MARKER_DURATION, (String) null);
-        if (durationStr != null) {
-            try {
-                duration = Long.parseLong(durationStr);
-            } catch (NumberFormatException e) {
-                return null;
-            }
-        }
-        long end = start + duration;
-
-        return new Bookmark(UUID.fromString(uuid), name, start, end);
-    }
-
-    /**
-     * Find a specific bookmark marker by UUID
-     */
-    private static IMarker findMarkerByUUID(IMarker[] markers, UUID bookmarkUUID) {
-        for (IMarker marker : markers) {
-            String uuid = marker.getAttribute(BOOKMARK_UUID, (String) null);
-            if (uuid != null && UUID.fromString(uuid).equals(bookmarkUUID)) {
-                return marker;
-            }
-        }
-        return null;
-    }
-
-    /**
-     * Create a new marker with bookmark attributes
-     */
-    private static void setMarkerAttributes(IMarker marker, Bookmark bookmark) throws CoreException {
-        Long duration = bookmark.getEnd() - bookmark.getStart();
-
-        marker.setAttribute(BOOKMARK_UUID, bookmark.getUUID().toString());
-        marker.setAttribute(IMarker.MESSAGE, bookmark.getName());
-        marker.setAttribute(ITmfMarker.MARKER_TIME, Long.toString(bookmark.getStart()));
-
-        if (duration > 0) {
-            marker.setAttribute(ITmfMarker.MARKER_DURATION, Long.toString(duration));
-            marker.setAttribute(IMarker.LOCATION,
-                    NLS.bind("timestamp [{0}, {1}]", //$NON-NLS-1$
-                            TmfTimestamp.fromNanos(bookmark.getStart()),
-                            TmfTimestamp.fromNanos(bookmark.getEnd())));
-        } else {
-            marker.setAttribute(IMarker.LOCATION,
-                    NLS.bind("timestamp [{0}]", //$NON-NLS-1$
-                            TmfTimestamp.fromNanos(bookmark.getStart())));
-        }
-
-        marker.setAttribute(ITmfMarker.MARKER_COLOR, BOOKMARK_DEFAULT_COLOR);
-    }
-
-    /**
-     * Convert list of markers to list of bookmarks
-     */
-    private static List<Bookmark> markersToBookmarks(IMarker[] markers) {
-        List<Bookmark> bookmarks = new ArrayList<>();
-        for (IMarker marker : markers) {
-            Bookmark bookmark = markerToBookmark(marker);
-            if (bookmark != null) {
-                bookmarks.add(bookmark);
-            }
-        }
-        return bookmarks;
-    }
-}
\ No newline at end of file
+}
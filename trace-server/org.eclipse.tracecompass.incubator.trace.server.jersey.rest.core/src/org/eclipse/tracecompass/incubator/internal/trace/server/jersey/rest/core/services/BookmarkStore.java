@@ -0,0 +1,331 @@
+/*******************************************************************************
+ * Copyright (c) 2024 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.trace.server.jersey.rest.core.services;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.incubator.internal.trace.server.jersey.rest.core.Activator;
+import org.eclipse.tracecompass.tmf.core.resources.ITmfMarker;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
+import org.eclipse.tracecompass.tmf.core.trace.experiment.TmfExperiment;
+
+/**
+ * Bookmarks of an experiment, indexed by UUID and by time.
+ * <p>
+ * The bookmarks are kept in memory and saved to a small binary file in the
+ * supplementary folder of the experiment after each change. The bookmarks
+ * that were saved as markers of the experiment's editor file by previous
+ * versions of the server are imported the first time the store is loaded.
+ * <p>
+ * The time index is sorted by start time. With the longest duration of the
+ * bookmarks, it finds the bookmarks intersecting a time range without looking
+ * at the ones that start too early to reach it.
+ */
+class BookmarkStore {
+
+    private static final String FILE_NAME = "bookmarks.dat"; //$NON-NLS-1$
+    private static final String TMP_SUFFIX = ".tmp"; //$NON-NLS-1$
+    private static final int MAGIC = 0x424B4D53;
+    private static final int VERSION = 1;
+
+    private static final String MARKER_UUID = "uuid"; //$NON-NLS-1$
+
+    private final File fFile;
+    private final Map<UUID, Bookmark> fBookmarks = new HashMap<>();
+    private final NavigableMap<Long, List<Bookmark>> fByStart = new TreeMap<>();
+    /* Upper bound of the durations, only reset when the store is empty */
+    private long fMaxDuration = 0L;
+
+    private BookmarkStore(File file) {
+        fFile = file;
+    }
+
+    /**
+     * Load the bookmarks of an experiment
+     *
+     * @param experiment
+     *            the experiment
+     * @return the bookmark store of the experiment
+     */
+    public static BookmarkStore load(TmfExperiment experiment) {
+        BookmarkStore store = new BookmarkStore(new File(TmfTraceManager.getSupplementaryFileDir(experiment) + FILE_NAME));
+        if (store.fFile.exists()) {
+            try {
+                store.read();
+            } catch (IOException e) {
+                Activator.getInstance().logWarning("Failed to read bookmarks of " + experiment.getName(), e); //$NON-NLS-1$
+                store.clear();
+            }
+            return store;
+        }
+        IFile editorFile = TmfTraceManager.getInstance().getTraceEditorFile(experiment);
+        if (editorFile != null && store.importMarkers(editorFile)) {
+            try {
+                store.write();
+            } catch (IOException e) {
+                Activator.getInstance().logWarning("Failed to save bookmarks of " + experiment.getName(), e); //$NON-NLS-1$
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Get all the bookmarks
+     *
+     * @return the bookmarks, sorted by start time
+     */
+    public synchronized List<Bookmark> getBookmarks() {
+        List<Bookmark> bookmarks = new ArrayList<>(fBookmarks.size());
+        fByStart.values().forEach(bookmarks::addAll);
+        return bookmarks;
+    }
+
+    /**
+     * Get the bookmarks that intersect a time range
+     *
+     * @param start
+     *            the start of the range, inclusive
+     * @param end
+     *            the end of the range, inclusive
+     * @return the bookmarks, sorted by start time
+     */
+    public synchronized List<Bookmark> getBookmarks(long start, long end) {
+        List<Bookmark> bookmarks = new ArrayList<>();
+        // A bookmark starting before this cannot reach the start of the range
+        long from = start - fMaxDuration > start ? Long.MIN_VALUE : start - fMaxDuration;
+        for (List<Bookmark> sameStart : fByStart.subMap(from, true, end, true).values()) {
+            for (Bookmark bookmark : sameStart) {
+                if (bookmark.getEnd() >= start) {
+                    bookmarks.add(bookmark);
+                }
+            }
+        }
+        return bookmarks;
+    }
+
+    /**
+     * Get a bookmark
+     *
+     * @param uuid
+     *            the UUID of the bookmark
+     * @return the bookmark, or null if there is none with this UUID
+     */
+    public synchronized @Nullable Bookmark get(UUID uuid) {
+        return fBookmarks.get(uuid);
+    }
+
+    /**
+     * Create a bookmark with a new UUID and save it
+     *
+     * @param name
+     *            the name of the bookmark
+     * @param start
+     *            the start time
+     * @param end
+     *            the end time
+     * @return the created bookmark
+     * @throws IOException
+     *             if the bookmarks cannot be saved, the bookmark is not created
+     */
+    public synchronized Bookmark create(String name, long start, long end) throws IOException {
+        UUID uuid = UUID.randomUUID();
+        while (fBookmarks.containsKey(uuid)) {
+            uuid = UUID.randomUUID();
+        }
+        Bookmark bookmark = new Bookmark(uuid, name, start, end);
+        add(bookmark);
+        try {
+            write();
+        } catch (IOException e) {
+            remove(bookmark);
+            throw e;
+        }
+        return bookmark;
+    }
+
+    /**
+     * Replace a bookmark and save it
+     *
+     * @param bookmark
+     *            the new bookmark, with the UUID of the bookmark to replace
+     * @return the new bookmark, or null if there is no bookmark with its UUID
+     * @throws IOException
+     *             if the bookmarks cannot be saved, the bookmark is not
+     *             replaced
+     */
+    public synchronized @Nullable Bookmark update(Bookmark bookmark) throws IOException {
+        Bookmark previous = fBookmarks.get(bookmark.getUUID());
+        if (previous == null) {
+            return null;
+        }
+        remove(previous);
+        add(bookmark);
+        try {
+            write();
+        } catch (IOException e) {
+            remove(bookmark);
+            add(previous);
+            throw e;
+        }
+        return bookmark;
+    }
+
+    /**
+     * Delete a bookmark and save the remaining ones
+     *
+     * @param uuid
+     *            the UUID of the bookmark
+     * @return the deleted bookmark, or null if there is none with this UUID
+     * @throws IOException
+     *             if the bookmarks cannot be saved, the bookmark is not deleted
+     */
+    public synchronized @Nullable Bookmark delete(UUID uuid) throws IOException {
+        Bookmark bookmark = fBookmarks.get(uuid);
+        if (bookmark == null) {
+            return null;
+        }
+        remove(bookmark);
+        try {
+            write();
+        } catch (IOException e) {
+            add(bookmark);
+            throw e;
+        }
+        return bookmark;
+    }
+
+    private void add(Bookmark bookmark) {
+        fBookmarks.put(bookmark.getUUID(), bookmark);
+        fByStart.computeIfAbsent(bookmark.getStart(), s -> new ArrayList<>(1)).add(bookmark);
+        fMaxDuration = Math.max(fMaxDuration, bookmark.getEnd() - bookmark.getStart());
+    }
+
+    private void remove(Bookmark bookmark) {
+        fBookmarks.remove(bookmark.getUUID());
+        List<Bookmark> sameStart = fByStart.get(bookmark.getStart());
+        if (sameStart != null) {
+            sameStart.remove(bookmark);
+            if (sameStart.isEmpty()) {
+                fByStart.remove(bookmark.getStart());
+            }
+        }
+        if (fBookmarks.isEmpty()) {
+            fMaxDuration = 0L;
+        }
+    }
+
+    private void clear() {
+        fBookmarks.clear();
+        fByStart.clear();
+        fMaxDuration = 0L;
+    }
+
+    private void read() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(fFile.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unknown bookmarks file format: " + fFile); //$NON-NLS-1$
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                UUID uuid = new UUID(in.readLong(), in.readLong());
+                String name = in.readUTF();
+                long start = in.readLong();
+                long end = in.readLong();
+                add(new Bookmark(uuid, name, start, end));
+            }
+        }
+    }
+
+    /**
+     * Write all the bookmarks to a temporary file that then replaces the
+     * bookmarks file, so that it is never partially written
+     */
+    private void write() throws IOException {
+        File tmpFile = new File(fFile.getPath() + TMP_SUFFIX);
+        File parent = fFile.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create the folder of " + fFile); //$NON-NLS-1$
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile.toPath())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(fBookmarks.size());
+            for (Bookmark bookmark : fBookmarks.values()) {
+                out.writeLong(bookmark.getUUID().getMostSignificantBits());
+                out.writeLong(bookmark.getUUID().getLeastSignificantBits());
+                out.writeUTF(bookmark.getName());
+                out.writeLong(bookmark.getStart());
+                out.writeLong(bookmark.getEnd());
+            }
+        }
+        Files.move(tmpFile.toPath(), fFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Import the bookmarks saved as markers of the editor file
+     *
+     * @return true if bookmarks were imported
+     */
+    private boolean importMarkers(IFile editorFile) {
+        IMarker[] markers;
+        try {
+            markers = editorFile.findMarkers(IMarker.BOOKMARK, false, IResource.DEPTH_ZERO);
+        } catch (CoreException e) {
+            Activator.getInstance().logWarning("Failed to import bookmarks from " + editorFile.getName(), e); //$NON-NLS-1$
+            return false;
+        }
+        for (IMarker marker : markers) {
+            Bookmark bookmark = markerToBookmark(marker);
+            if (bookmark != null && !fBookmarks.containsKey(bookmark.getUUID())) {
+                add(bookmark);
+            }
+        }
+        return !fBookmarks.isEmpty();
+    }
+
+    private static @Nullable Bookmark markerToBookmark(IMarker marker) {
+        String uuid = marker.getAttribute(MARKER_UUID, (String) null);
+        String name = marker.getAttribute(IMarker.MESSAGE, (String) null);
+        String startStr = marker.getAttribute(ITmfMarker.MARKER_TIME, (String) null);
+        if (uuid == null || name == null || startStr == null) {
+            return null;
+        }
+        try {
+            long start = Long.parseLong(startStr);
+            String durationStr = marker.getAttribute(ITmfMarker.MARKER_DURATION, (String) null);
+            long duration = durationStr == null ? 0L : Long.parseLong(durationStr);
+            return new Bookmark(UUID.fromString(uuid), name, start, start + duration);
+        } catch (IllegalArgumentException e) {
+            // Includes NumberFormatException
+            return null;
+        }
+    }
+}
@@ -100,6 +100,7 @@ public class ExperimentManagerService {
     private static final Map<UUID, IResource> EXPERIMENT_RESOURCES = Collections.synchronizedMap(initExperimentResources());
     private static final Map<UUID, TmfExperiment> EXPERIMENTS = Collections.synchronizedMap(new HashMap<>());
     private static final Map<UUID, TraceAnnotationProvider> TRACE_ANNOTATION_PROVIDERS = Collections.synchronizedMap(new HashMap<>());
+    private static final Map<UUID, BookmarkStore> BOOKMARK_STORES = Collections.synchronizedMap(new HashMap<>());
 
     private static final String EXPERIMENTS_FOLDER = "Experiments"; //$NON-NLS-1$
     private static final String TRACES_FOLDER = "Traces"; //$NON-NLS-1$
@@ -222,6 +223,7 @@ public class ExperimentManagerService {
             experiment.dispose();
         }
         TRACE_ANNOTATION_PROVIDERS.remove(expUUID);
+        BOOKMARK_STORES.remove(expUUID);
         TRACE_UUIDS.remove(expUUID);
         TRACE_INSTANCES.remove(expUUID);
         boolean deleteResources = true;
@@ -587,6 +589,24 @@ public class ExperimentManagerService {
         return TRACE_ANNOTATION_PROVIDERS.get(uuid);
     }
 
+    /**
+     * Get the bookmark store of an experiment, which is loaded the first time
+     * it is needed
+     *
+     * @param expUUID
+     *            queried {@link UUID}
+     * @return the bookmark store, or null if there is no such experiment
+     */
+    static @Nullable BookmarkStore getBookmarkStore(UUID expUUID) {
+        TmfExperiment experiment = getExperimentByUUID(expUUID);
+        if (experiment == null) {
+            return null;
+        }
+        synchronized (BOOKMARK_STORES) {
+            return BOOKMARK_STORES.computeIfAbsent(expUUID, uuid -> BookmarkStore.load(experiment));
+        }
+    }
+
     /**
      * Dispose method to be only called at server shutdown. It disposes experiments, traces etc.
      */
@@ -603,5 +623,6 @@ public class ExperimentManagerService {
         TRACE_INSTANCES.clear();
         EXPERIMENT_RESOURCES.clear();
         TRACE_ANNOTATION_PROVIDERS.clear();
+        BOOKMARK_STORES.clear();
     }
 }
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2024 Ecole Polytechnique de Montreal
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.atrace.core.tests.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+
+import org.eclipse.tracecompass.incubator.internal.atrace.trace.ATrace;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
+import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
+import org.junit.Test;
+
+/**
+ * Test that the header of a systrace file, found when the trace is first
+ * opened, is saved and gives the same events when the trace is opened again
+ */
+public class ATraceHeaderTest {
+
+    private static final String TRACE_PATH = "res/android_trace.html";
+    private static final int NB_EVENTS = 50;
+
+    /**
+     * Test reading the first events with a found and a saved header
+     *
+     * @throws TmfTraceException
+     *             if the trace cannot be opened
+     */
+    @Test
+    public void testSavedHeader() throws TmfTraceException {
+        ATrace first = new ATrace();
+        first.initTrace(null, TRACE_PATH, ITmfEvent.class);
+        File suppDir = new File(TmfTraceManager.getSupplementaryFileDir(first));
+        try {
+            File[] headerFiles = suppDir.listFiles((dir, name) -> name.equals("atrace.header"));
+            assertNotNull(headerFiles);
+            assertEquals(1, headerFiles.length);
+
+            ATrace second = new ATrace();
+            second.initTrace(null, TRACE_PATH, ITmfEvent.class);
+            try {
+                ITmfContext firstContext = first.seekEvent((ITmfLocation) null);
+                ITmfContext secondContext = second.seekEvent((ITmfLocation) null);
+                assertEquals(firstContext.getLocation(), secondContext.getLocation());
+                for (int i = 0; i < NB_EVENTS; i++) {
+                    ITmfEvent expected = first.getNext(firstContext);
+                    ITmfEvent actual = second.getNext(secondContext);
+                    assertNotNull(expected);
+                    assertNotNull(actual);
+                    assertEquals(expected.getName(), actual.getName());
+                    assertEquals(expected.getTimestamp(), actual.getTimestamp());
+                }
+                firstContext.dispose();
+                secondContext.dispose();
+            } finally {
+                second.dispose();
+            }
+        } finally {
+            first.dispose();
+            File[] files = suppDir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+        }
+    }
+}
@@ -14,11 +14,13 @@ package org.eclipse.tracecompass.incubator.internal.atrace.trace;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.regex.Matcher;
 
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.jdt.annotation.NonNull;
@@ -32,12 +34,17 @@ import org.eclipse.tracecompass.incubator.internal.ftrace.core.event.IGenericFtr
 import org.eclipse.tracecompass.incubator.internal.ftrace.core.trace.GenericFtrace;
 import org.eclipse.tracecompass.incubator.internal.traceevent.core.event.ITraceEventConstants;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
 import org.eclipse.tracecompass.tmf.core.io.BufferedRandomAccessFile;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
 import org.eclipse.tracecompass.tmf.core.trace.TmfContext;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
 import org.eclipse.tracecompass.tmf.core.trace.TmfTraceUtils;
 import org.eclipse.tracecompass.tmf.core.trace.TraceValidationStatus;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.ITmfPersistentlyIndexable;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.ITmfCheckpoint;
+import org.eclipse.tracecompass.tmf.core.trace.indexer.checkpoint.TmfCheckpoint;
 import org.eclipse.tracecompass.tmf.core.trace.location.ITmfLocation;
 import org.eclipse.tracecompass.tmf.core.trace.location.TmfLongLocation;
 
@@ -50,7 +57,7 @@ import org.eclipse.tracecompass.tmf.core.trace.location.TmfLongLocation;
  * @author Pierre-Yves Lajoie
  * @author Eva Terriault
  */
-public class ATrace extends GenericFtrace {
+public class ATrace extends GenericFtrace implements ITmfPersistentlyIndexable {
 
     private static final String ATRACE_TRACEEVENT_EVENT = "tracing_mark_write"; //$NON-NLS-1$
 
@@ -63,7 +70,11 @@ public class ATrace extends GenericFtrace {
     private static final TmfLongLocation NULL_LOCATION = new TmfLongLocation(-1L);
     private static final TmfContext INVALID_CONTEXT = new TmfContext(NULL_LOCATION, ITmfContext.UNKNOWN_RANK);
 
-    private long startingTimestamp;
+    /** Name of the supplementary file of the header */
+    private static final String HEADER_FILE = "atrace.header"; //$NON-NLS-1$
+
+    private @Nullable ATraceHeader fHeader = null;
+    private int fCheckpointSize = -1;
 
     @Override
     public IStatus validate(IProject project, String path) {
@@ -131,6 +142,17 @@ public class ATrace extends GenericFtrace {
 
     }
 
+    @Override
+    public void initTrace(IResource resource, String path, Class<? extends ITmfEvent> type) throws TmfTraceException {
+        super.initTrace(resource, path, type);
+        File headerFile = new File(TmfTraceManager.getSupplementaryFileDir(this) + HEADER_FILE);
+        try {
+            fHeader = ATraceHeader.get(getFile(), getFileInput(), headerFile);
+        } catch (IOException e) {
+            throw new TmfTraceException(e.getMessage(), e);
+        }
+    }
+
     @Override
     public ITmfContext seekEvent(ITmfLocation location) {
         if (getFile() == null) {
@@ -143,39 +165,14 @@ public class ATrace extends GenericFtrace {
         RandomAccessFile fileInput = getFileInput();
         try {
             if (location == null) {
-                fileInput.seek(0);
-                long lineStartOffset = fileInput.getFilePointer();
-                String line = fileInput.readLine();
-
-                // Look for process dump matches
-                Matcher processDumpMatcher = IAtraceConstants.PROCESS_DUMP_PATTERN.matcher(line);
-                Matcher atraceMatcher = IGenericFtraceConstants.FTRACE_PATTERN.matcher(line);
-
-                while (!atraceMatcher.matches() && !processDumpMatcher.matches()) {
-                    lineStartOffset = fileInput.getFilePointer();
-                    line = fileInput.readLine();
-                    atraceMatcher = IGenericFtraceConstants.FTRACE_PATTERN.matcher(line);
-                    processDumpMatcher = IAtraceConstants.PROCESS_DUMP_PATTERN.matcher(line);
-                }
-                if (processDumpMatcher.matches()) {
-                    // Look for the first atrace event to extract timestamp
-                    while (!atraceMatcher.matches()) {
-                        line = fileInput.readLine();
-                        atraceMatcher = IGenericFtraceConstants.FTRACE_PATTERN.matcher(line);
-                    }
-                    GenericFtraceField field = GenericFtraceField.parseLine(line);
-                    if (field != null) {
-                        startingTimestamp = field.getTs();
-                    }
-                }
-
-                fileInput.seek(lineStartOffset);
+                // The first record, found when the trace was opened
+                fileInput.seek(getHeader().getFirstRecordOffset());
             } else if (location.getLocationInfo() instanceof Long) {
                 fileInput.seek((Long) location.getLocationInfo());
             }
             context.setLocation(new TmfLongLocation(fileInput.getFilePointer()));
             context.setRank(0);
-        } catch (NullPointerException | IOException e) {
+        } catch (IOException e) {
             Activator.getInstance().logError("Error seeking event." + getPath(), e); //$NON-NLS-1$
         }
         return context;
@@ -184,11 +181,6 @@ public class ATrace extends GenericFtrace {
 
     @Override
     public ITmfEvent parseEvent(ITmfContext context) {
-        ITmfEvent event = super.parseEvent(context);
-        if (event != null) {
-            return event;
-        }
-        // We might be in the process dump generated by systrace
         ITmfLocation location = context.getLocation();
         if (location instanceof TmfLongLocation) {
             TmfLongLocation tmfLongLocation = (TmfLongLocation) location;
@@ -196,30 +188,77 @@ public class ATrace extends GenericFtrace {
             if (location.equals(NULL_LOCATION)) {
                 locationInfo = 0L;
             }
-            super.parseEvent(context);
-            if (locationInfo != null) {
-                RandomAccessFile fileInput = getFileInput();
-                try {
-                    if (!locationInfo.equals(fileInput.getFilePointer())) {
-                        fileInput.seek(locationInfo);
-                    }
-                    String nextLine = fileInput.readLine();
-                    // TODO: Check here if matches the following. If it does,
-                    // skip line.
-                    // - USER PID PPID ..
-                    // - html tags </script> <script class="trace-data"
-                    // type="application/text">
-                    // - Starts with #
-                    SystraceProcessDumpEventField field = SystraceProcessDumpEventField.parseLine(nextLine);
-                    if (field != null) {
-                        return new SystraceProcessDumpEvent(this, context.getRank(), TmfTimestamp.fromNanos(startingTimestamp), field);
-                    }
-                } catch (IOException e) {
-                    Activator.getInstance().logError("Error parsing event", e); //$NON-NLS-1$
+            ATraceHeader header = getHeader();
+            // We might be in the process dump generated by systrace
+            if (locationInfo != null && header.isInProcessDump(locationInfo)) {
+                ITmfEvent event = parseProcessDumpEvent(context, locationInfo, header);
+                if (event != null) {
+                    return event;
                 }
             }
         }
-        return event;
+        return super.parseEvent(context);
+    }
+
+    private @Nullable ITmfEvent parseProcessDumpEvent(ITmfContext context, long locationInfo, ATraceHeader header) {
+        RandomAccessFile fileInput = getFileInput();
+        try {
+            if (locationInfo != fileInput.getFilePointer()) {
+                fileInput.seek(locationInfo);
+            }
+            String nextLine = fileInput.readLine();
+            // TODO: Check here if matches the following. If it does,
+            // skip line.
+            // - USER PID PPID ..
+            // - html tags </script> <script class="trace-data"
+            // type="application/text">
+            // - Starts with #
+            SystraceProcessDumpEventField field = SystraceProcessDumpEventField.parseLine(nextLine);
+            if (field != null) {
+                return new SystraceProcessDumpEvent(this, context.getRank(), TmfTimestamp.fromNanos(header.getFirstEventTimestamp()), field);
+            }
+            fileInput.seek(locationInfo);
+        } catch (IOException e) {
+            Activator.getInstance().logError("Error parsing event", e); //$NON-NLS-1$
+        }
+        return null;
+    }
+
+    private ATraceHeader getHeader() {
+        ATraceHeader header = fHeader;
+        if (header == null) {
+            // Not initialized through initTrace
+            try {
+                header = ATraceHeader.scan(getFileInput());
+            } catch (IOException e) {
+                Activator.getInstance().logError("Error reading header of trace " + getPath(), e); //$NON-NLS-1$
+                header = ATraceHeader.EMPTY;
+            }
+            fHeader = header;
+        }
+        return header;
+    }
+
+    // ------------------------------------------------------------------------
+    // ITmfPersistentlyIndexable
+    // ------------------------------------------------------------------------
+
+    @Override
+    public ITmfLocation restoreLocation(ByteBuffer bufferIn) {
+        return new TmfLongLocation(bufferIn);
+    }
+
+    @Override
+    public int getCheckpointSize() {
+        int checkpointSize = fCheckpointSize;
+        if (checkpointSize < 0) {
+            TmfCheckpoint checkpoint = new TmfCheckpoint(TmfTimestamp.fromNanos(0), new TmfLongLocation(0L), 0);
+            ByteBuffer buffer = ByteBuffer.allocate(ITmfCheckpoint.MAX_SERIALIZE_SIZE);
+            checkpoint.serialize(buffer);
+            checkpointSize = buffer.position();
+            fCheckpointSize = checkpointSize;
+        }
+        return checkpointSize;
     }
 
     @Override
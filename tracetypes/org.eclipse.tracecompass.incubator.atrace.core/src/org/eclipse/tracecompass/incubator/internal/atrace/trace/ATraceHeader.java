@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2024 Ecole Polytechnique de Montreal
+ *
+ * All rights reserved. This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.atrace.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Properties;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.incubator.internal.atrace.event.IAtraceConstants;
+import org.eclipse.tracecompass.incubator.internal.ftrace.core.event.GenericFtraceField;
+import org.eclipse.tracecompass.incubator.internal.ftrace.core.event.IGenericFtraceConstants;
+
+/**
+ * The layout of the beginning of an atrace file: where the records start,
+ * where the systrace process dump ends and the ftrace events start, and the
+ * timestamp of the first event, which is the timestamp of the process dump
+ * events.
+ * <p>
+ * Finding them needs to match the lines of the file up to the first event, so
+ * they are found once and saved with the supplementary files of the trace,
+ * along with the size and modification time of the trace file to check that
+ * they are still valid.
+ */
+class ATraceHeader {
+
+    private static final String KEY_LENGTH = "length"; //$NON-NLS-1$
+    private static final String KEY_MODIFIED = "modified"; //$NON-NLS-1$
+    private static final String KEY_FIRST_RECORD = "firstRecord"; //$NON-NLS-1$
+    private static final String KEY_FIRST_EVENT = "firstEvent"; //$NON-NLS-1$
+    private static final String KEY_TIMESTAMP = "timestamp"; //$NON-NLS-1$
+
+    /** Header of a trace that could not be read, with no process dump */
+    public static final ATraceHeader EMPTY = new ATraceHeader(0L, 0L, 0L);
+
+    private final long fFirstRecordOffset;
+    private final long fFirstEventOffset;
+    private final long fFirstEventTimestamp;
+
+    private ATraceHeader(long firstRecordOffset, long firstEventOffset, long firstEventTimestamp) {
+        fFirstRecordOffset = firstRecordOffset;
+        fFirstEventOffset = firstEventOffset;
+        fFirstEventTimestamp = firstEventTimestamp;
+    }
+
+    /**
+     * @return the offset of the first line that is a process dump line or an
+     *         ftrace event
+     */
+    public long getFirstRecordOffset() {
+        return fFirstRecordOffset;
+    }
+
+    /**
+     * @return the offset of the first ftrace event, after the process dump if
+     *         there is one
+     */
+    public long getFirstEventOffset() {
+        return fFirstEventOffset;
+    }
+
+    /**
+     * @return the timestamp of the first ftrace event, in nanoseconds
+     */
+    public long getFirstEventTimestamp() {
+        return fFirstEventTimestamp;
+    }
+
+    /**
+     * Whether a location is in the process dump
+     *
+     * @param offset
+     *            the offset of a line
+     * @return <code>true</code> if the line is in the process dump
+     */
+    public boolean isInProcessDump(long offset) {
+        return offset >= fFirstRecordOffset && offset < fFirstEventOffset;
+    }
+
+    /**
+     * Read the header of a trace file from its saved file, or find it and save
+     * it if it is missing or outdated
+     *
+     * @param traceFile
+     *            the trace file
+     * @param fileInput
+     *            the input of the trace file, whose position is modified
+     * @param headerFile
+     *            the file where the header is saved
+     * @return the header
+     * @throws IOException
+     *             if the trace file cannot be read
+     */
+    public static ATraceHeader get(File traceFile, RandomAccessFile fileInput, File headerFile) throws IOException {
+        ATraceHeader header = read(traceFile, headerFile);
+        if (header == null) {
+            header = scan(fileInput);
+            header.write(traceFile, headerFile);
+        }
+        return header;
+    }
+
+    /**
+     * Find the header by reading the lines of a trace file until its first
+     * ftrace event
+     *
+     * @param fileInput
+     *            the input of the trace file, whose position is modified
+     * @return the header
+     * @throws IOException
+     *             if the trace file cannot be read
+     */
+    public static ATraceHeader scan(RandomAccessFile fileInput) throws IOException {
+        fileInput.seek(0);
+        long lineStartOffset = fileInput.getFilePointer();
+        String line = fileInput.readLine();
+        // Look for process dump or atrace matches
+        while (line != null && !IGenericFtraceConstants.FTRACE_PATTERN.matcher(line).matches() && !IAtraceConstants.PROCESS_DUMP_PATTERN.matcher(line).matches()) {
+            lineStartOffset = fileInput.getFilePointer();
+            line = fileInput.readLine();
+        }
+        long firstRecordOffset = lineStartOffset;
+        if (line != null && IAtraceConstants.PROCESS_DUMP_PATTERN.matcher(line).matches()) {
+            // Look for the first atrace event after the process dump
+            while (line != null && !IGenericFtraceConstants.FTRACE_PATTERN.matcher(line).matches()) {
+                lineStartOffset = fileInput.getFilePointer();
+                line = fileInput.readLine();
+            }
+        }
+        long timestamp = 0L;
+        if (line != null) {
+            GenericFtraceField field = GenericFtraceField.parseLine(line);
+            if (field != null) {
+                timestamp = field.getTs();
+            }
+        }
+        return new ATraceHeader(firstRecordOffset, lineStartOffset, timestamp);
+    }
+
+    private static @Nullable ATraceHeader read(File traceFile, File headerFile) {
+        if (!headerFile.exists()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(headerFile.toPath())) {
+            properties.load(in);
+            if (Long.parseLong(properties.getProperty(KEY_LENGTH)) != traceFile.length() ||
+                    Long.parseLong(properties.getProperty(KEY_MODIFIED)) != traceFile.lastModified()) {
+                return null;
+            }
+            return new ATraceHeader(Long.parseLong(properties.getProperty(KEY_FIRST_RECORD)),
+                    Long.parseLong(properties.getProperty(KEY_FIRST_EVENT)),
+                    Long.parseLong(properties.getProperty(KEY_TIMESTAMP)));
+        } catch (IOException | NumberFormatException e) {
+            // The header will be found again
+            return null;
+        }
+    }
+
+    private void write(File traceFile, File headerFile) {
+        Properties properties = new Properties();
+        properties.setProperty(KEY_LENGTH, String.valueOf(traceFile.length()));
+        properties.setProperty(KEY_MODIFIED, String.valueOf(traceFile.lastModified()));
+        properties.setProperty(KEY_FIRST_RECORD, String.valueOf(fFirstRecordOffset));
+        properties.setProperty(KEY_FIRST_EVENT, String.valueOf(fFirstEventOffset));
+        properties.setProperty(KEY_TIMESTAMP, String.valueOf(fFirstEventTimestamp));
+        try (OutputStream out = Files.newOutputStream(headerFile.toPath())) {
+            properties.store(out, null);
+        } catch (IOException e) {
+            // Not saved, the header will be found again next time
+            headerFile.delete();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/**********************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+package org.eclipse.tracecompass.incubator.dpdk.core.tests.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.tracecompass.incubator.dpdk.core.tests.utils.DpdkTestTraceUtils;
+import org.eclipse.tracecompass.incubator.dpdk.core.trace.DpdkTrace;
+import org.eclipse.tracecompass.incubator.internal.dpdk.core.analysis.AbstractDpdkStateProvider;
+import org.eclipse.tracecompass.incubator.internal.dpdk.core.analysis.IDpdkEventHandler;
+import org.eclipse.tracecompass.incubator.internal.dpdk.core.lcore.analysis.DpdkLogicalCoreEventLayout;
+import org.eclipse.tracecompass.testtraces.ctf.CtfTestTrace;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.exceptions.TmfAnalysisException;
+import org.eclipse.tracecompass.tmf.core.statesystem.ITmfStateProvider;
+import org.eclipse.tracecompass.tmf.core.statesystem.TmfStateSystemAnalysisModule;
+import org.eclipse.tracecompass.tmf.core.tests.shared.TmfTestHelper;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the dispatch of the events to their handler by the
+ * {@link AbstractDpdkStateProvider}
+ */
+public class DpdkEventDispatchTest {
+
+    private static final DpdkLogicalCoreEventLayout LAYOUT = new DpdkLogicalCoreEventLayout();
+
+    private DpdkTrace fTrace;
+    private DispatchAnalysisModule fModule;
+
+    /**
+     * State provider counting the events it receives and the events
+     * dispatched to each handler
+     */
+    private static class DispatchStateProvider extends AbstractDpdkStateProvider {
+
+        private final Map<String, AtomicInteger> fReceived = new ConcurrentHashMap<>();
+        private final Map<String, AtomicInteger> fDispatched = new ConcurrentHashMap<>();
+        private final AtomicInteger fNbTables = new AtomicInteger();
+        private final AtomicInteger fNbWrongEvents = new AtomicInteger();
+
+        public DispatchStateProvider(ITmfTrace trace) {
+            super(trace, "test"); //$NON-NLS-1$
+        }
+
+        @Override
+        public int getVersion() {
+            return 0;
+        }
+
+        @Override
+        public ITmfStateProvider getNewInstance() {
+            return new DispatchStateProvider(getTrace());
+        }
+
+        @Override
+        protected void eventHandle(ITmfEvent event) {
+            fReceived.computeIfAbsent(event.getName(), name -> new AtomicInteger()).incrementAndGet();
+            super.eventHandle(event);
+        }
+
+        @Override
+        protected Map<String, IDpdkEventHandler> createEventHandlers() {
+            fNbTables.incrementAndGet();
+            Map<String, IDpdkEventHandler> handlers = new HashMap<>();
+            handlers.put(LAYOUT.eventServiceRunBegin(), (ssb, event) -> dispatched(LAYOUT.eventServiceRunBegin(), event));
+            handlers.put(LAYOUT.eventServiceRunEnd(), (ssb, event) -> dispatched(LAYOUT.eventServiceRunEnd(), event));
+            return handlers;
+        }
+
+        private void dispatched(String handlerName, ITmfEvent event) {
+            if (!handlerName.equals(event.getName())) {
+                fNbWrongEvents.incrementAndGet();
+            }
+            fDispatched.computeIfAbsent(handlerName, name -> new AtomicInteger()).incrementAndGet();
+        }
+    }
+
+    /**
+     * Analysis module of the dispatch state provider
+     */
+    private static class DispatchAnalysisModule extends TmfStateSystemAnalysisModule {
+
+        private DispatchStateProvider fProvider;
+
+        @Override
+        protected ITmfStateProvider createStateProvider() {
+            ITmfTrace trace = getTrace();
+            assertNotNull(trace);
+            DispatchStateProvider provider = new DispatchStateProvider(trace);
+            fProvider = provider;
+            return provider;
+        }
+
+        @Override
+        protected StateSystemBackendType getBackendType() {
+            return StateSystemBackendType.INMEMORY;
+        }
+    }
+
+    /**
+     * Set-up the test
+     */
+    @Before
+    public void setUp() {
+        fTrace = DpdkTestTraceUtils.getTrace(CtfTestTrace.DPDK_SERVICE_CORES);
+        fModule = new DispatchAnalysisModule();
+        fModule.setId("test"); //$NON-NLS-1$
+        try {
+            assertTrue(fModule.setTrace(fTrace));
+        } catch (TmfAnalysisException e) {
+            fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Dispose test objects
+     */
+    @After
+    public void tearDown() {
+        fModule.dispose();
+        DpdkTestTraceUtils.dispose(CtfTestTrace.DPDK_SERVICE_CORES);
+        fTrace = null;
+        fModule = null;
+    }
+
+    /**
+     * Test that the dispatch table is created once, and that each event with
+     * a handler is dispatched to its handler only
+     */
+    @Test
+    public void testDispatch() {
+        assertTrue(TmfTestHelper.executeAnalysis(fModule));
+        DispatchStateProvider provider = fModule.fProvider;
+        assertNotNull(provider);
+
+        assertEquals(1, provider.fNbTables.get());
+        assertEquals(0, provider.fNbWrongEvents.get());
+        int nbDispatched = 0;
+        for (String name : new String[] { LAYOUT.eventServiceRunBegin(), LAYOUT.eventServiceRunEnd() }) {
+            AtomicInteger received = provider.fReceived.get(name);
+            AtomicInteger dispatched = provider.fDispatched.get(name);
+            assertNotNull(received);
+            assertNotNull(dispatched);
+            assertEquals(received.get(), dispatched.get());
+            nbDispatched += dispatched.get();
+        }
+        int nbReceived = 0;
+        for (AtomicInteger received : provider.fReceived.values()) {
+            nbReceived += received.get();
+        }
+        // The trace has other events, which have no handler
+        assertTrue(nbReceived > nbDispatched);
+    }
+}
@@ -0,0 +1,252 @@
+/**********************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+package org.eclipse.tracecompass.incubator.dpdk.core.tests.utilization;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.tracecompass.incubator.analysis.core.pyramid.ValuePyramid;
+import org.eclipse.tracecompass.incubator.analysis.core.pyramid.ValuePyramid.Statistic;
+import org.eclipse.tracecompass.incubator.dpdk.core.tests.utils.DpdkTestTraceUtils;
+import org.eclipse.tracecompass.incubator.dpdk.core.trace.DpdkTrace;
+import org.eclipse.tracecompass.incubator.internal.dpdk.core.utilization.analysis.DpdkUtilizationAnalysisModule;
+import org.eclipse.tracecompass.incubator.internal.dpdk.core.utilization.analysis.DpdkUtilizationStateProvider;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.testtraces.ctf.CtfTestTrace;
+import org.eclipse.tracecompass.tmf.core.exceptions.TmfAnalysisException;
+import org.eclipse.tracecompass.tmf.core.tests.shared.TmfTestHelper;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
+import org.eclipse.tracecompass.tmf.ctf.core.tests.shared.CtfTmfTestTraceUtils;
+import org.eclipse.tracecompass.tmf.ctf.core.trace.CtfTmfTrace;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the {@link DpdkUtilizationAnalysisModule} and its
+ * {@link DpdkUtilizationStateProvider}. The busy time and calls in the value
+ * pyramid are compared with those computed from the state system.
+ */
+public class DpdkUtilizationAnalysisTest {
+
+    private static final double DELTA = 1e-9;
+
+    private DpdkTrace fTrace;
+    private DpdkUtilizationAnalysisModule fModule;
+
+    /**
+     * Set-up the test
+     */
+    @Before
+    public void setUp() {
+        fTrace = DpdkTestTraceUtils.getTrace(CtfTestTrace.DPDK_SERVICE_CORES);
+        fModule = createModule(fTrace);
+    }
+
+    /**
+     * Dispose test objects
+     */
+    @After
+    public void tearDown() {
+        fModule.dispose();
+        File suppDir = new File(TmfTraceManager.getSupplementaryFileDir(fTrace));
+        File[] files = suppDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        DpdkTestTraceUtils.dispose(CtfTestTrace.DPDK_SERVICE_CORES);
+        fTrace = null;
+        fModule = null;
+    }
+
+    private static DpdkUtilizationAnalysisModule createModule(DpdkTrace trace) {
+        DpdkUtilizationAnalysisModule module = new DpdkUtilizationAnalysisModule();
+        module.setId(DpdkUtilizationAnalysisModule.ID);
+        try {
+            assertTrue(module.setTrace(trace));
+        } catch (TmfAnalysisException e) {
+            fail(e.getMessage());
+        }
+        return module;
+    }
+
+    /**
+     * Test the attributes of the state system: the number of running
+     * functions and services of each logical core is never negative, and the
+     * number of calls of each service never decreases
+     *
+     * @throws StateSystemDisposedException
+     *             if the state system is disposed
+     */
+    @Test
+    public void testStateSystem() throws StateSystemDisposedException {
+        assertTrue(TmfTestHelper.executeAnalysis(fModule));
+        ITmfStateSystem ss = fModule.getStateSystem();
+        assertNotNull(ss);
+
+        List<Integer> lcores = ss.getQuarks(DpdkUtilizationStateProvider.LCORES, "*");
+        assertFalse(lcores.isEmpty());
+        for (ITmfStateInterval interval : ss.query2D(lcores, ss.getStartTime(), ss.getCurrentEndTime())) {
+            Object value = interval.getValue();
+            assertTrue(value == null || (value instanceof Integer && (Integer) value >= 0));
+        }
+
+        List<Integer> services = ss.getQuarks(DpdkUtilizationStateProvider.SERVICES, "*");
+        assertFalse(services.isEmpty());
+        for (Integer quark : services) {
+            long previous = 0;
+            for (ITmfStateInterval interval : ss.query2D(Collections.singleton(quark), ss.getStartTime(), ss.getCurrentEndTime())) {
+                Object value = interval.getValue();
+                if (value instanceof Long) {
+                    assertTrue((Long) value > previous);
+                    previous = (Long) value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Test that the busy ratio of each logical core and the call rate of each
+     * service in the pyramid are those of the state system, at every level
+     *
+     * @throws StateSystemDisposedException
+     *             if the state system is disposed
+     */
+    @Test
+    public void testPyramid() throws StateSystemDisposedException {
+        assertTrue(TmfTestHelper.executeAnalysis(fModule));
+        ITmfStateSystem ss = fModule.getStateSystem();
+        assertNotNull(ss);
+        ValuePyramid pyramid = fModule.getPyramid();
+        assertNotNull(pyramid);
+        assertEquals(ss.getCurrentEndTime() + 1, pyramid.getEnd());
+
+        long width = pyramid.getBucketWidth();
+        long start = pyramid.getStart();
+        for (int level = 0; (width << level) < pyramid.getEnd() - start; level++) {
+            long levelWidth = width << level;
+            List<Long> times = new ArrayList<>();
+            for (long time = start; time < pyramid.getEnd(); time += levelWidth) {
+                times.add(time);
+            }
+            for (Integer quark : ss.getQuarks(DpdkUtilizationStateProvider.LCORES, "*")) {
+                double[] busy = pyramid.getValues(quark, times, Statistic.AVERAGE);
+                assertNotNull(busy);
+                for (int i = 0; i < times.size(); i++) {
+                    long bucketStart = times.get(i);
+                    long bucketEnd = Math.min(bucketStart + levelWidth, pyramid.getEnd());
+                    assertEquals((double) getBusyTime(ss, quark, bucketStart, bucketEnd) / (bucketEnd - bucketStart), busy[i], DELTA);
+                }
+            }
+            for (Integer quark : ss.getQuarks(DpdkUtilizationStateProvider.SERVICES, "*")) {
+                double[] calls = pyramid.getValues(quark, times, Statistic.AVERAGE);
+                assertNotNull(calls);
+                for (int i = 0; i < times.size(); i++) {
+                    long bucketStart = times.get(i);
+                    long bucketEnd = Math.min(bucketStart + levelWidth, pyramid.getEnd());
+                    long nbCalls = getNbCalls(ss, quark, bucketEnd - 1) - getNbCalls(ss, quark, bucketStart - 1);
+                    assertEquals((double) nbCalls / (bucketEnd - bucketStart), calls[i], DELTA);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test that a module opening the state system of a previous run reads the
+     * same pyramid from the supplementary files
+     *
+     * @throws StateSystemDisposedException
+     *             if the state system is disposed
+     */
+    @Test
+    public void testPersistedPyramid() throws StateSystemDisposedException {
+        assertTrue(TmfTestHelper.executeAnalysis(fModule));
+        ValuePyramid pyramid = fModule.getPyramid();
+        assertNotNull(pyramid);
+        ITmfStateSystem ss = fModule.getStateSystem();
+        assertNotNull(ss);
+        List<Integer> quarks = new ArrayList<>(ss.getQuarks(DpdkUtilizationStateProvider.LCORES, "*"));
+        quarks.addAll(ss.getQuarks(DpdkUtilizationStateProvider.SERVICES, "*"));
+        fModule.dispose();
+
+        fModule = createModule(fTrace);
+        assertTrue(TmfTestHelper.executeAnalysis(fModule));
+        ValuePyramid read = fModule.getPyramid();
+        assertNotNull(read);
+        assertEquals(pyramid.getStart(), read.getStart());
+        assertEquals(pyramid.getEnd(), read.getEnd());
+        assertEquals(pyramid.getBucketWidth(), read.getBucketWidth());
+        List<Long> times = new ArrayList<>();
+        for (long time = pyramid.getStart(); time < pyramid.getEnd(); time += pyramid.getBucketWidth() * 4) {
+            times.add(time);
+        }
+        for (Integer quark : quarks) {
+            assertArrayEquals(pyramid.getValues(quark, times, Statistic.AVERAGE), read.getValues(quark, times, Statistic.AVERAGE), 0.0);
+        }
+    }
+
+    /**
+     * Test the canExecute method on valid and invalid traces
+     */
+    @Test
+    public void testCanExecute() {
+        assertTrue(fModule.canExecute(fTrace));
+
+        /* Test with a CTF trace that does not have required events */
+        CtfTmfTrace trace = CtfTmfTestTraceUtils.getTrace(CtfTestTrace.CYG_PROFILE);
+        assertFalse(fModule.canExecute(trace));
+        CtfTmfTestTraceUtils.dispose(CtfTestTrace.CYG_PROFILE);
+    }
+
+    /**
+     * Get the time a logical core runs at least one function or service in a
+     * time range, the end being exclusive
+     */
+    private static long getBusyTime(ITmfStateSystem ss, int quark, long start, long end) throws StateSystemDisposedException {
+        long from = Math.max(start, ss.getStartTime());
+        long to = Math.min(end - 1, ss.getCurrentEndTime());
+        if (to < from) {
+            return 0;
+        }
+        long busy = 0;
+        for (ITmfStateInterval interval : ss.query2D(Collections.singleton(quark), from, to)) {
+            Object value = interval.getValue();
+            if (value instanceof Integer && (Integer) value > 0) {
+                busy += Math.min(interval.getEndTime() + 1, end) - Math.max(interval.getStartTime(), start);
+            }
+        }
+        return busy;
+    }
+
+    /**
+     * Get the number of calls of a service since the start of the trace
+     */
+    private static long getNbCalls(ITmfStateSystem ss, int quark, long time) throws StateSystemDisposedException {
+        if (time < ss.getStartTime()) {
+            return 0;
+        }
+        Object value = ss.querySingleState(time, quark).getValue();
+        return value instanceof Long ? (Long) value : 0;
+    }
+}
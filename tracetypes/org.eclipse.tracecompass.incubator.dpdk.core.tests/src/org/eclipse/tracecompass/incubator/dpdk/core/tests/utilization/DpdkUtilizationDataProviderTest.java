@@ -0,0 +1,260 @@
+/**********************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+package org.eclipse.tracecompass.incubator.dpdk.core.tests.utilization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.tracecompass.incubator.analysis.core.pyramid.ValuePyramid;
+import org.eclipse.tracecompass.incubator.analysis.core.pyramid.ValuePyramid.Statistic;
+import org.eclipse.tracecompass.incubator.dpdk.core.tests.utils.DpdkTestTraceUtils;
+import org.eclipse.tracecompass.incubator.dpdk.core.trace.DpdkTrace;
+import org.eclipse.tracecompass.incubator.internal.dpdk.core.utilization.analysis.DpdkUtilizationAnalysisModule;
+import org.eclipse.tracecompass.incubator.internal.dpdk.core.utilization.analysis.DpdkUtilizationDataProvider;
+import org.eclipse.tracecompass.incubator.internal.dpdk.core.utilization.analysis.DpdkUtilizationDataProviderFactory;
+import org.eclipse.tracecompass.incubator.internal.dpdk.core.utilization.analysis.DpdkUtilizationStateProvider;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.testtraces.ctf.CtfTestTrace;
+import org.eclipse.tracecompass.tmf.core.dataprovider.DataProviderParameterUtils;
+import org.eclipse.tracecompass.tmf.core.dataprovider.IDataProviderDescriptor;
+import org.eclipse.tracecompass.tmf.core.model.tree.ITmfTreeDataModel;
+import org.eclipse.tracecompass.tmf.core.model.tree.ITmfTreeDataProvider;
+import org.eclipse.tracecompass.tmf.core.model.tree.TmfTreeDataModel;
+import org.eclipse.tracecompass.tmf.core.model.tree.TmfTreeModel;
+import org.eclipse.tracecompass.tmf.core.model.xy.ISeriesModel;
+import org.eclipse.tracecompass.tmf.core.model.xy.ITmfXyModel;
+import org.eclipse.tracecompass.tmf.core.response.ITmfResponse;
+import org.eclipse.tracecompass.tmf.core.response.TmfModelResponse;
+import org.eclipse.tracecompass.tmf.core.signal.TmfTraceOpenedSignal;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceUtils;
+import org.eclipse.tracecompass.tmf.ctf.core.tests.shared.CtfTmfTestTraceUtils;
+import org.eclipse.tracecompass.tmf.ctf.core.trace.CtfTmfTrace;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the {@link DpdkUtilizationDataProvider} and its factory. The values
+ * read from the pyramid for coarse resolutions and from the state system for
+ * fine resolutions are compared with the pyramid and the state system of the
+ * analysis.
+ */
+public class DpdkUtilizationDataProviderTest {
+
+    private static final double DELTA = 1e-6;
+    private static final String LCORE_PREFIX = "lcore ";
+    private static final int NB_POINTS = 50;
+
+    private DpdkTrace fTrace;
+    private DpdkUtilizationAnalysisModule fModule;
+
+    /**
+     * Open the trace and run the analysis
+     */
+    @Before
+    public void setUp() {
+        fTrace = DpdkTestTraceUtils.getTrace(CtfTestTrace.DPDK_SERVICE_CORES);
+        fTrace.traceOpened(new TmfTraceOpenedSignal(this, fTrace, null));
+        fModule = TmfTraceUtils.getAnalysisModuleOfClass(fTrace, DpdkUtilizationAnalysisModule.class, DpdkUtilizationAnalysisModule.ID);
+        assertNotNull(fModule);
+        fModule.schedule();
+        assertTrue(fModule.waitForCompletion());
+    }
+
+    /**
+     * Dispose test objects
+     */
+    @After
+    public void tearDown() {
+        File suppDir = new File(TmfTraceManager.getSupplementaryFileDir(fTrace));
+        DpdkTestTraceUtils.dispose(CtfTestTrace.DPDK_SERVICE_CORES);
+        File[] files = suppDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        fTrace = null;
+        fModule = null;
+    }
+
+    /**
+     * Test the descriptors and the provider created by the factory
+     */
+    @Test
+    public void testFactory() {
+        DpdkUtilizationDataProviderFactory factory = new DpdkUtilizationDataProviderFactory();
+        Collection<IDataProviderDescriptor> descriptors = factory.getDescriptors(fTrace);
+        assertEquals(1, descriptors.size());
+        assertEquals(DpdkUtilizationDataProvider.ID, descriptors.iterator().next().getId());
+        ITmfTreeDataProvider<? extends ITmfTreeDataModel> provider = factory.createProvider(fTrace);
+        assertTrue(provider instanceof DpdkUtilizationDataProvider);
+
+        /* A CTF trace that is not a DPDK trace has no utilization analysis */
+        CtfTmfTrace trace = CtfTmfTestTraceUtils.getTrace(CtfTestTrace.CYG_PROFILE);
+        assertTrue(factory.getDescriptors(trace).isEmpty());
+        CtfTmfTestTraceUtils.dispose(CtfTestTrace.CYG_PROFILE);
+    }
+
+    /**
+     * Test the tree, which has an entry for each logical core and service of
+     * the state system
+     *
+     * @throws StateSystemDisposedException
+     *             if the state system is disposed
+     */
+    @Test
+    public void testTree() throws StateSystemDisposedException {
+        DpdkUtilizationDataProvider provider = new DpdkUtilizationDataProvider(fTrace, fModule);
+        ITmfStateSystem ss = fModule.getStateSystem();
+        assertNotNull(ss);
+        Map<Long, TmfTreeDataModel> entries = fetchTree(provider);
+        int nbLcores = 0;
+        int nbServices = 0;
+        for (TmfTreeDataModel entry : entries.values()) {
+            TmfTreeDataModel parent = entries.get(entry.getParentId());
+            if (parent != null && parent.getName().equals(DpdkUtilizationStateProvider.LCORES)) {
+                assertTrue(entry.getName().startsWith(LCORE_PREFIX));
+                nbLcores++;
+            } else if (parent != null && parent.getName().equals(DpdkUtilizationStateProvider.SERVICES)) {
+                nbServices++;
+            }
+        }
+        assertEquals(ss.getQuarks(DpdkUtilizationStateProvider.LCORES, "*").size(), nbLcores);
+        assertEquals(ss.getQuarks(DpdkUtilizationStateProvider.SERVICES, "*").size(), nbServices);
+    }
+
+    /**
+     * Test the busy time of the logical cores for a coarse resolution, which is
+     * read from the pyramid
+     */
+    @Test
+    public void testCoarseResolution() {
+        DpdkUtilizationDataProvider provider = new DpdkUtilizationDataProvider(fTrace, fModule);
+        ITmfStateSystem ss = fModule.getStateSystem();
+        assertNotNull(ss);
+        ValuePyramid pyramid = fModule.getPyramid();
+        assertNotNull(pyramid);
+        long spacing = (ss.getCurrentEndTime() - ss.getStartTime()) / (NB_POINTS - 1);
+        List<Long> times = new ArrayList<>();
+        for (int i = 0; i < NB_POINTS; i++) {
+            times.add(ss.getStartTime() + i * spacing);
+        }
+        assertTrue(pyramid.getLevel(times) >= 0);
+
+        Map<Long, TmfTreeDataModel> entries = fetchTree(provider);
+        Map<Long, Integer> lcores = getLcoreQuarks(ss, entries);
+        assertFalse(lcores.isEmpty());
+        for (ISeriesModel series : fetchXY(provider, lcores.keySet(), times)) {
+            Integer quark = lcores.get(series.getId());
+            assertNotNull(quark);
+            double[] expected = pyramid.getValues(quark, times, Statistic.AVERAGE);
+            assertNotNull(expected);
+            double[] actual = series.getData();
+            assertEquals(times.size(), actual.length);
+            for (int i = 0; i < actual.length; i++) {
+                assertEquals(100 * expected[i], actual[i], DELTA);
+                assertTrue(actual[i] >= 0 && actual[i] <= 100 + DELTA);
+            }
+        }
+    }
+
+    /**
+     * Test the busy time of the logical cores for a resolution finer than the
+     * pyramid, which is read from the state system
+     *
+     * @throws StateSystemDisposedException
+     *             if the state system is disposed
+     */
+    @Test
+    public void testFineResolution() throws StateSystemDisposedException {
+        DpdkUtilizationDataProvider provider = new DpdkUtilizationDataProvider(fTrace, fModule);
+        ITmfStateSystem ss = fModule.getStateSystem();
+        assertNotNull(ss);
+        ValuePyramid pyramid = fModule.getPyramid();
+        assertNotNull(pyramid);
+        assertTrue(pyramid.getBucketWidth() > 1);
+        long spacing = pyramid.getBucketWidth() / 2;
+        long middle = (ss.getStartTime() + ss.getCurrentEndTime()) / 2;
+        List<Long> times = new ArrayList<>();
+        for (int i = 0; i < NB_POINTS; i++) {
+            times.add(middle + i * spacing);
+        }
+        assertEquals(-1, pyramid.getLevel(times));
+
+        Map<Long, TmfTreeDataModel> entries = fetchTree(provider);
+        Map<Long, Integer> lcores = getLcoreQuarks(ss, entries);
+        for (ISeriesModel series : fetchXY(provider, lcores.keySet(), times)) {
+            Integer quark = lcores.get(series.getId());
+            assertNotNull(quark);
+            double[] actual = series.getData();
+            for (int i = 0; i < actual.length; i++) {
+                Object value = ss.querySingleState(times.get(i), quark).getValue();
+                boolean busy = value instanceof Integer && (Integer) value > 0;
+                assertEquals(busy ? 100.0 : 0.0, actual[i], 0.0);
+            }
+        }
+    }
+
+    private static Map<Long, TmfTreeDataModel> fetchTree(DpdkUtilizationDataProvider provider) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put(DataProviderParameterUtils.REQUESTED_TIME_KEY, Arrays.asList(0L, Long.MAX_VALUE));
+        TmfModelResponse<TmfTreeModel<TmfTreeDataModel>> response = provider.fetchTree(parameters, null);
+        assertEquals(ITmfResponse.Status.COMPLETED, response.getStatus());
+        TmfTreeModel<TmfTreeDataModel> model = response.getModel();
+        assertNotNull(model);
+        Map<Long, TmfTreeDataModel> entries = new HashMap<>();
+        for (TmfTreeDataModel entry : model.getEntries()) {
+            entries.put(entry.getId(), entry);
+        }
+        return entries;
+    }
+
+    private static Collection<ISeriesModel> fetchXY(DpdkUtilizationDataProvider provider, Collection<Long> ids, List<Long> times) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put(DataProviderParameterUtils.REQUESTED_TIME_KEY, times);
+        parameters.put(DataProviderParameterUtils.REQUESTED_ITEMS_KEY, new ArrayList<>(ids));
+        TmfModelResponse<ITmfXyModel> response = provider.fetchXY(parameters, null);
+        assertEquals(ITmfResponse.Status.COMPLETED, response.getStatus());
+        ITmfXyModel model = response.getModel();
+        assertNotNull(model);
+        Collection<ISeriesModel> series = model.getSeriesData();
+        assertEquals(ids.size(), series.size());
+        return series;
+    }
+
+    /**
+     * Get the quarks of the logical core entries of the tree, by entry ID
+     */
+    private static Map<Long, Integer> getLcoreQuarks(ITmfStateSystem ss, Map<Long, TmfTreeDataModel> entries) {
+        Map<Long, Integer> quarks = new HashMap<>();
+        for (TmfTreeDataModel entry : entries.values()) {
+            TmfTreeDataModel parent = entries.get(entry.getParentId());
+            if (parent != null && parent.getName().equals(DpdkUtilizationStateProvider.LCORES)) {
+                String lcoreId = entry.getName().substring(LCORE_PREFIX.length());
+                quarks.put(entry.getId(), ss.optQuarkAbsolute(DpdkUtilizationStateProvider.LCORES, lcoreId));
+            }
+        }
+        return quarks;
+    }
+}
@@ -10,6 +10,8 @@
  **********************************************************************/
 package org.eclipse.tracecompass.incubator.internal.dpdk.core.analysis;
 
+import java.util.Map;
+
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.common.core.NonNullUtils;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
@@ -25,6 +27,9 @@ import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
  */
 public abstract class AbstractDpdkStateProvider extends AbstractTmfStateProvider {
 
+    /** Event handlers by event name, created on the first event */
+    private @Nullable Map<String, IDpdkEventHandler> fEventHandlers = null;
+
     /**
      * Default constructor
      *
@@ -46,19 +51,24 @@ public abstract class AbstractDpdkStateProvider extends AbstractTmfStateProvider
     @Override
     protected void eventHandle(ITmfEvent event) {
         final ITmfStateSystemBuilder ss = NonNullUtils.checkNotNull(getStateSystemBuilder());
-        IDpdkEventHandler eventHandler = getEventHandler(event.getName());
+        Map<String, IDpdkEventHandler> eventHandlers = fEventHandlers;
+        if (eventHandlers == null) {
+            eventHandlers = createEventHandlers();
+            fEventHandlers = eventHandlers;
+        }
+        IDpdkEventHandler eventHandler = eventHandlers.get(event.getName());
         if (eventHandler != null) {
             eventHandler.handleEvent(ss, event);
         }
     }
 
     /**
-     * Get the correct event handler depending on the event name.
+     * Create the dispatch table of this state provider. Each handler is bound
+     * to a single event type, so that the handlers do not need to compare the
+     * event name again. It is called once, before the first event is handled.
      *
-     * @param eventName
-     *            The event type in CTF
-     * @return Event handler
+     * @return The event handlers, by event name
      */
-    protected abstract @Nullable IDpdkEventHandler getEventHandler(String eventName);
+    protected abstract Map<String, IDpdkEventHandler> createEventHandlers();
 
 }
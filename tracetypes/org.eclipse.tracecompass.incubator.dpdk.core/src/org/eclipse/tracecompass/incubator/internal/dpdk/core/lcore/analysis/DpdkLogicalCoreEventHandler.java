@@ -12,47 +12,87 @@ package org.eclipse.tracecompass.incubator.internal.dpdk.core.lcore.analysis;
 
 import java.util.Objects;
 
-import org.eclipse.tracecompass.incubator.internal.dpdk.core.analysis.IDpdkEventHandler;
 import org.eclipse.tracecompass.incubator.internal.dpdk.core.lcore.analysis.LogicalCore.LogicalCoreRole;
 import org.eclipse.tracecompass.incubator.internal.dpdk.core.lcore.analysis.LogicalCore.LogicalCoreStatus;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 
 /**
- * Event handler to handle core related events
+ * Event handler to handle core related events. Each method handles one type of
+ * event and is registered for that event in the dispatch table of the state
+ * provider.
  *
  * @author Adel Belkhiri
  * @author Arnaud Fiorini
  */
-public class DpdkLogicalCoreEventHandler implements IDpdkEventHandler {
+public class DpdkLogicalCoreEventHandler {
 
-    private DpdkLogicalCoreEventLayout fLayout;
+    private final DpdkLogicalCoreEventLayout fLayout;
+    private final LogicalCore fLogicalCore;
 
-    DpdkLogicalCoreEventHandler(DpdkLogicalCoreEventLayout layout) {
+    DpdkLogicalCoreEventHandler(DpdkLogicalCoreEventLayout layout, LogicalCore logicalCore) {
         fLayout = layout;
+        fLogicalCore = logicalCore;
     }
 
-    @Override
-    public void handleEvent(ITmfStateSystemBuilder ssb, ITmfEvent event) {
+    /**
+     * Handle the change of state of a logical core
+     *
+     * @param ssb
+     *            The state system builder
+     * @param event
+     *            The lcore state change event
+     */
+    public void handleStateChange(ITmfStateSystemBuilder ssb, ITmfEvent event) {
         Integer lcoreId = event.getContent().getFieldValue(Integer.class, fLayout.fieldLcoreId());
+        Integer lcoreRole = event.getContent().getFieldValue(Integer.class, fLayout.fieldLcoreState());
+        fLogicalCore.setRole(ssb, Objects.requireNonNull(lcoreRole), Objects.requireNonNull(lcoreId), event.getTimestamp().getValue());
+    }
+
+    /**
+     * Handle the events after which a logical core is idle: the start or stop
+     * of a service lcore and the end of the function of a thread
+     *
+     * @param ssb
+     *            The state system builder
+     * @param event
+     *            The event
+     */
+    public void handleIdle(ITmfStateSystemBuilder ssb, ITmfEvent event) {
+        Integer lcoreId = Objects.requireNonNull(event.getContent().getFieldValue(Integer.class, fLayout.fieldLcoreId()));
+        long ts = event.getTimestamp().getValue();
+        fLogicalCore.setStatus(ssb, LogicalCoreStatus.IDLE, lcoreId, ts);
+        fLogicalCore.setFunction(ssb, 0L, lcoreId, ts);
+    }
+
+    /**
+     * Handle the start of a function on a logical core thread
+     *
+     * @param ssb
+     *            The state system builder
+     * @param event
+     *            The thread lcore running event
+     */
+    public void handleRunning(ITmfStateSystemBuilder ssb, ITmfEvent event) {
+        Integer lcoreId = Objects.requireNonNull(event.getContent().getFieldValue(Integer.class, fLayout.fieldLcoreId()));
+        long ts = event.getTimestamp().getValue();
+        fLogicalCore.setStatus(ssb, LogicalCoreStatus.RUNNING, lcoreId, ts);
+        Long lcoreFunction = event.getContent().getFieldValue(Long.class, fLayout.fieldF());
+        fLogicalCore.setFunction(ssb, Objects.requireNonNull(lcoreFunction), lcoreId, ts);
+    }
+
+    /**
+     * Handle a logical core thread that is ready to run functions
+     *
+     * @param ssb
+     *            The state system builder
+     * @param event
+     *            The thread lcore ready event
+     */
+    public void handleReady(ITmfStateSystemBuilder ssb, ITmfEvent event) {
+        Integer lcoreId = Objects.requireNonNull(event.getContent().getFieldValue(Integer.class, fLayout.fieldLcoreId()));
         long ts = event.getTimestamp().getValue();
-        String eventName = event.getName();
-
-        if (eventName.equals(fLayout.eventLcoreStateChange())) {
-            Integer lcoreRole = event.getContent().getFieldValue(Integer.class, fLayout.fieldLcoreState());
-            LogicalCore.setRole(ssb, Objects.requireNonNull(lcoreRole), Objects.requireNonNull(lcoreId), ts);
-        } else if (eventName.equals(fLayout.eventServiceLcoreStart())
-                || eventName.equals(fLayout.eventServiceLcoreStop())
-                || eventName.equals(fLayout.eventThreadLcoreStopped())) {
-            LogicalCore.setStatus(ssb, LogicalCoreStatus.IDLE, Objects.requireNonNull(lcoreId), ts);
-            LogicalCore.setFunction(ssb, 0L, Objects.requireNonNull(lcoreId), ts);
-        } else if (eventName.equals(fLayout.eventThreadLcoreRunning())) {
-            LogicalCore.setStatus(ssb, LogicalCoreStatus.RUNNING, Objects.requireNonNull(lcoreId), ts);
-            Long lcoreFunction = event.getContent().getFieldValue(Long.class, fLayout.fieldF());
-            LogicalCore.setFunction(ssb, Objects.requireNonNull(lcoreFunction), lcoreId, ts);
-        } else if (eventName.equals(fLayout.eventThreadLcoreReady())) {
-            LogicalCore.setRole(ssb, LogicalCoreRole.ROLE_RTE, Objects.requireNonNull(lcoreId), ts);
-            LogicalCore.setFunction(ssb, 0L, Objects.requireNonNull(lcoreId), ts);
-        }
+        fLogicalCore.setRole(ssb, LogicalCoreRole.ROLE_RTE, lcoreId, ts);
+        fLogicalCore.setFunction(ssb, 0L, lcoreId, ts);
     }
 }
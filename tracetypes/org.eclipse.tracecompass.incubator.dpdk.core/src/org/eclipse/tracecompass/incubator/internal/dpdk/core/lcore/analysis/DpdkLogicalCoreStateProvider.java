@@ -12,7 +12,6 @@ package org.eclipse.tracecompass.incubator.internal.dpdk.core.lcore.analysis;
 
 import java.util.Map;
 
-import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tracecompass.incubator.internal.dpdk.core.analysis.AbstractDpdkStateProvider;
 import org.eclipse.tracecompass.incubator.internal.dpdk.core.analysis.IDpdkEventHandler;
 import org.eclipse.tracecompass.tmf.core.statesystem.ITmfStateProvider;
@@ -29,8 +28,6 @@ import com.google.common.collect.ImmutableMap;
 public class DpdkLogicalCoreStateProvider extends AbstractDpdkStateProvider {
 
     private static final int VERSION = 1;
-    /** Map events needed for this analysis with their handler functions */
-    private @Nullable Map<String, IDpdkEventHandler> fEventNames;
     /** Events layout */
     private final DpdkLogicalCoreEventLayout fLayout;
 
@@ -64,27 +61,22 @@ public class DpdkLogicalCoreStateProvider extends AbstractDpdkStateProvider {
     }
 
     @Override
-    protected @Nullable IDpdkEventHandler getEventHandler(String eventName) {
-        if (fEventNames == null) {
-            ImmutableMap.Builder<String, IDpdkEventHandler> builder = ImmutableMap.builder();
-            IDpdkEventHandler logicalCoreEventHandler = new DpdkLogicalCoreEventHandler(fLayout);
-            builder.put(fLayout.eventLcoreStateChange(), logicalCoreEventHandler);
-            builder.put(fLayout.eventServiceLcoreStart(), logicalCoreEventHandler);
-            builder.put(fLayout.eventServiceLcoreStop(), logicalCoreEventHandler);
-            builder.put(fLayout.eventThreadLcoreStopped(), logicalCoreEventHandler);
-            builder.put(fLayout.eventThreadLcoreRunning(), logicalCoreEventHandler);
-            builder.put(fLayout.eventThreadLcoreReady(), logicalCoreEventHandler);
-            IDpdkEventHandler serviceEventHandler = new DpdkServiceEventHandler(fLayout);
-            builder.put(fLayout.eventServiceComponentRegister(), serviceEventHandler);
-            builder.put(fLayout.eventServiceMapLcore(), serviceEventHandler);
-            builder.put(fLayout.eventServiceRunBegin(), serviceEventHandler);
-            builder.put(fLayout.eventServiceRunEnd(), serviceEventHandler);
-            builder.put(fLayout.eventServiceRunStateSet(), serviceEventHandler);
-            fEventNames = builder.build();
-        }
-        if (fEventNames != null) {
-            return fEventNames.get(eventName);
-        }
-        return null;
+    protected Map<String, IDpdkEventHandler> createEventHandlers() {
+        ImmutableMap.Builder<String, IDpdkEventHandler> builder = ImmutableMap.builder();
+        LogicalCore logicalCore = new LogicalCore();
+        DpdkLogicalCoreEventHandler logicalCoreEventHandler = new DpdkLogicalCoreEventHandler(fLayout, logicalCore);
+        builder.put(fLayout.eventLcoreStateChange(), logicalCoreEventHandler::handleStateChange);
+        builder.put(fLayout.eventServiceLcoreStart(), logicalCoreEventHandler::handleIdle);
+        builder.put(fLayout.eventServiceLcoreStop(), logicalCoreEventHandler::handleIdle);
+        builder.put(fLayout.eventThreadLcoreStopped(), logicalCoreEventHandler::handleIdle);
+        builder.put(fLayout.eventThreadLcoreRunning(), logicalCoreEventHandler::handleRunning);
+        builder.put(fLayout.eventThreadLcoreReady(), logicalCoreEventHandler::handleReady);
+        DpdkServiceEventHandler serviceEventHandler = new DpdkServiceEventHandler(fLayout, logicalCore);
+        builder.put(fLayout.eventServiceComponentRegister(), serviceEventHandler::handleRegister);
+        builder.put(fLayout.eventServiceMapLcore(), serviceEventHandler::handleMapLcore);
+        builder.put(fLayout.eventServiceRunBegin(), serviceEventHandler::handleRunBegin);
+        builder.put(fLayout.eventServiceRunEnd(), serviceEventHandler::handleRunEnd);
+        builder.put(fLayout.eventServiceRunStateSet(), serviceEventHandler::handleRunStateSet);
+        return builder.build();
     }
 }
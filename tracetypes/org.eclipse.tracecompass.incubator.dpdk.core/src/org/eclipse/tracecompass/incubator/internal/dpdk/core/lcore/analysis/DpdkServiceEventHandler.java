@@ -10,65 +10,126 @@
  **********************************************************************/
 package org.eclipse.tracecompass.incubator.internal.dpdk.core.lcore.analysis;
 
-import org.eclipse.tracecompass.incubator.internal.dpdk.core.analysis.IDpdkEventHandler;
 import org.eclipse.tracecompass.incubator.internal.dpdk.core.lcore.analysis.LogicalCore.ServiceStatus;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 
 /**
- * Event handler to handle service related events
+ * Event handler to handle service related events. Each method handles one type
+ * of event and is registered for that event in the dispatch table of the state
+ * provider.
  *
  * @author Adel Belkhiri
  * @author Arnaud Fiorini
  */
-public class DpdkServiceEventHandler implements IDpdkEventHandler {
+public class DpdkServiceEventHandler {
 
-    private DpdkLogicalCoreEventLayout fLayout;
+    private final DpdkLogicalCoreEventLayout fLayout;
+    private final LogicalCore fLogicalCore;
 
-    DpdkServiceEventHandler(DpdkLogicalCoreEventLayout layout) {
+    DpdkServiceEventHandler(DpdkLogicalCoreEventLayout layout, LogicalCore logicalCore) {
         fLayout = layout;
+        fLogicalCore = logicalCore;
     }
 
-    @Override
-    public void handleEvent(ITmfStateSystemBuilder ssb, ITmfEvent event) {
+    /**
+     * Handle the registration of a service
+     *
+     * @param ssb
+     *            The state system builder
+     * @param event
+     *            The service component register event
+     */
+    public void handleRegister(ITmfStateSystemBuilder ssb, ITmfEvent event) {
+        Integer serviceId = event.getContent().getFieldValue(Integer.class, fLayout.fieldId());
+        String serviceName = event.getContent().getFieldValue(String.class, fLayout.fieldServiceName());
+        if (serviceId != null && serviceName != null) {
+            long ts = event.getTimestamp().getValue();
+            fLogicalCore.setServiceName(ssb, serviceName, serviceId, ts);
+            fLogicalCore.setServiceStatus(ssb, ServiceStatus.REGISTERED, serviceId, ts);
+        }
+    }
+
+    /**
+     * Handle the mapping of a service to a logical core
+     *
+     * @param ssb
+     *            The state system builder
+     * @param event
+     *            The service map lcore event
+     */
+    public void handleMapLcore(ITmfStateSystemBuilder ssb, ITmfEvent event) {
+        Integer serviceId = event.getContent().getFieldValue(Integer.class, fLayout.fieldId());
+        if (serviceId == null) {
+            return;
+        }
         long ts = event.getTimestamp().getValue();
+        setServiceLcore(ssb, event, serviceId, ts);
+        Integer enabled = event.getContent().getFieldValue(Integer.class, fLayout.fieldEnabled());
+        if (enabled != null && enabled == 0) {
+            fLogicalCore.setServiceStatus(ssb, ServiceStatus.DISABLED, serviceId, ts);
+        } else {
+            fLogicalCore.setServiceStatus(ssb, ServiceStatus.ENABLED, serviceId, ts);
+        }
+    }
+
+    /**
+     * Handle the beginning of a run of a service
+     *
+     * @param ssb
+     *            The state system builder
+     * @param event
+     *            The service run begin event
+     */
+    public void handleRunBegin(ITmfStateSystemBuilder ssb, ITmfEvent event) {
         Integer serviceId = event.getContent().getFieldValue(Integer.class, fLayout.fieldId());
-        String eventName = event.getName();
         if (serviceId == null) {
             return;
         }
-        if (eventName.equals(fLayout.eventServiceComponentRegister())) {
-            String serviceName = event.getContent().getFieldValue(String.class, fLayout.fieldServiceName());
-            if (serviceName != null) {
-                LogicalCore.setServiceName(ssb, serviceName, serviceId, ts);
-                LogicalCore.setServiceStatus(ssb, ServiceStatus.REGISTERED, serviceId, ts);
-            }
-        } else if (eventName.equals(fLayout.eventServiceMapLcore())) {
-            Integer lcoreId = event.getContent().getFieldValue(Integer.class, fLayout.fieldLcoreId());
-            if (lcoreId != null) {
-                LogicalCore.setServiceLcore(ssb, lcoreId, serviceId, ts);
-            }
-            Integer enabled = event.getContent().getFieldValue(Integer.class, fLayout.fieldEnabled());
-            if (enabled != null && enabled == 0) {
-                LogicalCore.setServiceStatus(ssb, ServiceStatus.DISABLED, serviceId, ts);
-            } else {
-                LogicalCore.setServiceStatus(ssb, ServiceStatus.ENABLED, serviceId, ts);
-            }
-        } else if (eventName.equals(fLayout.eventServiceRunBegin())) {
-            Integer lcoreId = event.getContent().getFieldValue(Integer.class, fLayout.fieldLcoreId());
-            if (lcoreId != null) {
-                LogicalCore.setServiceLcore(ssb, lcoreId, serviceId, ts);
-            }
-            LogicalCore.setServiceStatus(ssb, ServiceStatus.RUNNING, serviceId, ts);
-        } else if (eventName.equals(fLayout.eventServiceRunEnd())) {
-            Integer lcoreId = event.getContent().getFieldValue(Integer.class, fLayout.fieldLcoreId());
-            if (lcoreId != null) {
-                LogicalCore.setServiceLcore(ssb, lcoreId, serviceId, ts);
-            }
-            LogicalCore.setServiceStatus(ssb, ServiceStatus.PENDING, serviceId, ts);
-        } else if (eventName.equals(fLayout.eventServiceRunStateSet())) {
-            Integer runState = event.getContent().getFieldValue(Integer.class, fLayout.fieldRunState());
-            LogicalCore.setServiceStatus(ssb, runState != null && runState == 1 ? ServiceStatus.ENABLED : ServiceStatus.DISABLED, serviceId, ts);
+        long ts = event.getTimestamp().getValue();
+        setServiceLcore(ssb, event, serviceId, ts);
+        fLogicalCore.setServiceStatus(ssb, ServiceStatus.RUNNING, serviceId, ts);
+    }
+
+    /**
+     * Handle the end of a run of a service
+     *
+     * @param ssb
+     *            The state system builder
+     * @param event
+     *            The service run end event
+     */
+    public void handleRunEnd(ITmfStateSystemBuilder ssb, ITmfEvent event) {
+        Integer serviceId = event.getContent().getFieldValue(Integer.class, fLayout.fieldId());
+        if (serviceId == null) {
+            return;
+        }
+        long ts = event.getTimestamp().getValue();
+        setServiceLcore(ssb, event, serviceId, ts);
+        fLogicalCore.setServiceStatus(ssb, ServiceStatus.PENDING, serviceId, ts);
+    }
+
+    /**
+     * Handle the change of the run state of a service
+     *
+     * @param ssb
+     *            The state system builder
+     * @param event
+     *            The service run state set event
+     */
+    public void handleRunStateSet(ITmfStateSystemBuilder ssb, ITmfEvent event) {
+        Integer serviceId = event.getContent().getFieldValue(Integer.class, fLayout.fieldId());
+        if (serviceId == null) {
+            return;
+        }
+        Integer runState = event.getContent().getFieldValue(Integer.class, fLayout.fieldRunState());
+        fLogicalCore.setServiceStatus(ssb, runState != null && runState == 1 ? ServiceStatus.ENABLED : ServiceStatus.DISABLED, serviceId, event.getTimestamp().getValue());
+    }
+
+    private void setServiceLcore(ITmfStateSystemBuilder ssb, ITmfEvent event, Integer serviceId, long ts) {
+        Integer lcoreId = event.getContent().getFieldValue(Integer.class, fLayout.fieldLcoreId());
+        if (lcoreId != null) {
+            fLogicalCore.setServiceLcore(ssb, lcoreId, serviceId, ts);
         }
     }
 }
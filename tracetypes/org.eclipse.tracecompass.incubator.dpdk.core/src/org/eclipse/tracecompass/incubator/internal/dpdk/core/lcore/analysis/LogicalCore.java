@@ -10,12 +10,16 @@
  **********************************************************************/
 package org.eclipse.tracecompass.incubator.internal.dpdk.core.lcore.analysis;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.eclipse.tracecompass.incubator.internal.dpdk.core.Activator;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 
 /**
- * Immutable model object for Logical Core Analysis. Manages also the service
- * states
+ * Model object for Logical Core Analysis. Manages also the service states. The
+ * quarks of the attributes of each logical core and service are cached, so
+ * that they are not looked up by name for every event.
  *
  * @author Adel Belkhiri
  * @author Arnaud Fiorini
@@ -34,6 +38,23 @@ public class LogicalCore {
     private static final String SERVICE_NAME = "service_name"; //$NON-NLS-1$
     private static final String SERVICE_STATUS = "service_status"; //$NON-NLS-1$
 
+    /* Positions of the attribute quarks in the cached arrays */
+    private static final int UNKNOWN_QUARK = -1;
+    private static final int LCORE_ROLE_INDEX = 0;
+    private static final int LCORE_STATUS_INDEX = 1;
+    private static final int LCORE_FUNCTION_INDEX = 2;
+    private static final int SERVICE_CORE_INDEX = 0;
+    private static final int SERVICE_NAME_INDEX = 1;
+    private static final int SERVICE_STATUS_INDEX = 2;
+
+    /**
+     * Attribute quarks of the logical cores, by logical core id. The attributes
+     * are only created when they are first modified.
+     */
+    private final Map<Integer, int[]> fLcoreQuarks = new HashMap<>();
+    /** Attribute quarks of the services, by service id */
+    private final Map<Integer, int[]> fServiceQuarks = new HashMap<>();
+
     /**
      * Values for the different roles that a logical core can take
      */
@@ -84,7 +105,7 @@ public class LogicalCore {
      * @param timestamp
      *            time to use for state change
      */
-    public static void setRole(ITmfStateSystemBuilder ssb, Integer newRole, Integer lcoreId, long timestamp) {
+    public void setRole(ITmfStateSystemBuilder ssb, Integer newRole, Integer lcoreId, long timestamp) {
         LogicalCoreStatus newStatus;
         if (newRole == LogicalCoreRole.ROLE_RTE) {
             newStatus = LogicalCoreStatus.IDLE;
@@ -96,9 +117,7 @@ public class LogicalCore {
         }
         setStatus(ssb, newStatus, lcoreId, timestamp);
         // Update State system
-        int lcoreQuark = ssb.getQuarkAbsoluteAndAdd(LCORES, String.valueOf(lcoreId));
-        int lcoreRoleQuark = ssb.getQuarkRelativeAndAdd(lcoreQuark, LCORE_ROLE);
-        ssb.modifyAttribute(timestamp, newRole, lcoreRoleQuark);
+        ssb.modifyAttribute(timestamp, newRole, getLcoreQuark(ssb, lcoreId, LCORE_ROLE_INDEX, LCORE_ROLE));
     }
 
     /**
@@ -111,10 +130,8 @@ public class LogicalCore {
      * @param timestamp
      *            time to use for state change
      */
-    public static void setStatus(ITmfStateSystemBuilder ssb, LogicalCoreStatus newStatus, Integer lcoreId, long timestamp) {
-        int lcoreQuark = ssb.getQuarkAbsoluteAndAdd(LCORES, String.valueOf(lcoreId));
-        int lcoreRoleQuark = ssb.getQuarkRelativeAndAdd(lcoreQuark, LCORE_STATUS);
-        ssb.modifyAttribute(timestamp, newStatus, lcoreRoleQuark);
+    public void setStatus(ITmfStateSystemBuilder ssb, LogicalCoreStatus newStatus, Integer lcoreId, long timestamp) {
+        ssb.modifyAttribute(timestamp, newStatus, getLcoreQuark(ssb, lcoreId, LCORE_STATUS_INDEX, LCORE_STATUS));
     }
 
     /**
@@ -127,14 +144,26 @@ public class LogicalCore {
      * @param timestamp
      *            time to use for state change
      */
-    public static void setFunction(ITmfStateSystemBuilder ssb, Long function, Integer lcoreId, long timestamp) {
-        int lcoreQuark = ssb.getQuarkAbsoluteAndAdd(LCORES, String.valueOf(lcoreId));
-        int lcoreFuncQuark = ssb.getQuarkRelativeAndAdd(lcoreQuark, LCORE_FUNCTION);
-        ssb.modifyAttribute(timestamp, Long.toHexString(function), lcoreFuncQuark);
+    public void setFunction(ITmfStateSystemBuilder ssb, Long function, Integer lcoreId, long timestamp) {
+        ssb.modifyAttribute(timestamp, Long.toHexString(function), getLcoreQuark(ssb, lcoreId, LCORE_FUNCTION_INDEX, LCORE_FUNCTION));
     }
 
-    private static int getServiceQuark(ITmfStateSystemBuilder ssb, Integer serviceId) {
-        return ssb.getQuarkAbsoluteAndAdd(SERVICES, String.valueOf(serviceId));
+    private int getLcoreQuark(ITmfStateSystemBuilder ssb, Integer lcoreId, int index, String attribute) {
+        int[] quarks = fLcoreQuarks.computeIfAbsent(lcoreId, id -> new int[] { UNKNOWN_QUARK, UNKNOWN_QUARK, UNKNOWN_QUARK });
+        if (quarks[index] == UNKNOWN_QUARK) {
+            int lcoreQuark = ssb.getQuarkAbsoluteAndAdd(LCORES, String.valueOf(lcoreId));
+            quarks[index] = ssb.getQuarkRelativeAndAdd(lcoreQuark, attribute);
+        }
+        return quarks[index];
+    }
+
+    private int getServiceQuark(ITmfStateSystemBuilder ssb, Integer serviceId, int index, String attribute) {
+        int[] quarks = fServiceQuarks.computeIfAbsent(serviceId, id -> new int[] { UNKNOWN_QUARK, UNKNOWN_QUARK, UNKNOWN_QUARK });
+        if (quarks[index] == UNKNOWN_QUARK) {
+            int serviceQuark = ssb.getQuarkAbsoluteAndAdd(SERVICES, String.valueOf(serviceId));
+            quarks[index] = ssb.getQuarkRelativeAndAdd(serviceQuark, attribute);
+        }
+        return quarks[index];
     }
 
     /**
@@ -147,9 +176,8 @@ public class LogicalCore {
      * @param timestamp
      *            time to use for state change
      */
-    public static void setServiceLcore(ITmfStateSystemBuilder ssb, Integer lcoreId, Integer serviceId, long timestamp) {
-        int serviceLcoreQuark = ssb.getQuarkRelativeAndAdd(getServiceQuark(ssb, serviceId), SERVICE_CORE);
-        ssb.modifyAttribute(timestamp, String.valueOf(lcoreId), serviceLcoreQuark);
+    public void setServiceLcore(ITmfStateSystemBuilder ssb, Integer lcoreId, Integer serviceId, long timestamp) {
+        ssb.modifyAttribute(timestamp, String.valueOf(lcoreId), getServiceQuark(ssb, serviceId, SERVICE_CORE_INDEX, SERVICE_CORE));
     }
 
     /**
@@ -162,9 +190,8 @@ public class LogicalCore {
      * @param timestamp
      *            time to use for state change
      */
-    public static void setServiceName(ITmfStateSystemBuilder ssb, String serviceName, Integer serviceId, long timestamp) {
-        int serviceNameQuark = ssb.getQuarkRelativeAndAdd(getServiceQuark(ssb, serviceId), SERVICE_NAME);
-        ssb.modifyAttribute(timestamp, serviceName, serviceNameQuark);
+    public void setServiceName(ITmfStateSystemBuilder ssb, String serviceName, Integer serviceId, long timestamp) {
+        ssb.modifyAttribute(timestamp, serviceName, getServiceQuark(ssb, serviceId, SERVICE_NAME_INDEX, SERVICE_NAME));
     }
 
     /**
@@ -177,8 +204,7 @@ public class LogicalCore {
      * @param timestamp
      *            time to use for state change
      */
-    public static void setServiceStatus(ITmfStateSystemBuilder ssb, ServiceStatus serviceStatus, Integer serviceId, long timestamp) {
-        int serviceStatusQuark = ssb.getQuarkRelativeAndAdd(getServiceQuark(ssb, serviceId), SERVICE_STATUS);
-        ssb.modifyAttribute(timestamp, serviceStatus, serviceStatusQuark);
+    public void setServiceStatus(ITmfStateSystemBuilder ssb, ServiceStatus serviceStatus, Integer serviceId, long timestamp) {
+        ssb.modifyAttribute(timestamp, serviceStatus, getServiceQuark(ssb, serviceId, SERVICE_STATUS_INDEX, SERVICE_STATUS));
     }
 }
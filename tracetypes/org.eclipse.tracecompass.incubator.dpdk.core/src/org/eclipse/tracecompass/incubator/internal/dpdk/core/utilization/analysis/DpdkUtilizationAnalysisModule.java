@@ -0,0 +1,53 @@
+/**********************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+package org.eclipse.tracecompass.incubator.internal.dpdk.core.utilization.analysis;
+
+import static org.eclipse.tracecompass.common.core.NonNullUtils.checkNotNull;
+
+import java.util.Collections;
+
+import org.eclipse.tracecompass.incubator.analysis.core.pyramid.AbstractValuePyramidAnalysisModule;
+import org.eclipse.tracecompass.incubator.analysis.core.pyramid.ValuePyramid;
+import org.eclipse.tracecompass.incubator.internal.dpdk.core.lcore.analysis.DpdkLogicalCoreEventLayout;
+import org.eclipse.tracecompass.tmf.core.analysis.requirements.TmfAbstractAnalysisRequirement;
+import org.eclipse.tracecompass.tmf.core.analysis.requirements.TmfAbstractAnalysisRequirement.PriorityLevel;
+import org.eclipse.tracecompass.tmf.core.analysis.requirements.TmfAnalysisEventRequirement;
+import org.eclipse.tracecompass.tmf.core.statesystem.ITmfStateProvider;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * This analysis computes the ratio of time each logical core spends running
+ * functions or services, and the rate of calls of each service. The busy time
+ * and the calls are pre-aggregated in a {@link ValuePyramid} saved with the
+ * state system, so that the utilization of a long polling trace can be charted
+ * at any zoom level without reading all its intervals.
+ */
+public class DpdkUtilizationAnalysisModule extends AbstractValuePyramidAnalysisModule {
+
+    /** The ID of this analysis module */
+    public static final String ID = "org.eclipse.tracecompass.incubator.dpdk.utilization.analysis"; //$NON-NLS-1$
+
+    private final DpdkLogicalCoreEventLayout fLayout = new DpdkLogicalCoreEventLayout();
+
+    private final TmfAbstractAnalysisRequirement REQUIREMENT = new TmfAnalysisEventRequirement(ImmutableList.of(
+            fLayout.eventThreadLcoreRunning(), fLayout.eventServiceRunBegin()), PriorityLevel.AT_LEAST_ONE);
+
+    @Override
+    protected ITmfStateProvider createStateProvider() {
+        return recordPyramid(new DpdkUtilizationStateProvider(checkNotNull(getTrace()), fLayout));
+    }
+
+    @Override
+    public Iterable<TmfAbstractAnalysisRequirement> getAnalysisRequirements() {
+        return Collections.singleton(REQUIREMENT);
+    }
+}
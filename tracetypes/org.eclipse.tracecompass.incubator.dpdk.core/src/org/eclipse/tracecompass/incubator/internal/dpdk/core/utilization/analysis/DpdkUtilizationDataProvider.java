@@ -0,0 +1,269 @@
+/**********************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+package org.eclipse.tracecompass.incubator.internal.dpdk.core.utilization.analysis;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.incubator.analysis.core.pyramid.ValuePyramid;
+import org.eclipse.tracecompass.incubator.analysis.core.pyramid.ValuePyramid.Statistic;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.eclipse.tracecompass.tmf.core.dataprovider.DataProviderParameterUtils;
+import org.eclipse.tracecompass.tmf.core.dataprovider.DataType;
+import org.eclipse.tracecompass.tmf.core.model.YModel;
+import org.eclipse.tracecompass.tmf.core.model.tree.ITmfTreeDataModel;
+import org.eclipse.tracecompass.tmf.core.model.tree.ITmfTreeDataProvider;
+import org.eclipse.tracecompass.tmf.core.model.tree.TmfTreeDataModel;
+import org.eclipse.tracecompass.tmf.core.model.tree.TmfTreeModel;
+import org.eclipse.tracecompass.tmf.core.model.xy.AbstractTreeCommonXDataProvider;
+import org.eclipse.tracecompass.tmf.core.model.xy.IYModel;
+import org.eclipse.tracecompass.tmf.core.model.xy.TmfXYAxisDescription;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceUtils;
+
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * XY data provider of the busy ratio of the logical cores and of the call
+ * rate of the services. The values are read from the {@link ValuePyramid}
+ * of the analysis when its buckets are fine enough for the requested times,
+ * and from the state system otherwise.
+ */
+public class DpdkUtilizationDataProvider extends AbstractTreeCommonXDataProvider<DpdkUtilizationAnalysisModule, TmfTreeDataModel> {
+
+    /** The ID of this data provider */
+    public static final String ID = "org.eclipse.tracecompass.incubator.dpdk.utilization.dataprovider"; //$NON-NLS-1$
+
+    private static final TmfXYAxisDescription BUSY_AXIS_DESCRIPTION = new TmfXYAxisDescription("Busy time", "%", DataType.NUMBER); //$NON-NLS-1$ //$NON-NLS-2$
+    private static final TmfXYAxisDescription CALLS_AXIS_DESCRIPTION = new TmfXYAxisDescription("Service calls", "calls/s", DataType.NUMBER); //$NON-NLS-1$ //$NON-NLS-2$
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private static final AtomicLong sfAtomicId = new AtomicLong();
+
+    private final BiMap<Long, Integer> fIDToDisplayQuark = HashBiMap.create();
+
+    /**
+     * Constructor
+     *
+     * @param trace
+     *            the trace for this provider
+     * @param analysisModule
+     *            the corresponding analysis module
+     */
+    public DpdkUtilizationDataProvider(ITmfTrace trace, DpdkUtilizationAnalysisModule analysisModule) {
+        super(trace, analysisModule);
+    }
+
+    /**
+     * Create the XY data provider
+     *
+     * @param trace
+     *            The trace for which is the data provider
+     * @return The data provider
+     */
+    public static @Nullable ITmfTreeDataProvider<? extends ITmfTreeDataModel> create(ITmfTrace trace) {
+        DpdkUtilizationAnalysisModule module = TmfTraceUtils.getAnalysisModuleOfClass(trace, DpdkUtilizationAnalysisModule.class, DpdkUtilizationAnalysisModule.ID);
+        return module != null ? new DpdkUtilizationDataProvider(trace, module) : null;
+    }
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    @Override
+    protected boolean isCacheable() {
+        return false;
+    }
+
+    @Override
+    protected TmfTreeModel<TmfTreeDataModel> getTree(ITmfStateSystem ss, Map<String, Object> fetchParameters, @Nullable IProgressMonitor monitor) throws StateSystemDisposedException {
+        List<TmfTreeDataModel> entryList = new ArrayList<>();
+        long rootId = getId(ITmfStateSystem.ROOT_ATTRIBUTE);
+        entryList.add(new TmfTreeDataModel(rootId, -1, Collections.singletonList(getTrace().getName())));
+        for (Integer lcoresQuark : ss.getQuarks(DpdkUtilizationStateProvider.LCORES)) {
+            long lcoresId = getId(lcoresQuark);
+            entryList.add(new TmfTreeDataModel(lcoresId, rootId, Collections.singletonList(DpdkUtilizationStateProvider.LCORES)));
+            for (Integer quark : ss.getSubAttributes(lcoresQuark, false)) {
+                entryList.add(new TmfTreeDataModel(getId(quark), lcoresId, Collections.singletonList("lcore " + ss.getAttributeName(quark)), true, null)); //$NON-NLS-1$
+            }
+        }
+        for (Integer servicesQuark : ss.getQuarks(DpdkUtilizationStateProvider.SERVICES)) {
+            long servicesId = getId(servicesQuark);
+            entryList.add(new TmfTreeDataModel(servicesId, rootId, Collections.singletonList(DpdkUtilizationStateProvider.SERVICES)));
+            for (Integer quark : ss.getSubAttributes(servicesQuark, false)) {
+                entryList.add(new TmfTreeDataModel(getId(quark), servicesId, Collections.singletonList(getServiceName(ss, quark)), true, null));
+            }
+        }
+        return new TmfTreeModel<>(Collections.emptyList(), entryList);
+    }
+
+    private long getId(int quark) {
+        return fIDToDisplayQuark.inverse().computeIfAbsent(quark, q -> sfAtomicId.getAndIncrement());
+    }
+
+    private static String getServiceName(ITmfStateSystem ss, int quark) throws StateSystemDisposedException {
+        int nameQuark = ss.optQuarkRelative(quark, DpdkUtilizationStateProvider.SERVICE_NAME);
+        if (nameQuark != ITmfStateSystem.INVALID_ATTRIBUTE) {
+            Object name = ss.querySingleState(ss.getCurrentEndTime(), nameQuark).getValue();
+            if (name instanceof String) {
+                return (String) name;
+            }
+        }
+        return "service " + ss.getAttributeName(quark); //$NON-NLS-1$
+    }
+
+    private static List<Long> getTimes(ITmfStateSystem ss, @Nullable List<Long> list) {
+        if (list == null) {
+            return Collections.emptyList();
+        }
+        List<Long> times = new ArrayList<>();
+        for (long t : list) {
+            if (ss.getStartTime() <= t && t <= ss.getCurrentEndTime()) {
+                times.add(t);
+            }
+        }
+        Collections.sort(times);
+        return times;
+    }
+
+    @Override
+    protected @Nullable Collection<IYModel> getYSeriesModels(ITmfStateSystem ss, Map<String, Object> fetchParameters, @Nullable IProgressMonitor monitor) throws StateSystemDisposedException {
+        Collection<Long> selectedItems = DataProviderParameterUtils.extractSelectedItems(fetchParameters);
+        if (selectedItems == null) {
+            // No selected items, take them all
+            selectedItems = fIDToDisplayQuark.keySet();
+        }
+        List<Long> times = getTimes(ss, DataProviderParameterUtils.extractTimeRequested(fetchParameters));
+        int lcoresQuark = ss.optQuarkAbsolute(DpdkUtilizationStateProvider.LCORES);
+        int servicesQuark = ss.optQuarkAbsolute(DpdkUtilizationStateProvider.SERVICES);
+        Map<Integer, double[]> busyValues = new HashMap<>();
+        Map<Integer, double[]> callValues = new HashMap<>();
+        for (Long id : selectedItems) {
+            Integer quark = fIDToDisplayQuark.get(id);
+            if (quark == null || quark == ITmfStateSystem.ROOT_ATTRIBUTE) {
+                continue;
+            }
+            int parent = ss.getParentAttributeQuark(quark);
+            if (parent == lcoresQuark && parent != ITmfStateSystem.INVALID_ATTRIBUTE) {
+                busyValues.put(quark, new double[times.size()]);
+            } else if (parent == servicesQuark && parent != ITmfStateSystem.INVALID_ATTRIBUTE) {
+                callValues.put(quark, new double[times.size()]);
+            }
+        }
+
+        ValuePyramid pyramid = getAnalysisModule().getPyramid();
+        if (pyramid != null && pyramid.getLevel(times) >= 0) {
+            if (!fillFromPyramid(pyramid, busyValues, times, 100, monitor) || !fillFromPyramid(pyramid, callValues, times, NANOS_PER_SECOND, monitor)) {
+                return null;
+            }
+        } else if (!fillFromStateSystem(ss, busyValues, callValues, times, monitor)) {
+            return null;
+        }
+
+        ImmutableList.Builder<IYModel> ySeries = ImmutableList.builder();
+        for (Entry<Integer, double[]> entry : busyValues.entrySet()) {
+            ySeries.add(new YModel(getId(entry.getKey()), "lcore " + ss.getAttributeName(entry.getKey()), entry.getValue(), BUSY_AXIS_DESCRIPTION)); //$NON-NLS-1$
+        }
+        for (Entry<Integer, double[]> entry : callValues.entrySet()) {
+            ySeries.add(new YModel(getId(entry.getKey()), getServiceName(ss, entry.getKey()), entry.getValue(), CALLS_AXIS_DESCRIPTION));
+        }
+        return ySeries.build();
+    }
+
+    private static boolean fillFromPyramid(ValuePyramid pyramid, Map<Integer, double[]> quarkToValues, List<Long> times, double factor, @Nullable IProgressMonitor monitor) {
+        for (Entry<Integer, double[]> entry : quarkToValues.entrySet()) {
+            if (monitor != null && monitor.isCanceled()) {
+                return false;
+            }
+            double[] rates = pyramid.getValues(entry.getKey(), times, Statistic.AVERAGE);
+            if (rates != null) {
+                double[] row = entry.getValue();
+                for (int i = 0; i < rates.length; i++) {
+                    row[i] = factor * rates[i];
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fill the values from the state system, when the requested times are
+     * closer than the buckets of the pyramid. A logical core is 100% busy at a
+     * time if it runs a function or service at that time, and the call rate of
+     * a service is the difference of its number of calls since the previous
+     * time.
+     */
+    private static boolean fillFromStateSystem(ITmfStateSystem ss, Map<Integer, double[]> busyValues, Map<Integer, double[]> callValues, List<Long> times, @Nullable IProgressMonitor monitor) throws StateSystemDisposedException {
+        if (times.isEmpty()) {
+            return true;
+        }
+        Map<Integer, double[]> counters = new HashMap<>();
+        for (Integer quark : callValues.keySet()) {
+            counters.put(quark, new double[times.size()]);
+        }
+        List<Integer> quarks = new ArrayList<>(busyValues.keySet());
+        quarks.addAll(callValues.keySet());
+        for (ITmfStateInterval interval : ss.query2D(quarks, times)) {
+            if (monitor != null && monitor.isCanceled()) {
+                return false;
+            }
+            Object value = interval.getValue();
+            if (!(value instanceof Number)) {
+                continue;
+            }
+            double[] busy = busyValues.get(interval.getAttribute());
+            double[] counter = counters.get(interval.getAttribute());
+            double dblValue = ((Number) value).doubleValue();
+            for (int i = 0; i < times.size(); i++) {
+                long time = times.get(i);
+                if (interval.getStartTime() <= time && time <= interval.getEndTime()) {
+                    if (busy != null) {
+                        busy[i] = dblValue > 0 ? 100 : 0;
+                    } else if (counter != null) {
+                        counter[i] = dblValue;
+                    }
+                }
+            }
+        }
+        for (Entry<Integer, double[]> entry : counters.entrySet()) {
+            double[] counter = entry.getValue();
+            double[] row = callValues.get(entry.getKey());
+            if (row == null) {
+                continue;
+            }
+            for (int i = 1; i < times.size(); i++) {
+                long delta = times.get(i) - times.get(i - 1);
+                if (delta > 0) {
+                    row[i] = (counter[i] - counter[i - 1]) * NANOS_PER_SECOND / delta;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected String getTitle() {
+        return "DPDK Utilization"; //$NON-NLS-1$
+    }
+}
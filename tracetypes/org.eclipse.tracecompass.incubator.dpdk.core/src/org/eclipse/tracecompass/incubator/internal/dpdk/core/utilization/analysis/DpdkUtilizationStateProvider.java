@@ -0,0 +1,207 @@
+/**********************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+package org.eclipse.tracecompass.incubator.internal.dpdk.core.utilization.analysis;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.incubator.analysis.core.pyramid.IValuePyramidProvider;
+import org.eclipse.tracecompass.incubator.analysis.core.pyramid.ValuePyramid;
+import org.eclipse.tracecompass.incubator.internal.dpdk.core.analysis.AbstractDpdkStateProvider;
+import org.eclipse.tracecompass.incubator.internal.dpdk.core.analysis.IDpdkEventHandler;
+import org.eclipse.tracecompass.incubator.internal.dpdk.core.lcore.analysis.DpdkLogicalCoreEventLayout;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.statesystem.ITmfStateProvider;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * State provider of the utilization of the logical cores and of the calls of
+ * the services. The state system has the number of running functions and
+ * services of each logical core under {@link #LCORES}, and the number of calls
+ * of each service since the start of the trace under {@link #SERVICES}. The
+ * busy periods and the calls are also added to a {@link ValuePyramid} while
+ * the trace is read, as durations and counts.
+ */
+public class DpdkUtilizationStateProvider extends AbstractDpdkStateProvider implements IValuePyramidProvider {
+
+    /** Attribute under which the logical cores are */
+    public static final String LCORES = "Logical cores"; //$NON-NLS-1$
+    /** Attribute under which the services are */
+    public static final String SERVICES = "Services"; //$NON-NLS-1$
+    /** Attribute with the name of a service */
+    public static final String SERVICE_NAME = "name"; //$NON-NLS-1$
+
+    private static final int VERSION = 1;
+
+    private final DpdkLogicalCoreEventLayout fLayout;
+    private final Map<Integer, BusyLcore> fLcores = new HashMap<>();
+    private final Map<Integer, Service> fServices = new HashMap<>();
+    private final ValuePyramid.Builder fPyramidBuilder = new ValuePyramid.Builder();
+    private @Nullable ValuePyramid fPyramid = null;
+
+    /**
+     * Busy state of a logical core
+     */
+    private static final class BusyLcore {
+        private final int fQuark;
+        private int fNbRunning = 0;
+        private long fBusyStart = 0;
+
+        public BusyLcore(int quark) {
+            fQuark = quark;
+        }
+    }
+
+    /**
+     * Calls of a service
+     */
+    private static final class Service {
+        private final int fQuark;
+        private long fNbCalls = 0;
+
+        public Service(int quark) {
+            fQuark = quark;
+        }
+    }
+
+    /**
+     * Constructor
+     *
+     * @param trace
+     *            The trace to analyze
+     * @param layout
+     *            The event layout
+     */
+    public DpdkUtilizationStateProvider(ITmfTrace trace, DpdkLogicalCoreEventLayout layout) {
+        super(trace, DpdkUtilizationAnalysisModule.ID);
+        fLayout = layout;
+    }
+
+    @Override
+    public int getVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public ITmfStateProvider getNewInstance() {
+        return new DpdkUtilizationStateProvider(getTrace(), fLayout);
+    }
+
+    @Override
+    protected Map<String, IDpdkEventHandler> createEventHandlers() {
+        ImmutableMap.Builder<String, IDpdkEventHandler> builder = ImmutableMap.builder();
+        builder.put(fLayout.eventThreadLcoreRunning(), this::handleBusyStart);
+        builder.put(fLayout.eventServiceRunBegin(), this::handleServiceRunBegin);
+        builder.put(fLayout.eventThreadLcoreStopped(), this::handleBusyEnd);
+        builder.put(fLayout.eventServiceRunEnd(), this::handleBusyEnd);
+        builder.put(fLayout.eventServiceComponentRegister(), this::handleServiceRegister);
+        return builder.build();
+    }
+
+    private void handleBusyStart(ITmfStateSystemBuilder ssb, ITmfEvent event) {
+        Integer lcoreId = event.getContent().getFieldValue(Integer.class, fLayout.fieldLcoreId());
+        if (lcoreId != null) {
+            busyStart(ssb, lcoreId, event.getTimestamp().getValue());
+        }
+    }
+
+    private void handleServiceRunBegin(ITmfStateSystemBuilder ssb, ITmfEvent event) {
+        long ts = event.getTimestamp().getValue();
+        Integer serviceId = event.getContent().getFieldValue(Integer.class, fLayout.fieldId());
+        if (serviceId != null) {
+            Service service = getService(ssb, serviceId);
+            service.fNbCalls++;
+            ssb.modifyAttribute(ts, service.fNbCalls, service.fQuark);
+            fPyramidBuilder.addCount(service.fQuark, ts);
+        }
+        handleBusyStart(ssb, event);
+    }
+
+    private void handleBusyEnd(ITmfStateSystemBuilder ssb, ITmfEvent event) {
+        Integer lcoreId = event.getContent().getFieldValue(Integer.class, fLayout.fieldLcoreId());
+        if (lcoreId == null) {
+            return;
+        }
+        BusyLcore lcore = fLcores.get(lcoreId);
+        if (lcore == null || lcore.fNbRunning == 0) {
+            // The start of this busy period is before the trace
+            return;
+        }
+        long ts = event.getTimestamp().getValue();
+        lcore.fNbRunning--;
+        ssb.modifyAttribute(ts, lcore.fNbRunning, lcore.fQuark);
+        if (lcore.fNbRunning == 0) {
+            fPyramidBuilder.addDuration(lcore.fQuark, lcore.fBusyStart, ts);
+        }
+    }
+
+    private void handleServiceRegister(ITmfStateSystemBuilder ssb, ITmfEvent event) {
+        Integer serviceId = event.getContent().getFieldValue(Integer.class, fLayout.fieldId());
+        String serviceName = event.getContent().getFieldValue(String.class, fLayout.fieldServiceName());
+        if (serviceId != null && serviceName != null) {
+            Service service = getService(ssb, serviceId);
+            ssb.modifyAttribute(event.getTimestamp().getValue(), serviceName, ssb.getQuarkRelativeAndAdd(service.fQuark, SERVICE_NAME));
+        }
+    }
+
+    private void busyStart(ITmfStateSystemBuilder ssb, int lcoreId, long ts) {
+        BusyLcore lcore = fLcores.get(lcoreId);
+        if (lcore == null) {
+            lcore = new BusyLcore(ssb.getQuarkAbsoluteAndAdd(LCORES, String.valueOf(lcoreId)));
+            fLcores.put(lcoreId, lcore);
+        }
+        if (lcore.fNbRunning == 0) {
+            lcore.fBusyStart = ts;
+        }
+        lcore.fNbRunning++;
+        ssb.modifyAttribute(ts, lcore.fNbRunning, lcore.fQuark);
+    }
+
+    private Service getService(ITmfStateSystemBuilder ssb, int serviceId) {
+        Service service = fServices.get(serviceId);
+        if (service == null) {
+            service = new Service(ssb.getQuarkAbsoluteAndAdd(SERVICES, String.valueOf(serviceId)));
+            fServices.put(serviceId, service);
+        }
+        return service;
+    }
+
+    @Override
+    public void done() {
+        ITmfStateSystemBuilder ssb = getStateSystemBuilder();
+        if (ssb != null) {
+            long end = ssb.getCurrentEndTime();
+            // Close the busy periods that are still open at the end
+            for (BusyLcore lcore : fLcores.values()) {
+                if (lcore.fNbRunning > 0) {
+                    fPyramidBuilder.addDuration(lcore.fQuark, lcore.fBusyStart, end + 1);
+                }
+            }
+            fPyramid = fPyramidBuilder.build(end);
+        }
+        super.done();
+    }
+
+    /**
+     * Get the pyramid recorded while the state system was built
+     *
+     * @return the pyramid, or <code>null</code> if the state system is not
+     *         built yet
+     */
+    @Override
+    public @Nullable ValuePyramid getPyramid() {
+        return fPyramid;
+    }
+}
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2024 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.hudson.maven.core.tests.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Matcher;
+
+import org.eclipse.tracecompass.incubator.internal.hudson.maven.core.trace.MavenLineClassifier;
+import org.eclipse.tracecompass.incubator.internal.hudson.maven.core.trace.MavenLineClassifier.LineType;
+import org.eclipse.tracecompass.incubator.internal.hudson.maven.core.trace.MavenLogState;
+import org.eclipse.tracecompass.incubator.internal.hudson.maven.core.trace.MavenLogState.Change;
+import org.junit.Test;
+
+/**
+ * Test the {@link MavenLineClassifier} of the lines of the Maven logs and the
+ * {@link MavenLogState} that detects the logs that grew
+ */
+public class MavenLineClassifierTest {
+
+    private static final String GOAL = "16:17:03 [INFO] --- maven-clean-plugin:3.0.0:clean (default-clean) @ org.eclipse.tracecompass ---"; //$NON-NLS-1$
+    private static final String SUMMARY = "11:01:09 Tests run: 1, Failures: 0, Errors: 0, Skipped: 0, Time elapsed: 1,040.099 s - in org.eclipse.tracecompass.SomeTest"; //$NON-NLS-1$
+    private static final String TEST = "9:42:14 climbTest(org.eclipse.tracecompass.SomeTest)  Time elapsed: 0.162 sec"; //$NON-NLS-1$
+
+    /**
+     * Test the classification of the event lines and of other lines
+     */
+    @Test
+    public void testClassify() {
+        assertEquals(LineType.GOAL, classify(GOAL));
+        assertEquals(LineType.TEST_SUMMARY, classify(SUMMARY));
+        assertEquals(LineType.TEST, classify(TEST));
+
+        assertFalse(MavenLineClassifier.FIRST_LINE.matcher("16:17:03 [INFO] Deleting /tmp/target").matches()); //$NON-NLS-1$
+        assertFalse(MavenLineClassifier.FIRST_LINE.matcher("16:17:03 \tat org.junit.runners.Suite.runChild(Suite.java:27)").matches()); //$NON-NLS-1$
+        assertFalse(MavenLineClassifier.FIRST_LINE.matcher("[INFO] --- maven-clean-plugin:3.0.0:clean (default-clean) @ org.eclipse.tracecompass ---").matches()); //$NON-NLS-1$
+    }
+
+    /**
+     * Test the parsing of the times of day, which are in the local time zone
+     * like with a date format
+     */
+    @Test
+    public void testParseTime() {
+        long midnight = MavenLineClassifier.parseTime("00:00:00"); //$NON-NLS-1$
+        assertEquals(midnight + 34934000L, MavenLineClassifier.parseTime("9:42:14")); //$NON-NLS-1$
+        assertEquals(midnight + 34934000L, MavenLineClassifier.parseTime("09:42:14")); //$NON-NLS-1$
+        assertEquals(midnight + 86399000L, MavenLineClassifier.parseTime("23:59:59")); //$NON-NLS-1$
+    }
+
+    /**
+     * Test the detection of the logs that were appended to or replaced
+     *
+     * @throws IOException
+     *             if the files cannot be written
+     */
+    @Test
+    public void testLogState() throws IOException {
+        File log = File.createTempFile("maven", ".log"); //$NON-NLS-1$ //$NON-NLS-2$
+        File state = File.createTempFile("maven", ".properties"); //$NON-NLS-1$ //$NON-NLS-2$
+        try {
+            assertTrue(state.delete());
+            write(log, GOAL, false);
+            assertEquals(Change.REPLACED, MavenLogState.update(log, state));
+            assertEquals(Change.UNCHANGED, MavenLogState.update(log, state));
+
+            write(log, SUMMARY, true);
+            assertEquals(Change.APPENDED, MavenLogState.update(log, state));
+            assertEquals(Change.UNCHANGED, MavenLogState.update(log, state));
+
+            // Same length, different content
+            write(log, GOAL.replace("16:17:03", "16:17:04") + '\n' + SUMMARY, false); //$NON-NLS-1$ //$NON-NLS-2$
+            assertEquals(Change.REPLACED, MavenLogState.update(log, state));
+
+            write(log, TEST, false);
+            assertEquals(Change.REPLACED, MavenLogState.update(log, state));
+        } finally {
+            log.delete();
+            state.delete();
+        }
+    }
+
+    private static LineType classify(String line) {
+        Matcher matcher = MavenLineClassifier.FIRST_LINE.matcher(line);
+        assertTrue(line, matcher.matches());
+        return MavenLineClassifier.getType(matcher);
+    }
+
+    private static void write(File file, String line, boolean append) throws IOException {
+        Files.write(file.toPath(), (line + '\n').getBytes(StandardCharsets.UTF_8), append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+    }
+}
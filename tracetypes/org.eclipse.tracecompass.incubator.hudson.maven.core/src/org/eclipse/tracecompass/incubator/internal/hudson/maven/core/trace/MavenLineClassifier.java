@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2024 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.hudson.maven.core.trace;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.tracecompass.tmf.core.timestamp.ITmfTimestamp;
+import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
+
+/**
+ * Classifier of the lines of a Maven log. Every line of the log goes through
+ * its pattern, so it is written to reject the lines that are not events as
+ * early as possible: the timestamp is matched once for all the event types,
+ * then each type starts with its literal, "[" for goals and "Tests run:" for
+ * test summaries, and individual tests are first looked up by their "Time
+ * elapsed:" literal before the test name is captured. Without that guard,
+ * every timestamped line was backtracked through the test name captures.
+ */
+public final class MavenLineClassifier {
+
+    /** The types of event lines */
+    public enum LineType {
+        /** A goal, like "[INFO] --- maven-clean-plugin:3.0.0:clean ..." */
+        GOAL,
+        /** The summary of a test class, "Tests run: 1, Failures: 0, ..." */
+        TEST_SUMMARY,
+        /** An individual test, "climbTest(...Test) Time elapsed: 0.162 sec" */
+        TEST
+    }
+
+    private static final String DATE_PATTERN = "([0-2]?\\d:[0-5]\\d:[0-5]\\d)"; //$NON-NLS-1$
+    private static final String ELAPSED_TIME_STRING = "Time\\selapsed:\\s*([\\d|\\.|\\,]+)\\s*se?c?"; //$NON-NLS-1$
+    /*
+     * 16:17:03 [INFO] --- maven-clean-plugin:3.0.0:clean (default-clean) @
+     * org.eclipse.tracecompass ---
+     */
+    private static final String GOAL_PATTERN = "\\[(\\S+)\\]\\s+---\\s((.*)\\(.*\\))\\s+@\\s+(\\S+)\\s+---"; //$NON-NLS-1$
+    /*
+     * 11:01:09 Tests run: 1, Failures: 0, Errors: 0, Skipped: 0, Time elapsed:
+     * 40.099 s - in org.eclipse.tracecompass.analysis.os.linux.ui.swtbot.tests.
+     * latency.SystemCallLatencyDensityViewTest
+     */
+    private static final String TEST_SUMMARY_PATTERN = "Tests\\srun:\\s(\\d+),\\sFailures:\\s(\\d+),\\sErrors:\\s(\\d+),\\sSkipped:\\s(\\d+),\\s*" + ELAPSED_TIME_STRING + "\\s*[^-]*-\\sin\\s(.*)"; //$NON-NLS-1$ //$NON-NLS-2$
+    /*
+     * 16:42:14
+     * climbTest(org.eclipse.tracecompass.analysis.os.linux.ui.swtbot.tests.
+     * latency.SystemCallLatencyTableAnalysisTest) Time elapsed: 0.162 sec
+     */
+    private static final String TEST_INDIVIDUAL_PATTERN = "(?=.*Time\\selapsed:)((.*)\\(.*\\))\\s*" + ELAPSED_TIME_STRING + ".*"; //$NON-NLS-1$ //$NON-NLS-2$
+
+    /**
+     * The pattern of the first line of the events, with the timestamp and one
+     * branch per event type
+     */
+    public static final Pattern FIRST_LINE = Pattern.compile('^' + DATE_PATTERN + "\\s*(?:" + GOAL_PATTERN + '|' + TEST_SUMMARY_PATTERN + '|' + TEST_INDIVIDUAL_PATTERN + ")$"); //$NON-NLS-1$ //$NON-NLS-2$
+
+    /* The groups of the first line pattern */
+    private static final int TIME_GROUP = 1;
+    private static final int GOAL_LEVEL_GROUP = 2;
+    private static final int GOAL_FULL_NAME_GROUP = 3;
+    private static final int GOAL_NAME_GROUP = 4;
+    private static final int GOAL_ARTIFACT_GROUP = 5;
+    private static final int SUMMARY_RUN_GROUP = 6;
+    private static final int SUMMARY_ELAPSED_GROUP = 10;
+    private static final int SUMMARY_CLASS_GROUP = 11;
+    private static final int TEST_FULL_NAME_GROUP = 12;
+    private static final int TEST_NAME_GROUP = 13;
+    private static final int TEST_ELAPSED_GROUP = 14;
+
+    private static final long MILLIS_PER_SECOND = 1000L;
+    private static final int SECONDS_PER_MINUTE = 60;
+
+    /**
+     * The offset of the local time zone on the first day of the epoch, the
+     * timestamps only have the time of day
+     */
+    private static final long LOCAL_OFFSET = ZoneId.systemDefault().getRules().getOffset(LocalDateTime.of(1970, 1, 1, 12, 0)).getTotalSeconds() * MILLIS_PER_SECOND;
+
+    private MavenLineClassifier() {
+        // Do nothing
+    }
+
+    /**
+     * Get the type of a line matched by {@link #FIRST_LINE}
+     *
+     * @param matcher
+     *            the matcher of the line
+     * @return the type of event of the line
+     */
+    public static LineType getType(Matcher matcher) {
+        if (matcher.start(GOAL_LEVEL_GROUP) >= 0) {
+            return LineType.GOAL;
+        }
+        if (matcher.start(SUMMARY_RUN_GROUP) >= 0) {
+            return LineType.TEST_SUMMARY;
+        }
+        return LineType.TEST;
+    }
+
+    /**
+     * Create the event of a line matched by {@link #FIRST_LINE}
+     *
+     * @param trace
+     *            the trace of the event
+     * @param matcher
+     *            the matcher of the line
+     * @return the event
+     */
+    public static MavenEvent createEvent(MavenTrace trace, Matcher matcher) {
+        ITmfTimestamp timestamp = TmfTimestamp.fromMillis(parseTime(matcher.group(TIME_GROUP)));
+        switch (getType(matcher)) {
+        case GOAL:
+            return MavenEvent.createGoal(trace, timestamp, matcher.group(GOAL_LEVEL_GROUP), matcher.group(GOAL_FULL_NAME_GROUP), matcher.group(GOAL_NAME_GROUP), matcher.group(GOAL_ARTIFACT_GROUP));
+        case TEST_SUMMARY:
+            return MavenEvent.createSummary(trace, timestamp, matcher.group(SUMMARY_CLASS_GROUP), matcher.group(SUMMARY_CLASS_GROUP), parseDouble(matcher.group(SUMMARY_ELAPSED_GROUP)));
+        case TEST:
+        default:
+            return MavenEvent.createTest(trace, timestamp, matcher.group(TEST_NAME_GROUP), matcher.group(TEST_FULL_NAME_GROUP), parseDouble(matcher.group(TEST_ELAPSED_GROUP)));
+        }
+    }
+
+    /**
+     * Parse the time of day of a line, like "16:17:03", without going through
+     * a date format
+     *
+     * @param time
+     *            the time of day, in hours, minutes and seconds, the hours
+     *            having one or two digits
+     * @return the time in milliseconds since the epoch, on the first day of
+     *         the epoch in the local time zone
+     */
+    public static long parseTime(String time) {
+        int secondsStart = time.length() - 2;
+        int minutesStart = secondsStart - 3;
+        int hours = Integer.parseInt(time, 0, minutesStart - 1, 10);
+        int minutes = Integer.parseInt(time, minutesStart, minutesStart + 2, 10);
+        int seconds = Integer.parseInt(time, secondsStart, secondsStart + 2, 10);
+        return ((hours * SECONDS_PER_MINUTE + minutes) * SECONDS_PER_MINUTE + seconds) * MILLIS_PER_SECOND - LOCAL_OFFSET;
+    }
+
+    private static Double parseDouble(String original) {
+        // Replace ',' separating thousands by nothing
+        String dblString = original.replace(",", ""); //$NON-NLS-1$//$NON-NLS-2$
+        return Double.parseDouble(dblString);
+    }
+}
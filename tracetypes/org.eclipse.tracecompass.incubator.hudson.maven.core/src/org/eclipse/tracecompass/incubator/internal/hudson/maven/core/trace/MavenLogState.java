@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2024 Ericsson
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.hudson.maven.core.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The state of a Maven log when it was last opened: its length and the
+ * checksums of its first bytes and of the bytes before its end. It is saved
+ * with the supplementary files of the trace, to tell whether a log that
+ * changed since was only appended to, like the log of a running build, or
+ * replaced.
+ */
+public final class MavenLogState {
+
+    /** How a log changed since its state was saved */
+    public enum Change {
+        /** The log did not change */
+        UNCHANGED,
+        /** Lines were added at the end of the log */
+        APPENDED,
+        /** The log was replaced or truncated, or its state is unknown */
+        REPLACED
+    }
+
+    /** Number of bytes checksummed at the beginning and before the end */
+    private static final int CHECKSUM_LENGTH = 4096;
+
+    private static final String KEY_LENGTH = "length"; //$NON-NLS-1$
+    private static final String KEY_HEAD = "head"; //$NON-NLS-1$
+    private static final String KEY_TAIL = "tail"; //$NON-NLS-1$
+
+    private final long fLength;
+    private final long fHeadChecksum;
+    private final long fTailChecksum;
+
+    private MavenLogState(long length, long headChecksum, long tailChecksum) {
+        fLength = length;
+        fHeadChecksum = headChecksum;
+        fTailChecksum = tailChecksum;
+    }
+
+    /**
+     * Compare a log with its saved state, and save its current state
+     *
+     * @param logFile
+     *            the log file
+     * @param stateFile
+     *            the file where the state of the log is saved
+     * @return how the log changed since its state was saved
+     */
+    public static Change update(File logFile, File stateFile) {
+        MavenLogState saved = read(stateFile);
+        try (RandomAccessFile log = new RandomAccessFile(logFile, "r")) { //$NON-NLS-1$
+            long length = log.length();
+            Change change = Change.REPLACED;
+            if (saved != null && length >= saved.fLength &&
+                    checksum(log, 0, saved.fLength) == saved.fHeadChecksum &&
+                    checksum(log, Math.max(0, saved.fLength - CHECKSUM_LENGTH), saved.fLength) == saved.fTailChecksum) {
+                change = length == saved.fLength ? Change.UNCHANGED : Change.APPENDED;
+            }
+            if (change != Change.UNCHANGED) {
+                new MavenLogState(length, checksum(log, 0, length), checksum(log, Math.max(0, length - CHECKSUM_LENGTH), length)).write(stateFile);
+            }
+            return change;
+        } catch (IOException e) {
+            stateFile.delete();
+            return Change.REPLACED;
+        }
+    }
+
+    /**
+     * Checksum the bytes of the log from an offset, up to the checksum length
+     */
+    private static long checksum(RandomAccessFile log, long start, long end) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(CHECKSUM_LENGTH, end - start)];
+        log.seek(start);
+        log.readFully(buffer);
+        CRC32 crc = new CRC32();
+        crc.update(buffer);
+        return crc.getValue();
+    }
+
+    private static @Nullable MavenLogState read(File stateFile) {
+        if (!stateFile.exists()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(stateFile.toPath())) {
+            properties.load(in);
+            return new MavenLogState(Long.parseLong(properties.getProperty(KEY_LENGTH)),
+                    Long.parseLong(properties.getProperty(KEY_HEAD)),
+                    Long.parseLong(properties.getProperty(KEY_TAIL)));
+        } catch (IOException | NumberFormatException e) {
+            // The log will be considered replaced
+            return null;
+        }
+    }
+
+    private void write(File stateFile) {
+        Properties properties = new Properties();
+        properties.setProperty(KEY_LENGTH, String.valueOf(fLength));
+        properties.setProperty(KEY_HEAD, String.valueOf(fHeadChecksum));
+        properties.setProperty(KEY_TAIL, String.valueOf(fTailChecksum));
+        File parent = stateFile.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        try (OutputStream out = Files.newOutputStream(stateFile.toPath())) {
+            properties.store(out, null);
+        } catch (IOException e) {
+            // Not saved, the log will be considered replaced next time
+            stateFile.delete();
+        }
+    }
+}
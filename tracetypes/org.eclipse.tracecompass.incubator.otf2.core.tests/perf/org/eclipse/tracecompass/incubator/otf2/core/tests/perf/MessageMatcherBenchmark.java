@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.otf2.core.tests.perf;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Objects;
+
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+import org.eclipse.tracecompass.incubator.internal.otf2.core.mpi.MessageIdentifiers;
+import org.eclipse.tracecompass.incubator.internal.otf2.core.mpi.MessageMatcher;
+import org.eclipse.tracecompass.incubator.otf2.core.tests.mpi.SyntheticMpiMessageGenerator;
+import org.eclipse.tracecompass.incubator.otf2.core.tests.mpi.SyntheticMpiMessageGenerator.MpiEvent;
+import org.junit.Test;
+
+/**
+ * Benchmarks the matching of MPI point to point messages on synthetic streams
+ * with many ranks and many messages in flight. The throughput in messages per
+ * second is the number of messages divided by the measured time.
+ */
+public class MessageMatcherBenchmark {
+
+    private static final String TEST_ID = "org.eclipse.tracecompass.incubator#OTF2#";
+    private static final int LOOP_COUNT = 5;
+    private static final long NB_MESSAGES = 5000000L;
+    private static final int NB_COMMUNICATORS = 4;
+    private static final int NB_TAGS = 16;
+    private static final long SEED = 42L;
+
+    /**
+     * Benchmark the matching with a thousand ranks and a hundred thousand
+     * messages in flight
+     */
+    @Test
+    public void testManyRanks() {
+        runBenchmark("Message matching (1024 ranks)", 1024, 200000);
+    }
+
+    /**
+     * Benchmark the matching with few ranks, where many pending messages share
+     * the same identifiers
+     */
+    @Test
+    public void testFewRanks() {
+        runBenchmark("Message matching (8 ranks)", 8, 200000);
+    }
+
+    private static void runBenchmark(String testName, int nbRanks, int maxLatency) {
+        Performance perf = Performance.getDefault();
+        PerformanceMeter pm = Objects.requireNonNull(perf.createPerformanceMeter(TEST_ID + testName));
+        perf.tagAsSummary(pm, testName, Dimension.CPU_TIME);
+        for (int i = 0; i < LOOP_COUNT; i++) {
+            SyntheticMpiMessageGenerator generator = new SyntheticMpiMessageGenerator(nbRanks, NB_COMMUNICATORS, NB_TAGS, NB_MESSAGES, maxLatency, SEED);
+            MessageMatcher<MpiEvent> matcher = new MessageMatcher<>();
+            pm.start();
+            while (generator.hasNext()) {
+                MpiEvent event = generator.next();
+                MessageIdentifiers key = new MessageIdentifiers(event.getCommunicator(), event.getSrcRank(), event.getDestRank(), event.getTag());
+                if (event.isSend()) {
+                    matcher.add(key, event);
+                } else {
+                    matcher.match(key);
+                }
+            }
+            pm.stop();
+            assertEquals(NB_MESSAGES, matcher.getNbMatched());
+        }
+        pm.commit();
+    }
+}
@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.otf2.core.tests.analysis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.tracecompass.incubator.analysis.core.pyramid.ValuePyramid;
+import org.eclipse.tracecompass.incubator.analysis.core.pyramid.ValuePyramid.Statistic;
+import org.eclipse.tracecompass.incubator.internal.otf2.core.analysis.AbstractOtf2StateProvider;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.StateSystemFactory;
+import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.tests.stubs.trace.TmfTraceStub;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the value pyramid recorded by the {@link AbstractOtf2StateProvider}
+ * for the attributes it increments, against the values of these attributes
+ * in the state system
+ */
+public class Otf2StateProviderPyramidTest {
+
+    private static final double DELTA = 1e-6;
+
+    private ITmfTrace fTrace;
+    private ITmfStateSystemBuilder fSs;
+
+    /**
+     * State provider incrementing the attributes directly, instead of
+     * handling OTF2 events
+     */
+    private static class TestStateProvider extends AbstractOtf2StateProvider {
+
+        public TestStateProvider(ITmfTrace trace) {
+            super(trace, "test"); //$NON-NLS-1$
+        }
+
+        public void increment(long timestamp, int quark, double increment) {
+            ITmfStateSystemBuilder ssb = getStateSystemBuilder();
+            assertNotNull(ssb);
+            incrementAttributeDouble(ssb, timestamp, quark, increment);
+        }
+
+        @Override
+        public int getVersion() {
+            return 0;
+        }
+
+        @Override
+        protected void processGlobalDefinition(ITmfEvent event, String name) {
+            // Not used
+        }
+
+        @Override
+        protected void processOtf2Event(ITmfEvent event, String name, ITmfStateSystemBuilder ssb) {
+            // Not used
+        }
+    }
+
+    /**
+     * Create the trace and the state system
+     */
+    @Before
+    public void setUp() {
+        fTrace = new TmfTraceStub();
+        fSs = StateSystemFactory.newStateSystem(StateHistoryBackendFactory.createInMemoryBackend("test", 0L)); //$NON-NLS-1$
+    }
+
+    /**
+     * Dispose the trace and the state system
+     */
+    @After
+    public void tearDown() {
+        fSs.dispose();
+        fTrace.dispose();
+    }
+
+    private TestStateProvider createProvider() {
+        TestStateProvider provider = new TestStateProvider(fTrace);
+        provider.assignTargetStateSystem(fSs);
+        return provider;
+    }
+
+    /**
+     * Close the state system and get the pyramid built by the provider
+     */
+    private ValuePyramid done(TestStateProvider provider) {
+        provider.done();
+        fSs.closeHistory(fSs.getCurrentEndTime());
+        ValuePyramid pyramid = provider.getPyramid();
+        assertNotNull(pyramid);
+        return pyramid;
+    }
+
+    /**
+     * Compare each bucket of the lowest level of the pyramid with the values
+     * of the attribute in the state system at each nanosecond of the bucket
+     */
+    private void assertSameAsStateSystem(ValuePyramid pyramid, int quark) throws StateSystemDisposedException {
+        long width = pyramid.getBucketWidth();
+        List<Long> times = new ArrayList<>();
+        for (long time = pyramid.getStart(); time < pyramid.getEnd(); time += width) {
+            times.add(time);
+        }
+        double[] min = new double[times.size()];
+        double[] max = new double[times.size()];
+        double[] average = new double[times.size()];
+        for (int i = 0; i < times.size(); i++) {
+            long bucketStart = times.get(i);
+            long bucketEnd = Math.min(bucketStart + width, pyramid.getEnd());
+            min[i] = Double.POSITIVE_INFINITY;
+            max[i] = Double.NEGATIVE_INFINITY;
+            double sum = 0.0;
+            for (long time = bucketStart; time < bucketEnd; time++) {
+                // The attribute is 0 before its first increment
+                Object value = fSs.querySingleState(time, quark).getValue();
+                double doubleValue = value instanceof Number ? ((Number) value).doubleValue() : 0.0;
+                min[i] = Math.min(min[i], doubleValue);
+                max[i] = Math.max(max[i], doubleValue);
+                sum += doubleValue;
+            }
+            average[i] = sum / (bucketEnd - bucketStart);
+        }
+        assertArrayEquals(min, pyramid.getValues(quark, times, Statistic.MIN), DELTA);
+        assertArrayEquals(max, pyramid.getValues(quark, times, Statistic.MAX), DELTA);
+        assertArrayEquals(average, pyramid.getValues(quark, times, Statistic.AVERAGE), DELTA);
+    }
+
+    /**
+     * Test the series of a few increments, where each increment sets the value
+     * of the attribute until the next one
+     *
+     * @throws StateSystemDisposedException
+     *             if the state system is disposed
+     */
+    @Test
+    public void testIncrements() throws StateSystemDisposedException {
+        TestStateProvider provider = createProvider();
+        int quark = fSs.getQuarkAbsoluteAndAdd("rank", "bytes"); //$NON-NLS-1$ //$NON-NLS-2$
+        provider.increment(0L, quark, 2.0);
+        provider.increment(5L, quark, 2.0);
+        provider.increment(8L, quark, -4.0);
+        provider.increment(15L, quark, 0.0);
+        ValuePyramid pyramid = done(provider);
+
+        assertEquals(0L, pyramid.getStart());
+        assertEquals(fSs.getCurrentEndTime() + 1, pyramid.getEnd());
+        assertEquals(1L, pyramid.getBucketWidth());
+        List<Long> times = Arrays.asList(0L, 4L, 8L, 12L);
+        assertArrayEquals(new double[] { 2.0, 3.5, 0.0, 0.0 }, pyramid.getValues(quark, times, Statistic.AVERAGE), DELTA);
+        assertArrayEquals(new double[] { 2.0, 4.0, 0.0, 0.0 }, pyramid.getValues(quark, times, Statistic.MAX), DELTA);
+        assertSameAsStateSystem(pyramid, quark);
+
+        // An attribute that was never incremented
+        int other = fSs.getQuarkAbsoluteAndAdd("rank", "messages"); //$NON-NLS-1$ //$NON-NLS-2$
+        assertArrayEquals(new double[] { 0.0, 0.0, 0.0, 0.0 }, pyramid.getValues(other, times, Statistic.MAX), DELTA);
+    }
+
+    /**
+     * Test random increments of many attributes, the first ones being
+     * incremented later than the others, over a time range that needs buckets
+     * wider than a nanosecond
+     *
+     * @throws StateSystemDisposedException
+     *             if the state system is disposed
+     */
+    @Test
+    public void testRandomIncrements() throws StateSystemDisposedException {
+        Random random = new Random(11);
+        TestStateProvider provider = createProvider();
+        int nbQuarks = 5;
+        int[] quarks = new int[nbQuarks];
+        for (int i = 0; i < nbQuarks; i++) {
+            quarks[i] = fSs.getQuarkAbsoluteAndAdd("rank", String.valueOf(i)); //$NON-NLS-1$
+        }
+        long time = 100L;
+        for (int i = 0; i < 2000; i++) {
+            time += 1 + random.nextInt(3);
+            // The attributes are incremented one after the other at first
+            int index = i < 500 ? nbQuarks - 1 - i / 100 : random.nextInt(nbQuarks);
+            provider.increment(time, quarks[index], random.nextInt(21) - 10);
+        }
+        ValuePyramid pyramid = done(provider);
+
+        assertEquals(fSs.getCurrentEndTime() + 1, pyramid.getEnd());
+        assertTrue(pyramid.getBucketWidth() > 1);
+        for (int quark : quarks) {
+            assertSameAsStateSystem(pyramid, quark);
+        }
+    }
+
+    /**
+     * Test that a provider that did not increment any attribute has no
+     * pyramid
+     */
+    @Test
+    public void testNoIncrement() {
+        TestStateProvider provider = createProvider();
+        fSs.getQuarkAbsoluteAndAdd("rank"); //$NON-NLS-1$
+        provider.done();
+        assertNull(provider.getPyramid());
+    }
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.otf2.core.tests.mpi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.eclipse.tracecompass.incubator.internal.otf2.core.mpi.MessageIdentifiers;
+import org.eclipse.tracecompass.incubator.internal.otf2.core.mpi.MessageMatcher;
+import org.eclipse.tracecompass.incubator.internal.otf2.core.mpi.RankTable;
+import org.eclipse.tracecompass.incubator.otf2.core.tests.mpi.SyntheticMpiMessageGenerator.MpiEvent;
+import org.junit.Test;
+
+/**
+ * Test the matching of MPI point to point messages
+ */
+public class MessageMatcherTest {
+
+    /**
+     * Test that messages with the same identifiers are matched in FIFO order
+     */
+    @Test
+    public void testFifoMatching() {
+        MessageMatcher<MessageIdentifiers> matcher = new MessageMatcher<>();
+        MessageIdentifiers first = new MessageIdentifiers(0, 1, 2, 7, 10L);
+        MessageIdentifiers second = new MessageIdentifiers(0, 1, 2, 7, 20L);
+        MessageIdentifiers otherTag = new MessageIdentifiers(0, 1, 2, 8, 15L);
+        matcher.add(first, first);
+        matcher.add(otherTag, otherTag);
+        matcher.add(second, second);
+        assertEquals(3, matcher.getNbPending());
+
+        MessageIdentifiers match = matcher.match(new MessageIdentifiers(0, 1, 2, 7));
+        assertNotNull(match);
+        assertEquals(10L, match.getBeginTimestamp());
+        match = matcher.match(new MessageIdentifiers(0, 1, 2, 7));
+        assertNotNull(match);
+        assertEquals(20L, match.getBeginTimestamp());
+        assertNull(matcher.match(new MessageIdentifiers(0, 1, 2, 7)));
+        // Wrong direction
+        assertNull(matcher.match(new MessageIdentifiers(0, 2, 1, 8)));
+
+        assertEquals(2, matcher.getNbMatched());
+        assertEquals(1, matcher.getNbPending());
+        assertEquals(2, matcher.getNbUnmatchedReceives());
+        assertEquals(3, matcher.getNbUnmatched());
+    }
+
+    /**
+     * Test that all the messages of a synthetic stream are matched
+     */
+    @Test
+    public void testSyntheticStream() {
+        long nbMessages = 200000;
+        MessageMatcher<MpiEvent> matcher = new MessageMatcher<>();
+        SyntheticMpiMessageGenerator generator = new SyntheticMpiMessageGenerator(64, 4, 8, nbMessages, 1000, 1L);
+        long lastTimestamp = Long.MIN_VALUE;
+        while (generator.hasNext()) {
+            MpiEvent event = generator.next();
+            assertTrue(event.getTimestamp() >= lastTimestamp);
+            lastTimestamp = event.getTimestamp();
+            MessageIdentifiers key = new MessageIdentifiers(event.getCommunicator(), event.getSrcRank(), event.getDestRank(), event.getTag());
+            if (event.isSend()) {
+                matcher.add(key, event);
+            } else {
+                assertNotNull(matcher.match(key));
+            }
+        }
+        assertEquals(nbMessages, matcher.getNbMatched());
+        assertEquals(0, matcher.getNbUnmatched());
+    }
+
+    /**
+     * Test the rank table of a group
+     */
+    @Test
+    public void testRankTable() {
+        RankTable table = new RankTable(Arrays.asList(40L, 10L, 30L, 10L, 20L));
+        assertEquals(5, table.size());
+        assertEquals(0, table.getRank(40L));
+        assertEquals(1, table.getRank(10L));
+        assertEquals(2, table.getRank(30L));
+        assertEquals(4, table.getRank(20L));
+        assertEquals(RankTable.UNKNOWN_RANK, table.getRank(50L));
+        assertEquals(RankTable.UNKNOWN_RANK, new RankTable(Collections.emptyList()).getRank(1L));
+    }
+}
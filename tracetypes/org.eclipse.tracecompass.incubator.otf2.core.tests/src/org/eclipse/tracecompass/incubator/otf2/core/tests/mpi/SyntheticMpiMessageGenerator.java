@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.otf2.core.tests.mpi;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Generates a stream of synthetic MPI point to point events, like the
+ * MpiSend and MpiRecv events of an OTF2 trace, in timestamp order. The events
+ * are generated lazily, so streams of many millions of messages can be used
+ * without keeping them in memory.
+ *
+ * Each message is sent by a random rank to another random rank of a random
+ * communicator, with a random tag, and received after a random latency. A
+ * message may be received before an earlier message with the same
+ * identifiers, so the stream is meant to measure the matching throughput and
+ * the number of matched messages, not the pairing of specific messages.
+ */
+public class SyntheticMpiMessageGenerator implements Iterator<SyntheticMpiMessageGenerator.MpiEvent> {
+
+    /**
+     * A synthetic point to point event
+     */
+    public static final class MpiEvent {
+        private final boolean fIsSend;
+        private final int fCommunicator;
+        private final int fSrcRank;
+        private final int fDestRank;
+        private final int fTag;
+        private final long fTimestamp;
+
+        private MpiEvent(boolean isSend, int communicator, int srcRank, int destRank, int tag, long timestamp) {
+            fIsSend = isSend;
+            fCommunicator = communicator;
+            fSrcRank = srcRank;
+            fDestRank = destRank;
+            fTag = tag;
+            fTimestamp = timestamp;
+        }
+
+        /**
+         * @return whether this event is the send of the message
+         */
+        public boolean isSend() {
+            return fIsSend;
+        }
+
+        /**
+         * @return the communicator of the message
+         */
+        public int getCommunicator() {
+            return fCommunicator;
+        }
+
+        /**
+         * @return the rank of the sender
+         */
+        public int getSrcRank() {
+            return fSrcRank;
+        }
+
+        /**
+         * @return the rank of the receiver
+         */
+        public int getDestRank() {
+            return fDestRank;
+        }
+
+        /**
+         * @return the tag of the message
+         */
+        public int getTag() {
+            return fTag;
+        }
+
+        /**
+         * @return the timestamp of the event
+         */
+        public long getTimestamp() {
+            return fTimestamp;
+        }
+    }
+
+    private final int fNbRanks;
+    private final int fNbCommunicators;
+    private final int fNbTags;
+    private final long fNbMessages;
+    private final int fMaxLatency;
+    private final Random fRandom;
+    /** Receptions of the messages sent so far, by timestamp */
+    private final PriorityQueue<MpiEvent> fPendingReceptions = new PriorityQueue<>((a, b) -> Long.compare(a.getTimestamp(), b.getTimestamp()));
+    private long fNbSent = 0;
+    private long fNextSendTimestamp = 0;
+
+    /**
+     * Constructor
+     *
+     * @param nbRanks
+     *            The number of ranks in each communicator, at least 2
+     * @param nbCommunicators
+     *            The number of communicators
+     * @param nbTags
+     *            The number of different message tags
+     * @param nbMessages
+     *            The number of messages to generate
+     * @param maxLatency
+     *            The maximal latency between the send and the reception of a
+     *            message. The number of messages in flight is about half this
+     *            value.
+     * @param seed
+     *            The seed of the random generator, the same parameters and
+     *            seed generate the same stream
+     */
+    public SyntheticMpiMessageGenerator(int nbRanks, int nbCommunicators, int nbTags, long nbMessages, int maxLatency, long seed) {
+        if (nbRanks < 2) {
+            throw new IllegalArgumentException("At least 2 ranks are needed: " + nbRanks); //$NON-NLS-1$
+        }
+        fNbRanks = nbRanks;
+        fNbCommunicators = nbCommunicators;
+        fNbTags = nbTags;
+        fNbMessages = nbMessages;
+        fMaxLatency = maxLatency;
+        fRandom = new Random(seed);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return fNbSent < fNbMessages || !fPendingReceptions.isEmpty();
+    }
+
+    @Override
+    public MpiEvent next() {
+        MpiEvent reception = fPendingReceptions.peek();
+        if (fNbSent < fNbMessages && (reception == null || fNextSendTimestamp <= reception.getTimestamp())) {
+            return send();
+        }
+        if (reception == null) {
+            throw new NoSuchElementException();
+        }
+        fPendingReceptions.poll();
+        return reception;
+    }
+
+    private MpiEvent send() {
+        int communicator = fRandom.nextInt(fNbCommunicators);
+        int src = fRandom.nextInt(fNbRanks);
+        // Any other rank
+        int dest = (src + 1 + fRandom.nextInt(fNbRanks - 1)) % fNbRanks;
+        int tag = fRandom.nextInt(fNbTags);
+        long timestamp = fNextSendTimestamp;
+        fNextSendTimestamp++;
+        fNbSent++;
+        fPendingReceptions.add(new MpiEvent(false, communicator, src, dest, tag, timestamp + 1 + fRandom.nextInt(fMaxLatency)));
+        return new MpiEvent(true, communicator, src, dest, tag, timestamp);
+    }
+}
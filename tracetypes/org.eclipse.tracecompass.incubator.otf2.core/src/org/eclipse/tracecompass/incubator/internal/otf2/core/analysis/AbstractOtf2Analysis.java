@@ -14,15 +14,15 @@ package org.eclipse.tracecompass.incubator.internal.otf2.core.analysis;
 import java.util.Objects;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.incubator.analysis.core.pyramid.AbstractValuePyramidAnalysisModule;
 import org.eclipse.tracecompass.incubator.otf2.core.trace.Otf2Trace;
-import org.eclipse.tracecompass.tmf.core.statesystem.TmfStateSystemAnalysisModule;
 
 /**
  * Abstract OTF2 analysis. To be extended by all OTF2 analyses.
  *
  * @author Yoann Heitz
  */
-public abstract class AbstractOtf2Analysis extends TmfStateSystemAnalysisModule {
+public abstract class AbstractOtf2Analysis extends AbstractValuePyramidAnalysisModule {
 
     /** The ID prefix of OTF2 analysis modules */
     public static final String ID_PREFIX = "org.eclipse.tracecompass.incubator.otf2.core.analysis"; //$NON-NLS-1$
@@ -19,10 +19,14 @@ import java.util.Objects;
 import java.util.regex.Matcher;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.incubator.analysis.core.pyramid.IValuePyramidProvider;
+import org.eclipse.tracecompass.incubator.analysis.core.pyramid.ValuePyramid;
 import org.eclipse.tracecompass.incubator.internal.otf2.core.Activator;
 import org.eclipse.tracecompass.incubator.internal.otf2.core.analysis.callstack.Otf2CallStackStateProvider;
+import org.eclipse.tracecompass.incubator.internal.otf2.core.mpi.RankTable;
 import org.eclipse.tracecompass.incubator.internal.otf2.core.trace.AttributeDefinition;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.StateSystemBuilderUtils;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
 import org.eclipse.tracecompass.tmf.core.statesystem.AbstractTmfStateProvider;
@@ -34,7 +38,7 @@ import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
  *
  * @author Yoann Heitz
  */
-public abstract class AbstractOtf2StateProvider extends AbstractTmfStateProvider {
+public abstract class AbstractOtf2StateProvider extends AbstractTmfStateProvider implements IValuePyramidProvider {
 
     /**
      * Unknown location ID
@@ -76,6 +80,22 @@ public abstract class AbstractOtf2StateProvider extends AbstractTmfStateProvider
      */
     private final Map<Integer, @Nullable ArrayList<Long>> fGroupMembers;
 
+    /**
+     * Group id to rank table mapping, built when a rank is first requested
+     */
+    private final Map<Integer, RankTable> fRankTables;
+
+    /**
+     * Recorder of the numerical attributes incremented with
+     * {@link #incrementAttributeDouble}, created on the first increment
+     */
+    private ValuePyramid.@Nullable Builder fPyramidBuilder = null;
+
+    /**
+     * Pyramid of the recorded attributes, built when the trace is done
+     */
+    private @Nullable ValuePyramid fPyramid = null;
+
     /**
      * Constructor
      *
@@ -90,6 +110,7 @@ public abstract class AbstractOtf2StateProvider extends AbstractTmfStateProvider
         fRegionStringId = new HashMap<>();
         fCommunicatorGroup = new HashMap<>();
         fGroupMembers = new HashMap<>();
+        fRankTables = new HashMap<>();
         fAttributeDefinitions = new HashMap<>();
     }
 
@@ -230,6 +251,7 @@ public abstract class AbstractOtf2StateProvider extends AbstractTmfStateProvider
         if (groupReference == null || numberOfMembers == null) {
             return;
         }
+        fRankTables.remove(groupReference);
         if (numberOfMembers == 0) {
             fGroupMembers.put(groupReference, null);
             return;
@@ -262,6 +284,7 @@ public abstract class AbstractOtf2StateProvider extends AbstractTmfStateProvider
         }
         membersArray.set(rank, locationReference);
         fGroupMembers.put(groupReference, membersArray);
+        fRankTables.remove(groupReference);
     }
 
     /**
@@ -329,11 +352,19 @@ public abstract class AbstractOtf2StateProvider extends AbstractTmfStateProvider
      */
     protected int getRank(Long location, Integer communicatorReference) {
         Integer groupReference = fCommunicatorGroup.get(communicatorReference);
-        ArrayList<Long> members = fGroupMembers.get(groupReference);
-        if (members == null) {
+        if (groupReference == null) {
             return UNKNOWN_RANK;
         }
-        return members.indexOf(location);
+        RankTable rankTable = fRankTables.get(groupReference);
+        if (rankTable == null) {
+            ArrayList<Long> members = fGroupMembers.get(groupReference);
+            if (members == null) {
+                return UNKNOWN_RANK;
+            }
+            rankTable = new RankTable(members);
+            fRankTables.put(groupReference, rankTable);
+        }
+        return rankTable.getRank(location);
     }
 
     /**
@@ -404,4 +435,51 @@ public abstract class AbstractOtf2StateProvider extends AbstractTmfStateProvider
         }
         return members.get(rank);
     }
+
+    /**
+     * Increment a double attribute, like
+     * {@link StateSystemBuilderUtils#incrementAttributeDouble}, and record its
+     * new value in the value pyramid of this analysis
+     *
+     * @param ssb
+     *            The state system builder
+     * @param timestamp
+     *            The time of the increment
+     * @param quark
+     *            The quark of the attribute
+     * @param increment
+     *            The value to add to the attribute
+     */
+    protected void incrementAttributeDouble(ITmfStateSystemBuilder ssb, long timestamp, int quark, double increment) {
+        StateSystemBuilderUtils.incrementAttributeDouble(ssb, timestamp, quark, increment);
+        ValuePyramid.Builder builder = fPyramidBuilder;
+        if (builder == null) {
+            builder = new ValuePyramid.Builder();
+            fPyramidBuilder = builder;
+        }
+        Object value = ssb.queryOngoing(quark);
+        builder.update(quark, timestamp, value instanceof Number ? ((Number) value).doubleValue() : 0.0);
+    }
+
+    /**
+     * Get the pyramid of the values of the attributes incremented with
+     * {@link #incrementAttributeDouble}
+     *
+     * @return The pyramid, or <code>null</code> if the trace is not done or
+     *         no attribute was incremented
+     */
+    @Override
+    public @Nullable ValuePyramid getPyramid() {
+        return fPyramid;
+    }
+
+    @Override
+    public void done() {
+        ITmfStateSystemBuilder ssb = getStateSystemBuilder();
+        ValuePyramid.Builder builder = fPyramidBuilder;
+        if (ssb != null && builder != null) {
+            fPyramid = builder.build(ssb.getCurrentEndTime());
+            fPyramidBuilder = null;
+        }
+    }
 }
@@ -31,6 +31,7 @@ import org.eclipse.tracecompass.incubator.internal.otf2.core.analysis.IOtf2Field
 import org.eclipse.tracecompass.incubator.internal.otf2.core.analysis.IOtf2GlobalDefinitions;
 import org.eclipse.tracecompass.incubator.internal.otf2.core.mpi.AllToRootIdentifiers;
 import org.eclipse.tracecompass.incubator.internal.otf2.core.mpi.MessageIdentifiers;
+import org.eclipse.tracecompass.incubator.internal.otf2.core.mpi.MessageMatcher;
 import org.eclipse.tracecompass.incubator.internal.otf2.core.mpi.RootToAllIdentifiers;
 import org.eclipse.tracecompass.incubator.internal.otf2.core.trace.Location;
 import org.eclipse.tracecompass.incubator.internal.otf2.core.trace.LocationGroup;
@@ -229,7 +230,7 @@ public class Otf2CallStackStateProvider extends AbstractOtf2StateProvider {
             if (destRank == null || messageTag == null || srcRank == UNKNOWN_RANK) {
                 return;
             }
-            fMsgDataEvent.put(new MessageIdentifiers(communicator, srcRank, destRank, messageTag), srcEvent);
+            fMsgDataEvent.add(new MessageIdentifiers(communicator, srcRank, destRank, messageTag), srcEvent);
         }
 
         /**
@@ -255,7 +256,7 @@ public class Otf2CallStackStateProvider extends AbstractOtf2StateProvider {
             if (srcRank == null || messageTag == null || destRank == UNKNOWN_RANK) {
                 return;
             }
-            ITmfEvent srcEvent = fMsgDataEvent.remove(new MessageIdentifiers(communicator, srcRank, destRank, messageTag));
+            ITmfEvent srcEvent = fMsgDataEvent.match(new MessageIdentifiers(communicator, srcRank, destRank, messageTag));
             if (srcEvent == null) {
                 return;
             }
@@ -409,7 +410,7 @@ public class Otf2CallStackStateProvider extends AbstractOtf2StateProvider {
     private final Map<Long, CallstackSystemTreeNode> fMapSystemTreeNode = new HashMap<>();
     private final Map<Long, CallstackLocationGroup> fMapLocationGroup = new HashMap<>();
     private final Map<Long, CallstackLocation> fMapLocation = new HashMap<>();
-    private final Map<MessageIdentifiers, ITmfEvent> fMsgDataEvent = new HashMap<>();
+    private final MessageMatcher<ITmfEvent> fMsgDataEvent = new MessageMatcher<>();
     private final Queue<RootToAllIdentifiers> fRootToAllQueue = new LinkedList<>();
     private final Queue<AllToRootIdentifiers> fAllToRootQueue = new LinkedList<>();
     private boolean fAllDefinitionsRead;
@@ -11,11 +11,11 @@
 
 package org.eclipse.tracecompass.incubator.internal.otf2.core.analysis.communicators;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -24,6 +24,7 @@ import java.util.SortedMap;
 import java.util.TreeMap;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.incubator.internal.otf2.core.Activator;
 import org.eclipse.tracecompass.incubator.internal.otf2.core.analysis.AbstractOtf2StateProvider;
 import org.eclipse.tracecompass.incubator.internal.otf2.core.analysis.IOtf2Constants;
 import org.eclipse.tracecompass.incubator.internal.otf2.core.analysis.IOtf2Events;
@@ -31,6 +32,7 @@ import org.eclipse.tracecompass.incubator.internal.otf2.core.analysis.IOtf2Field
 import org.eclipse.tracecompass.incubator.internal.otf2.core.analysis.IOtf2GlobalDefinitions;
 import org.eclipse.tracecompass.incubator.internal.otf2.core.mpi.CollectiveOperationIdentifiers;
 import org.eclipse.tracecompass.incubator.internal.otf2.core.mpi.MessageIdentifiers;
+import org.eclipse.tracecompass.incubator.internal.otf2.core.mpi.MessageMatcher;
 import org.eclipse.tracecompass.incubator.internal.otf2.core.trace.Location;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
@@ -113,9 +115,9 @@ public class Otf2CommunicatorsStateProvider extends AbstractOtf2StateProvider {
         private boolean fInCommunication;
         private boolean fInIRecvRequest;
         private int fRank;
-        private final List<MessageIdentifiers> fSentMessages;
         private final Map<Long, Long> fRequestIdBeginTimestamp;
         private final Deque<IRecvRequest> fIRecvRequests;
+        private final Map<Long, IRecvRequest> fUnresolvedIRecvRequests;
         private final Deque<StateSystemUpdateTriplet> fPendingStateSystemUpdates;
 
         public CommunicatorsLocation(ITmfEvent event) {
@@ -126,10 +128,10 @@ public class Otf2CommunicatorsStateProvider extends AbstractOtf2StateProvider {
             fInCommunication = false;
             fInIRecvRequest = false;
             fRank = UNKNOWN_RANK;
-            fSentMessages = new ArrayList<>();
             fRequestIdBeginTimestamp = new HashMap<>();
-            fIRecvRequests = new LinkedList<>();
-            fPendingStateSystemUpdates = new LinkedList<>();
+            fIRecvRequests = new ArrayDeque<>();
+            fUnresolvedIRecvRequests = new HashMap<>();
+            fPendingStateSystemUpdates = new ArrayDeque<>();
         }
 
         /**
@@ -138,13 +140,11 @@ public class Otf2CommunicatorsStateProvider extends AbstractOtf2StateProvider {
          * IRecvRequest object created for this request
          */
         private void searchAndUpdateIRecvRequest(long requestID, Communicator communicator, int rank) {
-            for (IRecvRequest request : fIRecvRequests) {
-                if (request.fRequestID == requestID) {
-                    request.fCommunicator = communicator;
-                    request.fRank = rank;
-                    request.fRequestResolved = true;
-                    break;
-                }
+            IRecvRequest request = fUnresolvedIRecvRequests.remove(requestID);
+            if (request != null) {
+                request.fCommunicator = communicator;
+                request.fRank = rank;
+                request.fRequestResolved = true;
             }
         }
 
@@ -254,7 +254,9 @@ public class Otf2CommunicatorsStateProvider extends AbstractOtf2StateProvider {
             fInCommunication = true;
             fInIRecvRequest = true;
             fRequestIdBeginTimestamp.put(requestID, fLatestEnteredTimestamp);
-            fIRecvRequests.add(new IRecvRequest(fLatestEnteredRegion, fLatestEnteredTimestamp, requestID));
+            IRecvRequest request = new IRecvRequest(fLatestEnteredRegion, fLatestEnteredTimestamp, requestID);
+            fIRecvRequests.add(request);
+            fUnresolvedIRecvRequests.putIfAbsent(requestID, request);
         }
 
         /**
@@ -305,7 +307,8 @@ public class Otf2CommunicatorsStateProvider extends AbstractOtf2StateProvider {
             if (destRank == null || messageTag == null || srcRank == UNKNOWN_RANK) {
                 return;
             }
-            fSentMessages.add(new MessageIdentifiers(communicator.fId, srcRank, destRank, messageTag, srcEvent.getTimestamp().toNanos()));
+            MessageIdentifiers message = new MessageIdentifiers(communicator.fId, srcRank, destRank, messageTag, srcEvent.getTimestamp().toNanos());
+            fMessageMatcher.add(message, message);
             fCurrentCommunicator = communicator;
             fRank = srcRank;
         }
@@ -331,14 +334,11 @@ public class Otf2CommunicatorsStateProvider extends AbstractOtf2StateProvider {
                 return;
             }
 
-            CommunicatorsLocation srcLocation = fMapLocation.get(communicator.fLocations.get(srcRank));
-            if (srcLocation == null) {
+            // Searches for the associated sent message
+            MessageIdentifiers sentMessage = fMessageMatcher.match(new MessageIdentifiers(communicator.fId, srcRank, destRank, messageTag));
+            if (sentMessage == null) {
                 return;
             }
-            // Searches for the associated sent message
-            MessageIdentifiers message = new MessageIdentifiers(communicator.fId, srcRank, destRank, messageTag);
-            int messageIndex = srcLocation.fSentMessages.indexOf(message);
-            MessageIdentifiers sentMessage = srcLocation.fSentMessages.remove(messageIndex);
 
             Long recvBeginTimestamp = fLatestEnteredTimestamp;
             /*
@@ -353,7 +353,7 @@ public class Otf2CommunicatorsStateProvider extends AbstractOtf2StateProvider {
                 }
 
                 searchAndUpdateIRecvRequest(requestId, communicator, destRank);
-                if (fIRecvRequests.getFirst().fRequestID == requestId) {
+                if (!fIRecvRequests.isEmpty() && fIRecvRequests.getFirst().fRequestID == requestId) {
                     flushUpdatesUntilUnresolvedRequest();
                 }
                 Long requestBeginTimestamp = fRequestIdBeginTimestamp.remove(requestId);
@@ -536,6 +536,8 @@ public class Otf2CommunicatorsStateProvider extends AbstractOtf2StateProvider {
 
     private final Map<Long, CommunicatorsLocation> fMapLocation;
     private final Map<Integer, Communicator> fMapCommunicator;
+    /** Sent point to point messages waiting for their reception */
+    private final MessageMatcher<MessageIdentifiers> fMessageMatcher;
     private final long fLastTimestamp;
 
     /**
@@ -548,6 +550,7 @@ public class Otf2CommunicatorsStateProvider extends AbstractOtf2StateProvider {
         super(trace, Otf2CommunicatorsAnalysis.getFullAnalysisId());
         fMapLocation = new HashMap<>();
         fMapCommunicator = new HashMap<>();
+        fMessageMatcher = new MessageMatcher<>();
         fLastTimestamp = trace.readEnd().toNanos();
     }
 
@@ -574,6 +577,10 @@ public class Otf2CommunicatorsStateProvider extends AbstractOtf2StateProvider {
             }
             processLocationsAttributes(ssb);
             processCommunicatorsAttributes(ssb);
+            long nbUnmatched = fMessageMatcher.getNbUnmatched();
+            if (nbUnmatched > 0) {
+                Activator.getInstance().logWarning(nbUnmatched + " MPI point to point messages could not be matched in trace " + getTrace().getName()); //$NON-NLS-1$
+            }
         }
     }
 
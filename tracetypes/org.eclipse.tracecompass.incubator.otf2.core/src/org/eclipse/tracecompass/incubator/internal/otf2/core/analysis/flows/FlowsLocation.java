@@ -14,7 +14,6 @@ import java.util.Map;
 
 import org.eclipse.tracecompass.incubator.internal.otf2.core.trace.Location;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
-import org.eclipse.tracecompass.statesystem.core.StateSystemBuilderUtils;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 
 /**
@@ -95,6 +94,8 @@ class FlowsLocation extends Location implements IFlowsNode {
      * on the direction of the communication. The flow value is in
      * bytes/nanoseconds
      *
+     * @param provider
+     *            the state provider, recording the flow values
      * @param ssb
      *            the state system builder
      * @param messageLength
@@ -104,15 +105,15 @@ class FlowsLocation extends Location implements IFlowsNode {
      * @param direction
      *            the direction of the communication
      */
-    private void updateFlow(ITmfStateSystemBuilder ssb, Long messageLength, long endTimestamp, String direction) {
+    private void updateFlow(Otf2FlowsStateProvider provider, ITmfStateSystemBuilder ssb, Long messageLength, long endTimestamp, String direction) {
         int correctQuark = getQuark(direction);
         if (correctQuark == UNKNOWN_ID) {
             return;
         }
         long operationDuration = endTimestamp - fLatestEnteredTimestamp;
         double flow = (double) messageLength / operationDuration;
-        StateSystemBuilderUtils.incrementAttributeDouble(ssb, fLatestEnteredTimestamp, correctQuark, flow);
-        StateSystemBuilderUtils.incrementAttributeDouble(ssb, endTimestamp, correctQuark, -flow);
+        provider.incrementFlow(ssb, fLatestEnteredTimestamp, correctQuark, flow);
+        provider.incrementFlow(ssb, endTimestamp, correctQuark, -flow);
     }
 
     /**
@@ -157,18 +158,20 @@ class FlowsLocation extends Location implements IFlowsNode {
      * Method to call when an event representing a region exit for this location
      * occurs
      *
+     * @param provider
+     *            the state provider, recording the flow values
      * @param ssb
      *            the state system builder
      * @param leaveTimestamp
      *            the timestamp when this location exited a region
      */
-    public void processLeave(ITmfStateSystemBuilder ssb, long leaveTimestamp) {
+    public void processLeave(Otf2FlowsStateProvider provider, ITmfStateSystemBuilder ssb, long leaveTimestamp) {
         if (fInputMessageSize != 0) {
-            updateFlow(ssb, fInputMessageSize, leaveTimestamp, INPUT);
+            updateFlow(provider, ssb, fInputMessageSize, leaveTimestamp, INPUT);
             fInputMessageSize = 0;
         }
         if (fOutputMessageSize != 0) {
-            updateFlow(ssb, fOutputMessageSize, leaveTimestamp, OUTPUT);
+            updateFlow(provider, ssb, fOutputMessageSize, leaveTimestamp, OUTPUT);
             fOutputMessageSize = 0;
         }
     }
@@ -35,7 +35,7 @@ public class Otf2FlowsAnalysis extends AbstractOtf2Analysis {
 
     @Override
     protected ITmfStateProvider createStateProvider() {
-        return new Otf2FlowsStateProvider(checkNotNull(getTrace()));
+        return recordPyramid(new Otf2FlowsStateProvider(checkNotNull(getTrace())));
     }
 
     /**
@@ -229,14 +229,31 @@ public class Otf2FlowsStateProvider extends AbstractOtf2StateProvider {
             acceleratorLocation.setLatestEnteredTimestamp(location.getLatestEnteredTimestamp());
             acceleratorLocation.setInputMessageSize(location.getInputMessageSize());
             acceleratorLocation.setOutputMessageSize(location.getOutputMessageSize());
-            acceleratorLocation.processLeave(ssb, event.getTimestamp().toNanos());
+            acceleratorLocation.processLeave(this, ssb, event.getTimestamp().toNanos());
             location.setInputMessageSize(0L);
             location.setOutputMessageSize(0L);
         } else {
-            location.processLeave(ssb, event.getTimestamp().toNanos());
+            location.processLeave(this, ssb, event.getTimestamp().toNanos());
         }
     }
 
+    /**
+     * Increment the flow value of a location, recording it in the value
+     * pyramid of the analysis
+     *
+     * @param ssb
+     *            the state system builder
+     * @param timestamp
+     *            the time of the increment
+     * @param quark
+     *            the quark of the flow attribute
+     * @param increment
+     *            the flow to add, in bytes/nanoseconds
+     */
+    void incrementFlow(ITmfStateSystemBuilder ssb, long timestamp, int quark, double increment) {
+        incrementAttributeDouble(ssb, timestamp, quark, increment);
+    }
+
     private void addFlowsLocationMapping(FlowsLocation location) {
         // Search for memory location in event attributes
         Long groupLocationId = null;
@@ -20,6 +20,8 @@ import java.util.Map.Entry;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.incubator.analysis.core.pyramid.ValuePyramid;
+import org.eclipse.tracecompass.incubator.analysis.core.pyramid.ValuePyramid.Statistic;
 import org.eclipse.tracecompass.incubator.internal.otf2.core.Activator;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
 import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
@@ -102,39 +104,59 @@ public class Otf2FlowsXYDataProvider extends AbstractTreeCommonXDataProvider<Otf
             quarkToValues.put(quark, new double[times.size()]);
         }
 
-        // Query the state system to fill the arrays of values
-        try {
-            for (ITmfStateInterval interval : ss.query2D(quarkToValues.keySet(), times)) {
+        // Read the buckets of the pyramid if it is fine enough for the times
+        ValuePyramid pyramid = getAnalysisModule().getPyramid();
+        if (pyramid != null && pyramid.getLevel(times) >= 0) {
+            for (Entry<Integer, double[]> entry : quarkToValues.entrySet()) {
                 if (monitor != null && monitor.isCanceled()) {
                     return null;
                 }
-                double[] row = quarkToValues.get(interval.getAttribute());
-                Object value = interval.getValue();
-                if (row != null && (value instanceof Number)) {
-                    Double dblValue = ((Number) value).doubleValue();
-                    for (int i = 0; i < times.size(); i++) {
-                        Long time = times.get(i);
-                        if (interval.getStartTime() <= time && interval.getEndTime() >= time) {
-                            // Convert from B/ns to B/s and fill the array
-                            double valueInBPerSecond = dblValue * 1E9;
-                            row[i] = valueInBPerSecond;
-
-                            // Increment parents values
-                            int parentQuark = ss.getParentAttributeQuark(interval.getAttribute());
-                            while (parentQuark != ITmfStateSystem.ROOT_ATTRIBUTE) {
-                                double[] parentRow = quarkToValues.get(parentQuark);
-                                if (parentRow != null) {
-                                    parentRow[i] += valueInBPerSecond;
+                double[] values = pyramid.getValues(entry.getKey(), times, Statistic.AVERAGE);
+                if (values == null) {
+                    continue;
+                }
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i] != 0.0) {
+                        // Convert from B/ns to B/s
+                        addFlow(ss, quarkToValues, entry.getKey(), i, values[i] * 1E9);
+                    }
+                }
+            }
+        } else {
+            // Query the state system to fill the arrays of values
+            try {
+                for (ITmfStateInterval interval : ss.query2D(quarkToValues.keySet(), times)) {
+                    if (monitor != null && monitor.isCanceled()) {
+                        return null;
+                    }
+                    double[] row = quarkToValues.get(interval.getAttribute());
+                    Object value = interval.getValue();
+                    if (row != null && (value instanceof Number)) {
+                        Double dblValue = ((Number) value).doubleValue();
+                        for (int i = 0; i < times.size(); i++) {
+                            Long time = times.get(i);
+                            if (interval.getStartTime() <= time && interval.getEndTime() >= time) {
+                                // Convert from B/ns to B/s and fill the array
+                                double valueInBPerSecond = dblValue * 1E9;
+                                row[i] = valueInBPerSecond;
+
+                                // Increment parents values
+                                int parentQuark = ss.getParentAttributeQuark(interval.getAttribute());
+                                while (parentQuark != ITmfStateSystem.ROOT_ATTRIBUTE) {
+                                    double[] parentRow = quarkToValues.get(parentQuark);
+                                    if (parentRow != null) {
+                                        parentRow[i] += valueInBPerSecond;
+                                    }
+                                    parentQuark = ss.getParentAttributeQuark(parentQuark);
                                 }
-                                parentQuark = ss.getParentAttributeQuark(parentQuark);
                             }
                         }
                     }
                 }
+            } catch (IndexOutOfBoundsException | TimeRangeException | StateSystemDisposedException e) {
+                Activator.getInstance().logError(e.getMessage());
+                return null;
             }
-        } catch (IndexOutOfBoundsException | TimeRangeException | StateSystemDisposedException e) {
-            Activator.getInstance().logError(e.getMessage());
-            return null;
         }
 
         for (Entry<Integer, double[]> values : quarkToValues.entrySet()) {
@@ -143,6 +165,25 @@ public class Otf2FlowsXYDataProvider extends AbstractTreeCommonXDataProvider<Otf
         return ySeries.build();
     }
 
+    /**
+     * Add a flow value to the row of an attribute and to the rows of its
+     * parents
+     */
+    private static void addFlow(ITmfStateSystem ss, Map<Integer, double[]> quarkToValues, int quark, int index, double valueInBPerSecond) {
+        double[] row = quarkToValues.get(quark);
+        if (row != null) {
+            row[index] += valueInBPerSecond;
+        }
+        int parentQuark = ss.getParentAttributeQuark(quark);
+        while (parentQuark != ITmfStateSystem.ROOT_ATTRIBUTE) {
+            double[] parentRow = quarkToValues.get(parentQuark);
+            if (parentRow != null) {
+                parentRow[index] += valueInBPerSecond;
+            }
+            parentQuark = ss.getParentAttributeQuark(parentQuark);
+        }
+    }
+
     @Override
     protected boolean isCacheable() {
         return false;
@@ -35,7 +35,7 @@ public class Otf2SummaryTimelineAnalysis extends AbstractOtf2Analysis {
 
     @Override
     protected ITmfStateProvider createStateProvider() {
-        return new Otf2SummaryTimelineStateProvider(Objects.requireNonNull(getTrace()));
+        return recordPyramid(new Otf2SummaryTimelineStateProvider(Objects.requireNonNull(getTrace())));
     }
 
     /**
@@ -23,6 +23,8 @@ import java.util.concurrent.atomic.AtomicLong;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.incubator.analysis.core.pyramid.ValuePyramid;
+import org.eclipse.tracecompass.incubator.analysis.core.pyramid.ValuePyramid.Statistic;
 import org.eclipse.tracecompass.incubator.internal.otf2.core.Activator;
 import org.eclipse.tracecompass.internal.analysis.os.linux.core.inputoutput.IODataPalette;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
@@ -191,28 +193,46 @@ public class Otf2SummaryTimelineDataProvider extends AbstractTreeCommonXDataProv
             }
         }
 
-        // Query the state system to fill the arrays of values
-        try {
-            for (ITmfStateInterval interval : ss.query2D(quarkToValues.keySet(), times)) {
+        // Read the buckets of the pyramid if it is fine enough for the times
+        ValuePyramid pyramid = getAnalysisModule().getPyramid();
+        if (pyramid != null && pyramid.getLevel(times) >= 0) {
+            for (Entry<Integer, double[]> entry : quarkToValues.entrySet()) {
                 if (monitor != null && monitor.isCanceled()) {
                     return null;
                 }
-                double[] row = quarkToValues.get(interval.getAttribute());
-                Object value = interval.getValue();
-                if (row != null && (value instanceof Number)) {
-                    Double dblValue = ((Number) value).doubleValue();
-                    for (int i = 0; i < times.size(); i++) {
-                        Long time = times.get(i);
-                        if (interval.getStartTime() <= time && interval.getEndTime() >= time) {
-                            // conversion to percentages
-                            row[i] = 100 * dblValue;
+                double[] values = pyramid.getValues(entry.getKey(), times, Statistic.AVERAGE);
+                if (values != null) {
+                    double[] row = entry.getValue();
+                    for (int i = 0; i < values.length; i++) {
+                        // conversion to percentages
+                        row[i] = 100 * values[i];
+                    }
+                }
+            }
+        } else {
+            // Query the state system to fill the arrays of values
+            try {
+                for (ITmfStateInterval interval : ss.query2D(quarkToValues.keySet(), times)) {
+                    if (monitor != null && monitor.isCanceled()) {
+                        return null;
+                    }
+                    double[] row = quarkToValues.get(interval.getAttribute());
+                    Object value = interval.getValue();
+                    if (row != null && (value instanceof Number)) {
+                        Double dblValue = ((Number) value).doubleValue();
+                        for (int i = 0; i < times.size(); i++) {
+                            Long time = times.get(i);
+                            if (interval.getStartTime() <= time && interval.getEndTime() >= time) {
+                                // conversion to percentages
+                                row[i] = 100 * dblValue;
+                            }
                         }
                     }
                 }
+            } catch (IndexOutOfBoundsException | TimeRangeException | StateSystemDisposedException e) {
+                Activator.getInstance().logError(e.getMessage(), e);
+                return null;
             }
-        } catch (IndexOutOfBoundsException | TimeRangeException | StateSystemDisposedException e) {
-            Activator.getInstance().logError(e.getMessage(), e);
-            return null;
         }
 
         for (Entry<Integer, double[]> values : quarkToValues.entrySet()) {
@@ -24,7 +24,6 @@ import org.eclipse.tracecompass.incubator.internal.otf2.core.analysis.IOtf2Field
 import org.eclipse.tracecompass.incubator.internal.otf2.core.analysis.IOtf2GlobalDefinitions;
 import static org.eclipse.tracecompass.statesystem.core.ITmfStateSystem.ROOT_ATTRIBUTE;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
-import org.eclipse.tracecompass.statesystem.core.StateSystemBuilderUtils;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
@@ -137,7 +136,7 @@ public class Otf2SummaryTimelineStateProvider extends AbstractOtf2StateProvider
         }
 
         private void incrementConcernedQuarks(ITmfStateSystemBuilder ssb, long timestamp, int quark, double increment) {
-            StateSystemBuilderUtils.incrementAttributeDouble(ssb, timestamp, quark, increment);
+            incrementAttributeDouble(ssb, timestamp, quark, increment);
             int parentQuark = ssb.getParentAttributeQuark(quark);
             /*
              * If the quark has a parent different than ROOT_ATTRIBUTE, then it
@@ -147,7 +146,7 @@ public class Otf2SummaryTimelineStateProvider extends AbstractOtf2StateProvider
              */
             if (parentQuark != ROOT_ATTRIBUTE) {
                 int totalQuark = ssb.getQuarkRelativeAndAdd(parentQuark, TOTAL);
-                StateSystemBuilderUtils.incrementAttributeDouble(ssb, timestamp, totalQuark, increment);
+                incrementAttributeDouble(ssb, timestamp, totalQuark, increment);
             }
         }
     }
@@ -0,0 +1,113 @@
+/**********************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.otf2.core.mpi;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Matches the two sides of MPI point to point messages. The pending messages
+ * are kept in a FIFO queue for each (communicator, source, destination, tag)
+ * key, so that a message is matched with the oldest pending message with the
+ * same key, as required by the non-overtaking rule of MPI.
+ *
+ * @param <T>
+ *            The type of the data kept for a pending message
+ */
+public class MessageMatcher<T> {
+
+    private final Map<MessageIdentifiers, Deque<T>> fPendingMessages = new HashMap<>();
+    private long fNbPending = 0;
+    private long fNbMatched = 0;
+    private long fNbUnmatchedReceives = 0;
+
+    /**
+     * Add the first part of a message (usually the send), waiting for its
+     * other part
+     *
+     * @param key
+     *            The identifiers of the message
+     * @param data
+     *            The data to return when the message is matched
+     */
+    public void add(MessageIdentifiers key, T data) {
+        fPendingMessages.computeIfAbsent(key, k -> new ArrayDeque<>()).addLast(data);
+        fNbPending++;
+    }
+
+    /**
+     * Match the second part of a message (usually the reception) with the
+     * oldest pending message with the same identifiers
+     *
+     * @param key
+     *            The identifiers of the message
+     * @return The data of the matched message, or <code>null</code> if there
+     *         is no pending message with these identifiers
+     */
+    public @Nullable T match(MessageIdentifiers key) {
+        Deque<T> queue = fPendingMessages.get(key);
+        if (queue == null) {
+            fNbUnmatchedReceives++;
+            return null;
+        }
+        T data = queue.pollFirst();
+        if (queue.isEmpty()) {
+            fPendingMessages.remove(key);
+        }
+        fNbPending--;
+        fNbMatched++;
+        return data;
+    }
+
+    /**
+     * Get the number of messages whose first part was added, but that were not
+     * matched yet
+     *
+     * @return The number of pending messages
+     */
+    public long getNbPending() {
+        return fNbPending;
+    }
+
+    /**
+     * Get the number of messages that were matched
+     *
+     * @return The number of matched messages
+     */
+    public long getNbMatched() {
+        return fNbMatched;
+    }
+
+    /**
+     * Get the number of second parts of messages for which no first part was
+     * pending
+     *
+     * @return The number of unmatched second parts
+     */
+    public long getNbUnmatchedReceives() {
+        return fNbUnmatchedReceives;
+    }
+
+    /**
+     * Get the number of messages that could not be matched so far, ie the
+     * pending messages and the unmatched second parts
+     *
+     * @return The number of unmatched messages
+     */
+    public long getNbUnmatched() {
+        return fNbPending + fNbUnmatchedReceives;
+    }
+}
@@ -0,0 +1,83 @@
+/**********************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.otf2.core.mpi;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Table of the ranks of the locations in an MPI group, stored in primitive
+ * arrays sorted by location id. The rank of a location is found with a binary
+ * search instead of a linear search in the list of the members of the group.
+ */
+public class RankTable {
+
+    /** Rank of a location that is not in the group */
+    public static final int UNKNOWN_RANK = -1;
+
+    private final long[] fLocations;
+    private final int[] fRanks;
+
+    /**
+     * Constructor
+     *
+     * @param members
+     *            The location ids of the members of the group, indexed by rank
+     */
+    public RankTable(List<Long> members) {
+        int size = members.size();
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        // Sort the ranks by location id, keeping the lowest rank first
+        Arrays.sort(order, (a, b) -> {
+            int cmp = Long.compare(members.get(a), members.get(b));
+            return cmp != 0 ? cmp : Integer.compare(a, b);
+        });
+        fLocations = new long[size];
+        fRanks = new int[size];
+        for (int i = 0; i < size; i++) {
+            fLocations[i] = members.get(order[i]);
+            fRanks[i] = order[i];
+        }
+    }
+
+    /**
+     * Get the rank of a location in the group
+     *
+     * @param location
+     *            The location id
+     * @return The lowest rank of the location, or {@link #UNKNOWN_RANK} if it
+     *         is not a member of the group
+     */
+    public int getRank(long location) {
+        int index = Arrays.binarySearch(fLocations, location);
+        if (index < 0) {
+            return UNKNOWN_RANK;
+        }
+        // Go back to the first occurrence, for the lowest rank
+        while (index > 0 && fLocations[index - 1] == location) {
+            index--;
+        }
+        return fRanks[index];
+    }
+
+    /**
+     * Get the number of members of the group
+     *
+     * @return The number of members
+     */
+    public int size() {
+        return fLocations.length;
+    }
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.perf.profiling.core.tests.callgraph;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.tracecompass.incubator.internal.perf.profiling.core.callgraph.PerfSampleIndex;
+import org.junit.Test;
+
+/**
+ * Test the {@link PerfSampleIndex}
+ */
+public class PerfSampleIndexTest {
+
+    private static PerfSampleIndex createIndex() {
+        PerfSampleIndex.Builder builder = new PerfSampleIndex.Builder();
+        builder.add(1, 2, 0, new long[] { 1, 2 });
+        builder.add(1, 2, 10, new long[] { 1, 3 });
+        builder.add(1, 3, 5, new long[] { 4 });
+        // Out of order sample
+        builder.add(1, 2, 5, new long[] { 1, 2 });
+        return builder.build();
+    }
+
+    private static List<Long> getTimestamps(PerfSampleIndex index, int tid, long start, long end) {
+        List<Long> timestamps = new ArrayList<>();
+        index.visitSamples(tid, start, end, (timestamp, callchain) -> timestamps.add(timestamp));
+        return timestamps;
+    }
+
+    /**
+     * Test querying the samples of a thread in a time range
+     */
+    @Test
+    public void testVisitSamples() {
+        PerfSampleIndex index = createIndex();
+        assertTrue(index.hasThread(2));
+        assertFalse(index.hasThread(4));
+        assertEquals(1, index.getPid(3));
+        assertEquals(-1, index.getPid(4));
+
+        assertEquals(List.of(0L, 5L, 10L), getTimestamps(index, 2, 0, 10));
+        assertEquals(List.of(5L), getTimestamps(index, 2, 1, 9));
+        assertEquals(List.of(5L, 10L), getTimestamps(index, 2, 5, 100));
+        assertEquals(List.of(5L), getTimestamps(index, 3, 0, 10));
+        assertTrue(getTimestamps(index, 4, 0, 10).isEmpty());
+
+        // Identical callchains are shared
+        List<long[]> callchains = new ArrayList<>();
+        index.visitSamples(2, 0, 5, (timestamp, callchain) -> callchains.add(callchain));
+        assertEquals(2, callchains.size());
+        assertSame(callchains.get(0), callchains.get(1));
+        assertArrayEquals(new long[] { 1, 2 }, callchains.get(0));
+    }
+
+    /**
+     * Test saving and reading the index
+     *
+     * @throws IOException
+     *             if the file cannot be written or read
+     */
+    @Test
+    public void testWriteRead() throws IOException {
+        File file = File.createTempFile("perfSampleIndex", ".samples");
+        try {
+            createIndex().write(file);
+            PerfSampleIndex index = PerfSampleIndex.read(file);
+            assertEquals(List.of(0L, 5L, 10L), getTimestamps(index, 2, 0, 10));
+            assertEquals(List.of(5L), getTimestamps(index, 3, 0, 10));
+            List<long[]> callchains = new ArrayList<>();
+            index.visitSamples(2, 10, 10, (timestamp, callchain) -> callchains.add(callchain));
+            assertArrayEquals(new long[] { 1, 3 }, callchains.get(0));
+        } finally {
+            file.delete();
+        }
+    }
+}
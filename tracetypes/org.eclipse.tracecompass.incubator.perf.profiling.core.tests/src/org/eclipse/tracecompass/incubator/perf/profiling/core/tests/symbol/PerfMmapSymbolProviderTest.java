@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.perf.profiling.core.tests.symbol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.tracecompass.incubator.internal.perf.profiling.core.callgraph.PerfCallchainAnalysisModule;
+import org.eclipse.tracecompass.incubator.internal.perf.profiling.core.symbol.PerfMmapAnalysisModule;
+import org.eclipse.tracecompass.incubator.internal.perf.profiling.core.symbol.PerfMmapSymbolProvider;
+import org.eclipse.tracecompass.incubator.perf.profiling.core.tests.ActivatorTest;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.event.TmfEvent;
+import org.eclipse.tracecompass.tmf.core.exceptions.TmfTraceException;
+import org.eclipse.tracecompass.tmf.core.signal.TmfTraceOpenedSignal;
+import org.eclipse.tracecompass.tmf.core.symbols.TmfResolvedSymbol;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfContext;
+import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceUtils;
+import org.eclipse.tracecompass.tmf.tests.stubs.trace.xml.TmfXmlTraceStub;
+import org.eclipse.tracecompass.tmf.tests.stubs.trace.xml.TmfXmlTraceStubNs;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the {@link PerfMmapSymbolProvider}: the addresses of a callchain
+ * resolved at once are the same as the addresses resolved one by one
+ */
+public class PerfMmapSymbolProviderTest {
+
+    private static final String PERF_TRACE_FILE = "testfiles/traces/perf_mmap.xml"; //$NON-NLS-1$
+    private static final String LIB_A = "/perf/test/liba.so"; //$NON-NLS-1$
+    private static final String LIB_B = "/perf/test/libb.so"; //$NON-NLS-1$
+    private static final String LIB_C = "/perf/test/libc.so"; //$NON-NLS-1$
+    private static final String APP = "/perf/test/app"; //$NON-NLS-1$
+
+    private ITmfTrace fTrace;
+    private PerfMmapSymbolProvider fProvider;
+
+    /**
+     * Open the trace and build its memory mappings
+     */
+    @Before
+    public void setUp() {
+        TmfXmlTraceStub trace = new TmfXmlTraceStubNs();
+        IPath filePath = ActivatorTest.getAbsoluteFilePath(PERF_TRACE_FILE);
+        IStatus status = trace.validate(null, filePath.toOSString());
+        if (!status.isOK()) {
+            fail(status.getException().getMessage());
+        }
+        try {
+            trace.initTrace(null, filePath.toOSString(), TmfEvent.class);
+        } catch (TmfTraceException e) {
+            fail(e.getMessage());
+        }
+        fTrace = trace;
+        trace.traceOpened(new TmfTraceOpenedSignal(this, trace, null));
+
+        PerfMmapAnalysisModule module = TmfTraceUtils.getAnalysisModuleOfClass(trace, PerfMmapAnalysisModule.class, PerfMmapAnalysisModule.ID);
+        assertNotNull(module);
+        fProvider = new PerfMmapSymbolProvider(trace, module);
+        assertTrue(module.waitForCompletion());
+    }
+
+    /**
+     * Dispose of the trace
+     */
+    @After
+    public void tearDown() {
+        fTrace.dispose();
+    }
+
+    /**
+     * Test resolving the addresses of a callchain, before and after a file is
+     * mapped at the same base address
+     */
+    @Test
+    public void testGetSymbols() {
+        long[] callchain = { 4200, 8300, 100 };
+        TmfResolvedSymbol[] symbols = fProvider.getSymbols(1, 5, callchain);
+        assertEquals(3, symbols.length);
+        assertSymbol(4096, LIB_A, symbols[0]);
+        assertSymbol(8192, LIB_B, symbols[1]);
+        assertNull(symbols[2]);
+
+        symbols = fProvider.getSymbols(1, 15, callchain);
+        assertSymbol(4096, LIB_A, symbols[0]);
+        assertSymbol(8192, LIB_C, symbols[1]);
+        assertNull(symbols[2]);
+
+        // Another process, an unknown process and an empty callchain
+        symbols = fProvider.getSymbols(5, 15, callchain);
+        assertSymbol(4096, APP, symbols[0]);
+        assertSymbol(4096, APP, symbols[1]);
+        assertNull(symbols[2]);
+        assertTrue(Arrays.stream(fProvider.getSymbols(9, 15, callchain)).allMatch(symbol -> symbol == null));
+        assertEquals(0, fProvider.getSymbols(1, 15, new long[0]).length);
+    }
+
+    /**
+     * Test that each symbol resolved with the callchain is the one resolved
+     * for its address alone, for all processes and times of the trace
+     */
+    @Test
+    public void testSameAsSingleLookup() {
+        long[] addresses = { 0, 100, 4095, 4096, 4200, 8191, 8192, 8300, Long.MAX_VALUE };
+        for (int pid : new int[] { 1, 5, 9 }) {
+            for (long time = 0; time <= 21; time++) {
+                TmfResolvedSymbol[] symbols = fProvider.getSymbols(pid, time, addresses);
+                assertEquals(addresses.length, symbols.length);
+                for (int i = 0; i < addresses.length; i++) {
+                    TmfResolvedSymbol expected = fProvider.getSymbol(pid, time, addresses[i]);
+                    if (expected == null) {
+                        assertNull(symbols[i]);
+                    } else {
+                        assertSymbol(expected.getBaseAddress(), expected.getSymbolName(), symbols[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Test the callchain of the sampling events, resolved by the perf
+     * callchain analysis with the mappings of their process
+     */
+    @Test
+    public void testCallchainCallStack() {
+        PerfCallchainAnalysisModule module = TmfTraceUtils.getAnalysisModuleOfClass(fTrace, PerfCallchainAnalysisModule.class, PerfCallchainAnalysisModule.ID);
+        assertNotNull(module);
+        List<Collection<Object>> callStacks = new ArrayList<>();
+        ITmfContext context = fTrace.seekEvent(0L);
+        ITmfEvent event = fTrace.getNext(context);
+        while (event != null) {
+            Map<String, Collection<Object>> callStack = module.getCallStack(event);
+            if (!callStack.isEmpty()) {
+                callStacks.addAll(callStack.values());
+            }
+            event = fTrace.getNext(context);
+        }
+        context.dispose();
+
+        // The bottom of the stack is first, the addresses outside the mappings
+        // are shown in hexadecimal
+        assertEquals(Arrays.asList(
+                Arrays.asList("0x64", LIB_B, LIB_A), //$NON-NLS-1$
+                Arrays.asList(APP, APP),
+                Arrays.asList(LIB_A, LIB_C),
+                Collections.singletonList(LIB_A)), callStacks);
+    }
+
+    private static void assertSymbol(long baseAddress, String name, TmfResolvedSymbol symbol) {
+        assertNotNull(symbol);
+        assertEquals(baseAddress, symbol.getBaseAddress());
+        assertEquals(name, symbol.getSymbolName());
+    }
+}
@@ -11,12 +11,17 @@
 
 package org.eclipse.tracecompass.incubator.internal.perf.profiling.core.callgraph;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.Nullable;
@@ -27,14 +32,20 @@ import org.eclipse.tracecompass.analysis.profiling.core.instrumented.CallStackGr
 import org.eclipse.tracecompass.analysis.profiling.core.model.ISamplingDataProvider;
 import org.eclipse.tracecompass.analysis.profiling.core.sampled.callgraph.ProfilingCallGraphAnalysisModule;
 import org.eclipse.tracecompass.analysis.profiling.core.tree.IWeightedTreeGroupDescriptor;
+import org.eclipse.tracecompass.incubator.internal.perf.profiling.core.Activator;
+import org.eclipse.tracecompass.incubator.internal.perf.profiling.core.symbol.PerfMmapSymbolProvider;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
 import org.eclipse.tracecompass.tmf.core.event.ITmfEventField;
 import org.eclipse.tracecompass.tmf.core.event.TmfEvent;
 import org.eclipse.tracecompass.tmf.core.request.ITmfEventRequest;
 import org.eclipse.tracecompass.tmf.core.request.TmfEventRequest;
+import org.eclipse.tracecompass.tmf.core.symbols.ISymbolProvider;
+import org.eclipse.tracecompass.tmf.core.symbols.SymbolProviderManager;
+import org.eclipse.tracecompass.tmf.core.symbols.SymbolProviderUtils;
+import org.eclipse.tracecompass.tmf.core.symbols.TmfResolvedSymbol;
 import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimeRange;
-import org.eclipse.tracecompass.tmf.core.timestamp.TmfTimestamp;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
 import org.eclipse.tracecompass.tmf.core.trace.experiment.TmfExperiment;
 import org.eclipse.tracecompass.tmf.core.util.Pair;
 
@@ -57,11 +68,24 @@ public class PerfCallchainAnalysisModule extends ProfilingCallGraphAnalysisModul
     private static final String FIELD_PERF_CALLCHAIN = "perf_callchain"; //$NON-NLS-1$
     private static final String FIELD_PERF_PID = "perf_pid"; //$NON-NLS-1$
     private static final String FIELD_PERF_TID = "perf_tid"; //$NON-NLS-1$
+    private static final String SAMPLE_INDEX_SUFFIX = ".samples"; //$NON-NLS-1$
 
     private final CallStackGroupDescriptor fThreadDescriptor;
     private final CallStackGroupDescriptor fProcessDescriptor;
     // private final ProfilingGroup fGroupNode = new ProfilingGroup("Data",
     // CallGraphAllGroupDescriptor.getInstance());
+    /** Process elements, by pid */
+    private final Map<Long, ICallStackElement> fProcessElements = new HashMap<>();
+    /** Thread elements, by pid and tid */
+    private final Map<Pair<Long, Long>, ICallStackElement> fThreadElements = new HashMap<>();
+    /** Lock of the element maps, not held while waiting for a request */
+    private final Object fElementLock = new Object();
+    /**
+     * Task reading or building the sample index, published once so that the
+     * other threads wait for it without holding a lock
+     */
+    private final AtomicReference<@Nullable FutureTask<@Nullable PerfSampleIndex>> fSampleIndexTask = new AtomicReference<>();
+    private @Nullable PerfMmapSymbolProvider fMmapSymbolProvider = null;
 
     /**
      * Constructor
@@ -99,46 +123,63 @@ public class PerfCallchainAnalysisModule extends ProfilingCallGraphAnalysisModul
      * @param event
      */
     private ICallStackElement getElement(ITmfEvent event) {
-        // Find a root elements with the same PID
-        Collection<ICallStackElement> rootElements = getRootElements();
         Long pidField = event.getContent().getFieldValue(Long.class, FIELD_PERF_PID);
-        Long pid = pidField == null ? -1 : pidField;
         Long tidField = event.getContent().getFieldValue(Long.class, FIELD_PERF_TID);
-        Long tid = tidField == null ? -1 : tidField;
-        Optional<ICallStackElement> process = rootElements.stream()
-                .filter(e -> e.getName().equals(String.valueOf(pid)))
-                .findFirst();
-        if (!process.isPresent()) {
-            // Process is null, create both process and thread elements and return
-            ICallStackElement processEl = new CallStackElement(String.valueOf(pid), fProcessDescriptor, fThreadDescriptor, null) {
+        return getElement(pidField == null ? -1 : pidField, tidField == null ? -1 : tidField);
+    }
 
-                @Override
-                protected int retrieveSymbolKeyAt(long time) {
-                    return pid.intValue();
-                }
+    private ICallStackElement getElement(long pid, long tid) {
+        synchronized (fElementLock) {
+            Collection<ICallStackElement> rootElements = getRootElements();
+            if (rootElements.size() != fProcessElements.size()) {
+                // The root elements changed, refresh the lookup maps
+                rebuildElementMaps(rootElements);
+            }
+            ICallStackElement threadEl = fThreadElements.get(new Pair<>(pid, tid));
+            if (threadEl != null) {
+                return threadEl;
+            }
+            // Find a root elements with the same PID
+            ICallStackElement processEl = fProcessElements.get(pid);
+            if (processEl == null) {
+                // Process is null, create both process and thread elements and return
+                processEl = new CallStackElement(String.valueOf(pid), fProcessDescriptor, fThreadDescriptor, null) {
+
+                    @Override
+                    protected int retrieveSymbolKeyAt(long time) {
+                        return (int) pid;
+                    }
 
-            };
-            ICallStackElement threadEl = new CallStackElement(String.valueOf(tid), fThreadDescriptor, null, processEl);
-            processEl.setSymbolKeyElement(processEl);
-            threadEl.setSymbolKeyElement(processEl);
+                };
+                processEl.setSymbolKeyElement(processEl);
+                addRootElement(processEl);
+                fProcessElements.put(pid, processEl);
+                threadEl = new CallStackElement(String.valueOf(tid), fThreadDescriptor, null, processEl);
+                threadEl.setSymbolKeyElement(processEl);
+            } else {
+                // Process exists, create a thread element under it
+                threadEl = new CallStackElement(String.valueOf(tid), fThreadDescriptor, null, processEl);
+            }
             processEl.addChild(threadEl);
-            addRootElement(processEl);
+            fThreadElements.put(new Pair<>(pid, tid), threadEl);
             return threadEl;
         }
-        ICallStackElement processEl = process.get();
-
-        // Process exists, find a thread element under it or create it
-        Optional<ICallStackElement> thread = processEl.getChildrenElements().stream()
-                .filter(e -> e.getName().equals(String.valueOf(tid)))
-                .findFirst();
+    }
 
-        if (thread.isPresent()) {
-            return thread.get();
+    private void rebuildElementMaps(Collection<ICallStackElement> rootElements) {
+        fProcessElements.clear();
+        fThreadElements.clear();
+        for (ICallStackElement processEl : rootElements) {
+            try {
+                long pid = Long.parseLong(processEl.getName());
+                fProcessElements.put(pid, processEl);
+                for (ICallStackElement threadEl : processEl.getChildrenElements()) {
+                    fThreadElements.put(new Pair<>(pid, Long.parseLong(threadEl.getName())), threadEl);
+                }
+            } catch (NumberFormatException e) {
+                // Not an element created by this analysis
+            }
         }
-        ICallStackElement threadEl = new CallStackElement(String.valueOf(tid), fThreadDescriptor, null, processEl);
-        processEl.addChild(threadEl);
-        return threadEl;
-
     }
 
     @Override
@@ -157,30 +198,144 @@ public class PerfCallchainAnalysisModule extends ProfilingCallGraphAnalysisModul
             return Collections.emptyMap();
         }
         long[] callstack = (long[]) value;
-        List<Object> longList = new ArrayList<>();
-        for (long callsite : callstack) {
-            longList.add(callsite);
+        // Resolve the whole callchain at once with the mappings of the process
+        @Nullable TmfResolvedSymbol @Nullable [] symbols = null;
+        Long pidField = event.getContent().getFieldValue(Long.class, FIELD_PERF_PID);
+        PerfMmapSymbolProvider symbolProvider = getMmapSymbolProvider();
+        if (pidField != null && symbolProvider != null) {
+            symbols = symbolProvider.getSymbols(pidField.intValue(), event.getTimestamp().toNanos(), callstack);
+        }
+        // The callsites outside the mappings of the process are resolved by
+        // the other symbol providers of the trace, or shown as addresses
+        int pid = (pidField == null) ? -1 : pidField.intValue();
+        Collection<ISymbolProvider> providers = null;
+        List<Object> callsites = new ArrayList<>();
+        for (int i = callstack.length - 1; i >= 0; i--) {
+            TmfResolvedSymbol symbol = (symbols == null) ? null : symbols[i];
+            if (symbol != null) {
+                callsites.add(symbol.getSymbolName());
+                continue;
+            }
+            if (providers == null) {
+                providers = SymbolProviderManager.getInstance().getSymbolProviders(event.getTrace());
+            }
+            callsites.add(SymbolProviderUtils.getSymbolText(providers, pid, event.getTimestamp().toNanos(), callstack[i]));
         }
-        Collections.reverse(longList);
-        return ImmutableMap.of("Callchain", longList); //$NON-NLS-1$
+        return ImmutableMap.of("Callchain", callsites); //$NON-NLS-1$
 
     }
 
-    @Override
-    public Collection<AggregatedCallSite> getSamplingData(int tid, long start, long end) {
+    /**
+     * Get the perf mmap symbol provider of the trace, if the trace has the
+     * mmap analysis
+     */
+    private synchronized @Nullable PerfMmapSymbolProvider getMmapSymbolProvider() {
+        PerfMmapSymbolProvider symbolProvider = fMmapSymbolProvider;
+        if (symbolProvider != null) {
+            return symbolProvider;
+        }
         ITmfTrace trace = getTrace();
         if (trace == null) {
+            return null;
+        }
+        for (ISymbolProvider provider : SymbolProviderManager.getInstance().getSymbolProviders(trace)) {
+            if (provider instanceof PerfMmapSymbolProvider) {
+                symbolProvider = (PerfMmapSymbolProvider) provider;
+                fMmapSymbolProvider = symbolProvider;
+                return symbolProvider;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Collection<AggregatedCallSite> getSamplingData(int tid, long start, long end) {
+        PerfSampleIndex index = getSampleIndex();
+        if (index == null || !index.hasThread(tid)) {
             return Collections.emptyList();
         }
+        ICallStackElement element = getElement(index.getPid(tid), tid);
         List<AggregatedCallSite> callsites = new ArrayList<>();
-        TmfEventRequest request = new PerfProfilingEventRequest(trace, start, end, tid, callsites);
+        index.visitSamples(tid, start, end, (timestamp, callchain) -> {
+            AggregatedCallSite perfCallSite = getCallSite(element, callchain, timestamp);
+            for (AggregatedCallSite site : callsites) {
+                if (site.getObject().equals(perfCallSite.getObject())) {
+                    site.merge(perfCallSite);
+                    return;
+                }
+            }
+            callsites.add(perfCallSite);
+        });
+        return callsites;
+    }
+
+    /**
+     * Get the index of the samples of the trace, reading it from the
+     * supplementary files if it was saved, or building it with one pass
+     * through the trace otherwise. The first caller reads or builds the index,
+     * the others wait for it without holding a lock, as the events of the
+     * request may need the locks of this analysis.
+     */
+    private @Nullable PerfSampleIndex getSampleIndex() {
+        FutureTask<@Nullable PerfSampleIndex> task = fSampleIndexTask.get();
+        while (task == null) {
+            FutureTask<@Nullable PerfSampleIndex> newTask = new FutureTask<>(this::readOrBuildSampleIndex);
+            if (fSampleIndexTask.compareAndSet(null, newTask)) {
+                newTask.run();
+                task = newTask;
+            } else {
+                task = fSampleIndexTask.get();
+            }
+        }
+        try {
+            PerfSampleIndex index = task.get();
+            if (index == null) {
+                // The index could not be built, the next call tries again
+                fSampleIndexTask.compareAndSet(task, null);
+            }
+            return index;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Activator.getInstance().logError("Error building the perf sample index", e); //$NON-NLS-1$
+            fSampleIndexTask.compareAndSet(task, null);
+            return null;
+        }
+    }
+
+    private @Nullable PerfSampleIndex readOrBuildSampleIndex() {
+        ITmfTrace trace = getTrace();
+        if (trace == null) {
+            return null;
+        }
+        File indexFile = new File(TmfTraceManager.getSupplementaryFileDir(trace) + File.separator + getId() + SAMPLE_INDEX_SUFFIX);
+        if (indexFile.exists()) {
+            try {
+                return PerfSampleIndex.read(indexFile);
+            } catch (IOException e) {
+                Activator.getInstance().logWarning("Error reading the perf sample index, it will be rebuilt " + indexFile, e); //$NON-NLS-1$
+            }
+        }
+        PerfSampleIndex.Builder builder = new PerfSampleIndex.Builder();
+        TmfEventRequest request = new PerfSampleIndexRequest(trace, builder);
         trace.sendRequest(request);
         try {
             request.waitForCompletion();
         } catch (InterruptedException e) {
-
+            Thread.currentThread().interrupt();
+            return null;
         }
-        return callsites;
+        if (request.isCancelled() || request.isFailed()) {
+            return null;
+        }
+        PerfSampleIndex index = builder.build();
+        try {
+            index.write(indexFile);
+        } catch (IOException e) {
+            Activator.getInstance().logWarning("Error saving the perf sample index " + indexFile, e); //$NON-NLS-1$
+        }
+        return index;
     }
 
     @Override
@@ -192,35 +347,27 @@ public class PerfCallchainAnalysisModule extends ProfilingCallGraphAnalysisModul
         return Collections.singleton(trace.getHostId());
     }
 
-    private class PerfProfilingEventRequest extends TmfEventRequest {
+    private static class PerfSampleIndexRequest extends TmfEventRequest {
 
-        private final int fTid;
         private final ITmfTrace fTrace;
-        private final List<AggregatedCallSite> fSites;
+        private final PerfSampleIndex.Builder fBuilder;
 
         /**
          * Constructor
          *
          * @param trace
          *            The trace
-         * @param start
-         *            The start time of the request
-         * @param end
-         *            The end time of the request
-         * @param tid
-         *            The tid for which to get the samples
-         * @param callsites
-         *            A list of callsites to fill
+         * @param builder
+         *            The builder of the index to fill
          */
-        public PerfProfilingEventRequest(ITmfTrace trace, long start, long end, int tid, List<AggregatedCallSite> callsites) {
+        public PerfSampleIndexRequest(ITmfTrace trace, PerfSampleIndex.Builder builder) {
             super(TmfEvent.class,
-                    new TmfTimeRange(TmfTimestamp.fromNanos(start), TmfTimestamp.fromNanos(end)),
+                    TmfTimeRange.ETERNITY,
                     0,
                     ITmfEventRequest.ALL_DATA,
                     ITmfEventRequest.ExecutionType.BACKGROUND);
-            fTid = tid;
             fTrace = trace;
-            fSites = callsites;
+            fBuilder = builder;
         }
 
         @Override
@@ -242,23 +389,26 @@ public class PerfCallchainAnalysisModule extends ProfilingCallGraphAnalysisModul
         }
 
         private void handleEvent(ITmfEvent event) {
-            Long tidField = event.getContent().getFieldValue(Long.class, FIELD_PERF_TID);
-            Long tid = tidField == null ? -1 : tidField;
-            if (tid.intValue() != fTid) {
+            if (!event.getName().startsWith(EVENT_SAMPLING)) {
                 return;
             }
-            Pair<ICallStackElement, AggregatedCallSite> stackTrace = getProfiledStackTrace(event);
-            if (stackTrace == null) {
+            ITmfEventField field = event.getContent().getField(FIELD_PERF_CALLCHAIN);
+            if (field == null || !(field.getValue() instanceof long[])) {
                 return;
             }
-            AggregatedCallSite perfCallSite = stackTrace.getSecond();
-            for (AggregatedCallSite site : fSites) {
-                if (site.getObject().equals(perfCallSite.getObject())) {
-                    site.merge(perfCallSite);
-                    return;
-                }
+            long[] value = (long[]) field.getValue();
+            int size = value.length;
+            // Copy the stack reversed, so that element at position 0 is the
+            // bottom
+            long[] callchain = new long[size];
+            for (int i = 0; i < size; i++) {
+                callchain[i] = value[size - 1 - i];
             }
-            fSites.add(perfCallSite);
+            Long pidField = event.getContent().getFieldValue(Long.class, FIELD_PERF_PID);
+            Long tidField = event.getContent().getFieldValue(Long.class, FIELD_PERF_TID);
+            long pid = pidField == null ? -1 : pidField;
+            int tid = tidField == null ? -1 : tidField.intValue();
+            fBuilder.add(pid, tid, event.getTimestamp().toNanos(), callchain);
         }
     }
 
@@ -0,0 +1,307 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.perf.profiling.core.callgraph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Index of the perf samples, per thread. For each thread, the timestamps of
+ * the samples are kept in a sorted array, along with the ID of the sample's
+ * callchain in a table of deduplicated callchains, so that the samples of a
+ * thread in a time range can be found by binary search without reading the
+ * trace again.
+ *
+ * The index can be saved to and read from a file.
+ */
+public class PerfSampleIndex {
+
+    /** Magic number of the index files, "PSIX" */
+    private static final int MAGIC = 0x50534958;
+    private static final int VERSION = 1;
+
+    /** Callchains, with the bottom of the stack at position 0 */
+    private final List<long[]> fStacks;
+    private final Map<Integer, ThreadSamples> fThreads;
+
+    /**
+     * Visitor of the samples of a thread
+     */
+    @FunctionalInterface
+    public interface SampleVisitor {
+        /**
+         * Visit a sample
+         *
+         * @param timestamp
+         *            the timestamp of the sample
+         * @param callchain
+         *            the callchain of the sample, with the bottom of the stack
+         *            at position 0. It is shared by all samples with the same
+         *            callchain and should not be modified.
+         */
+        void visit(long timestamp, long[] callchain);
+    }
+
+    private static final class ThreadSamples {
+        private final long fPid;
+        private long[] fTimestamps;
+        private int[] fStackIds;
+        private int fSize;
+
+        private ThreadSamples(long pid, int capacity) {
+            fPid = pid;
+            fTimestamps = new long[capacity];
+            fStackIds = new int[capacity];
+            fSize = 0;
+        }
+
+        private void add(long timestamp, int stackId) {
+            if (fSize == fTimestamps.length) {
+                int capacity = Math.max(16, fSize * 2);
+                fTimestamps = Arrays.copyOf(fTimestamps, capacity);
+                fStackIds = Arrays.copyOf(fStackIds, capacity);
+            }
+            fTimestamps[fSize] = timestamp;
+            fStackIds[fSize] = stackId;
+            fSize++;
+        }
+
+        private void trimAndSort() {
+            fTimestamps = Arrays.copyOf(fTimestamps, fSize);
+            fStackIds = Arrays.copyOf(fStackIds, fSize);
+            for (int i = 1; i < fSize; i++) {
+                if (fTimestamps[i] < fTimestamps[i - 1]) {
+                    sort();
+                    return;
+                }
+            }
+        }
+
+        private void sort() {
+            Integer[] order = new Integer[fSize];
+            for (int i = 0; i < fSize; i++) {
+                order[i] = i;
+            }
+            long[] timestamps = fTimestamps;
+            Arrays.sort(order, (a, b) -> Long.compare(timestamps[a], timestamps[b]));
+            long[] sortedTimestamps = new long[fSize];
+            int[] sortedIds = new int[fSize];
+            for (int i = 0; i < fSize; i++) {
+                sortedTimestamps[i] = fTimestamps[order[i]];
+                sortedIds[i] = fStackIds[order[i]];
+            }
+            fTimestamps = sortedTimestamps;
+            fStackIds = sortedIds;
+        }
+
+        /** Index of the first sample at or after the timestamp */
+        private int lowerBound(long timestamp) {
+            int low = 0;
+            int high = fSize;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (fTimestamps[mid] < timestamp) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Builder of the index, the samples should be added in chronological
+     * order, but they are sorted otherwise
+     */
+    public static class Builder {
+        private final List<long[]> fStacks = new ArrayList<>();
+        private final Map<LongBuffer, Integer> fStackIds = new HashMap<>();
+        private final Map<Integer, ThreadSamples> fThreads = new HashMap<>();
+
+        /**
+         * Add a sample
+         *
+         * @param pid
+         *            the process ID
+         * @param tid
+         *            the thread ID
+         * @param timestamp
+         *            the timestamp of the sample
+         * @param callchain
+         *            the callchain, with the bottom of the stack at position 0,
+         *            the array is not copied so it should not be modified
+         *            afterwards
+         */
+        public void add(long pid, int tid, long timestamp, long[] callchain) {
+            Integer stackId = fStackIds.get(LongBuffer.wrap(callchain));
+            if (stackId == null) {
+                stackId = fStacks.size();
+                fStacks.add(callchain);
+                fStackIds.put(LongBuffer.wrap(callchain), stackId);
+            }
+            fThreads.computeIfAbsent(tid, unused -> new ThreadSamples(pid, 16)).add(timestamp, stackId);
+        }
+
+        /**
+         * Build the index
+         *
+         * @return the index
+         */
+        public PerfSampleIndex build() {
+            for (ThreadSamples samples : fThreads.values()) {
+                samples.trimAndSort();
+            }
+            return new PerfSampleIndex(fStacks, fThreads);
+        }
+    }
+
+    private PerfSampleIndex(List<long[]> stacks, Map<Integer, ThreadSamples> threads) {
+        fStacks = stacks;
+        fThreads = threads;
+    }
+
+    /**
+     * Get whether the index contains samples for a thread
+     *
+     * @param tid
+     *            the thread ID
+     * @return true if the thread has samples
+     */
+    public boolean hasThread(int tid) {
+        return fThreads.containsKey(tid);
+    }
+
+    /**
+     * Get the process ID of a thread
+     *
+     * @param tid
+     *            the thread ID
+     * @return the process ID of the thread, or -1 if the thread has no samples
+     */
+    public long getPid(int tid) {
+        ThreadSamples samples = fThreads.get(tid);
+        return samples == null ? -1 : samples.fPid;
+    }
+
+    /**
+     * Visit the samples of a thread in a time range, in chronological order
+     *
+     * @param tid
+     *            the thread ID
+     * @param start
+     *            the start of the range, inclusive
+     * @param end
+     *            the end of the range, inclusive
+     * @param visitor
+     *            the visitor of the samples
+     */
+    public void visitSamples(int tid, long start, long end, SampleVisitor visitor) {
+        ThreadSamples samples = fThreads.get(tid);
+        if (samples == null) {
+            return;
+        }
+        for (int i = samples.lowerBound(start); i < samples.fSize && samples.fTimestamps[i] <= end; i++) {
+            visitor.visit(samples.fTimestamps[i], fStacks.get(samples.fStackIds[i]));
+        }
+    }
+
+    /**
+     * Save the index to a file
+     *
+     * @param file
+     *            the file to write
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public void write(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(fStacks.size());
+            for (long[] stack : fStacks) {
+                out.writeInt(stack.length);
+                for (long address : stack) {
+                    out.writeLong(address);
+                }
+            }
+            out.writeInt(fThreads.size());
+            for (Entry<Integer, ThreadSamples> entry : fThreads.entrySet()) {
+                ThreadSamples samples = entry.getValue();
+                out.writeInt(entry.getKey());
+                out.writeLong(samples.fPid);
+                out.writeInt(samples.fSize);
+                for (int i = 0; i < samples.fSize; i++) {
+                    out.writeLong(samples.fTimestamps[i]);
+                    out.writeInt(samples.fStackIds[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read an index from a file written by {@link #write(File)}
+     *
+     * @param file
+     *            the file to read
+     * @return the index
+     * @throws IOException
+     *             if the file cannot be read or is not a valid index
+     */
+    public static PerfSampleIndex read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a valid sample index: " + file); //$NON-NLS-1$
+            }
+            int nbStacks = in.readInt();
+            List<long[]> stacks = new ArrayList<>(nbStacks);
+            for (int i = 0; i < nbStacks; i++) {
+                long[] stack = new long[in.readInt()];
+                for (int j = 0; j < stack.length; j++) {
+                    stack[j] = in.readLong();
+                }
+                stacks.add(stack);
+            }
+            int nbThreads = in.readInt();
+            Map<Integer, ThreadSamples> threads = new HashMap<>();
+            for (int i = 0; i < nbThreads; i++) {
+                int tid = in.readInt();
+                long pid = in.readLong();
+                int size = in.readInt();
+                ThreadSamples samples = new ThreadSamples(pid, size);
+                for (int j = 0; j < size; j++) {
+                    long timestamp = in.readLong();
+                    int stackId = in.readInt();
+                    if (stackId < 0 || stackId >= nbStacks) {
+                        throw new IOException("Invalid callchain ID in sample index: " + file); //$NON-NLS-1$
+                    }
+                    samples.add(timestamp, stackId);
+                }
+                threads.put(tid, samples);
+            }
+            return new PerfSampleIndex(stacks, threads);
+        }
+    }
+}
@@ -14,12 +14,17 @@ package org.eclipse.tracecompass.incubator.internal.perf.profiling.core.symbol;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableMap;
+import java.util.Objects;
 import java.util.TreeMap;
 import java.util.stream.Collectors;
 
@@ -37,13 +42,120 @@ import org.eclipse.tracecompass.tmf.core.symbols.TmfResolvedSymbol;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
 
 /**
+ * Symbol provider resolving addresses in the files mapped in memory by the
+ * processes, as recorded by the {@link PerfMmapAnalysisModule}.
+ *
+ * Once the mmap state system is built, the mappings of a process are loaded
+ * once in memory, by base address and time, and the resolved symbols are kept
+ * in a least-recently-used cache, so that resolving the addresses of a profile
+ * does not query the state system for each address.
+ *
  * @author Geneviève Bastien
  */
 public class PerfMmapSymbolProvider implements ISymbolProvider {
 
+    /** Maximum number of resolved symbols to keep in the cache */
+    private static final int SYMBOL_CACHE_SIZE = 65536;
+
     private final PerfMmapAnalysisModule fMmapModule;
     private final ITmfTrace fTrace;
     private final Map<String, IMappingFile> fSymbolMapping = new HashMap<>();
+    /** Memory mappings of the processes, by pid */
+    private final Map<Integer, ProcessMappings> fProcessMappings = new HashMap<>();
+    private final Map<SymbolKey, TmfResolvedSymbol> fSymbolCache = new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.@Nullable Entry<SymbolKey, TmfResolvedSymbol> eldest) {
+            return size() > SYMBOL_CACHE_SIZE;
+        }
+    };
+
+    /**
+     * A file mapped at a base address, from a start time until the end time
+     */
+    private static final class Mapping {
+        private final long fStart;
+        private final long fEnd;
+        private final String fFilename;
+
+        private Mapping(long start, long end, String filename) {
+            fStart = start;
+            fEnd = end;
+            fFilename = filename;
+        }
+    }
+
+    /**
+     * The mappings of a process, sorted by base address, then by time
+     */
+    private static final class ProcessMappings {
+        private final NavigableMap<Long, Mapping[]> fMappings = new TreeMap<>();
+
+        private @Nullable Entry<Long, Mapping> find(long address, long timestamp) {
+            // The highest base address below the address that is mapped at
+            // that time
+            for (Entry<Long, Mapping[]> entry = fMappings.floorEntry(address); entry != null; entry = fMappings.lowerEntry(entry.getKey())) {
+                Mapping mapping = findAt(entry.getValue(), timestamp);
+                if (mapping != null) {
+                    return new SimpleImmutableEntry<>(entry.getKey(), mapping);
+                }
+            }
+            return null;
+        }
+
+        private static @Nullable Mapping findAt(Mapping[] mappings, long timestamp) {
+            int low = 0;
+            int high = mappings.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                Mapping mapping = mappings[mid];
+                if (mapping.fEnd < timestamp) {
+                    low = mid + 1;
+                } else if (mapping.fStart > timestamp) {
+                    high = mid - 1;
+                } else {
+                    return mapping;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Key of the symbol cache: the same address in the same mapping resolves
+     * to the same symbol at any time
+     */
+    private static final class SymbolKey {
+        private final int fPid;
+        private final long fAddress;
+        private final long fBaseAddress;
+        private final long fMappingStart;
+
+        private SymbolKey(int pid, long address, long baseAddress, long mappingStart) {
+            fPid = pid;
+            fAddress = address;
+            fBaseAddress = baseAddress;
+            fMappingStart = mappingStart;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fPid, fAddress, fBaseAddress, fMappingStart);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof SymbolKey)) {
+                return false;
+            }
+            SymbolKey other = (SymbolKey) obj;
+            return fPid == other.fPid && fAddress == other.fAddress && fBaseAddress == other.fBaseAddress && fMappingStart == other.fMappingStart;
+        }
+    }
 
     /**
      * Constructor
@@ -65,12 +177,121 @@ public class PerfMmapSymbolProvider implements ISymbolProvider {
     }
 
     @Override
-    public @Nullable TmfResolvedSymbol getSymbol(int pid, long timestamp, long address) {
+    public synchronized @Nullable TmfResolvedSymbol getSymbol(int pid, long timestamp, long address) {
         PerfMmapAnalysisModule mmapModule = fMmapModule;
         ITmfStateSystem stateSystem = mmapModule.getStateSystem();
         if (stateSystem == null) {
             return null;
         }
+        if (!stateSystem.waitUntilBuilt(0)) {
+            // The mappings are still being built, query the state system
+            return querySymbol(stateSystem, pid, timestamp, address);
+        }
+        ProcessMappings mappings = getProcessMappings(stateSystem, pid);
+        return mappings == null ? null : getSymbol(mappings, pid, timestamp, address);
+    }
+
+    /**
+     * Resolve many addresses of a process at once, typically the addresses of
+     * a callchain
+     *
+     * @param pid
+     *            The process ID
+     * @param timestamp
+     *            The timestamp at which to resolve the addresses
+     * @param addresses
+     *            The addresses to resolve
+     * @return The resolved symbols, at the same position as their address in
+     *         the array. Like {@link #getSymbol(int, long, long)}, an address
+     *         in a mapping whose file has no symbol for it resolves to the
+     *         name of the file, and an address outside the mappings of the
+     *         process is <code>null</code>
+     */
+    public synchronized @Nullable TmfResolvedSymbol[] getSymbols(int pid, long timestamp, long[] addresses) {
+        @Nullable TmfResolvedSymbol[] symbols = new @Nullable TmfResolvedSymbol[addresses.length];
+        ITmfStateSystem stateSystem = fMmapModule.getStateSystem();
+        if (stateSystem == null) {
+            return symbols;
+        }
+        if (!stateSystem.waitUntilBuilt(0)) {
+            for (int i = 0; i < addresses.length; i++) {
+                symbols[i] = querySymbol(stateSystem, pid, timestamp, addresses[i]);
+            }
+            return symbols;
+        }
+        ProcessMappings mappings = getProcessMappings(stateSystem, pid);
+        if (mappings == null) {
+            return symbols;
+        }
+        for (int i = 0; i < addresses.length; i++) {
+            symbols[i] = getSymbol(mappings, pid, timestamp, addresses[i]);
+        }
+        return symbols;
+    }
+
+    private @Nullable TmfResolvedSymbol getSymbol(ProcessMappings mappings, int pid, long timestamp, long address) {
+        Entry<Long, Mapping> entry = mappings.find(address, timestamp);
+        if (entry == null) {
+            return null;
+        }
+        long baddr = entry.getKey();
+        Mapping mapping = entry.getValue();
+        SymbolKey key = new SymbolKey(pid, address, baddr, mapping.fStart);
+        TmfResolvedSymbol symbol = fSymbolCache.get(key);
+        if (symbol != null) {
+            return symbol;
+        }
+        symbol = getSymbolInFile(pid, mapping.fFilename, address, baddr);
+        if (symbol == null) {
+            symbol = new TmfResolvedSymbol(baddr, mapping.fFilename);
+        }
+        fSymbolCache.put(key, symbol);
+        return symbol;
+    }
+
+    /**
+     * Get the mappings of a process, loading them from the state system the
+     * first time. The state system should be built.
+     */
+    private @Nullable ProcessMappings getProcessMappings(ITmfStateSystem stateSystem, int pid) {
+        ProcessMappings mappings = fProcessMappings.get(pid);
+        if (mappings != null) {
+            return mappings;
+        }
+        int pidQuark = stateSystem.optQuarkAbsolute(String.valueOf(pid));
+        if (pidQuark == ITmfStateSystem.INVALID_ATTRIBUTE) {
+            return null;
+        }
+        List<Integer> baddrQuarks = stateSystem.getSubAttributes(pidQuark, false);
+        Map<Integer, List<Mapping>> byQuark = new HashMap<>();
+        try {
+            for (ITmfStateInterval interval : stateSystem.query2D(baddrQuarks, stateSystem.getStartTime(), stateSystem.getCurrentEndTime())) {
+                Object value = interval.getValue();
+                if (value != null) {
+                    byQuark.computeIfAbsent(interval.getAttribute(), unused -> new ArrayList<>())
+                            .add(new Mapping(interval.getStartTime(), interval.getEndTime(), String.valueOf(value)));
+                }
+            }
+        } catch (IndexOutOfBoundsException | TimeRangeException | StateSystemDisposedException e) {
+            Activator.getInstance().logWarning("Exceptions while getting perf mmap symbol", e); //$NON-NLS-1$
+            return null;
+        }
+        mappings = new ProcessMappings();
+        for (Entry<Integer, List<Mapping>> entry : byQuark.entrySet()) {
+            List<Mapping> list = entry.getValue();
+            list.sort(Comparator.comparingLong(mapping -> mapping.fStart));
+            long baddr = Long.parseLong(stateSystem.getAttributeName(entry.getKey()));
+            mappings.fMappings.put(baddr, list.toArray(new Mapping[list.size()]));
+        }
+        fProcessMappings.put(pid, mappings);
+        return mappings;
+    }
+
+    /**
+     * Query the state system directly, when the mappings are not completely
+     * built yet
+     */
+    private @Nullable TmfResolvedSymbol querySymbol(ITmfStateSystem stateSystem, int pid, long timestamp, long address) {
         // Get the quark for the process
         int pidQuark = stateSystem.optQuarkAbsolute(String.valueOf(pid));
         if (pidQuark == ITmfStateSystem.INVALID_ATTRIBUTE) {
@@ -91,6 +312,9 @@ public class PerfMmapSymbolProvider implements ISymbolProvider {
             intervals = stateSystem.query2D(baddrQuarks, Collections.singleton(timestamp));
             NavigableMap<Long, ITmfStateInterval> map = new TreeMap<>();
             for (ITmfStateInterval interval : intervals) {
+                if (interval.getValue() == null) {
+                    continue;
+                }
                 String baddrStr = stateSystem.getAttributeName(interval.getAttribute());
                 long baddr = Long.parseLong(baddrStr);
                 map.put(baddr, interval);
@@ -106,7 +330,6 @@ public class PerfMmapSymbolProvider implements ISymbolProvider {
             Activator.getInstance().logWarning("Exceptions while getting perf mmap symbol", e); //$NON-NLS-1$
             return getSymbol(address);
         }
-
     }
 
     private @Nullable TmfResolvedSymbol getSymbolInFile(int pid, String filename, long address, long offset) {
@@ -0,0 +1,90 @@
+/**********************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package org.eclipse.tracecompass.incubator.ros.core.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.eclipse.tracecompass.incubator.internal.ros.core.analysis.AbstractRosStateProvider;
+import org.eclipse.tracecompass.incubator.internal.ros.core.analysis.model.messageflow.RosPublicationIndex;
+import org.eclipse.tracecompass.incubator.internal.ros.core.analysis.model.messageflow.RosPublicationIndex.Publication;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.StateSystemFactory;
+import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.junit.Test;
+
+/**
+ * Test the {@link RosPublicationIndex} on a small queues state system
+ */
+public class RosPublicationIndexTest {
+
+    private static final String TALKER = "talker";
+    private static final String LISTENER = "listener";
+
+    /**
+     * Test that the messages added to the publisher queues are found by node
+     * and time range
+     *
+     * @throws StateSystemDisposedException
+     *             if the state system is disposed
+     */
+    @Test
+    public void testPublications() throws StateSystemDisposedException {
+        ITmfStateSystemBuilder ss = StateSystemFactory.newStateSystem(StateHistoryBackendFactory.createInMemoryBackend("ros-queues", 0L));
+        try {
+            int queueQuark = ss.getQuarkAbsoluteAndAdd(TALKER, AbstractRosStateProvider.PUBLISHERS_LIST, "/chatter", AbstractRosStateProvider.QUEUE);
+            int pos1Quark = ss.getQuarkRelativeAndAdd(queueQuark, "1");
+            int pos2Quark = ss.getQuarkRelativeAndAdd(queueQuark, "2");
+            int rosoutQuark = ss.getQuarkAbsoluteAndAdd(TALKER, AbstractRosStateProvider.PUBLISHERS_LIST, "/rosout", AbstractRosStateProvider.QUEUE);
+            ss.getQuarkAbsoluteAndAdd(LISTENER, AbstractRosStateProvider.SUBSCRIBERS_LIST);
+
+            // Two messages are published, one is sent, then another one is
+            // published
+            ss.modifyAttribute(10L, 1, queueQuark);
+            ss.modifyAttribute(10L, 100L, pos1Quark);
+            ss.modifyAttribute(20L, 2, queueQuark);
+            ss.modifyAttribute(20L, 200L, pos2Quark);
+            ss.modifyAttribute(30L, 1, queueQuark);
+            ss.modifyAttribute(30L, 200L, pos1Quark);
+            ss.modifyAttribute(30L, (Object) null, pos2Quark);
+            ss.modifyAttribute(40L, 2, queueQuark);
+            ss.modifyAttribute(40L, 300L, pos2Quark);
+            // Messages on rosout are ignored
+            ss.modifyAttribute(25L, 1, rosoutQuark);
+            ss.closeHistory(100L);
+
+            RosPublicationIndex index = new RosPublicationIndex(ss);
+            int talkerQuark = ss.optQuarkAbsolute(TALKER);
+            List<Publication> publications = index.getPublications(talkerQuark, 0L, 100L);
+            assertEquals(3, publications.size());
+            assertEquals(10L, publications.get(0).getTimestamp());
+            assertEquals(pos1Quark, publications.get(0).getQueuePosQuark());
+            assertEquals(20L, publications.get(1).getTimestamp());
+            assertEquals(pos2Quark, publications.get(1).getQueuePosQuark());
+            assertEquals(40L, publications.get(2).getTimestamp());
+            assertEquals(pos2Quark, publications.get(2).getQueuePosQuark());
+
+            publications = index.getPublications(talkerQuark, 15L, 40L);
+            assertEquals(2, publications.size());
+            assertEquals(20L, publications.get(0).getTimestamp());
+            assertEquals(40L, publications.get(1).getTimestamp());
+
+            assertTrue(index.getPublications(talkerQuark, 41L, 100L).isEmpty());
+            assertTrue(index.getPublications(ss.optQuarkAbsolute(LISTENER), 0L, 100L).isEmpty());
+        } finally {
+            ss.dispose();
+        }
+    }
+}
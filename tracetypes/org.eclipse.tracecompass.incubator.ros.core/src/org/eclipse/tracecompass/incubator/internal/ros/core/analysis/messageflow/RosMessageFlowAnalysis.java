@@ -21,10 +21,12 @@ import org.eclipse.tracecompass.incubator.internal.ros.core.analysis.model.IRosM
 import org.eclipse.tracecompass.incubator.internal.ros.core.analysis.model.RosModelUtils;
 import org.eclipse.tracecompass.incubator.internal.ros.core.analysis.model.messageflow.IRosMessageFlowModel;
 import org.eclipse.tracecompass.incubator.internal.ros.core.analysis.model.messageflow.RosMessageFlowModel;
+import org.eclipse.tracecompass.incubator.internal.ros.core.analysis.model.messageflow.RosPublicationIndex;
 import org.eclipse.tracecompass.incubator.internal.ros.core.analysis.model.messagestransport.IRosMessagesTransportModel;
 import org.eclipse.tracecompass.incubator.internal.ros.core.analysis.model.messagestransport.RosMessagesTransportModelAnalysis;
 import org.eclipse.tracecompass.incubator.internal.ros.core.analysis.queues.RosQueuesAnalysis;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
 import org.eclipse.tracecompass.tmf.core.analysis.IAnalysisModule;
 import org.eclipse.tracecompass.tmf.core.analysis.TmfAbstractAnalysisModule;
 import org.eclipse.tracecompass.tmf.core.trace.ITmfTrace;
@@ -48,6 +50,8 @@ public class RosMessageFlowAnalysis extends TmfAbstractAnalysisModule implements
 
     private @Nullable IProgressMonitor fMonitor;
     private @Nullable RosMessageFlowModel fModel = null;
+    /** Index of the queues state system, kept for the next target messages */
+    private @Nullable RosPublicationIndex fPublicationIndex = null;
 
     /**
      * Constructor
@@ -91,7 +95,18 @@ public class RosMessageFlowAnalysis extends TmfAbstractAnalysisModule implements
             return false;
         }
 
-        RosMessageFlowModel model = new RosMessageFlowModel(targetMessageInfo, queuesStateSystem, messagesTransportModel);
+        RosPublicationIndex publicationIndex = fPublicationIndex;
+        if (publicationIndex == null || publicationIndex.getStateSystem() != queuesStateSystem) {
+            try {
+                publicationIndex = new RosPublicationIndex(queuesStateSystem);
+            } catch (StateSystemDisposedException e) {
+                Activator.getInstance().logError("Error while indexing publications! ", e); //$NON-NLS-1$
+                return false;
+            }
+            fPublicationIndex = publicationIndex;
+        }
+
+        RosMessageFlowModel model = new RosMessageFlowModel(targetMessageInfo, queuesStateSystem, messagesTransportModel, publicationIndex);
         model.generateModel();
         fModel = model;
         return fModel.isModelDone() && !monitor.isCanceled();
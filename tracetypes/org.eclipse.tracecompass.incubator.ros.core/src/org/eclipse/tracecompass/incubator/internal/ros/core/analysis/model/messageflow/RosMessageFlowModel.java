@@ -11,7 +11,8 @@
 
 package org.eclipse.tracecompass.incubator.internal.ros.core.analysis.model.messageflow;
 
-import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
@@ -23,6 +24,7 @@ import org.eclipse.tracecompass.incubator.internal.ros.core.analysis.messageflow
 import org.eclipse.tracecompass.incubator.internal.ros.core.analysis.messageflow.TargetMessageInfo.RosQueueType;
 import org.eclipse.tracecompass.incubator.internal.ros.core.analysis.model.connections.RosConnectionEndpoint;
 import org.eclipse.tracecompass.incubator.internal.ros.core.analysis.model.messageflow.RosMessageFlowSegment.SegmentType;
+import org.eclipse.tracecompass.incubator.internal.ros.core.analysis.model.messageflow.RosPublicationIndex.Publication;
 import org.eclipse.tracecompass.incubator.internal.ros.core.analysis.model.messagestransport.IRosMessagesTransportModel;
 import org.eclipse.tracecompass.incubator.internal.ros.core.analysis.model.messagestransport.RosMessageTransport;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
@@ -40,6 +42,7 @@ public class RosMessageFlowModel implements IRosMessageFlowModel {
     private final @NonNull TargetMessageInfo fInfo;
     private final @NonNull ITmfStateSystem fQueuesSs;
     private final @NonNull IRosMessagesTransportModel fMsgsTransportModel;
+    private final @Nullable RosPublicationIndex fPublicationIndex;
 
     private RosMessageFlowSegment fInitialSegment = null;
     private boolean fIsModelDone = false;
@@ -55,9 +58,27 @@ public class RosMessageFlowModel implements IRosMessageFlowModel {
      *            the messages transport model
      */
     public RosMessageFlowModel(@NonNull TargetMessageInfo targetInfo, @NonNull ITmfStateSystem queuesStateSystem, @NonNull IRosMessagesTransportModel msgsTransportModel) {
+        this(targetInfo, queuesStateSystem, msgsTransportModel, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param targetInfo
+     *            the target message info
+     * @param queuesStateSystem
+     *            the queues state system
+     * @param msgsTransportModel
+     *            the messages transport model
+     * @param publicationIndex
+     *            the index of the publications of the queues state system, or
+     *            {@code null} to build it with the model
+     */
+    public RosMessageFlowModel(@NonNull TargetMessageInfo targetInfo, @NonNull ITmfStateSystem queuesStateSystem, @NonNull IRosMessagesTransportModel msgsTransportModel, @Nullable RosPublicationIndex publicationIndex) {
         fInfo = targetInfo;
         fQueuesSs = queuesStateSystem;
         fMsgsTransportModel = msgsTransportModel;
+        fPublicationIndex = publicationIndex;
     }
 
     @Override
@@ -71,59 +92,40 @@ public class RosMessageFlowModel implements IRosMessageFlowModel {
     }
 
     /**
-     * Contains necessary basic information to get/process the next segment.
-     * Serves as a mutable container.
+     * Contains necessary basic information to get/process the next segment of
+     * a flow.
      */
-    private class NextSegmentInfo {
+    private static class NextSegmentInfo {
 
         /** Type of the next segment */
-        private SegmentType fType = null;
+        private final SegmentType fType;
         /** Relevant quark for the next segment */
-        private Integer fQuark = null;
+        private final int fQuark;
         /** Relevant timestamp for the next segment */
-        private Long fTimestamp = null;
-        /** The next segment that was created */
-        private RosMessageFlowSegment fSegment = null;
-        /** The previous segment that was created */
-        private RosMessageFlowSegment fPreviousSegment = null;
+        private final long fTimestamp;
+        /** The previous segment that was created, if any */
+        private final @Nullable RosMessageFlowSegment fPreviousSegment;
 
-        public NextSegmentInfo() {
+        public NextSegmentInfo(SegmentType type, int quark, long timestamp, @Nullable RosMessageFlowSegment previousSegment) {
+            fType = type;
+            fQuark = quark;
+            fTimestamp = timestamp;
+            fPreviousSegment = previousSegment;
         }
 
         public SegmentType getType() {
             return fType;
         }
 
-        public void setType(SegmentType type) {
-            fType = type;
-        }
-
-        public Integer getQuark() {
+        public int getQuark() {
             return fQuark;
         }
 
-        public void setQuark(int quark) {
-            fQuark = quark;
-        }
-
-        public Long getTimestamp() {
+        public long getTimestamp() {
             return fTimestamp;
         }
 
-        public void setTimestamp(long t) {
-            fTimestamp = t;
-        }
-
-        public RosMessageFlowSegment getNextSegment() {
-            return fSegment;
-        }
-
-        public void setNextSegment(RosMessageFlowSegment segment) {
-            fPreviousSegment = fSegment;
-            fSegment = segment;
-        }
-
-        public RosMessageFlowSegment getPreviousSegment() {
+        public @Nullable RosMessageFlowSegment getPreviousSegment() {
             return fPreviousSegment;
         }
     }
@@ -139,47 +141,51 @@ public class RosMessageFlowModel implements IRosMessageFlowModel {
     }
 
     private void process() throws AttributeNotFoundException, StateSystemDisposedException {
+        RosPublicationIndex publications = fPublicationIndex;
+        if (publications == null) {
+            publications = new RosPublicationIndex(fQueuesSs);
+        }
         // Find type of initial segment corresponding to target message
         SegmentType type = getSegmentTypeFromQueueType(fInfo.getQueueType());
         // Find other necessary info about first segment
         int queueQuark = getTargetQueueQuark();
         int queuePos = fInfo.getQueuePosition();
         int queuePosQuark = fQueuesSs.getQuarkRelative(queueQuark, String.valueOf(queuePos));
-        NextSegmentInfo next = new NextSegmentInfo();
-        next.setType(type);
-        next.setQuark(queuePosQuark);
-        next.setTimestamp(fInfo.getMsgTimestamp());
 
-        while (next.getType() != SegmentType.INVALID) {
+        // Follow all the flows downstream of the target message
+        Deque<NextSegmentInfo> toProcess = new ArrayDeque<>();
+        toProcess.add(new NextSegmentInfo(type, queuePosQuark, fInfo.getMsgTimestamp(), null));
+        while (!toProcess.isEmpty()) {
+            NextSegmentInfo next = toProcess.poll();
+            RosMessageFlowSegment segment;
             // process
             switch (next.getType()) {
             case PUB_QUEUE:
-                processPubQueue(next);
+                segment = processPubQueue(next, toProcess);
                 break;
             case SUB_QUEUE:
-                processSubQueue(next);
+                segment = processSubQueue(next, toProcess);
                 break;
             case SUB_CALLBACK:
-                processCallback(next);
+                segment = processCallback(next, toProcess, publications);
                 break;
             case INVALID:
             default:
                 Activator.getInstance().logError("Case " + next.getType().name() + " should be handled!"); //$NON-NLS-1$ //$NON-NLS-2$
-                break;
+                continue;
             }
 
             // Link previous to current
-            RosMessageFlowSegment nextSegment = next.getNextSegment();
             RosMessageFlowSegment previousSegment = next.getPreviousSegment();
             if (previousSegment == null) {
-                fInitialSegment = nextSegment;
+                fInitialSegment = segment;
             } else {
-                previousSegment.addNext(nextSegment);
+                previousSegment.addNext(segment);
             }
         }
     }
 
-    private void processPubQueue(NextSegmentInfo next) throws StateSystemDisposedException, AttributeNotFoundException {
+    private RosMessageFlowSegment processPubQueue(NextSegmentInfo next, Deque<NextSegmentInfo> toProcess) throws StateSystemDisposedException, AttributeNotFoundException {
         int queuePosQuark = next.getQuark();
         long msgStart = next.getTimestamp();
 
@@ -194,22 +200,17 @@ public class RosMessageFlowModel implements IRosMessageFlowModel {
         String nodeName = fQueuesSs.getAttributeName(nodeQuark);
         String topicName = fQueuesSs.getAttributeName(topicQuark);
         RosMessageFlowSegment segment = new RosMessageFlowSegment(start, end, next.getType(), nodeName, topicName);
-        next.setNextSegment(segment);
 
-        QueueSegmentTransition transition = getTransitionFromLastQueueState(lastState, fInfo.getQueueType(), queueQuark);
+        QueueSegmentTransition transition = getTransitionFromLastQueueState(lastState, RosQueueType.PUB, queueQuark);
         if (transition == null) {
             Activator.getInstance().logError("Could not find transition!"); //$NON-NLS-1$
         }
 
-        if (transition == null || transition == QueueSegmentTransition.DROP) {
-            next.setType(SegmentType.INVALID);
-        } else {
-            next.setType(SegmentType.SUB_QUEUE);
+        if (transition != null && transition != QueueSegmentTransition.DROP) {
             // Find first state after network
             RosMessageTransport transport = fMsgsTransportModel.getNextMessageTransport(end, nodeName, topicName);
             if (transport == null) {
                 Activator.getInstance().logError("Could not find next message transport!"); //$NON-NLS-1$
-                next.setType(SegmentType.INVALID);
             } else {
                 // Find the subscriber queue from connection
                 RosConnectionEndpoint sub = transport.getConnection().getSub();
@@ -219,13 +220,13 @@ public class RosMessageFlowModel implements IRosMessageFlowModel {
                 int incomingMsgPosQuark = stateBeforeMsg.getAttribute();
                 long msgStateStartTime = stateBeforeMsg.getEndTime() + 1;
 
-                next.setQuark(incomingMsgPosQuark);
-                next.setTimestamp(msgStateStartTime);
+                toProcess.add(new NextSegmentInfo(SegmentType.SUB_QUEUE, incomingMsgPosQuark, msgStateStartTime, segment));
             }
         }
+        return segment;
     }
 
-    private void processSubQueue(NextSegmentInfo next) throws AttributeNotFoundException, StateSystemDisposedException {
+    private RosMessageFlowSegment processSubQueue(NextSegmentInfo next, Deque<NextSegmentInfo> toProcess) throws AttributeNotFoundException, StateSystemDisposedException {
         int incomingMsgPosQuark = next.getQuark();
         long msgStateStartTime = next.getTimestamp();
         ITmfStateInterval firstState = fQueuesSs.querySingleState(msgStateStartTime, incomingMsgPosQuark);
@@ -238,60 +239,32 @@ public class RosMessageFlowModel implements IRosMessageFlowModel {
         String nodeName = fQueuesSs.getAttributeName(nodeQuark);
         String topicName = fQueuesSs.getAttributeName(topicQuark);
         RosMessageFlowSegment segment = new RosMessageFlowSegment(start, end, next.getType(), nodeName, topicName);
-        next.setNextSegment(segment);
 
         QueueSegmentTransition transition = getTransitionFromLastQueueState(lastState, RosQueueType.SUB, fQueuesSs.getParentAttributeQuark(incomingMsgPosQuark));
         if (transition == null) {
             Activator.getInstance().logError("Could not find transition!"); //$NON-NLS-1$
         }
 
-        if (transition == null || transition == QueueSegmentTransition.DROP) {
-            next.setType(SegmentType.INVALID);
-        } else {
-            next.setType(SegmentType.SUB_CALLBACK);
-
+        if (transition != null && transition != QueueSegmentTransition.DROP) {
             // Callback state info
             long callbackStart = lastState.getEndTime() + 1;
             // Callbacks are not processed per-topic, but per-node/globally
             int subsQuark = fQueuesSs.getParentAttributeQuark(topicQuark);
             int callbackQuark = fQueuesSs.getQuarkRelative(subsQuark, AbstractRosStateProvider.CALLBACKS);
 
-            next.setQuark(callbackQuark);
-            next.setTimestamp(callbackStart);
+            toProcess.add(new NextSegmentInfo(SegmentType.SUB_CALLBACK, callbackQuark, callbackStart, segment));
         }
+        return segment;
     }
 
-    private void processCallback(NextSegmentInfo next) throws StateSystemDisposedException {
+    private RosMessageFlowSegment processCallback(NextSegmentInfo next, Deque<NextSegmentInfo> toProcess, RosPublicationIndex publicationIndex) throws StateSystemDisposedException {
         long callbackStart = next.getTimestamp();
         int callbackQuark = next.getQuark();
         ITmfStateInterval callbackState = fQueuesSs.querySingleState(callbackStart, callbackQuark);
         int nodeQuark = fQueuesSs.getParentAttributeQuark(fQueuesSs.getParentAttributeQuark(callbackQuark));
 
         // Find messages added to the pub queues during the callback
-        List<ITmfStateInterval> pubMsgs = new ArrayList<>();
-        try {
-            int pubListQuark = fQueuesSs.getQuarkRelative(nodeQuark, AbstractRosStateProvider.PUBLISHERS_LIST);
-            List<@NonNull Integer> pubTopicQuarks = fQueuesSs.getSubAttributes(pubListQuark, false);
-            for (Integer pubTopicQuark : pubTopicQuarks) {
-                String topicName = fQueuesSs.getAttributeName(pubTopicQuark);
-                // Rejecting rosout for now
-                // TODO put back in and support
-                if (!topicName.contains("rosout")) { //$NON-NLS-1$
-                    int queueQuark = fQueuesSs.getQuarkRelative(pubTopicQuark, AbstractRosStateProvider.QUEUE);
-                    ITmfStateInterval stateBefore = getStateBeforeMessageAddedToQueue(queueQuark, callbackState.getStartTime() - 1);
-                    // If there is a new state within the start/end of the
-                    // callback
-                    if (stateBefore.getEndTime() < callbackState.getEndTime()) {
-                        long newMsgsStart = stateBefore.getEndTime() + 1;
-                        ITmfStateInterval newPubMsg = fQueuesSs.querySingleState(newMsgsStart, stateBefore.getAttribute());
-                        pubMsgs.add(newPubMsg);
-                    }
-                }
-            }
-        } catch (AttributeNotFoundException e) {
-            // Do nothing, assume it means there are no more messages to be
-            // found
-        }
+        List<Publication> pubMsgs = publicationIndex.getPublications(nodeQuark, callbackState.getStartTime(), callbackState.getEndTime());
 
         long start = callbackState.getStartTime();
         long end;
@@ -303,26 +276,16 @@ public class RosMessageFlowModel implements IRosMessageFlowModel {
             // No messages found
             // Still add a segment for time spent in callback
             end = callbackState.getEndTime();
-            RosMessageFlowSegment segment = new RosMessageFlowSegment(start, end, next.getType(), nodeName, topicName);
-            next.setNextSegment(segment);
-            next.setType(SegmentType.INVALID);
-        } else {
-            // We do not support non-linear flow graphs, so just warn for now
-            // and take the first message
-            // TODO support more than one published message
-            if (pubMsgs.size() > 1) {
-                Activator.getInstance().logWarning("Found more than one published message during callback!"); //$NON-NLS-1$
-            }
-
-            ITmfStateInterval pubMsg = pubMsgs.get(0);
-            end = pubMsg.getStartTime() - 1;
-            RosMessageFlowSegment segment = new RosMessageFlowSegment(start, end, next.getType(), nodeName, topicName);
-            next.setNextSegment(segment);
-
-            next.setQuark(pubMsg.getAttribute());
-            next.setTimestamp(pubMsg.getStartTime());
-            next.setType(SegmentType.PUB_QUEUE);
+            return new RosMessageFlowSegment(start, end, next.getType(), nodeName, topicName);
+        }
+        // The callback lasts until its first published message, then the
+        // flow follows every published message
+        end = pubMsgs.get(0).getTimestamp() - 1;
+        RosMessageFlowSegment segment = new RosMessageFlowSegment(start, end, next.getType(), nodeName, topicName);
+        for (Publication pubMsg : pubMsgs) {
+            toProcess.add(new NextSegmentInfo(SegmentType.PUB_QUEUE, pubMsg.getQueuePosQuark(), pubMsg.getTimestamp(), segment));
         }
+        return segment;
     }
 
     /**
@@ -0,0 +1,178 @@
+/**********************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.ros.core.analysis.model.messageflow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.incubator.internal.ros.core.analysis.AbstractRosStateProvider;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+
+/**
+ * Index of the messages added to the publisher queues of the nodes, by node
+ * and time. These are the edges from the callbacks to the publications of the
+ * message flow graph: the publications made during a callback are the ones of
+ * its node between the start and the end of the callback.
+ * <p>
+ * The index is built once from the sizes of all the publisher queues of the
+ * queues state system, with a single query, so that following a message does
+ * not query the queue of every topic of a node at every callback.
+ */
+public class RosPublicationIndex {
+
+    private static final Comparator<Publication> TIME_COMPARATOR = Comparator.comparingLong(Publication::getTimestamp);
+
+    private final @NonNull ITmfStateSystem fQueuesSs;
+    private final Map<Integer, List<Publication>> fPublications = new HashMap<>();
+
+    /**
+     * A message added to a publisher queue
+     */
+    public static final class Publication {
+        private final long fTimestamp;
+        private final int fQueuePosQuark;
+
+        private Publication(long timestamp, int queuePosQuark) {
+            fTimestamp = timestamp;
+            fQueuePosQuark = queuePosQuark;
+        }
+
+        /**
+         * @return the time at which the message was added to the queue
+         */
+        public long getTimestamp() {
+            return fTimestamp;
+        }
+
+        /**
+         * @return the quark of the position of the message in the queue, when
+         *         it was added
+         */
+        public int getQueuePosQuark() {
+            return fQueuePosQuark;
+        }
+    }
+
+    /**
+     * Constructor, which builds the index
+     *
+     * @param queuesStateSystem
+     *            the queues state system, which must be built
+     * @throws StateSystemDisposedException
+     *             if the state system is disposed
+     */
+    public RosPublicationIndex(@NonNull ITmfStateSystem queuesStateSystem) throws StateSystemDisposedException {
+        fQueuesSs = queuesStateSystem;
+        build();
+    }
+
+    /**
+     * @return the queues state system of this index
+     */
+    public @NonNull ITmfStateSystem getStateSystem() {
+        return fQueuesSs;
+    }
+
+    private void build() throws StateSystemDisposedException {
+        ITmfStateSystem ss = fQueuesSs;
+        // Publisher queue quark -> node quark
+        Map<Integer, Integer> queueNodes = new HashMap<>();
+        for (Integer nodeQuark : ss.getSubAttributes(ITmfStateSystem.ROOT_ATTRIBUTE, false)) {
+            int pubListQuark = ss.optQuarkRelative(nodeQuark, AbstractRosStateProvider.PUBLISHERS_LIST);
+            if (pubListQuark == ITmfStateSystem.INVALID_ATTRIBUTE) {
+                continue;
+            }
+            for (Integer pubTopicQuark : ss.getSubAttributes(pubListQuark, false)) {
+                // Rejecting rosout for now
+                // TODO put back in and support
+                if (ss.getAttributeName(pubTopicQuark).contains("rosout")) { //$NON-NLS-1$
+                    continue;
+                }
+                int queueQuark = ss.optQuarkRelative(pubTopicQuark, AbstractRosStateProvider.QUEUE);
+                if (queueQuark != ITmfStateSystem.INVALID_ATTRIBUTE) {
+                    queueNodes.put(queueQuark, nodeQuark);
+                }
+            }
+        }
+        if (queueNodes.isEmpty()) {
+            return;
+        }
+
+        // The value of a queue attribute is its size
+        Map<Integer, List<ITmfStateInterval>> queueSizes = new HashMap<>();
+        for (ITmfStateInterval interval : ss.query2D(queueNodes.keySet(), ss.getStartTime(), ss.getCurrentEndTime())) {
+            queueSizes.computeIfAbsent(interval.getAttribute(), q -> new ArrayList<>()).add(interval);
+        }
+        for (Map.Entry<Integer, List<ITmfStateInterval>> entry : queueSizes.entrySet()) {
+            int queueQuark = entry.getKey();
+            List<Publication> publications = fPublications.computeIfAbsent(queueNodes.get(queueQuark), n -> new ArrayList<>());
+            List<ITmfStateInterval> intervals = entry.getValue();
+            intervals.sort(Comparator.comparingLong(ITmfStateInterval::getStartTime));
+            int previousSize = 0;
+            for (ITmfStateInterval interval : intervals) {
+                int size = interval.getValue() == null ? 0 : interval.getValueInt();
+                // The new messages are added after the ones in the queue
+                for (int pos = previousSize + 1; pos <= size; pos++) {
+                    int queuePosQuark = ss.optQuarkRelative(queueQuark, String.valueOf(pos));
+                    if (queuePosQuark != ITmfStateSystem.INVALID_ATTRIBUTE) {
+                        publications.add(new Publication(interval.getStartTime(), queuePosQuark));
+                    }
+                }
+                previousSize = size;
+            }
+        }
+        for (List<Publication> publications : fPublications.values()) {
+            publications.sort(TIME_COMPARATOR);
+        }
+    }
+
+    /**
+     * Get the messages published by a node within a time range
+     *
+     * @param nodeQuark
+     *            the quark of the node
+     * @param start
+     *            the start of the time range, inclusive
+     * @param end
+     *            the end of the time range, inclusive
+     * @return the publications, sorted by time
+     */
+    public List<Publication> getPublications(int nodeQuark, long start, long end) {
+        List<Publication> publications = fPublications.get(nodeQuark);
+        if (publications == null) {
+            return Collections.emptyList();
+        }
+        // Find the first publication at or after the start
+        int low = 0;
+        int high = publications.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (publications.get(mid).getTimestamp() < start) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        List<Publication> result = new ArrayList<>();
+        for (int i = low; i < publications.size() && publications.get(i).getTimestamp() <= end; i++) {
+            result.add(publications.get(i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,162 @@
+/**********************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package org.eclipse.tracecompass.incubator.ros2.core.tests.perf;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Objects;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+import org.eclipse.tracecompass.incubator.internal.ros2.core.analysis.messages.Ros2IntervalCursor;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.StateSystemFactory;
+import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Benchmarks the traversal of a sparse quark, i.e., a quark with a few short
+ * non-null states separated by long null states, in a history tree backed
+ * state system. Compares stepping with single-state queries with the
+ * {@link Ros2IntervalCursor}.
+ */
+public class Ros2IntervalCursorBenchmark {
+
+    private static final String TEST_ID = "org.eclipse.tracecompass.incubator#ROS2#";
+    private static final String TEST_SINGLE_STATE = "Sparse quark traversal (single-state queries)";
+    private static final String TEST_CURSOR = "Sparse quark traversal (cursor)";
+
+    private static final int LOOP_COUNT = 10;
+    private static final int NB_DENSE_QUARKS = 20;
+    private static final long END = 10000000L;
+    private static final long DENSE_PERIOD = 100L;
+    private static final long SPARSE_PERIOD = 10000L;
+    private static final long EXPECTED_COUNT = END / SPARSE_PERIOD;
+
+    private static @Nullable File fStateFile;
+    private static @Nullable ITmfStateSystem fSs;
+    private static int fSparseQuark;
+
+    /**
+     * Build the history tree with many dense quarks around one sparse quark
+     *
+     * @throws IOException
+     *             if the state file cannot be created
+     */
+    @BeforeClass
+    public static void setUp() throws IOException {
+        File stateFile = Files.createTempFile("ros2-cursor-benchmark", ".ht").toFile(); //$NON-NLS-1$ //$NON-NLS-2$
+        fStateFile = stateFile;
+        ITmfStateSystemBuilder ss = StateSystemFactory.newStateSystem(StateHistoryBackendFactory.createHistoryTreeBackendNewFile("ros2-benchmark", stateFile, 1, 0L)); //$NON-NLS-1$
+        int[] denseQuarks = new int[NB_DENSE_QUARKS];
+        for (int i = 0; i < NB_DENSE_QUARKS; i++) {
+            denseQuarks[i] = ss.getQuarkAbsoluteAndAdd("dense", String.valueOf(i)); //$NON-NLS-1$
+        }
+        fSparseQuark = ss.getQuarkAbsoluteAndAdd("sparse"); //$NON-NLS-1$
+        for (long t = 0; t < END; t += DENSE_PERIOD) {
+            for (int quark : denseQuarks) {
+                ss.modifyAttribute(t, t, quark);
+            }
+            if (t % SPARSE_PERIOD == SPARSE_PERIOD / 2) {
+                ss.modifyAttribute(t, t, fSparseQuark);
+                ss.modifyAttribute(t + 1, (Object) null, fSparseQuark);
+            }
+        }
+        ss.closeHistory(END);
+        fSs = ss;
+    }
+
+    /**
+     * Dispose of the state system and delete its file
+     */
+    @AfterClass
+    public static void tearDown() {
+        ITmfStateSystem ss = fSs;
+        if (ss != null) {
+            ss.dispose();
+        }
+        File stateFile = fStateFile;
+        if (stateFile != null) {
+            stateFile.delete();
+        }
+    }
+
+    /**
+     * Walk the sparse quark forward with single-state queries, as was done
+     * before the cursor
+     *
+     * @throws StateSystemDisposedException
+     *             if the state system is disposed
+     */
+    @Test
+    public void testSingleStateQueries() throws StateSystemDisposedException {
+        ITmfStateSystem ss = Objects.requireNonNull(fSs);
+        PerformanceMeter pm = createMeter(TEST_SINGLE_STATE);
+        for (int i = 0; i < LOOP_COUNT; i++) {
+            pm.start();
+            long count = 0;
+            long t = ss.getStartTime();
+            while (t <= ss.getCurrentEndTime()) {
+                ITmfStateInterval interval = ss.querySingleState(t, fSparseQuark);
+                if (null != interval.getValue()) {
+                    count++;
+                }
+                t = interval.getEndTime() + 1;
+            }
+            pm.stop();
+            assertEquals(EXPECTED_COUNT, count);
+        }
+        pm.commit();
+    }
+
+    /**
+     * Walk the sparse quark forward with a cursor
+     *
+     * @throws StateSystemDisposedException
+     *             if the state system is disposed
+     */
+    @Test
+    public void testCursor() throws StateSystemDisposedException {
+        ITmfStateSystem ss = Objects.requireNonNull(fSs);
+        PerformanceMeter pm = createMeter(TEST_CURSOR);
+        for (int i = 0; i < LOOP_COUNT; i++) {
+            pm.start();
+            long count = 0;
+            Ros2IntervalCursor cursor = new Ros2IntervalCursor(ss, fSparseQuark);
+            @Nullable ITmfStateInterval interval = cursor.getNextNonNull(ss.getStartTime());
+            while (null != interval) {
+                count++;
+                interval = cursor.getNextNonNull(interval.getEndTime() + 1);
+            }
+            pm.stop();
+            assertEquals(EXPECTED_COUNT, count);
+        }
+        pm.commit();
+    }
+
+    private static PerformanceMeter createMeter(String name) {
+        Performance perf = Performance.getDefault();
+        PerformanceMeter pm = Objects.requireNonNull(perf.createPerformanceMeter(TEST_ID + name));
+        perf.tagAsSummary(pm, name, Dimension.CPU_TIME);
+        return pm;
+    }
+}
@@ -0,0 +1,152 @@
+/**********************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package org.eclipse.tracecompass.incubator.ros2.core.tests.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.eclipse.tracecompass.incubator.internal.ros2.core.analysis.messages.Ros2IntervalCursor;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystemBuilder;
+import org.eclipse.tracecompass.statesystem.core.StateSystemFactory;
+import org.eclipse.tracecompass.statesystem.core.backend.StateHistoryBackendFactory;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link Ros2IntervalCursor}
+ */
+public class Ros2IntervalCursorTest {
+
+    private static final long START = 0L;
+    private static final long END = 100000L;
+    private static final long PERIOD = 1000L;
+    private static final long DURATION = 10L;
+
+    private ITmfStateSystemBuilder fSs;
+    private int fSparseQuark;
+    private int fEmptyQuark;
+
+    /**
+     * Build a state system with a sparse quark: one 10 ns non-null state every
+     * 1000 ns, starting at 500 ns, and a quark that is always null.
+     */
+    @Before
+    public void setUp() {
+        ITmfStateSystemBuilder ss = StateSystemFactory.newStateSystem(StateHistoryBackendFactory.createInMemoryBackend("test", START));
+        fSparseQuark = ss.getQuarkAbsoluteAndAdd("sparse");
+        fEmptyQuark = ss.getQuarkAbsoluteAndAdd("empty");
+        ss.modifyAttribute(START, (Object) null, fEmptyQuark);
+        for (long t = PERIOD / 2; t < END; t += PERIOD) {
+            ss.modifyAttribute(t, t, fSparseQuark);
+            ss.modifyAttribute(t + DURATION, (Object) null, fSparseQuark);
+        }
+        ss.closeHistory(END);
+        fSs = ss;
+    }
+
+    /**
+     * Dispose the state system
+     */
+    @After
+    public void tearDown() {
+        fSs.dispose();
+    }
+
+    /**
+     * Test walking forward over all instances
+     *
+     * @throws StateSystemDisposedException
+     *             if the state system is disposed
+     */
+    @Test
+    public void testForward() throws StateSystemDisposedException {
+        Ros2IntervalCursor cursor = new Ros2IntervalCursor(fSs, fSparseQuark);
+        long expected = PERIOD / 2;
+        ITmfStateInterval interval = cursor.getNextNonNull(START);
+        int count = 0;
+        while (null != interval) {
+            assertEquals(expected, interval.getStartTime());
+            assertEquals(expected + DURATION - 1, interval.getEndTime());
+            assertEquals(expected, interval.getValue());
+            count++;
+            expected += PERIOD;
+            interval = cursor.getNextNonNull(interval.getEndTime() + 1);
+        }
+        assertEquals(END / PERIOD, count);
+    }
+
+    /**
+     * Test walking backward over all instances
+     *
+     * @throws StateSystemDisposedException
+     *             if the state system is disposed
+     */
+    @Test
+    public void testBackward() throws StateSystemDisposedException {
+        Ros2IntervalCursor cursor = new Ros2IntervalCursor(fSs, fSparseQuark);
+        long expected = END - PERIOD / 2;
+        ITmfStateInterval interval = cursor.getPreviousNonNull(END);
+        int count = 0;
+        while (null != interval) {
+            assertEquals(expected, interval.getStartTime());
+            assertEquals(expected, interval.getValue());
+            count++;
+            expected -= PERIOD;
+            interval = cursor.getPreviousNonNull(interval.getStartTime() - 1);
+        }
+        assertEquals(END / PERIOD, count);
+    }
+
+    /**
+     * Test lookups that fall inside an instance, and random jumps
+     *
+     * @throws StateSystemDisposedException
+     *             if the state system is disposed
+     */
+    @Test
+    public void testInsideAndJumps() throws StateSystemDisposedException {
+        Ros2IntervalCursor cursor = new Ros2IntervalCursor(fSs, fSparseQuark);
+        ITmfStateInterval interval = cursor.getNextNonNull(50505L);
+        assertNotNull(interval);
+        assertEquals(50500L, interval.getStartTime());
+        interval = cursor.getPreviousNonNull(50505L);
+        assertNotNull(interval);
+        assertEquals(50500L, interval.getStartTime());
+        interval = cursor.getNextNonNull(1600L);
+        assertNotNull(interval);
+        assertEquals(2500L, interval.getStartTime());
+        interval = cursor.getPreviousNonNull(98000L);
+        assertNotNull(interval);
+        assertEquals(97500L, interval.getStartTime());
+        interval = cursor.getPreviousNonNull(400L);
+        assertNull(interval);
+        interval = cursor.getNextNonNull(END - 400L);
+        assertNull(interval);
+    }
+
+    /**
+     * Test a quark without any non-null state
+     *
+     * @throws StateSystemDisposedException
+     *             if the state system is disposed
+     */
+    @Test
+    public void testEmpty() throws StateSystemDisposedException {
+        Ros2IntervalCursor cursor = new Ros2IntervalCursor(fSs, fEmptyQuark);
+        assertNull(cursor.getNextNonNull(START));
+        assertNull(cursor.getPreviousNonNull(END));
+    }
+}
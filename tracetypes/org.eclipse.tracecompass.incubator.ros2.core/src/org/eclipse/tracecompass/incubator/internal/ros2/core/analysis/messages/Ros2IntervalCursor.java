@@ -0,0 +1,195 @@
+/**********************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ **********************************************************************/
+
+package org.eclipse.tracecompass.incubator.internal.ros2.core.analysis.messages;
+
+import java.util.Collections;
+import java.util.TreeMap;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
+import org.eclipse.tracecompass.statesystem.core.exceptions.StateSystemDisposedException;
+import org.eclipse.tracecompass.statesystem.core.interval.ITmfStateInterval;
+
+/**
+ * Forward/backward cursor over the intervals of a single quark.
+ *
+ * Instead of doing one single-state query (i.e., one full history tree
+ * descent) per interval step, the cursor loads a contiguous window of
+ * intervals with a single 2D query and walks it in memory. When the walk
+ * reaches the edge of the loaded window, the window is extended in that
+ * direction, doubling its size every time, so that sparse quarks (lots of
+ * <code>null</code> states between instances) are traversed in a logarithmic
+ * number of state system queries.
+ *
+ * This is meant to be used on a state system that is done being built. It is
+ * not thread-safe.
+ */
+public class Ros2IntervalCursor {
+
+    /** Initial window size, as a fraction of the state system range */
+    private static final long INITIAL_WINDOW_DIVISOR = 4096L;
+    /** Maximum number of intervals kept before the window is reset */
+    private static final int MAX_CACHED_INTERVALS = 1 << 16;
+
+    private final @NonNull ITmfStateSystem fSs;
+    private final int fQuark;
+    /** Loaded intervals, by start time */
+    private final TreeMap<Long, @NonNull ITmfStateInterval> fIntervals = new TreeMap<>();
+
+    private long fLoadedStart = Long.MAX_VALUE;
+    private long fLoadedEnd = Long.MIN_VALUE;
+    private long fWindow;
+
+    /**
+     * Constructor
+     *
+     * @param ss
+     *            the state system
+     * @param quark
+     *            the quark to iterate over
+     */
+    public Ros2IntervalCursor(@NonNull ITmfStateSystem ss, int quark) {
+        fSs = ss;
+        fQuark = quark;
+        fWindow = getInitialWindow();
+    }
+
+    /**
+     * @return the quark of this cursor
+     */
+    public int getQuark() {
+        return fQuark;
+    }
+
+    /**
+     * Get the first interval with a non-<code>null</code> value that contains
+     * or comes after the given timestamp.
+     *
+     * @param timestamp
+     *            the timestamp
+     * @return the interval, or <code>null</code> if there is none
+     * @throws StateSystemDisposedException
+     *             if the state system was disposed
+     */
+    public @Nullable ITmfStateInterval getNextNonNull(long timestamp) throws StateSystemDisposedException {
+        long ssEnd = fSs.getCurrentEndTime();
+        long time = Math.max(timestamp, fSs.getStartTime());
+        if (time > ssEnd) {
+            return null;
+        }
+        if (time < fLoadedStart || time > fLoadedEnd) {
+            reset();
+            load(time, Math.min(ssEnd, saturatedAdd(time, fWindow)));
+        }
+        Long key = fIntervals.floorKey(time);
+        if (null == key) {
+            key = fIntervals.ceilingKey(time);
+        }
+        while (true) {
+            while (null != key) {
+                ITmfStateInterval interval = fIntervals.get(key);
+                if (null != interval && interval.getEndTime() >= time && null != interval.getValue()) {
+                    return interval;
+                }
+                key = fIntervals.higherKey(key);
+            }
+            if (fLoadedEnd >= ssEnd) {
+                return null;
+            }
+            // Extend the window forward
+            long from = fLoadedEnd + 1;
+            if (fIntervals.size() > MAX_CACHED_INTERVALS) {
+                clearIntervals();
+            }
+            load(from, Math.min(ssEnd, saturatedAdd(from, fWindow)));
+            fWindow = saturatedAdd(fWindow, fWindow);
+            // Intervals starting before 'from' have already been visited
+            key = fIntervals.ceilingKey(from);
+        }
+    }
+
+    /**
+     * Get the last interval with a non-<code>null</code> value that contains or
+     * comes before the given timestamp.
+     *
+     * @param timestamp
+     *            the timestamp
+     * @return the interval, or <code>null</code> if there is none
+     * @throws StateSystemDisposedException
+     *             if the state system was disposed
+     */
+    public @Nullable ITmfStateInterval getPreviousNonNull(long timestamp) throws StateSystemDisposedException {
+        long ssStart = fSs.getStartTime();
+        long time = Math.min(timestamp, fSs.getCurrentEndTime());
+        if (time < ssStart) {
+            return null;
+        }
+        if (time < fLoadedStart || time > fLoadedEnd) {
+            reset();
+            load(Math.max(ssStart, saturatedAdd(time, -fWindow)), time);
+        }
+        Long key = fIntervals.floorKey(time);
+        while (true) {
+            while (null != key) {
+                ITmfStateInterval interval = fIntervals.get(key);
+                if (null != interval && null != interval.getValue()) {
+                    return interval;
+                }
+                key = fIntervals.lowerKey(key);
+            }
+            if (fLoadedStart <= ssStart) {
+                return null;
+            }
+            // Extend the window backward
+            long to = fLoadedStart - 1;
+            if (fIntervals.size() > MAX_CACHED_INTERVALS) {
+                clearIntervals();
+            }
+            load(Math.max(ssStart, saturatedAdd(to, -fWindow)), to);
+            fWindow = saturatedAdd(fWindow, fWindow);
+            key = fIntervals.floorKey(to);
+        }
+    }
+
+    private void load(long start, long end) throws StateSystemDisposedException {
+        for (ITmfStateInterval interval : fSs.query2D(Collections.singleton(fQuark), start, end)) {
+            fIntervals.put(interval.getStartTime(), interval);
+        }
+        fLoadedStart = Math.min(fLoadedStart, start);
+        fLoadedEnd = Math.max(fLoadedEnd, end);
+    }
+
+    private void reset() {
+        clearIntervals();
+        fWindow = getInitialWindow();
+    }
+
+    private void clearIntervals() {
+        fIntervals.clear();
+        fLoadedStart = Long.MAX_VALUE;
+        fLoadedEnd = Long.MIN_VALUE;
+    }
+
+    private long getInitialWindow() {
+        return Math.max(1L, (fSs.getCurrentEndTime() - fSs.getStartTime()) / INITIAL_WINDOW_DIVISOR);
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long result = a + b;
+        // Overflow iff both operands have the same sign and the result differs
+        if (((a ^ result) & (b ^ result)) < 0) {
+            return a < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+        return result;
+    }
+}
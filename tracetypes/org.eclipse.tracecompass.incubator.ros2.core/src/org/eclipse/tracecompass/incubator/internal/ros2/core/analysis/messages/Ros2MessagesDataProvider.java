@@ -19,6 +19,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.function.Predicate;
 
 import org.apache.commons.lang3.StringUtils;
@@ -401,17 +402,13 @@ public class Ros2MessagesDataProvider extends AbstractTimeGraphDataProvider<@Non
 
     private static @Nullable Ros2NodeObject getNodeObject(ITmfStateSystem ss, int quark) {
         try {
-            // Get node handle from a time graph state
-            Iterable<@NonNull ITmfStateInterval> query2d = ss.query2D(Collections.singleton(quark), ss.getStartTime(), ss.getCurrentEndTime());
-            for (ITmfStateInterval iTmfStateInterval : query2d) {
-                if (iTmfStateInterval.getValue() instanceof String) {
+            // Get node handle from the first time graph state
+            ITmfStateInterval interval = new Ros2IntervalCursor(Objects.requireNonNull(ss), quark).getNextNonNull(ss.getStartTime());
+            if (null != interval) {
+                if (interval.getValue() instanceof String) {
                     return null;
                 }
-                @Nullable
-                Ros2NodeObject nodeObject = (Ros2NodeObject) iTmfStateInterval.getValue();
-                if (null != nodeObject) {
-                    return nodeObject;
-                }
+                return (Ros2NodeObject) interval.getValue();
             }
         } catch (IndexOutOfBoundsException | TimeRangeException | StateSystemDisposedException e) {
             // Do nothing
@@ -422,14 +419,11 @@ public class Ros2MessagesDataProvider extends AbstractTimeGraphDataProvider<@Non
 
     private @Nullable Ros2PublisherObject getPublisherObject(ITmfStateSystem ss, int quark) {
         try {
-            // Get publisher handle from a time graph state
-            Iterable<@NonNull ITmfStateInterval> query2d = ss.query2D(Collections.singleton(quark), ss.getStartTime(), ss.getCurrentEndTime());
-            for (ITmfStateInterval iTmfStateInterval : query2d) {
-                @Nullable
-                Ros2PubInstance pubInstance = (Ros2PubInstance) iTmfStateInterval.getValue();
-                if (null != pubInstance) {
-                    return Ros2ObjectsUtil.getPublisherObjectFromHandle(fObjectsSs, ss.getCurrentEndTime(), pubInstance.getPublisherHandle());
-                }
+            // Get publisher handle from the first time graph state
+            ITmfStateInterval interval = new Ros2IntervalCursor(Objects.requireNonNull(ss), quark).getNextNonNull(ss.getStartTime());
+            if (null != interval) {
+                Ros2PubInstance pubInstance = (Ros2PubInstance) interval.getValue();
+                return Ros2ObjectsUtil.getPublisherObjectFromHandle(fObjectsSs, ss.getCurrentEndTime(), Objects.requireNonNull(pubInstance).getPublisherHandle());
             }
         } catch (IndexOutOfBoundsException | TimeRangeException | StateSystemDisposedException e) {
             // Do nothing
@@ -440,17 +434,14 @@ public class Ros2MessagesDataProvider extends AbstractTimeGraphDataProvider<@Non
 
     private @Nullable Ros2SubscriptionObject getSubscriptionObject(ITmfStateSystem ss, int quark) {
         try {
-            // Get subscription handle from a time graph state
-            Iterable<@NonNull ITmfStateInterval> query2d = ss.query2D(Collections.singleton(quark), ss.getStartTime(), ss.getCurrentEndTime());
-            for (ITmfStateInterval iTmfStateInterval : query2d) {
-                if (iTmfStateInterval.getValue() instanceof String) {
+            // Get subscription handle from the first time graph state
+            ITmfStateInterval interval = new Ros2IntervalCursor(Objects.requireNonNull(ss), quark).getNextNonNull(ss.getStartTime());
+            if (null != interval) {
+                if (interval.getValue() instanceof String) {
                     return null;
                 }
-                @Nullable
-                Ros2SubCallbackInstance subCallbackInstance = (Ros2SubCallbackInstance) iTmfStateInterval.getValue();
-                if (null != subCallbackInstance) {
-                    return Ros2ObjectsUtil.getSubscriptionObjectFromHandle(fObjectsSs, ss.getCurrentEndTime(), subCallbackInstance.getTakeInstance().getSubscriptionHandle());
-                }
+                Ros2SubCallbackInstance subCallbackInstance = (Ros2SubCallbackInstance) interval.getValue();
+                return Ros2ObjectsUtil.getSubscriptionObjectFromHandle(fObjectsSs, ss.getCurrentEndTime(), Objects.requireNonNull(subCallbackInstance).getTakeInstance().getSubscriptionHandle());
             }
         } catch (IndexOutOfBoundsException | TimeRangeException | StateSystemDisposedException e) {
             // Do nothing
@@ -461,14 +452,11 @@ public class Ros2MessagesDataProvider extends AbstractTimeGraphDataProvider<@Non
 
     private @Nullable Ros2TimerObject getTimerObject(ITmfStateSystem ss, int quark) {
         try {
-            // Get timer handle from a time graph state
-            Iterable<@NonNull ITmfStateInterval> query2d = ss.query2D(Collections.singleton(quark), ss.getStartTime(), ss.getCurrentEndTime());
-            for (ITmfStateInterval iTmfStateInterval : query2d) {
-                @Nullable
-                Ros2TimerCallbackInstance timerCallbackInstance = (Ros2TimerCallbackInstance) iTmfStateInterval.getValue();
-                if (null != timerCallbackInstance) {
-                    return Ros2ObjectsUtil.getTimerObjectFromHandle(fObjectsSs, ss.getCurrentEndTime(), timerCallbackInstance.getTimerHandle());
-                }
+            // Get timer handle from the first time graph state
+            ITmfStateInterval interval = new Ros2IntervalCursor(Objects.requireNonNull(ss), quark).getNextNonNull(ss.getStartTime());
+            if (null != interval) {
+                Ros2TimerCallbackInstance timerCallbackInstance = (Ros2TimerCallbackInstance) interval.getValue();
+                return Ros2ObjectsUtil.getTimerObjectFromHandle(fObjectsSs, ss.getCurrentEndTime(), Objects.requireNonNull(timerCallbackInstance).getTimerHandle());
             }
         } catch (IndexOutOfBoundsException | TimeRangeException | StateSystemDisposedException e) {
             // Do nothing
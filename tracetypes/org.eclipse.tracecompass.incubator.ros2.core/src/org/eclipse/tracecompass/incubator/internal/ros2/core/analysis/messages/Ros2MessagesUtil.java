@@ -15,6 +15,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Objects;
+import java.util.function.IntFunction;
 import java.util.stream.Stream;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -490,7 +491,7 @@ public class Ros2MessagesUtil {
 
     /**
      * Get state interval for the next publication instance on after the given
-     * timestamp.
+     * timestamp, using the given cursors.
      *
      * @param ss
      *            the messages state system
@@ -501,9 +502,13 @@ public class Ros2MessagesUtil {
      *            instance interval
      * @param publisherHandle
      *            the publisher handle
+     * @param cursors
+     *            the provider of interval cursors over quarks of the messages
+     *            state system
      * @return the state interval, or <code>null</code>
      */
-    public static @Nullable ITmfStateInterval getNextPubInstanceInterval(ITmfStateSystem ss, ITmfStateSystem objectsSs, long timestamp, @NonNull Ros2ObjectHandle publisherHandle) {
+    public static @Nullable ITmfStateInterval getNextPubInstanceInterval(ITmfStateSystem ss, ITmfStateSystem objectsSs, long timestamp, @NonNull Ros2ObjectHandle publisherHandle,
+            @NonNull IntFunction<@NonNull Ros2IntervalCursor> cursors) {
         Integer pubQuark = getPublisherQuark(ss, objectsSs, timestamp, publisherHandle);
         if (null == pubQuark) {
             return null;
@@ -511,21 +516,14 @@ public class Ros2MessagesUtil {
         try {
             /**
              * The state interval at the given timestamp will most probably be
-             * null. In that case, use its start timestamp to find the next
-             * state interval, which should not be null, unless we're at the end
-             * of the state system.
+             * null. In that case, the cursor walks forward to the next state
+             * interval, which should not be null, unless we're at the end of
+             * the state system.
              */
-            ITmfStateInterval pubInstanceInterval = ss.querySingleState(timestamp, pubQuark);
-            if (null != pubInstanceInterval.getValue()) {
+            ITmfStateInterval pubInstanceInterval = cursors.apply(pubQuark).getNextNonNull(timestamp);
+            if (null != pubInstanceInterval) {
                 return pubInstanceInterval;
             }
-            // Make sure the above null-value interval is not the last state
-            if (pubInstanceInterval.getEndTime() < ss.getCurrentEndTime()) {
-                pubInstanceInterval = ss.querySingleState(pubInstanceInterval.getEndTime() + 1, pubQuark);
-                if (null != pubInstanceInterval.getValue()) {
-                    return pubInstanceInterval;
-                }
-            }
         } catch (StateSystemDisposedException e) {
             // Do nothing
         }
@@ -612,7 +610,7 @@ public class Ros2MessagesUtil {
 
     /**
      * Get state interval for the next subscription callback instance on after
-     * the given timestamp.
+     * the given timestamp, using the given cursors.
      *
      * @param ss
      *            the messages state system
@@ -623,9 +621,13 @@ public class Ros2MessagesUtil {
      *            instance interval
      * @param subscriptionHandle
      *            the subscription handle
+     * @param cursors
+     *            the provider of interval cursors over quarks of the messages
+     *            state system
      * @return the state interval, or <code>null</code>
      */
-    public static @Nullable ITmfStateInterval getNextSubCallbackInstanceInterval(ITmfStateSystem ss, ITmfStateSystem objectsSs, long timestamp, @NonNull Ros2ObjectHandle subscriptionHandle) {
+    public static @Nullable ITmfStateInterval getNextSubCallbackInstanceInterval(ITmfStateSystem ss, ITmfStateSystem objectsSs, long timestamp, @NonNull Ros2ObjectHandle subscriptionHandle,
+            @NonNull IntFunction<@NonNull Ros2IntervalCursor> cursors) {
         Integer subQuark = getSubscriptionQuark(ss, objectsSs, timestamp, subscriptionHandle);
         if (null == subQuark) {
             return null;
@@ -633,21 +635,14 @@ public class Ros2MessagesUtil {
         try {
             /**
              * The state interval at the given timestamp will most probably be
-             * null. In that case, use its start timestamp to find the next
-             * state interval, which should not be null, unless we're at the end
-             * of the state system.
+             * null. In that case, the cursor walks forward to the next
+             * state interval, which should not be null, unless we're at the
+             * end of the state system.
              */
-            ITmfStateInterval subCallbackInstanceInterval = ss.querySingleState(timestamp, subQuark);
-            if (null != subCallbackInstanceInterval.getValue()) {
+            ITmfStateInterval subCallbackInstanceInterval = cursors.apply(subQuark).getNextNonNull(timestamp);
+            if (null != subCallbackInstanceInterval) {
                 return subCallbackInstanceInterval;
             }
-            // Make sure the above null-value interval is not the last state
-            if (subCallbackInstanceInterval.getEndTime() < ss.getCurrentEndTime()) {
-                subCallbackInstanceInterval = ss.querySingleState(subCallbackInstanceInterval.getEndTime() + 1, subQuark);
-                if (null != subCallbackInstanceInterval.getValue()) {
-                    return subCallbackInstanceInterval;
-                }
-            }
         } catch (StateSystemDisposedException e) {
             // Do nothing
         }
@@ -657,7 +652,7 @@ public class Ros2MessagesUtil {
 
     /**
      * Get state interval for the previous subscription callback instance on or
-     * before the given timestamp.
+     * before the given timestamp, using the given cursors.
      *
      * @param ss
      *            the messages state system
@@ -668,9 +663,13 @@ public class Ros2MessagesUtil {
      *            instance interval
      * @param subscriptionHandle
      *            the subscription handle
+     * @param cursors
+     *            the provider of interval cursors over quarks of the messages
+     *            state system
      * @return the state interval, or <code>null</code>
      */
-    public static @Nullable ITmfStateInterval getPreviousSubCallbackInstanceInterval(ITmfStateSystem ss, ITmfStateSystem objectsSs, long timestamp, @NonNull Ros2ObjectHandle subscriptionHandle) {
+    public static @Nullable ITmfStateInterval getPreviousSubCallbackInstanceInterval(ITmfStateSystem ss, ITmfStateSystem objectsSs, long timestamp, @NonNull Ros2ObjectHandle subscriptionHandle,
+            @NonNull IntFunction<@NonNull Ros2IntervalCursor> cursors) {
         Integer subQuark = getSubscriptionQuark(ss, objectsSs, timestamp, subscriptionHandle);
         if (null == subQuark) {
             return null;
@@ -678,21 +677,14 @@ public class Ros2MessagesUtil {
         try {
             /**
              * The state interval at the given timestamp will most probably be
-             * null. In that case, use its start timestamp to find the previous
+             * null. In that case, the cursor walks backward to the previous
              * state interval, which should not be null, unless we're at the
              * beginning of the state system.
              */
-            ITmfStateInterval subCallbackInstanceInterval = ss.querySingleState(timestamp, subQuark);
-            if (null != subCallbackInstanceInterval.getValue()) {
+            ITmfStateInterval subCallbackInstanceInterval = cursors.apply(subQuark).getPreviousNonNull(timestamp);
+            if (null != subCallbackInstanceInterval) {
                 return subCallbackInstanceInterval;
             }
-            // Make sure the above null-value interval is not the first state
-            if (subCallbackInstanceInterval.getStartTime() > ss.getStartTime()) {
-                subCallbackInstanceInterval = ss.querySingleState(subCallbackInstanceInterval.getStartTime() - 1, subQuark);
-                if (null != subCallbackInstanceInterval.getValue()) {
-                    return subCallbackInstanceInterval;
-                }
-            }
         } catch (StateSystemDisposedException e) {
             // Do nothing
         }
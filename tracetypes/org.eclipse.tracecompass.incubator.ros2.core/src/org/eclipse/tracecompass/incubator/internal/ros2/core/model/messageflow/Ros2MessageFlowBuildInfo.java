@@ -11,7 +11,11 @@
 
 package org.eclipse.tracecompass.incubator.internal.ros2.core.model.messageflow;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.tracecompass.incubator.internal.ros2.core.analysis.messages.Ros2IntervalCursor;
 import org.eclipse.tracecompass.incubator.internal.ros2.core.model.messagelinks.Ros2MessageCausalLinksModel;
 import org.eclipse.tracecompass.statesystem.core.ITmfStateSystem;
 
@@ -25,6 +29,7 @@ public class Ros2MessageFlowBuildInfo {
     private final @NonNull ITmfStateSystem fObjectsSs;
     private final @NonNull ITmfStateSystem fMessagesSs;
     private final @NonNull Ros2MessageCausalLinksModel fMessageLinksModel;
+    private final @NonNull Map<Integer, @NonNull Ros2IntervalCursor> fMessagesCursors = new HashMap<>();
 
     /**
      * Constructor
@@ -66,4 +71,17 @@ public class Ros2MessageFlowBuildInfo {
     public @NonNull Ros2MessageCausalLinksModel getMessageLinksModel() {
         return fMessageLinksModel;
     }
+
+    /**
+     * Get the interval cursor for a quark of the messages state system. Cursors
+     * are kept for the whole build, so that successive lookups on the same
+     * quark reuse the intervals that were already loaded.
+     *
+     * @param quark
+     *            the quark in the messages state system
+     * @return the cursor
+     */
+    public @NonNull Ros2IntervalCursor getMessagesCursor(int quark) {
+        return fMessagesCursors.computeIfAbsent(quark, q -> new Ros2IntervalCursor(fMessagesSs, q));
+    }
 }
@@ -172,7 +172,7 @@ public class Ros2PublicationMessageFlowSegment extends Ros2MessageFlowSegment {
     }
 
     private void getWaitPeriodicAsyncSegmentsBeforePublication(@NonNull Ros2MessageFlowBuildInfo info, Collection<@NonNull Ros2MessageFlowSegment> previous, @NonNull Ros2ObjectHandle subHandle) {
-        ITmfStateInterval previousSubCallbackInstanceInterval = Ros2MessagesUtil.getPreviousSubCallbackInstanceInterval(info.getMessagesSs(), info.getObjectsSs(), getStartTime(), subHandle);
+        ITmfStateInterval previousSubCallbackInstanceInterval = Ros2MessagesUtil.getPreviousSubCallbackInstanceInterval(info.getMessagesSs(), info.getObjectsSs(), getStartTime(), subHandle, info::getMessagesCursor);
         if (null == previousSubCallbackInstanceInterval) {
             return;
         }
@@ -188,7 +188,7 @@ public class Ros2PublicationMessageFlowSegment extends Ros2MessageFlowSegment {
     }
 
     private void getWaitPartialSyncSegmentsBeforePublication(@NonNull Ros2MessageFlowBuildInfo info, Collection<@NonNull Ros2MessageFlowSegment> previous, @NonNull Ros2ObjectHandle subHandle) {
-        ITmfStateInterval previousSubCallbackInstanceInterval = Ros2MessagesUtil.getPreviousSubCallbackInstanceInterval(info.getMessagesSs(), info.getObjectsSs(), getStartTime(), subHandle);
+        ITmfStateInterval previousSubCallbackInstanceInterval = Ros2MessagesUtil.getPreviousSubCallbackInstanceInterval(info.getMessagesSs(), info.getObjectsSs(), getStartTime(), subHandle, info::getMessagesCursor);
         if (null == previousSubCallbackInstanceInterval) {
             return;
         }
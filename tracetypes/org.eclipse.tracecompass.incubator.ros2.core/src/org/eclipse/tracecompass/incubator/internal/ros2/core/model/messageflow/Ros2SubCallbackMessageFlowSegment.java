@@ -97,7 +97,7 @@ public class Ros2SubCallbackMessageFlowSegment extends Ros2MessageFlowSegment {
         }
 
         // Wait link
-        ITmfStateInterval nextSubCallbackInstanceInterval = Ros2MessagesUtil.getNextSubCallbackInstanceInterval(info.getMessagesSs(), info.getObjectsSs(), getEndTime() + 1, getSubscription().getHandle());
+        ITmfStateInterval nextSubCallbackInstanceInterval = Ros2MessagesUtil.getNextSubCallbackInstanceInterval(info.getMessagesSs(), info.getObjectsSs(), getEndTime() + 1, getSubscription().getHandle(), info::getMessagesCursor);
         if (null == nextSubCallbackInstanceInterval) {
             return next;
         }
@@ -150,7 +150,7 @@ public class Ros2SubCallbackMessageFlowSegment extends Ros2MessageFlowSegment {
          */
         long currentSubCallbackInstanceEndTime = getCallbackInstance().getCallbackInstance().getEndTime();
         // There is no link if there is no next publication
-        ITmfStateInterval nextPubInstanceInterval = Ros2MessagesUtil.getNextPubInstanceInterval(info.getMessagesSs(), info.getObjectsSs(), currentSubCallbackInstanceEndTime + 1, pubHandle);
+        ITmfStateInterval nextPubInstanceInterval = Ros2MessagesUtil.getNextPubInstanceInterval(info.getMessagesSs(), info.getObjectsSs(), currentSubCallbackInstanceEndTime + 1, pubHandle, info::getMessagesCursor);
         if (null == nextPubInstanceInterval) {
             return;
         }
@@ -158,7 +158,7 @@ public class Ros2SubCallbackMessageFlowSegment extends Ros2MessageFlowSegment {
         if (null == nextPubInstance) {
             return;
         }
-        ITmfStateInterval nextSubCallbackInstanceInterval = Ros2MessagesUtil.getNextSubCallbackInstanceInterval(info.getMessagesSs(), info.getObjectsSs(), currentSubCallbackInstanceEndTime + 1, getSubscription().getHandle());
+        ITmfStateInterval nextSubCallbackInstanceInterval = Ros2MessagesUtil.getNextSubCallbackInstanceInterval(info.getMessagesSs(), info.getObjectsSs(), currentSubCallbackInstanceEndTime + 1, getSubscription().getHandle(), info::getMessagesCursor);
         if (null == nextSubCallbackInstanceInterval || nextPubInstanceInterval.getStartTime() < nextSubCallbackInstanceInterval.getStartTime()) {
             Ros2PublisherObject pubObject = Ros2ObjectsUtil.getPublisherObjectFromHandle(info.getObjectsSs(), nextPubInstanceInterval.getStartTime(), pubHandle);
             if (null != pubObject) {
@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2024 École Polytechnique de Montréal
+ *
+ * All rights reserved. This program and the accompanying materials are
+ * made available under the terms of the Eclipse Public License 2.0 which
+ * accompanies this distribution, and is available at
+ * https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+
+package org.eclipse.tracecompass.incubator.traceevent.core.tests.perf;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Objects;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.test.performance.Dimension;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+import org.eclipse.tracecompass.incubator.internal.traceevent.core.analysis.callstack.TraceEventCallstackAnalysis;
+import org.eclipse.tracecompass.incubator.internal.traceevent.core.trace.TraceEventTrace;
+import org.eclipse.tracecompass.tmf.core.event.ITmfEvent;
+import org.eclipse.tracecompass.tmf.core.tests.shared.TmfTestHelper;
+import org.eclipse.tracecompass.tmf.core.trace.TmfTraceManager;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Benchmarks the trace event callstack state provider on synthetic traces with
+ * deep stacks, where the handling of the function exits depends on the depth
+ * of the stack. The number of events per second is the number of events of the
+ * trace divided by the measured time.
+ */
+public class TraceEventCallStackBenchmark {
+
+    private static final String TEST_ID = "org.eclipse.tracecompass.incubator#TraceEvent#";
+    private static final String TEST_RECURSION = "Callstack deep recursion (" + TraceEventCallStackBenchmark.nbEvents() + " events)";
+    private static final String TEST_DISTINCT = "Callstack deep distinct functions (" + TraceEventCallStackBenchmark.nbEvents() + " events)";
+
+    private static final int LOOP_COUNT = 5;
+    private static final int NB_THREADS = 4;
+    private static final int DEPTH = 500;
+    private static final int REPETITIONS = 50;
+
+    private static @Nullable File fRecursionTrace;
+    private static @Nullable File fDistinctTrace;
+
+    private static long nbEvents() {
+        return 2L * NB_THREADS * DEPTH * REPETITIONS;
+    }
+
+    /**
+     * Generate the traces
+     *
+     * @throws IOException
+     *             if the traces cannot be written
+     */
+    @BeforeClass
+    public static void setUp() throws IOException {
+        fRecursionTrace = generateTrace("recursion", true);
+        fDistinctTrace = generateTrace("distinct", false);
+    }
+
+    /**
+     * Delete the traces
+     */
+    @AfterClass
+    public static void tearDown() {
+        for (File trace : new @Nullable File[] { fRecursionTrace, fDistinctTrace }) {
+            if (trace != null) {
+                trace.delete();
+            }
+        }
+    }
+
+    /**
+     * Generate a trace where each thread repeatedly enters functions up to the
+     * maximal depth, then exits them all
+     */
+    private static File generateTrace(String name, boolean recursive) throws IOException {
+        File file = Files.createTempFile("trace-event-" + name, ".json").toFile(); //$NON-NLS-1$ //$NON-NLS-2$
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("[\n"); //$NON-NLS-1$
+            long ts = 0;
+            boolean first = true;
+            for (int rep = 0; rep < REPETITIONS; rep++) {
+                for (int tid = 1; tid <= NB_THREADS; tid++) {
+                    for (int depth = 0; depth < DEPTH; depth++) {
+                        first = writeEvent(writer, first, recursive ? "recurse" : "function" + depth, "B", tid, ts++); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                    }
+                    for (int depth = DEPTH - 1; depth >= 0; depth--) {
+                        first = writeEvent(writer, first, recursive ? "recurse" : "function" + depth, "E", tid, ts++); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                    }
+                }
+            }
+            writer.write("\n]\n"); //$NON-NLS-1$
+        }
+        return file;
+    }
+
+    private static boolean writeEvent(BufferedWriter writer, boolean first, String name, String phase, int tid, long ts) throws IOException {
+        if (!first) {
+            writer.write(",\n"); //$NON-NLS-1$
+        }
+        writer.write(String.format("{\"cat\":\"bench\",\"pid\":1,\"tid\":%d,\"ts\":%d,\"ph\":\"%s\",\"name\":\"%s\",\"args\":{}}", tid, ts, phase, name)); //$NON-NLS-1$
+        return false;
+    }
+
+    /**
+     * Benchmark the callstack analysis on a trace with deep recursion, ie the
+     * same function name at every depth
+     *
+     * @throws Exception
+     *             if the trace or analysis cannot be initialized
+     */
+    @Test
+    public void testDeepRecursion() throws Exception {
+        runBenchmark(Objects.requireNonNull(fRecursionTrace), TEST_RECURSION);
+    }
+
+    /**
+     * Benchmark the callstack analysis on a trace with deep stacks of distinct
+     * functions
+     *
+     * @throws Exception
+     *             if the trace or analysis cannot be initialized
+     */
+    @Test
+    public void testDeepDistinctFunctions() throws Exception {
+        runBenchmark(Objects.requireNonNull(fDistinctTrace), TEST_DISTINCT);
+    }
+
+    private static void runBenchmark(File traceFile, String testName) throws Exception {
+        Performance perf = Performance.getDefault();
+        PerformanceMeter pm = Objects.requireNonNull(perf.createPerformanceMeter(TEST_ID + testName));
+        perf.tagAsSummary(pm, testName, Dimension.CPU_TIME);
+        for (int i = 0; i < LOOP_COUNT; i++) {
+            TraceEventTrace trace = new TraceEventTrace();
+            TraceEventCallstackAnalysis module = new TraceEventCallstackAnalysis();
+            try {
+                IStatus validate = trace.validate(null, traceFile.getAbsolutePath());
+                assertTrue(validate.getMessage(), validate.isOK());
+                trace.initTrace(null, traceFile.getAbsolutePath(), ITmfEvent.class);
+                assertTrue(module.setTrace(trace));
+
+                pm.start();
+                assertTrue(TmfTestHelper.executeAnalysis(module));
+                pm.stop();
+                assertNotNull(module.getStateSystem());
+            } finally {
+                module.dispose();
+                deleteSupplementaryFiles(trace);
+                trace.dispose();
+            }
+        }
+        pm.commit();
+    }
+
+    private static void deleteSupplementaryFiles(TraceEventTrace trace) {
+        File suppDir = new File(TmfTraceManager.getSupplementaryFileDir(trace));
+        File[] files = suppDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+}
@@ -80,6 +80,11 @@ public class TraceEventCallStackProvider extends CallStackStateProvider {
      */
     private final Map<Integer, Deque<Long>> fStack = new TreeMap<>();
 
+    /**
+     * A map of callstack quark to an in-memory mirror of its ongoing stack
+     */
+    private final Map<Integer, OngoingStack> fOngoingStacks = new HashMap<>();
+
     private final ITmfEventAspect<?> fIdAspect;
 
     private final ITmfEventAspect<?> fCatAspect;
@@ -138,6 +143,76 @@ public class TraceEventCallStackProvider extends CallStackStateProvider {
         }
     }
 
+    /**
+     * Mirror of the ongoing state of a callstack attribute, so that the
+     * function to exit can be found without querying every level of the
+     * stack. It keeps the name at every depth and, for each name, the depths
+     * where it appears.
+     */
+    private static final class OngoingStack {
+        private final List<@Nullable Object> fNames = new ArrayList<>();
+        private final Map<@Nullable Object, Deque<Integer>> fDepths = new HashMap<>();
+        private final List<Integer> fDepthQuarks = new ArrayList<>();
+
+        public void push(@Nullable Object name) {
+            fDepths.computeIfAbsent(name, unused -> new ArrayDeque<>()).push(fNames.size());
+            fNames.add(name);
+        }
+
+        public void pop() {
+            if (fNames.isEmpty()) {
+                return;
+            }
+            Object name = fNames.remove(fNames.size() - 1);
+            Deque<Integer> depths = fDepths.get(name);
+            if (depths != null) {
+                depths.pop();
+                if (depths.isEmpty()) {
+                    fDepths.remove(name);
+                }
+            }
+        }
+
+        public int size() {
+            return fNames.size();
+        }
+
+        /**
+         * Get the index of the last occurrence of a name in the stack, the
+         * equivalent of lastIndexOf on the list of names
+         */
+        public int lastIndexOf(Object name) {
+            Deque<Integer> depths = fDepths.get(name);
+            if (depths == null) {
+                return -1;
+            }
+            Integer depth = depths.peek();
+            return depth == null ? -1 : depth;
+        }
+
+        /**
+         * Get the quark of a depth of the stack, the first level being 1
+         */
+        public int getDepthQuark(ITmfStateSystemBuilder ss, int quark, int depth) {
+            while (fDepthQuarks.size() < depth) {
+                int depthQuark = ss.optQuarkRelative(quark, String.valueOf(fDepthQuarks.size() + 1));
+                if (depthQuark < 0) {
+                    return depthQuark;
+                }
+                fDepthQuarks.add(depthQuark);
+            }
+            return fDepthQuarks.get(depth - 1);
+        }
+
+        public void reset(List<Object> names) {
+            fNames.clear();
+            fDepths.clear();
+            for (Object name : names) {
+                push(name);
+            }
+        }
+    }
+
     /**
      * Constructor
      *
@@ -310,6 +385,7 @@ public class TraceEventCallStackProvider extends CallStackStateProvider {
                 Long closeCandidate = stack.pop();
                 while (closeCandidate != null && closeCandidate < timestamp) {
                     ss.popAttribute(closeCandidate, stackEntry.getKey());
+                    getOngoingStack(stackEntry.getKey()).pop();
                     closeCandidate = (stack.isEmpty()) ? null : stack.pop();
                 }
                 if (closeCandidate != null) {
@@ -494,7 +570,9 @@ public class TraceEventCallStackProvider extends CallStackStateProvider {
             ss.modifyAttribute(timestamp, threadId, threadQuark);
 
             int callStackQuark = ss.getQuarkRelativeAndAdd(threadQuark, InstrumentedCallStackAnalysis.CALL_STACK);
-            ss.pushAttribute(timestamp, functionBeginName.unboxValue(), callStackQuark);
+            Object functionName = functionBeginName.unboxValue();
+            ss.pushAttribute(timestamp, functionName, callStackQuark);
+            getOngoingStack(callStackQuark).push(functionName);
             prepareNextSlice(ss, callStackQuark, timestamp);
         }
     }
@@ -522,31 +600,54 @@ public class TraceEventCallStackProvider extends CallStackStateProvider {
             }
             int quark = ss.getQuarkAbsoluteAndAdd(PROCESSES, pName, threadName, InstrumentedCallStackAnalysis.CALL_STACK);
             // The function to end is not necessarily the tip of the stack. Unstack up to function name
-            List<Object> callStack = getCallStack(ss, quark);
+            OngoingStack callStack = getOngoingStack(ss, quark);
+            int size = callStack.size();
             int indexOf = callStack.lastIndexOf(functionExitName);
             // Function not found, just unstack the last one?
             if (indexOf < 0) {
                 if (functionExitName.equals(TraceEventField.UNKNOWN_EXIT_EVENT) || functionExitName.equals(TraceEventField.UNKNOWN_DURATION_EXIT_EVENT)) {
                     // The event has no name, assume the last one in the stack
-                    indexOf = callStack.size() - 1;
+                    indexOf = size - 1;
                 } else {
                     // The event had a name, maybe the beginning was lost, update it in the stack, then pop it
-                    int stackQuark = ss.optQuarkRelative(quark, String.valueOf(callStack.size() + 1));
+                    int stackQuark = callStack.getDepthQuark(ss, quark, size + 1);
                     if (stackQuark >= 0) {
                         ss.updateOngoingState(functionExitName, stackQuark);
                         ss.pushAttribute(timestamp, (Object) null, quark);
+                        callStack.push(null);
+                        size++;
                     }
                     // Pop the last element
-                    indexOf = callStack.size() - 1;
+                    indexOf = size - 1;
                 }
             }
             // Pop all the attributes up to the exiting function
-            for (int i = indexOf; i < callStack.size(); i++) {
+            for (int i = indexOf; i < size; i++) {
                 ss.popAttribute(timestamp, quark);
+                callStack.pop();
             }
         }
     }
 
+    private OngoingStack getOngoingStack(int quark) {
+        return fOngoingStacks.computeIfAbsent(quark, unused -> new OngoingStack());
+    }
+
+    /**
+     * Get the mirror of the ongoing stack of a callstack quark, making sure it
+     * has the same depth as the state system
+     */
+    private OngoingStack getOngoingStack(ITmfStateSystemBuilder ss, int quark) {
+        OngoingStack stack = getOngoingStack(quark);
+        Object depth = ss.queryOngoing(quark);
+        int currentDepth = (depth instanceof Integer) ? (Integer) depth : 0;
+        if (stack.size() != currentDepth) {
+            // Should not happen, but resynchronize with the state system
+            stack.reset(getCallStack(ss, quark));
+        }
+        return stack;
+    }
+
     private static List<Object> getCallStack(ITmfStateSystemBuilder ss, int quark) {
         List<Object> callstackObjects = new ArrayList<>();
         Integer currentDepth = (Integer) ss.queryOngoing(quark);
@@ -597,6 +698,7 @@ public class TraceEventCallStackProvider extends CallStackStateProvider {
 
         int callStackQuark = ss.getQuarkRelativeAndAdd(threadQuark, InstrumentedCallStackAnalysis.CALL_STACK);
         ss.pushAttribute(startTime, event.getName(), callStackQuark);
+        getOngoingStack(callStackQuark).push(event.getName());
         Deque<Long> stack = fStack.computeIfAbsent(callStackQuark, ArrayDeque::new);
         stack.push(end);
     }